@@ -0,0 +1,131 @@
+package dev.roberto.devices.domain.inmemory;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceState;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Fotografia do {@link InMemoryDeviceRepository} em formato binário, gravada via arquivo
+ * mapeado em memória. A gravação vai para um arquivo temporário, é forçada ao disco e só
+ * então substitui o anterior com move atômico: um crash no meio preserva a última fotografia.
+ *
+ * Layout: magic, formato, watermark, quantidade, registros, CRC32 de tudo que vem antes.
+ * Registro: id (msb, lsb), version, creationTime (segundos, nanos), state, name, brand;
+ * strings em UTF-8 prefixadas pelo tamanho.
+ */
+public record DeviceSnapshot(long watermark, List<Device> devices) {
+
+  static final int MAGIC = 0x44455653; // "DEVS"
+  static final int FORMAT = 1;
+
+  private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+  private static final int FIXED_RECORD_BYTES = 8 + 8 + 8 + 8 + 4 + 3 * 4;
+  private static final int TRAILER_BYTES = 8;
+
+  public DeviceSnapshot {
+    devices = List.copyOf(devices);
+  }
+
+  public void writeTo(Path target) throws IOException {
+    var encoded = new ArrayList<byte[]>(devices.size() * 3);
+    long size = HEADER_BYTES + TRAILER_BYTES;
+    for (var d : devices) {
+      var state = d.state().name().getBytes(StandardCharsets.UTF_8);
+      var name = d.name().getBytes(StandardCharsets.UTF_8);
+      var brand = d.brand().getBytes(StandardCharsets.UTF_8);
+      encoded.add(state);
+      encoded.add(name);
+      encoded.add(brand);
+      size += FIXED_RECORD_BYTES + state.length + name.length + brand.length;
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Snapshot too large for a single mapping: " + size + " bytes");
+    }
+
+    var parent = target.toAbsolutePath().getParent();
+    if (parent != null) Files.createDirectories(parent);
+    var tmp = target.resolveSibling(target.getFileName() + ".tmp");
+    try (var ch = FileChannel.open(tmp, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+      MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      buf.putInt(MAGIC).putInt(FORMAT).putLong(watermark).putInt(devices.size());
+      int s = 0;
+      for (var d : devices) {
+        buf.putLong(d.id().getMostSignificantBits()).putLong(d.id().getLeastSignificantBits());
+        buf.putLong(d.version());
+        buf.putLong(d.creationTime().getEpochSecond()).putInt(d.creationTime().getNano());
+        putBytes(buf, encoded.get(s++));
+        putBytes(buf, encoded.get(s++));
+        putBytes(buf, encoded.get(s++));
+      }
+      var crc = new CRC32();
+      crc.update(buf.slice(0, buf.position()));
+      buf.putLong(crc.getValue());
+      buf.force();
+    }
+    Files.move(tmp, target, ATOMIC_MOVE, REPLACE_EXISTING);
+  }
+
+  /** Vazio quando o arquivo não existe; IOException quando existe mas está corrompido. */
+  public static Optional<DeviceSnapshot> read(Path source) throws IOException {
+    if (!Files.exists(source)) return Optional.empty();
+    try (var ch = FileChannel.open(source, READ)) {
+      long size = ch.size();
+      if (size < HEADER_BYTES + TRAILER_BYTES || size > Integer.MAX_VALUE) {
+        throw new IOException("Invalid snapshot size " + size + ": " + source);
+      }
+      MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      int bodyBytes = (int) size - TRAILER_BYTES;
+      var crc = new CRC32();
+      crc.update(buf.slice(0, bodyBytes));
+      if (crc.getValue() != buf.getLong(bodyBytes)) throw new IOException("Snapshot checksum mismatch: " + source);
+
+      if (buf.getInt() != MAGIC) throw new IOException("Not a device snapshot: " + source);
+      int format = buf.getInt();
+      if (format != FORMAT) throw new IOException("Unsupported snapshot format " + format + ": " + source);
+      long watermark = buf.getLong();
+      int count = buf.getInt();
+
+      var devices = new ArrayList<Device>(count);
+      for (int i = 0; i < count; i++) {
+        var id = new UUID(buf.getLong(), buf.getLong());
+        long version = buf.getLong();
+        var creationTime = Instant.ofEpochSecond(buf.getLong(), buf.getInt());
+        var state = DeviceState.valueOf(getString(buf));
+        var name = getString(buf);
+        var brand = getString(buf);
+        devices.add(new Device(id, name, brand, state, creationTime, version));
+      }
+      return Optional.of(new DeviceSnapshot(watermark, devices));
+    }
+  }
+
+  private static void putBytes(ByteBuffer buf, byte[] bytes) {
+    buf.putInt(bytes.length).put(bytes);
+  }
+
+  private static String getString(ByteBuffer buf) {
+    var bytes = new byte[buf.getInt()];
+    buf.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,79 @@
+package dev.roberto.devices.domain.inmemory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grava fotografias periódicas do repositório em memória, apenas quando o watermark
+ * mudou desde a última gravação, e uma última no fechamento.
+ * Escritas feitas depois da última fotografia se perdem num crash.
+ */
+public final class DeviceSnapshotter implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(DeviceSnapshotter.class);
+
+  private final InMemoryDeviceRepository repository;
+  private final Path path;
+  private ScheduledExecutorService executor;
+  private long lastWritten;
+
+  public DeviceSnapshotter(InMemoryDeviceRepository repository, Path path) {
+    this.repository = repository;
+    this.path = path;
+    this.lastWritten = repository.changeWatermark();
+  }
+
+  public synchronized void start(Duration interval) {
+    if (executor != null) throw new IllegalStateException("Snapshotter already started");
+    executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      var t = new Thread(r, "device-snapshot");
+      t.setDaemon(true);
+      return t;
+    });
+    long ms = interval.toMillis();
+    executor.scheduleWithFixedDelay(this::tick, ms, ms, TimeUnit.MILLISECONDS);
+  }
+
+  /** Retorna true se gravou uma fotografia nova. */
+  public synchronized boolean snapshotIfChanged() throws IOException {
+    if (repository.changeWatermark() == lastWritten) return false;
+    var snapshot = repository.snapshot();
+    snapshot.writeTo(path);
+    lastWritten = snapshot.watermark();
+    log.debug("Device snapshot written: {} devices, watermark {}", snapshot.devices().size(), lastWritten);
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    ScheduledExecutorService running;
+    synchronized (this) {
+      running = executor;
+    }
+    if (running != null) {
+      running.shutdown();
+      try {
+        running.awaitTermination(30, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    snapshotIfChanged();
+  }
+
+  private void tick() {
+    // Uma exceção escapando cancelaria o agendamento; a próxima tentativa tenta de novo.
+    try {
+      snapshotIfChanged();
+    } catch (IOException | RuntimeException e) {
+      log.warn("Device snapshot to {} failed", path, e);
+    }
+  }
+}
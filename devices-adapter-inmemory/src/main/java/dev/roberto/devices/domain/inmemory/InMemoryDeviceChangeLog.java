@@ -0,0 +1,105 @@
+package dev.roberto.devices.domain.inmemory;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceChange;
+import dev.roberto.devices.domain.port.DeviceChangeLog;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Outbox do repositório em memória: as últimas {@code capacity} mudanças, gravadas pelo
+ * InMemoryDeviceRepository sob o mesmo lock da escrita (seq contíguo, sem buracos).
+ * Não entra no snapshot: depois de um restart só há mudanças novas, e o seq parte do relógio
+ * para nunca repetir um Last-Event-ID que clientes guardaram do processo anterior.
+ */
+public class InMemoryDeviceChangeLog implements DeviceChangeLog {
+
+  private final int capacity;
+  private final ConcurrentSkipListMap<Long, DeviceChange> entries = new ConcurrentSkipListMap<>();
+  private final ReentrantLock signalLock = new ReentrantLock();
+  private final Condition signalled = signalLock.newCondition();
+  private boolean pending;
+  private volatile long latest;
+
+  public InMemoryDeviceChangeLog(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+    this.capacity = capacity;
+    this.latest = System.currentTimeMillis() * 1_000;
+  }
+
+  // Chamado sob o writeLock do repositório.
+  void append(DeviceChange.Type type, Device device) {
+    long seq = latest + 1;
+    entries.put(seq, new DeviceChange(seq, type, device, Instant.now()));
+    entries.remove(seq - capacity);
+    latest = seq;
+    signal();
+  }
+
+  @Override
+  public List<DeviceChange> readAfter(long after, int limit) {
+    var page = new ArrayList<DeviceChange>(Math.min(limit, 256));
+    var it = entries.tailMap(after, false).values().iterator();
+    while (page.size() < limit && it.hasNext()) page.add(it.next());
+    return page;
+  }
+
+  // Sem buracos aqui: só para completar a porta.
+  @Override
+  public List<DeviceChange> readSeqs(Collection<Long> seqs) {
+    return seqs.stream().sorted().map(entries::get).filter(Objects::nonNull).toList();
+  }
+
+  @Override
+  public long latestSeq() {
+    return latest;
+  }
+
+  @Override
+  public long firstSeq() {
+    var first = entries.firstEntry();
+    return first == null ? latest + 1 : first.getKey();
+  }
+
+  @Override
+  public void awaitChange(Duration timeout) throws InterruptedException {
+    long nanos = timeout.toNanos();
+    signalLock.lock();
+    try {
+      while (!pending && nanos > 0) {
+        nanos = signalled.awaitNanos(nanos);
+      }
+      pending = false;
+    } finally {
+      signalLock.unlock();
+    }
+  }
+
+  @Override
+  public int purgeBefore(Instant cutoff, int limit) {
+    int removed = 0;
+    for (var e = entries.firstEntry(); e != null && removed < limit && e.getValue().at().isBefore(cutoff)
+           && e.getKey() < latest; e = entries.firstEntry()) {
+      if (entries.remove(e.getKey(), e.getValue())) removed++;
+    }
+    return removed;
+  }
+
+  private void signal() {
+    signalLock.lock();
+    try {
+      pending = true;
+      signalled.signalAll();
+    } finally {
+      signalLock.unlock();
+    }
+  }
+}
@@ -0,0 +1,453 @@
+package dev.roberto.devices.domain.inmemory;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceChange;
+import dev.roberto.devices.domain.model.DeviceCount;
+import dev.roberto.devices.domain.model.DeviceField;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.model.DeviceView;
+import dev.roberto.devices.domain.port.DeviceCursor;
+import dev.roberto.devices.domain.port.DeviceRepository;
+import dev.roberto.devices.domain.port.DeviceWriteBatch;
+import dev.roberto.devices.domain.port.NameSearch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Repositório inteiramente em memória, para instalações sem Postgres.
+ * Mantém índices ordenados por (creationTime, id) para o total, por brand, por state
+ * e por brand+state: filtros, contagens e keyset não varrem a base.
+ * Leituras não bloqueiam; escritas são serializadas por um lock (ReentrantLock em vez de
+ * synchronized para não prender carrier threads de virtual threads).
+ * Um leitor pode ver uma escrita em andamento em um índice e ainda não em outro,
+ * mas nunca um Device parcial.
+ * Não é final: o boot envolve o bean num proxy de subclasse para medir as chamadas.
+ */
+public class InMemoryDeviceRepository implements DeviceRepository {
+
+  // Mudanças guardadas para GET /devices/changes; quem ficar mais atrás recomeça do zero.
+  private static final int CHANGE_LOG_CAPACITY = 10_000;
+
+  private static final Comparator<DeviceCursor> ORDER =
+    Comparator.comparing(DeviceCursor::creationTime).thenComparing(DeviceCursor::id);
+
+  private final Map<UUID, Device> byId = new ConcurrentHashMap<>();
+  private final Index all = new Index();
+  private final Map<DeviceState, Index> byState = newStateIndexes();
+  // Índices de brand não são removidos quando esvaziam: a cardinalidade de brand é baixa
+  // e assim um leitor nunca segura um índice já descartado.
+  private final Map<String, BrandIndex> byBrand = new ConcurrentHashMap<>();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final AtomicLong watermark;
+  private final InMemoryDeviceChangeLog changes = new InMemoryDeviceChangeLog(CHANGE_LOG_CAPACITY);
+
+  public InMemoryDeviceRepository() {
+    this(0L);
+  }
+
+  private InMemoryDeviceRepository(long restoredWatermark) {
+    // Parte do relógio: um processo novo nunca repete um watermark já visto por clientes
+    // (ETag W/"n" da listagem) do processo anterior, mesmo com escritas perdidas no crash.
+    this.watermark = new AtomicLong(Math.max(restoredWatermark, System.currentTimeMillis() * 1_000));
+  }
+
+  public static InMemoryDeviceRepository restore(DeviceSnapshot snapshot) {
+    var repo = new InMemoryDeviceRepository(snapshot.watermark());
+    snapshot.devices().forEach(repo::put);
+    return repo;
+  }
+
+  public InMemoryDeviceChangeLog changes() {
+    return changes;
+  }
+
+  /**
+   * Cópia consistente do conteúdo atual. Copia apenas referências sob o lock de escrita;
+   * a serialização acontece fora dele.
+   */
+  public DeviceSnapshot snapshot() {
+    writeLock.lock();
+    try {
+      return new DeviceSnapshot(watermark.get(), List.copyOf(byId.values()));
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public Device save(Device device) {
+    writeLock.lock();
+    try {
+      put(device);
+      changes.append(DeviceChange.Type.CREATED, device);
+      watermark.incrementAndGet();
+      return device;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public Optional<Device> updateIfVersion(Device device, long expectedVersion) {
+    writeLock.lock();
+    try {
+      var current = byId.get(device.id());
+      if (current == null || current.version() != expectedVersion) return Optional.empty();
+      var written = device.withVersion(expectedVersion + 1);
+      put(written);
+      changes.append(DeviceChange.Type.UPDATED, written);
+      watermark.incrementAndGet();
+      return Optional.of(written);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public Optional<Device> updateStateIf(UUID id, DeviceState expected, DeviceState target) {
+    writeLock.lock();
+    try {
+      var current = byId.get(id);
+      if (current == null || current.state() != expected) return Optional.empty();
+      var written = current.withState(target).withVersion(current.version() + 1);
+      put(written);
+      changes.append(DeviceChange.Type.UPDATED, written);
+      watermark.incrementAndGet();
+      return Optional.of(written);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean deleteIfVersion(UUID id, long expectedVersion) {
+    writeLock.lock();
+    try {
+      var current = byId.get(id);
+      if (current == null || current.version() != expectedVersion) return false;
+      remove(id);
+      changes.append(DeviceChange.Type.DELETED, current);
+      watermark.incrementAndGet();
+      return true;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public Optional<Device> findById(UUID id) {
+    return Optional.ofNullable(byId.get(id));
+  }
+
+  @Override
+  public List<Device> findAllCurrentById(Collection<UUID> ids) {
+    var found = new ArrayList<Device>(ids.size());
+    for (var id : ids) {
+      var d = byId.get(id);
+      if (d != null) found.add(d);
+    }
+    return found;
+  }
+
+  @Override
+  public List<Device> findAll() {
+    return List.copyOf(all.rows.values());
+  }
+
+  @Override
+  public List<Device> findByBrand(String brand) {
+    return List.copyOf(brand(brand).all.rows.values());
+  }
+
+  @Override
+  public List<Device> findByState(DeviceState state) {
+    return List.copyOf(byState.get(state).rows.values());
+  }
+
+  @Override
+  public void scanAll(Consumer<Device> consumer) {
+    all.rows.values().forEach(consumer);
+  }
+
+  @Override
+  public List<Device> findAllPaged(long offset, int limit) {
+    return all.page(offset, limit);
+  }
+
+  @Override
+  public List<Device> findByBrandPaged(String brand, long offset, int limit) {
+    return brand(brand).all.page(offset, limit);
+  }
+
+  @Override
+  public List<Device> findByStatePaged(DeviceState state, long offset, int limit) {
+    return byState.get(state).page(offset, limit);
+  }
+
+  @Override
+  public List<Device> findByBrandAndStatePaged(String brand, DeviceState state, long offset, int limit) {
+    return brand(brand).state(state).page(offset, limit);
+  }
+
+  @Override
+  public List<Device> findAllAfter(DeviceCursor after, int limit) {
+    return all.after(after, limit);
+  }
+
+  @Override
+  public List<Device> findByBrandAfter(String brand, DeviceCursor after, int limit) {
+    return brand(brand).all.after(after, limit);
+  }
+
+  @Override
+  public List<Device> findByStateAfter(DeviceState state, DeviceCursor after, int limit) {
+    return byState.get(state).after(after, limit);
+  }
+
+  @Override
+  public List<Device> findByBrandAndStateAfter(String brand, DeviceState state, DeviceCursor after, int limit) {
+    return brand(brand).state(state).after(after, limit);
+  }
+
+  // Os Devices já estão em memória: a projeção só poupa o que vai para a resposta.
+  @Override
+  public List<DeviceView> findPagedView(Set<DeviceField> fields, String brand, DeviceState state,
+                                        long offset, int limit) {
+    return project(scope(brand, state).page(offset, limit), fields);
+  }
+
+  @Override
+  public List<DeviceView> findAfterView(Set<DeviceField> fields, String brand, DeviceState state,
+                                        DeviceCursor after, int limit) {
+    return project(scope(brand, state).after(after, limit), fields);
+  }
+
+  private static List<DeviceView> project(List<Device> rows, Set<DeviceField> fields) {
+    var views = new ArrayList<DeviceView>(rows.size());
+    for (var d : rows) views.add(DeviceView.of(d, fields));
+    return views;
+  }
+
+  // Sem índice de texto: varre o menor índice que atende os filtros (brand+state, brand, state ou todos)
+  // e ordena só os que casam. Um nome curto de um brand pequeno custa pouco; a tabela inteira, O(n).
+  @Override
+  public List<Device> searchByName(String q, String brand, DeviceState state, long offset, int limit) {
+    var scope = scope(brand, state);
+
+    record Hit(int rank, Device device) {}
+    var hits = new ArrayList<Hit>();
+    for (var d : scope.rows.values()) {
+      int rank = NameSearch.rank(d.name(), q);
+      if (rank != NameSearch.NO_MATCH) hits.add(new Hit(rank, d));
+    }
+    // Desempate igual ao SQL do adapter JPA: tamanho do nome e depois (creationTime, id).
+    // O sort é estável e rows já vem em (creationTime, id).
+    hits.sort(Comparator.comparingInt(Hit::rank).thenComparingInt(h -> h.device().name().length()));
+    return hits.stream().skip(offset).limit(limit).map(Hit::device).toList();
+  }
+
+  @Override
+  public long countAll() {
+    return all.size.get();
+  }
+
+  @Override
+  public long countByBrand(String brand) {
+    return brand(brand).all.size.get();
+  }
+
+  @Override
+  public long countByState(DeviceState state) {
+    return byState.get(state).size.get();
+  }
+
+  @Override
+  public long countByBrandAndState(String brand, DeviceState state) {
+    return brand(brand).state(state).size.get();
+  }
+
+  // Direto dos contadores dos índices: O(marcas), sem varrer devices.
+  @Override
+  public List<DeviceCount> countGroupedByBrandAndState() {
+    var counts = new ArrayList<DeviceCount>();
+    byBrand.forEach((brand, index) -> index.byState.forEach((state, rows) -> {
+      long n = rows.size.get();
+      if (n > 0) counts.add(new DeviceCount(brand, state, n));
+    }));
+    return counts;
+  }
+
+  // Contagens exatas já são O(1) aqui; não há estimativa mais barata a oferecer.
+  @Override
+  public OptionalLong estimateCount(String brand, DeviceState state) {
+    return OptionalLong.empty();
+  }
+
+  @Override
+  public void deleteById(UUID id) {
+    writeLock.lock();
+    try {
+      var current = byId.get(id);
+      if (current == null) return;
+      remove(id);
+      changes.append(DeviceChange.Type.DELETED, current);
+      watermark.incrementAndGet();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void applyBatch(DeviceWriteBatch batch) {
+    writeLock.lock();
+    try {
+      // Valida tudo antes de aplicar qualquer coisa: o lote é atômico, como a transação do adapter JPA.
+      for (var d : batch.inserts()) {
+        if (byId.containsKey(d.id())) throw new IllegalStateException("Device already exists: " + d.id());
+      }
+      for (var d : batch.updates()) requireVersion(d.id(), d.version() - 1);
+      for (var d : batch.deletes()) requireVersion(d.id(), d.version());
+
+      batch.inserts().forEach(this::put);
+      batch.updates().forEach(this::put);
+      batch.deletes().forEach(d -> remove(d.id()));
+      batch.inserts().forEach(d -> changes.append(DeviceChange.Type.CREATED, d));
+      batch.updates().forEach(d -> changes.append(DeviceChange.Type.UPDATED, d));
+      batch.deletes().forEach(d -> changes.append(DeviceChange.Type.DELETED, d));
+      if (!batch.isEmpty()) watermark.incrementAndGet();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public long changeWatermark() {
+    return watermark.get();
+  }
+
+  private void requireVersion(UUID id, long expected) {
+    var current = byId.get(id);
+    if (current == null || current.version() != expected) {
+      throw new ConcurrentModificationException("Device changed concurrently during batch");
+    }
+  }
+
+  // O menor índice que atende os filtros (null = sem filtro).
+  private Index scope(String brand, DeviceState state) {
+    if (brand != null && state != null) return brand(brand).state(state);
+    if (brand != null) return brand(brand).all;
+    if (state != null) return byState.get(state);
+    return all;
+  }
+
+  private BrandIndex brand(String brand) {
+    var index = byBrand.get(brand);
+    return index != null ? index : BrandIndex.EMPTY;
+  }
+
+  // Chamados sob writeLock.
+  private void put(Device d) {
+    var old = byId.put(d.id(), d);
+    link(d);
+    if (old != null) unlinkStale(old, d);
+  }
+
+  private boolean remove(UUID id) {
+    var old = byId.remove(id);
+    if (old == null) return false;
+    var key = DeviceCursor.of(old);
+    all.remove(key);
+    byState.get(old.state()).remove(key);
+    var brand = byBrand.get(old.brand());
+    brand.all.remove(key);
+    brand.state(old.state()).remove(key);
+    return true;
+  }
+
+  // Insere antes de remover: quando a chave não muda, o put substitui no lugar e
+  // o leitor nunca vê o device sumir durante um update.
+  private void link(Device d) {
+    var key = DeviceCursor.of(d);
+    all.put(key, d);
+    byState.get(d.state()).put(key, d);
+    var brand = byBrand.computeIfAbsent(d.brand(), b -> new BrandIndex());
+    brand.all.put(key, d);
+    brand.state(d.state()).put(key, d);
+  }
+
+  private void unlinkStale(Device old, Device now) {
+    var key = DeviceCursor.of(old);
+    boolean moved = !key.equals(DeviceCursor.of(now));
+    boolean brandChanged = !old.brand().equals(now.brand());
+    boolean stateChanged = old.state() != now.state();
+    if (moved) all.remove(key);
+    if (moved || stateChanged) byState.get(old.state()).remove(key);
+    var brand = byBrand.get(old.brand());
+    if (moved || brandChanged) brand.all.remove(key);
+    if (moved || brandChanged || stateChanged) brand.state(old.state()).remove(key);
+  }
+
+  private static Map<DeviceState, Index> newStateIndexes() {
+    var map = new EnumMap<DeviceState, Index>(DeviceState.class);
+    for (var s : DeviceState.values()) map.put(s, new Index());
+    return map;
+  }
+
+  private static final class BrandIndex {
+    // Devolvido para brands sem devices; nunca recebe escritas.
+    static final BrandIndex EMPTY = new BrandIndex();
+
+    final Index all = new Index();
+    // EnumMap preenchido na construção e nunca alterado depois: leitura concorrente segura.
+    final Map<DeviceState, Index> byState = newStateIndexes();
+
+    Index state(DeviceState state) {
+      return byState.get(state);
+    }
+  }
+
+  private static final class Index {
+    final ConcurrentSkipListMap<DeviceCursor, Device> rows = new ConcurrentSkipListMap<>(ORDER);
+    // size() do skip list é O(n); o tamanho é mantido à parte pelas escritas.
+    final AtomicLong size = new AtomicLong();
+
+    void put(DeviceCursor key, Device d) {
+      if (rows.put(key, d) == null) size.incrementAndGet();
+    }
+
+    void remove(DeviceCursor key) {
+      if (rows.remove(key) != null) size.decrementAndGet();
+    }
+
+    List<Device> page(long offset, int limit) {
+      var page = new ArrayList<Device>(Math.min(limit, 256));
+      var it = rows.values().iterator();
+      for (long skipped = 0; skipped < offset && it.hasNext(); skipped++) it.next();
+      while (page.size() < limit && it.hasNext()) page.add(it.next());
+      return page;
+    }
+
+    List<Device> after(DeviceCursor after, int limit) {
+      var tail = after == null ? rows.values() : rows.tailMap(after, false).values();
+      var page = new ArrayList<Device>(Math.min(limit, 256));
+      var it = tail.iterator();
+      while (page.size() < limit && it.hasNext()) page.add(it.next());
+      return page;
+    }
+  }
+}
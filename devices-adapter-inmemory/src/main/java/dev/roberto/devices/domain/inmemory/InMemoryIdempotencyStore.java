@@ -0,0 +1,76 @@
+package dev.roberto.devices.domain.inmemory;
+
+import dev.roberto.devices.domain.port.IdempotencyRecord;
+import dev.roberto.devices.domain.port.IdempotencyStore;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chaves de idempotência em memória. Não entram na fotografia: depois de um reinício
+ * um retry com a mesma chave cria um recurso novo.
+ * Não é final: o boot envolve o bean num proxy de subclasse para medir as chamadas.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+  private record Entry(IdempotencyRecord record, Instant createdAt, Instant expiresAt) {
+    // Sem resposta: guardada por RETENTION, para um retry retomar o mesmo resourceId.
+    boolean purgeable(Instant now) {
+      if (!expiresAt.isBefore(now)) return false;
+      return record.completed() || record.fingerprint() == null || createdAt.plus(RETENTION).isBefore(now);
+    }
+  }
+
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  // Reserva expirada sem resposta: retomada com o mesmo resourceId (ver IdempotencyStore#reserve).
+  @Override
+  public IdempotencyRecord reserve(String key, UUID resourceId, String fingerprint, Instant now, Duration lease) {
+    var taken = new boolean[1];
+    var current = entries.compute(key, (k, existing) -> {
+      if (existing != null && existing.expiresAt().isAfter(now)) return existing;
+      taken[0] = true;
+      var previous = existing == null ? null : existing.record();
+      var orphan = previous != null && !previous.completed() && previous.fingerprint() != null;
+      return new Entry(orphan ? previous : new IdempotencyRecord(resourceId, fingerprint, null), now, now.plus(lease));
+    }).record();
+    return taken[0] ? new IdempotencyRecord(current.resourceId(), current.fingerprint(), null, true) : current;
+  }
+
+  @Override
+  public void confirm(String key, UUID resourceId, byte[] response, Instant now, Duration ttl) {
+    entries.computeIfPresent(key, (k, existing) -> existing.record().resourceId().equals(resourceId)
+      ? new Entry(new IdempotencyRecord(resourceId, existing.record().fingerprint(), response),
+        existing.createdAt(), now.plus(ttl))
+      : existing);
+  }
+
+  @Override
+  public void release(String key, UUID resourceId) {
+    entries.computeIfPresent(key, (k, existing) -> existing.record().resourceId().equals(resourceId) ? null : existing);
+  }
+
+  @Override
+  public int purgeExpired(Instant now, int limit) {
+    int removed = 0;
+    for (var it = entries.values().iterator(); it.hasNext() && removed < limit; ) {
+      if (it.next().purgeable(now)) {
+        it.remove();
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  // Varredura: sem índice por expiração aqui; o purger chama uma vez por rodada.
+  @Override
+  public Optional<Instant> oldestExpiry() {
+    return entries.values().stream()
+      .filter(e -> e.record().completed() || e.record().fingerprint() == null)
+      .map(Entry::expiresAt)
+      .min(Instant::compareTo);
+  }
+}
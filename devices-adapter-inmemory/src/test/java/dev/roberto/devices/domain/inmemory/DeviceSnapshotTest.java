@@ -0,0 +1,55 @@
+package dev.roberto.devices.domain.inmemory;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceSnapshotTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void snapshotter_shouldRoundTripRepositoryThroughFile() throws IOException {
+    var file = dir.resolve("devices.snapshot");
+    var repo = new InMemoryDeviceRepository();
+    var d = repo.save(new Device(UUID.randomUUID(), "Câmera ☃", "Lenovo", DeviceState.IN_USE,
+      Instant.parse("2025-01-01T00:00:00.123456789Z"), 4));
+    var snapshotter = new DeviceSnapshotter(repo, file);
+
+    assertFalse(snapshotter.snapshotIfChanged());
+    repo.save(new Device(UUID.randomUUID(), "WS", "Dell", DeviceState.AVAILABLE, Instant.EPOCH));
+    assertTrue(snapshotter.snapshotIfChanged());
+    assertFalse(snapshotter.snapshotIfChanged());
+
+    var restored = InMemoryDeviceRepository.restore(DeviceSnapshot.read(file).orElseThrow());
+    assertEquals(d, restored.findById(d.id()).orElseThrow());
+    assertEquals(1, restored.countByBrandAndState("Lenovo", DeviceState.IN_USE));
+    assertEquals(2, restored.countAll());
+    assertTrue(restored.changeWatermark() >= repo.changeWatermark());
+  }
+
+  @Test
+  void read_shouldRejectCorruptedFile() throws IOException {
+    var file = dir.resolve("devices.snapshot");
+    assertTrue(DeviceSnapshot.read(file).isEmpty());
+
+    var repo = new InMemoryDeviceRepository();
+    repo.save(new Device(UUID.randomUUID(), "WS", "Dell", DeviceState.AVAILABLE, Instant.EPOCH));
+    repo.snapshot().writeTo(file);
+    var bytes = Files.readAllBytes(file);
+    bytes[30] ^= 1;
+    Files.write(file, bytes);
+
+    assertThrows(IOException.class, () -> DeviceSnapshot.read(file));
+  }
+}
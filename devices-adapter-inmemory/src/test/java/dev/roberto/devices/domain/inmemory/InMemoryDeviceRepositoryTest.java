@@ -0,0 +1,150 @@
+package dev.roberto.devices.domain.inmemory;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceChange;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.port.DeviceCursor;
+import dev.roberto.devices.domain.port.DeviceWriteBatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryDeviceRepositoryTest {
+
+  private static final Instant T0 = Instant.parse("2025-01-01T00:00:00Z");
+
+  private InMemoryDeviceRepository repo;
+
+  @BeforeEach
+  void setUp() {
+    repo = new InMemoryDeviceRepository();
+  }
+
+  @Test
+  void writes_shouldAppendContiguousChangesAndSignal() throws Exception {
+    var changes = repo.changes();
+    long start = changes.latestSeq();
+    var a = repo.save(device(0, "Lenovo", DeviceState.AVAILABLE));
+    var b = repo.save(device(1, "Lenovo", DeviceState.AVAILABLE));
+    repo.updateIfVersion(a.withState(DeviceState.IN_USE), 0).orElseThrow();
+    assertFalse(repo.deleteIfVersion(b.id(), 7)); // versão errada: nada gravado
+    repo.applyBatch(new DeviceWriteBatch(List.of(), List.of(), List.of(b)));
+
+    var log = changes.readAfter(start, 10);
+    assertEquals(List.of(start + 1, start + 2, start + 3, start + 4), log.stream().map(DeviceChange::seq).toList());
+    assertEquals(List.of(DeviceChange.Type.CREATED, DeviceChange.Type.CREATED, DeviceChange.Type.UPDATED,
+      DeviceChange.Type.DELETED), log.stream().map(DeviceChange::type).toList());
+    assertEquals(b, log.get(3).device());
+    assertEquals(start + 1, changes.firstSeq());
+
+    // O sinal fica pendente até alguém esperar: um commit entre a leitura e o await não se perde.
+    long t = System.nanoTime();
+    changes.awaitChange(Duration.ofSeconds(5));
+    assertTrue(System.nanoTime() - t < Duration.ofSeconds(1).toNanos());
+  }
+
+  @Test
+  void searchByName_shouldRankWithinTheNarrowestIndex() {
+    var office = repo.save(named(0, "Office WS-10", "HP"));
+    var exact = repo.save(named(1, "ws-10", "HP"));
+    var longer = repo.save(named(2, "WS-100", "HP"));
+    repo.save(named(3, "WS-10", "Dell"));
+    repo.save(named(4, "Laptop", "HP"));
+
+    assertEquals(List.of(exact, longer, office), repo.searchByName("ws-10", "HP", null, 0, 10));
+    assertEquals(List.of(longer), repo.searchByName("ws-10", "HP", DeviceState.AVAILABLE, 1, 1));
+    assertEquals(4, repo.searchByName("ws-10", null, null, 0, 10).size());
+    assertTrue(repo.searchByName("10", null, null, 0, 10).isEmpty());
+  }
+
+  @Test
+  void changeLog_shouldKeepOnlyTheLatestEntries() {
+    var changes = new InMemoryDeviceChangeLog(2);
+    for (int i = 0; i < 5; i++) changes.append(DeviceChange.Type.CREATED, device(i, "HP", DeviceState.AVAILABLE));
+
+    assertEquals(changes.latestSeq() - 1, changes.firstSeq());
+    assertEquals(2, changes.readAfter(0, 10).size());
+    assertEquals(1, changes.purgeBefore(Instant.now().plusSeconds(1), 10)); // a mais recente fica
+    assertEquals(changes.latestSeq(), changes.firstSeq());
+
+    // Depois de um restart: Last-Event-ID do processo anterior não retoma.
+    var fresh = new InMemoryDeviceChangeLog(2);
+    assertEquals(fresh.latestSeq() + 1, fresh.firstSeq());
+  }
+
+  @Test
+  void indexes_shouldFollowBrandAndStateChanges() {
+    var d = repo.save(device(0, "Lenovo", DeviceState.AVAILABLE));
+
+    repo.updateIfVersion(d.withBrand("Dell").withState(DeviceState.IN_USE), 0).orElseThrow();
+
+    assertEquals(0, repo.countByBrand("Lenovo"));
+    assertEquals(0, repo.countByState(DeviceState.AVAILABLE));
+    assertEquals(1, repo.countByBrandAndState("Dell", DeviceState.IN_USE));
+    assertEquals(List.of(d.id()), ids(repo.findByBrandPaged("Dell", 0, 10)));
+    assertTrue(repo.findByBrandAndStatePaged("Lenovo", DeviceState.AVAILABLE, 0, 10).isEmpty());
+    assertEquals(1, repo.countAll());
+  }
+
+  @Test
+  void paging_shouldKeepCreationOrderPerIndex() {
+    var a = repo.save(device(2, "Lenovo", DeviceState.AVAILABLE));
+    var b = repo.save(device(0, "Lenovo", DeviceState.IN_USE));
+    var c = repo.save(device(1, "Lenovo", DeviceState.AVAILABLE));
+    repo.save(device(3, "Dell", DeviceState.AVAILABLE));
+
+    assertEquals(List.of(b.id(), c.id(), a.id()), ids(repo.findByBrand("Lenovo")));
+    assertEquals(List.of(c.id()), ids(repo.findByBrandAndStatePaged("Lenovo", DeviceState.AVAILABLE, 0, 1)));
+    assertEquals(List.of(a.id()), ids(repo.findByBrandAndStatePaged("Lenovo", DeviceState.AVAILABLE, 1, 5)));
+    assertEquals(List.of(a.id()), ids(repo.findByBrandAfter("Lenovo", DeviceCursor.of(c), 5)));
+    assertEquals(3, repo.countByState(DeviceState.AVAILABLE));
+    assertTrue(repo.findByBrandPaged("HP", 0, 10).isEmpty());
+    assertEquals(0, repo.countByBrandAndState("HP", DeviceState.AVAILABLE));
+  }
+
+  @Test
+  void conditionalWrites_shouldRejectStaleVersions() {
+    var d = repo.save(device(0, "Lenovo", DeviceState.AVAILABLE));
+    long before = repo.changeWatermark();
+
+    assertTrue(repo.updateIfVersion(d.withName("x"), 5).isEmpty());
+    assertFalse(repo.deleteIfVersion(d.id(), 5));
+    assertEquals(before, repo.changeWatermark());
+
+    assertTrue(repo.deleteIfVersion(d.id(), 0));
+    assertEquals(0, repo.countAll());
+    assertTrue(repo.changeWatermark() > before);
+  }
+
+  @Test
+  void applyBatch_shouldApplyNothingWhenAnyVersionIsStale() {
+    var kept = repo.save(device(0, "Lenovo", DeviceState.AVAILABLE));
+    var inserted = device(1, "Dell", DeviceState.AVAILABLE);
+    var stale = kept.withName("renamed").withVersion(7);
+
+    assertThrows(ConcurrentModificationException.class,
+      () -> repo.applyBatch(new DeviceWriteBatch(List.of(inserted), List.of(stale), List.of())));
+
+    assertTrue(repo.findById(inserted.id()).isEmpty());
+    assertEquals(kept, repo.findById(kept.id()).orElseThrow());
+  }
+
+  private static Device named(int minutes, String name, String brand) {
+    return new Device(UUID.randomUUID(), name, brand, DeviceState.AVAILABLE, T0.plusSeconds(60L * minutes));
+  }
+
+  private static Device device(int minutes, String brand, DeviceState state) {
+    return new Device(UUID.randomUUID(), "D" + minutes, brand, state, T0.plusSeconds(60L * minutes));
+  }
+
+  private static List<UUID> ids(List<Device> devices) {
+    return devices.stream().map(Device::id).toList();
+  }
+}
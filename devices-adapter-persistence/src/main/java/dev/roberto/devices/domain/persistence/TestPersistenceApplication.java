@@ -6,10 +6,10 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 /**
  * Mini aplicação apenas para os testes de JPA.
- * Fica no pacote PAI (dev.roberto.devices.persistence) para escanear
+ * Fica no pacote PAI (dev.roberto.devices.domain.persistence) para escanear
  * os subpacotes: .entity, .repository e .adapter.
  */
 @SpringBootApplication
-@EntityScan("dev.roberto.devices.persistence.entity")
-@EnableJpaRepositories("dev.roberto.devices.persistence.repository")
+@EntityScan("dev.roberto.devices.domain.persistence.entity")
+@EnableJpaRepositories("dev.roberto.devices.domain.persistence.repository")
 class TestPersistenceApplication { }
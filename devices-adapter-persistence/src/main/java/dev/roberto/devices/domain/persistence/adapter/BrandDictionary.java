@@ -0,0 +1,93 @@
+package dev.roberto.devices.domain.persistence.adapter;
+
+import dev.roberto.devices.domain.persistence.mapper.BrandLookup;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dicionário device_brands (V11) com cache local nos dois sentidos. Linhas de devices guardam
+ * só brand_id; cada id vira sempre a mesma instância de String, em vez de uma cópia por linha lida.
+ * <p>
+ * Entradas nunca são apagadas nem renomeadas e a IDENTITY não reaproveita chaves, então o cache
+ * não expira. Só o sentido nome -> id espera o commit: uma chave criada numa transação desfeita
+ * não existe para as próximas escritas.
+ */
+@Component
+public class BrandDictionary implements BrandLookup {
+
+  private static final String FIND_ID_SQL = "SELECT id FROM device_brands WHERE name = ?";
+  private static final String FIND_NAME_SQL = "SELECT name FROM device_brands WHERE id = ?";
+  // Na corrida pelo mesmo brand novo, o ON CONFLICT espera a outra transação em vez de falhar
+  // (um erro abortaria a transação da escrita no Postgres). MERGE é o equivalente no H2.
+  private static final String UPSERT_PG_SQL = "INSERT INTO device_brands (name) VALUES (?) ON CONFLICT (name) DO NOTHING";
+  private static final String UPSERT_SQL = "MERGE INTO device_brands (name) KEY (name) VALUES (?)";
+
+  private final JdbcTemplate jdbc;
+  private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Integer, String> names = new ConcurrentHashMap<>();
+  private volatile Boolean postgres;
+
+  public BrandDictionary(JdbcTemplate jdbc) {
+    this.jdbc = jdbc;
+  }
+
+  /** Chave de um brand já existente; vazio quando nenhum device usou esse nome (ausência não é cacheada). */
+  public OptionalInt find(String brand) {
+    var cached = ids.get(brand);
+    if (cached != null) return OptionalInt.of(cached);
+    var found = jdbc.queryForList(FIND_ID_SQL, Integer.class, brand);
+    if (found.isEmpty()) return OptionalInt.empty();
+    rememberAfterCommit(brand, found.get(0));
+    return OptionalInt.of(found.get(0));
+  }
+
+  @Override
+  public int idOf(String brand) {
+    var known = find(brand);
+    if (known.isPresent()) return known.getAsInt();
+    jdbc.update(isPostgres() ? UPSERT_PG_SQL : UPSERT_SQL, brand);
+    Integer id = jdbc.queryForObject(FIND_ID_SQL, Integer.class, brand);
+    rememberAfterCommit(brand, id);
+    return id;
+  }
+
+  @Override
+  public String nameOf(int id) {
+    var cached = names.get(id);
+    if (cached != null) return cached;
+    var loaded = jdbc.queryForObject(FIND_NAME_SQL, String.class, id);
+    var raced = names.putIfAbsent(id, loaded);
+    return raced != null ? raced : loaded;
+  }
+
+  private void rememberAfterCommit(String brand, int id) {
+    names.putIfAbsent(id, brand);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      ids.putIfAbsent(brand, id);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        ids.putIfAbsent(brand, id);
+      }
+    });
+  }
+
+  private boolean isPostgres() {
+    var pg = postgres;
+    if (pg == null) {
+      pg = Boolean.TRUE.equals(jdbc.execute((ConnectionCallback<Boolean>) c ->
+        c.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("postgres")));
+      postgres = pg;
+    }
+    return pg;
+  }
+}
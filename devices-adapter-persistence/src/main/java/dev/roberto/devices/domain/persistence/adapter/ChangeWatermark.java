@@ -0,0 +1,70 @@
+package dev.roberto.devices.domain.persistence.adapter;
+
+import dev.roberto.devices.domain.persistence.entity.DeviceWatermarkEntity;
+import dev.roberto.devices.domain.persistence.repository.DeviceWatermarkCrudRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static dev.roberto.devices.domain.persistence.entity.DeviceWatermarkEntity.STRIPES;
+
+/**
+ * Contador global de mudanças em devices, compartilhado entre nós via banco.
+ * <p>
+ * O incremento roda dentro da transação da escrita, logo antes do commit, e confirma junto com
+ * ela: quem lê o contador novo enxerga os dados novos, e uma escrita confirmada nunca fica sem
+ * incremento. O contador é a soma de {@link DeviceWatermarkEntity#STRIPES} linhas e cada
+ * transação trava só uma, sorteada, e só até o commit: escritas concorrentes raramente esperam
+ * umas pelas outras.
+ */
+@Component
+public class ChangeWatermark {
+
+  private final DeviceWatermarkCrudRepository repo;
+  private final TransactionTemplate tx;
+
+  public ChangeWatermark(DeviceWatermarkCrudRepository repo, PlatformTransactionManager txManager) {
+    this.repo = repo;
+    this.tx = new TransactionTemplate(txManager);
+  }
+
+  public long current() {
+    return repo.total();
+  }
+
+  /**
+   * Incrementa uma vez por transação, no beforeCommit (mesma conexão, lock curto). Sem
+   * transação ativa, incrementa na hora.
+   */
+  public void bumpOnCommit() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      tx.executeWithoutResult(status -> bump());
+      return;
+    }
+    if (TransactionSynchronizationManager.hasResource(this)) return;
+    TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void beforeCommit(boolean readOnly) {
+        bump();
+      }
+
+      @Override
+      public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(ChangeWatermark.this);
+      }
+    });
+  }
+
+  private void bump() {
+    short stripe = (short) ThreadLocalRandom.current().nextInt(1, STRIPES + 1);
+    // A migration semeia as linhas; sem elas (ex.: schema gerado em testes) cria na primeira escrita.
+    if (repo.increment(stripe) == 0) {
+      repo.save(new DeviceWatermarkEntity(stripe, 1));
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package dev.roberto.devices.domain.persistence.adapter;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceChange;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.port.DeviceChangeLog;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Outbox device_changes via JDBC. O JpaDeviceRepository chama {@link #record} dentro da
+ * transação da escrita: a mudança só fica visível se a escrita confirmar.
+ * <p>
+ * Sinal de mudança: no Postgres um NOTIFY na mesma transação (entregue no commit a todos os
+ * nós em LISTEN); fora dele, só um sinal local depois do commit.
+ */
+@Component
+public class JpaDeviceChangeLog implements DeviceChangeLog, AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(JpaDeviceChangeLog.class);
+
+  static final String CHANNEL = "device_changes";
+
+  private static final int JDBC_BATCH_SIZE = 500;
+
+  private static final String INSERT_SQL =
+    "INSERT INTO device_changes (change_type, device_id, name, brand, state, creation_time, version) "
+      + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+  private static final String SELECT_COLUMNS =
+    "SELECT seq, change_type, device_id, name, brand, state, creation_time, version, changed_at FROM device_changes";
+  private static final String SELECT_AFTER_SQL = SELECT_COLUMNS + " WHERE seq > ? ORDER BY seq FETCH FIRST ? ROWS ONLY";
+  // Os mais antigos estão no começo da PK: a subconsulta para no primeiro changed_at >= cutoff.
+  // A linha de maior seq fica: sem ela a tabela vazia não diria onde a IDENTITY está.
+  private static final String PURGE_SQL =
+    "DELETE FROM device_changes WHERE seq IN ("
+      + "SELECT seq FROM device_changes WHERE changed_at < ? "
+      + "AND seq < (SELECT MAX(seq) FROM device_changes) ORDER BY seq FETCH FIRST ? ROWS ONLY)";
+
+  private static final RowMapper<DeviceChange> ROW_MAPPER = (rs, n) -> new DeviceChange(
+    rs.getLong("seq"),
+    DeviceChange.Type.valueOf(rs.getString("change_type")),
+    new Device(
+      rs.getObject("device_id", UUID.class),
+      rs.getString("name"),
+      rs.getString("brand"),
+      DeviceState.valueOf(rs.getString("state")),
+      rs.getObject("creation_time", OffsetDateTime.class).toInstant(),
+      rs.getLong("version")),
+    rs.getObject("changed_at", OffsetDateTime.class).toInstant());
+
+  private final JdbcTemplate jdbc;
+  private final DataSource dataSource;
+  private volatile Boolean postgres;
+
+  // Sinal local (sem Postgres): pending evita perder um commit entre a leitura e o await.
+  private final ReentrantLock signalLock = new ReentrantLock();
+  private final Condition signalled = signalLock.newCondition();
+  private boolean pending;
+
+  // Conexão presa ao LISTEN enquanto o nó vive (uma a menos no pool); só a thread leitora usa.
+  private volatile Connection listener;
+
+  public JpaDeviceChangeLog(JdbcTemplate jdbc) {
+    this.jdbc = jdbc;
+    this.dataSource = jdbc.getDataSource();
+  }
+
+  /** Grava as mudanças na transação atual; o sinal sai só se ela confirmar. */
+  public void record(DeviceChange.Type type, List<Device> devices) {
+    if (devices.isEmpty()) return;
+    jdbc.batchUpdate(INSERT_SQL, devices, JDBC_BATCH_SIZE, (ps, d) -> {
+      ps.setString(1, type.name());
+      ps.setObject(2, d.id());
+      ps.setString(3, d.name());
+      ps.setString(4, d.brand());
+      ps.setString(5, d.state().name());
+      ps.setObject(6, OffsetDateTime.ofInstant(d.creationTime(), ZoneOffset.UTC));
+      ps.setLong(7, d.version());
+    });
+    // NOTIFY é transacional: várias na mesma transação viram uma entrega só, no commit.
+    if (isPostgres()) jdbc.execute("NOTIFY " + CHANNEL);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          signalLocal();
+        }
+      });
+    } else {
+      signalLocal();
+    }
+  }
+
+  public void record(DeviceChange.Type type, Device device) {
+    record(type, List.of(device));
+  }
+
+  @Override
+  public List<DeviceChange> readAfter(long after, int limit) {
+    return jdbc.query(SELECT_AFTER_SQL, ROW_MAPPER, after, limit);
+  }
+
+  // Pela PK, um IN por bloco; a lista vem do leitor e é pequena (só buracos pendentes).
+  @Override
+  public List<DeviceChange> readSeqs(Collection<Long> seqs) {
+    var found = new ArrayList<DeviceChange>();
+    var all = List.copyOf(seqs);
+    for (int i = 0; i < all.size(); i += JDBC_BATCH_SIZE) {
+      var chunk = all.subList(i, Math.min(all.size(), i + JDBC_BATCH_SIZE));
+      var in = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+      found.addAll(jdbc.query(SELECT_COLUMNS + " WHERE seq IN (" + in + ") ORDER BY seq", ROW_MAPPER, chunk.toArray()));
+    }
+    return found;
+  }
+
+  @Override
+  public long latestSeq() {
+    Long seq = jdbc.queryForObject("SELECT COALESCE(MAX(seq), 0) FROM device_changes", Long.class);
+    return seq == null ? 0 : seq;
+  }
+
+  @Override
+  public long firstSeq() {
+    Long seq = jdbc.queryForObject("SELECT MIN(seq) FROM device_changes", Long.class);
+    return seq == null ? latestSeq() + 1 : seq;
+  }
+
+  @Override
+  public void awaitChange(Duration timeout) throws InterruptedException {
+    if (isPostgres() && awaitNotification(timeout)) return;
+    awaitLocal(timeout);
+  }
+
+  @Override
+  public int purgeBefore(Instant cutoff, int limit) {
+    return jdbc.update(PURGE_SQL, OffsetDateTime.ofInstant(cutoff, ZoneOffset.UTC), limit);
+  }
+
+  // false quando o LISTEN não está disponível (quem chama cai no sinal local).
+  private boolean awaitNotification(Duration timeout) {
+    try {
+      if (listener == null) {
+        var c = dataSource.getConnection();
+        try (var st = c.createStatement()) {
+          st.execute("LISTEN " + CHANNEL);
+        }
+        listener = c;
+      }
+      // Bloqueia no socket até um NOTIFY ou o timeout; o conteúdo não importa, só o aviso.
+      listener.unwrap(PGConnection.class).getNotifications((int) Math.max(1, timeout.toMillis()));
+      return true;
+    } catch (SQLException e) {
+      log.warn("LISTEN {} failed, falling back to local signals until the next attempt", CHANNEL, e);
+      closeListener();
+      return false;
+    }
+  }
+
+  private void awaitLocal(Duration timeout) throws InterruptedException {
+    long nanos = timeout.toNanos();
+    signalLock.lock();
+    try {
+      while (!pending && nanos > 0) {
+        nanos = signalled.awaitNanos(nanos);
+      }
+      pending = false;
+    } finally {
+      signalLock.unlock();
+    }
+  }
+
+  private void signalLocal() {
+    signalLock.lock();
+    try {
+      pending = true;
+      signalled.signalAll();
+    } finally {
+      signalLock.unlock();
+    }
+  }
+
+  private boolean isPostgres() {
+    var pg = postgres;
+    if (pg == null) {
+      pg = Boolean.TRUE.equals(jdbc.execute((ConnectionCallback<Boolean>) c ->
+        c.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("postgres")));
+      postgres = pg;
+    }
+    return pg;
+  }
+
+  private void closeListener() {
+    var c = listener;
+    listener = null;
+    if (c == null) return;
+    try {
+      c.close();
+    } catch (SQLException ignored) {
+      // já quebrada
+    }
+  }
+
+  @Override
+  public void close() {
+    closeListener();
+  }
+}
@@ -1,69 +1,358 @@
 package dev.roberto.devices.domain.persistence.adapter;
 
 import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceChange;
+import dev.roberto.devices.domain.model.DeviceCount;
+import dev.roberto.devices.domain.model.DeviceField;
 import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.model.DeviceView;
+import dev.roberto.devices.domain.persistence.entity.DeviceEntity;
 import dev.roberto.devices.domain.persistence.mapper.DeviceJpaMapper;
+import dev.roberto.devices.domain.port.DeviceCursor;
 import dev.roberto.devices.domain.port.DeviceRepository;
+import dev.roberto.devices.domain.port.DeviceStateCodes;
+import dev.roberto.devices.domain.port.DeviceWriteBatch;
+import dev.roberto.devices.domain.port.NameSearch;
 import dev.roberto.devices.domain.persistence.repository.JpaDeviceCrudRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 
 @Repository
 public class JpaDeviceRepository implements DeviceRepository {
 
+  // Ordenação estável: sem ela o OFFSET pode repetir/pular linhas entre requisições.
+  private static final Sort STABLE_ORDER = Sort.by("creationTime", "id");
+
+  private static final int JDBC_BATCH_SIZE = 500;
+
+  private static final String INSERT_SQL =
+    "INSERT INTO devices (id, name, brand_id, state, creation_time, version) VALUES (?, ?, ?, ?, ?, ?)";
+  private static final String UPDATE_SQL =
+    "UPDATE devices SET name = ?, brand_id = ?, state = ?, version = ? WHERE id = ? AND version = ?";
+  private static final String DELETE_SQL =
+    "DELETE FROM devices WHERE id = ? AND version = ?";
+  // Transição de estado num statement só, devolvendo a linha gravada: RETURNING no Postgres,
+  // FINAL TABLE no H2. Quem perde a corrida não trava nada além da própria tentativa.
+  private static final String STATE_UPDATE =
+    "UPDATE devices SET state = ?, version = version + 1 WHERE id = ? AND state = ?";
+  private static final String STATE_UPDATE_POSTGRES =
+    STATE_UPDATE + " RETURNING id, name, brand_id, state, creation_time, version";
+  private static final String STATE_UPDATE_H2 =
+    "SELECT id, name, brand_id, state, creation_time, version FROM FINAL TABLE (" + STATE_UPDATE + ")";
+  // DELETE num statement só, devolvendo a linha removida para o outbox registrar o último
+  // estado: RETURNING no Postgres, OLD TABLE no H2.
+  private static final String DELETE_BY_ID = "DELETE FROM devices WHERE id = ?";
+  private static final String DELETE_POSTGRES =
+    DELETE_SQL + " RETURNING id, name, brand_id, state, creation_time, version";
+  private static final String DELETE_H2 =
+    "SELECT id, name, brand_id, state, creation_time, version FROM OLD TABLE (" + DELETE_SQL + ")";
+  private static final String DELETE_BY_ID_POSTGRES =
+    DELETE_BY_ID + " RETURNING id, name, brand_id, state, creation_time, version";
+  private static final String DELETE_BY_ID_H2 =
+    "SELECT id, name, brand_id, state, creation_time, version FROM OLD TABLE (" + DELETE_BY_ID + ")";
+  // Os índices de V10 (trigramas / text_pattern_ops em lower(name)) atendem o LIKE; o ORDER BY
+  // ranqueia só os candidatos. Sem Postgres (H2 nos testes) o mesmo SQL roda sem os índices.
+  private static final String SEARCH_SQL =
+    "SELECT id, name, brand_id, state, creation_time, version FROM devices "
+      + "WHERE lower(name) LIKE ? ESCAPE '\\'%s "
+      + "ORDER BY CASE WHEN lower(name) = ? THEN 0 WHEN lower(name) LIKE ? ESCAPE '\\' THEN 1 ELSE 2 END, "
+      + "length(name), creation_time, id "
+      + "OFFSET ? ROWS FETCH FIRST ? ROWS ONLY";
+
   private final JpaDeviceCrudRepository jpa;
+  private final EntityManager em;
+  private final JdbcTemplate jdbc;
+  private final ChangeWatermark watermark;
+  private final JpaDeviceChangeLog changes;
+  private final BrandDictionary brands;
+  private final RowMapper<Device> rowMapper;
+  private volatile Boolean postgres;
 
-  public JpaDeviceRepository(JpaDeviceCrudRepository jpa) {
+  public JpaDeviceRepository(JpaDeviceCrudRepository jpa, EntityManager em, JdbcTemplate jdbc,
+                             ChangeWatermark watermark, JpaDeviceChangeLog changes, BrandDictionary brands) {
     this.jpa = jpa;
+    this.em = em;
+    this.jdbc = jdbc;
+    this.watermark = watermark;
+    this.changes = changes;
+    this.brands = brands;
+    this.rowMapper = (rs, n) -> new Device(
+      rs.getObject("id", UUID.class),
+      rs.getString("name"),
+      brands.nameOf(rs.getInt("brand_id")),
+      DeviceStateCodes.fromCode(rs.getShort("state")),
+      rs.getObject("creation_time", OffsetDateTime.class).toInstant(),
+      rs.getLong("version"));
   }
 
+  // Toda escrita grava o outbox na própria transação: ou os dois confirmam, ou nenhum.
   @Override
+  @Transactional
   public Device save(Device device) {
-    var saved = jpa.save(DeviceJpaMapper.toEntity(device));
-    return DeviceJpaMapper.toDomain(saved);
+    var saved = DeviceJpaMapper.toDomain(jpa.save(DeviceJpaMapper.toEntity(device, brands)), brands);
+    changes.record(DeviceChange.Type.CREATED, saved);
+    watermark.bumpOnCommit();
+    return saved;
+  }
+
+  @Override
+  @Transactional
+  public Optional<Device> updateIfVersion(Device device, long expectedVersion) {
+    int rows = jpa.updateIfVersion(device.id(), device.name(), brands.idOf(device.brand()), device.state(),
+      expectedVersion);
+    if (rows != 1) return Optional.empty();
+    var updated = device.withVersion(expectedVersion + 1);
+    changes.record(DeviceChange.Type.UPDATED, updated);
+    watermark.bumpOnCommit();
+    return Optional.of(updated);
+  }
+
+  @Override
+  @Transactional
+  public boolean deleteIfVersion(UUID id, long expectedVersion) {
+    return deleteRow(isPostgres() ? DELETE_POSTGRES : DELETE_H2, id, expectedVersion);
+  }
+
+  @Override
+  @Transactional
+  public Optional<Device> updateStateIf(UUID id, DeviceState expected, DeviceState target) {
+    em.flush();
+    var moved = jdbc.query(isPostgres() ? STATE_UPDATE_POSTGRES : STATE_UPDATE_H2, rowMapper,
+      DeviceStateCodes.code(target), id, DeviceStateCodes.code(expected)).stream().findFirst();
+    moved.ifPresent(d -> {
+      changes.record(DeviceChange.Type.UPDATED, d);
+      watermark.bumpOnCommit();
+    });
+    return moved;
+  }
+
+  private boolean deleteRow(String sql, Object... args) {
+    // JDBC direto: alterações JPA pendentes na mesma transação precisam chegar antes.
+    em.flush();
+    var deleted = jdbc.query(sql, rowMapper, args).stream().findFirst();
+    // Como o clearAutomatically do JPQL: nenhuma entidade gerenciada sobrevive à linha apagada.
+    em.clear();
+    deleted.ifPresent(d -> {
+      changes.record(DeviceChange.Type.DELETED, d);
+      watermark.bumpOnCommit();
+    });
+    return deleted.isPresent();
+  }
+
+  @Override
+  public long changeWatermark() {
+    return watermark.current();
   }
 
   @Override
   public Optional<Device> findById(UUID id) {
-    return jpa.findById(id).map(DeviceJpaMapper::toDomain);
+    return jpa.findById(id).map(this::toDomain);
+  }
+
+  @Override
+  public List<Device> findAllCurrentById(Collection<UUID> ids) {
+    return toDomain(jpa.findAllById(ids));
   }
 
   @Override
   public List<Device> findAll() {
-    return jpa.findAll().stream().map(DeviceJpaMapper::toDomain).toList();
+    return toDomain(jpa.findAll());
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public void scanAll(Consumer<Device> consumer) {
+    try (var rows = jpa.streamAllOrdered()) {
+      rows.forEach(e -> {
+        consumer.accept(toDomain(e));
+        // Sem detach o contexto de persistência cresceria com a tabela.
+        em.detach(e);
+      });
+    }
   }
 
   @Override
   public List<Device> findByBrand(String brand) {
-    return jpa.findByBrand(brand).stream().map(DeviceJpaMapper::toDomain).toList();
+    var brandId = brands.find(brand);
+    return brandId.isEmpty() ? List.of() : toDomain(jpa.findByBrandId(brandId.getAsInt()));
   }
 
   @Override
   public List<Device> findByState(DeviceState state) {
-    return jpa.findByState(state).stream().map(DeviceJpaMapper::toDomain).toList();
+    return toDomain(jpa.findByState(state));
+  }
+
+  @Override
+  public List<Device> findAllPaged(long offset, int limit) {
+    return toDomain(jpa.findPage(OffsetLimitRequest.of(offset, limit, STABLE_ORDER)));
+  }
+
+  @Override
+  public List<Device> findByBrandPaged(String brand, long offset, int limit) {
+    var brandId = brands.find(brand);
+    if (brandId.isEmpty()) return List.of();
+    return toDomain(jpa.findByBrandId(brandId.getAsInt(), OffsetLimitRequest.of(offset, limit, STABLE_ORDER)));
+  }
+
+  @Override
+  public List<Device> findByStatePaged(DeviceState state, long offset, int limit) {
+    return toDomain(jpa.findByState(state, OffsetLimitRequest.of(offset, limit, STABLE_ORDER)));
+  }
+
+  @Override
+  public List<Device> findByBrandAndStatePaged(String brand, DeviceState state, long offset, int limit) {
+    var brandId = brands.find(brand);
+    if (brandId.isEmpty()) return List.of();
+    return toDomain(jpa.findByBrandIdAndState(brandId.getAsInt(), state,
+      OffsetLimitRequest.of(offset, limit, STABLE_ORDER)));
+  }
+
+  @Override
+  public List<Device> findAllAfter(DeviceCursor after, int limit) {
+    var rows = after == null
+      ? jpa.findByOrderByCreationTimeAscIdAsc(Limit.of(limit))
+      : jpa.findAfter(after.creationTime(), after.id(), Limit.of(limit));
+    return toDomain(rows);
   }
 
   @Override
-  public List<Device> findAllPaged(int page, int size) {
-    return jpa.findAll(PageRequest.of(page, size))
-      .map(DeviceJpaMapper::toDomain).toList();
+  public List<Device> findByBrandAfter(String brand, DeviceCursor after, int limit) {
+    var brandId = brands.find(brand);
+    if (brandId.isEmpty()) return List.of();
+    var rows = after == null
+      ? jpa.findByBrandIdOrderByCreationTimeAscIdAsc(brandId.getAsInt(), Limit.of(limit))
+      : jpa.findByBrandAfter(brandId.getAsInt(), after.creationTime(), after.id(), Limit.of(limit));
+    return toDomain(rows);
   }
 
   @Override
-  public List<Device> findByBrandPaged(String brand, int page, int size) {
-    return jpa.findByBrand(brand, PageRequest.of(page, size))
-      .map(DeviceJpaMapper::toDomain).toList();
+  public List<Device> findByStateAfter(DeviceState state, DeviceCursor after, int limit) {
+    var rows = after == null
+      ? jpa.findByStateOrderByCreationTimeAscIdAsc(state, Limit.of(limit))
+      : jpa.findByStateAfter(state, after.creationTime(), after.id(), Limit.of(limit));
+    return toDomain(rows);
   }
 
   @Override
-  public List<Device> findByStatePaged(DeviceState state, int page, int size) {
-    return jpa.findByState(state, PageRequest.of(page, size))
-      .map(DeviceJpaMapper::toDomain).toList();
+  public List<Device> findByBrandAndStateAfter(String brand, DeviceState state, DeviceCursor after, int limit) {
+    var brandId = brands.find(brand);
+    if (brandId.isEmpty()) return List.of();
+    var rows = after == null
+      ? jpa.findByBrandIdAndStateOrderByCreationTimeAscIdAsc(brandId.getAsInt(), state, Limit.of(limit))
+      : jpa.findByBrandAndStateAfter(brandId.getAsInt(), state, after.creationTime(), after.id(), Limit.of(limit));
+    return toDomain(rows);
+  }
+
+  // JDBC direto: só as colunas pedidas, sem entidade gerenciada nem passagem pelos mappers.
+  // Com filtro por state, fields=id,state sai inteiro dos índices de V3/V4 no Postgres.
+  @Override
+  public List<DeviceView> findPagedView(Set<DeviceField> fields, String brand, DeviceState state,
+                                        long offset, int limit) {
+    var sql = new StringBuilder(selectColumns(fields)).append(" FROM devices WHERE 1 = 1");
+    var args = new ArrayList<Object>();
+    if (!appendFilters(sql, args, brand, state)) return List.of();
+    sql.append(" ORDER BY creation_time, id OFFSET ? ROWS FETCH FIRST ? ROWS ONLY");
+    args.add(offset);
+    args.add(limit);
+    return jdbc.query(sql.toString(), viewMapper(fields, brands), args.toArray());
+  }
+
+  @Override
+  public List<DeviceView> findAfterView(Set<DeviceField> fields, String brand, DeviceState state,
+                                        DeviceCursor after, int limit) {
+    var sql = new StringBuilder(selectColumns(fields)).append(" FROM devices WHERE 1 = 1");
+    var args = new ArrayList<Object>();
+    if (!appendFilters(sql, args, brand, state)) return List.of();
+    if (after != null) {
+      sql.append(" AND (creation_time, id) > (?, ?)");
+      args.add(OffsetDateTime.ofInstant(after.creationTime(), ZoneOffset.UTC));
+      args.add(after.id());
+    }
+    sql.append(" ORDER BY creation_time, id FETCH FIRST ? ROWS ONLY");
+    args.add(limit);
+    return jdbc.query(sql.toString(), viewMapper(fields, brands), args.toArray());
+  }
+
+  private static String selectColumns(Set<DeviceField> fields) {
+    if (fields.isEmpty()) throw new IllegalArgumentException("fields must not be empty");
+    var cols = new StringBuilder("SELECT ");
+    for (var f : fields) {
+      if (cols.length() > 7) cols.append(", ");
+      cols.append(column(f));
+    }
+    return cols.toString();
+  }
+
+  private static String column(DeviceField f) {
+    return switch (f) {
+      case ID -> "id";
+      case NAME -> "name";
+      case BRAND -> "brand_id";
+      case STATE -> "state";
+      case CREATION_TIME -> "creation_time";
+    };
+  }
+
+  // false quando o brand não está no dicionário: nenhum device casa e a consulta pode ser pulada.
+  private boolean appendFilters(StringBuilder sql, List<Object> args, String brand, DeviceState state) {
+    if (brand != null) {
+      var brandId = brands.find(brand);
+      if (brandId.isEmpty()) return false;
+      sql.append(" AND brand_id = ?");
+      args.add(brandId.getAsInt());
+    }
+    if (state != null) {
+      sql.append(" AND state = ?");
+      args.add(DeviceStateCodes.code(state));
+    }
+    return true;
+  }
+
+  private static RowMapper<DeviceView> viewMapper(Set<DeviceField> fields, BrandDictionary brands) {
+    boolean id = fields.contains(DeviceField.ID);
+    boolean name = fields.contains(DeviceField.NAME);
+    boolean brand = fields.contains(DeviceField.BRAND);
+    boolean state = fields.contains(DeviceField.STATE);
+    boolean created = fields.contains(DeviceField.CREATION_TIME);
+    return (rs, n) -> new DeviceView(
+      id ? rs.getObject("id", UUID.class) : null,
+      name ? rs.getString("name") : null,
+      brand ? brands.nameOf(rs.getInt("brand_id")) : null,
+      state ? DeviceStateCodes.fromCode(rs.getShort("state")) : null,
+      created ? rs.getObject("creation_time", OffsetDateTime.class).toInstant() : null);
+  }
+
+  @Override
+  public List<Device> searchByName(String q, String brand, DeviceState state, long offset, int limit) {
+    var filters = new StringBuilder();
+    var args = new ArrayList<Object>();
+    args.add(NameSearch.likePattern(q));
+    if (!appendFilters(filters, args, brand, state)) return List.of();
+    args.add(q);
+    args.add(NameSearch.prefixPattern(q));
+    args.add(offset);
+    args.add(limit);
+    return jdbc.query(SEARCH_SQL.formatted(filters), rowMapper, args.toArray());
   }
 
   @Override
@@ -73,7 +362,8 @@ public class JpaDeviceRepository implements DeviceRepository {
 
   @Override
   public long countByBrand(String brand) {
-    return jpa.countByBrand(brand);
+    var brandId = brands.find(brand);
+    return brandId.isEmpty() ? 0 : jpa.countByBrandId(brandId.getAsInt());
   }
 
   @Override
@@ -82,7 +372,101 @@ public class JpaDeviceRepository implements DeviceRepository {
   }
 
   @Override
+  public long countByBrandAndState(String brand, DeviceState state) {
+    var brandId = brands.find(brand);
+    return brandId.isEmpty() ? 0 : jpa.countByBrandIdAndState(brandId.getAsInt(), state);
+  }
+
+  // Agrupa pelas chaves e só então resolve os nomes: o GROUP BY cobre idx_devices_brand_state.
+  @Override
+  public List<DeviceCount> countGroupedByBrandAndState() {
+    return jdbc.query("SELECT brand_id, state, COUNT(*) AS n FROM devices GROUP BY brand_id, state",
+      (rs, i) -> new DeviceCount(brands.nameOf(rs.getInt("brand_id")),
+        DeviceStateCodes.fromCode(rs.getShort("state")), rs.getLong("n")));
+  }
+
+  @Override
+  public OptionalLong estimateCount(String brand, DeviceState state) {
+    if (!isPostgres()) return OptionalLong.empty();
+    Long estimate = brand == null && state == null
+      // reltuples vem de ANALYZE/autovacuum; -1 enquanto a tabela nunca foi analisada.
+      ? jdbc.queryForObject("SELECT reltuples::bigint FROM pg_class WHERE oid = 'devices'::regclass", Long.class)
+      : jdbc.queryForObject("SELECT devices_count_estimate(?, ?)", Long.class,
+          brand, state == null ? null : state.name());
+    return estimate == null || estimate < 0 ? OptionalLong.empty() : OptionalLong.of(estimate);
+  }
+
+  private boolean isPostgres() {
+    var pg = postgres;
+    if (pg == null) {
+      pg = Boolean.TRUE.equals(jdbc.execute((ConnectionCallback<Boolean>) c ->
+        c.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("postgres")));
+      postgres = pg;
+    }
+    return pg;
+  }
+
+  @Override
+  @Transactional
   public void deleteById(UUID id) {
-    jpa.deleteById(id);
+    deleteRow(isPostgres() ? DELETE_BY_ID_POSTGRES : DELETE_BY_ID_H2, id);
+  }
+
+  @Override
+  @Transactional
+  public void applyBatch(DeviceWriteBatch batch) {
+    // JDBC direto: sem SELECT de merge por entidade e com statements agrupados pelo driver.
+    // O flush garante que alterações JPA pendentes na mesma transação cheguem antes.
+    em.flush();
+    if (!batch.inserts().isEmpty()) {
+      jdbc.batchUpdate(INSERT_SQL, batch.inserts(), JDBC_BATCH_SIZE, (ps, d) -> {
+        ps.setObject(1, d.id());
+        ps.setString(2, d.name());
+        ps.setInt(3, brands.idOf(d.brand()));
+        ps.setShort(4, DeviceStateCodes.code(d.state()));
+        ps.setObject(5, OffsetDateTime.ofInstant(d.creationTime(), ZoneOffset.UTC));
+        ps.setLong(6, d.version());
+      });
+    }
+    if (!batch.updates().isEmpty()) {
+      var counts = jdbc.batchUpdate(UPDATE_SQL, batch.updates(), JDBC_BATCH_SIZE, (ps, d) -> {
+        ps.setString(1, d.name());
+        ps.setInt(2, brands.idOf(d.brand()));
+        ps.setShort(3, DeviceStateCodes.code(d.state()));
+        ps.setLong(4, d.version());
+        ps.setObject(5, d.id());
+        ps.setLong(6, d.version() - 1);
+      });
+      assertAllApplied(counts);
+    }
+    if (!batch.deletes().isEmpty()) {
+      var counts = jdbc.batchUpdate(DELETE_SQL, batch.deletes(), JDBC_BATCH_SIZE, (ps, d) -> {
+        ps.setObject(1, d.id());
+        ps.setLong(2, d.version());
+      });
+      assertAllApplied(counts);
+    }
+    // Por último: o seq é reservado perto do commit, e um lote longo segura menos o buraco no outbox.
+    changes.record(DeviceChange.Type.CREATED, batch.inserts());
+    changes.record(DeviceChange.Type.UPDATED, batch.updates());
+    changes.record(DeviceChange.Type.DELETED, batch.deletes());
+    if (!batch.isEmpty()) watermark.bumpOnCommit();
+  }
+
+  private static void assertAllApplied(int[][] counts) {
+    for (var chunk : counts) {
+      for (int c : chunk) {
+        // SUCCESS_NO_INFO (-2) é aceito; 0 significa que a versão mudou desde a leitura.
+        if (c == 0) throw new OptimisticLockingFailureException("Device changed concurrently during batch");
+      }
+    }
+  }
+
+  private Device toDomain(DeviceEntity e) {
+    return DeviceJpaMapper.toDomain(e, brands);
+  }
+
+  private List<Device> toDomain(List<DeviceEntity> rows) {
+    return rows.stream().map(this::toDomain).toList();
   }
 }
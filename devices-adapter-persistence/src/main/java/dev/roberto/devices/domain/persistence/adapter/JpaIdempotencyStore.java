@@ -1,58 +1,142 @@
 package dev.roberto.devices.domain.persistence.adapter;
 
+import dev.roberto.devices.domain.port.IdempotencyRecord;
 import dev.roberto.devices.domain.port.IdempotencyStore;
-import dev.roberto.devices.domain.persistence.entity.IdempotencyKeyEntity;
-import dev.roberto.devices.domain.persistence.repository.IdempotencyKeyCrudRepository;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public class JpaIdempotencyStore implements IdempotencyStore {
 
-  private final IdempotencyKeyCrudRepository repo;
+  // Na colisão a linha é sempre "atualizada" (com os próprios valores quando não expirou):
+  // assim o RETURNING devolve o registro vigente no mesmo statement. Um DO NOTHING + SELECT
+  // separado não enxergaria, no snapshot do statement, uma reserva concorrente recém-confirmada.
+  // Reserva expirada sem resposta (ORPHAN) mantém resource_id e request_hash: só o prazo renova.
+  private static final String EXPIRED = "idempotency_keys.expires_at <= EXCLUDED.created_at";
+  private static final String ORPHAN = "idempotency_keys.response IS NULL AND idempotency_keys.request_hash IS NOT NULL";
+  private static final String RESERVE_SQL = """
+    INSERT INTO idempotency_keys (ikey, resource_id, request_hash, created_at, expires_at) VALUES (?, ?, ?, ?, ?)
+    ON CONFLICT (ikey) DO UPDATE SET
+      resource_id = CASE WHEN %1$s AND NOT (%2$s)
+        THEN EXCLUDED.resource_id ELSE idempotency_keys.resource_id END,
+      request_hash = CASE WHEN %1$s AND NOT (%2$s)
+        THEN EXCLUDED.request_hash ELSE idempotency_keys.request_hash END,
+      response = CASE WHEN %1$s
+        THEN NULL ELSE idempotency_keys.response END,
+      created_at = CASE WHEN %1$s
+        THEN EXCLUDED.created_at ELSE idempotency_keys.created_at END,
+      expires_at = CASE WHEN %1$s
+        THEN EXCLUDED.expires_at ELSE idempotency_keys.expires_at END
+    RETURNING resource_id, request_hash, response, created_at
+    """.formatted(EXPIRED, ORPHAN);
+  private static final String SELECT_SQL =
+    "SELECT resource_id, request_hash, response, created_at FROM idempotency_keys WHERE ikey = ?";
 
-  public JpaIdempotencyStore(IdempotencyKeyCrudRepository repo) {
-    this.repo = repo;
+  private static final RowMapper<IdempotencyRecord> RECORD = (rs, i) -> new IdempotencyRecord(
+    rs.getObject("resource_id", UUID.class), rs.getString("request_hash"), rs.getBytes("response"));
+
+  // Reserva sem resposta (ORPHAN) fica até RETENTION: um retry ainda a retoma com o mesmo resource_id.
+  private static final String PURGEABLE =
+    "(response IS NOT NULL OR request_hash IS NULL OR created_at < ?)";
+  private static final String PURGE_SQL = "DELETE FROM idempotency_keys WHERE ikey IN ("
+    + "SELECT ikey FROM idempotency_keys WHERE expires_at < ? AND " + PURGEABLE
+    + " ORDER BY expires_at FETCH FIRST ? ROWS ONLY";
+
+  private final JdbcTemplate jdbc;
+  private volatile Boolean postgres;
+
+  public JpaIdempotencyStore(JdbcTemplate jdbc) {
+    this.jdbc = jdbc;
   }
 
   @Override
-  @Transactional(readOnly = true)
-  public Optional<UUID> get(String key) {
-    return repo.findById(key)
-      .filter(e -> e.getExpiresAt().isAfter(Instant.now()))
-      .map(IdempotencyKeyEntity::getResourceId);
+  public IdempotencyRecord reserve(String key, UUID resourceId, String fingerprint, Instant now, Duration lease) {
+    // Mesma precisão do timestamptz: created_at devolvido igual ao nosso = a reserva é nossa.
+    var at = now.truncatedTo(ChronoUnit.MICROS);
+    var createdAt = utc(at);
+    var expiresAt = utc(at.plus(lease));
+    RowMapper<IdempotencyRecord> leasedIfOurs = (rs, i) -> {
+      var current = RECORD.mapRow(rs, i);
+      var ours = current.resourceId().equals(resourceId)
+        || rs.getObject("created_at", OffsetDateTime.class).toInstant().equals(at);
+      return ours ? withLease(current) : current;
+    };
+    if (isPostgres()) {
+      return jdbc.queryForObject(RESERVE_SQL, leasedIfOurs, key, resourceId, fingerprint, createdAt, expiresAt);
+    }
+    // Fora do Postgres (testes em H2): a PK continua garantindo um único dono, em até quatro statements.
+    var mine = new IdempotencyRecord(resourceId, fingerprint, null, true);
+    try {
+      jdbc.update("INSERT INTO idempotency_keys (ikey, resource_id, request_hash, created_at, expires_at) "
+        + "VALUES (?, ?, ?, ?, ?)", key, resourceId, fingerprint, createdAt, expiresAt);
+      return mine;
+    } catch (DuplicateKeyException e) {
+      int resumed = jdbc.update("UPDATE idempotency_keys SET created_at = ?, expires_at = ? "
+        + "WHERE ikey = ? AND expires_at <= ? AND response IS NULL AND request_hash IS NOT NULL",
+        createdAt, expiresAt, key, createdAt);
+      if (resumed == 1) return withLease(jdbc.queryForObject(SELECT_SQL, RECORD, key));
+      int taken = jdbc.update("UPDATE idempotency_keys SET resource_id = ?, request_hash = ?, response = NULL, "
+        + "created_at = ?, expires_at = ? WHERE ikey = ? AND expires_at <= ?",
+        resourceId, fingerprint, createdAt, expiresAt, key, createdAt);
+      if (taken == 1) return mine;
+      return jdbc.queryForObject(SELECT_SQL, RECORD, key);
+    }
   }
 
   @Override
-  @Transactional
-  public void saveIfAbsent(String key, UUID resourceId, Instant now, Duration ttl) {
-    var opt = repo.findById(key);
-    var expiresAt = now.plus(ttl);
-
-    if (opt.isEmpty()) {
-      repo.save(new IdempotencyKeyEntity(key, resourceId, now, expiresAt));
-      return;
-    }
+  public void confirm(String key, UUID resourceId, byte[] response, Instant now, Duration ttl) {
+    jdbc.update("UPDATE idempotency_keys SET response = ?, expires_at = ? WHERE ikey = ? AND resource_id = ?",
+      response, utc(now.plus(ttl)), key, resourceId);
+  }
 
-    var existing = opt.get();
-    if (existing.getExpiresAt().isBefore(now)) {
-      existing.setResourceId(resourceId);
-      existing.setCreatedAt(now);
-      existing.setExpiresAt(expiresAt);
-      repo.save(existing);
-    }
+  @Override
+  public void release(String key, UUID resourceId) {
+    jdbc.update("DELETE FROM idempotency_keys WHERE ikey = ? AND resource_id = ?", key, resourceId);
   }
 
   @Override
-  @Transactional
-  public void purgeExpired(Instant now) {
-    repo.findAll().stream()
-      .filter(e -> e.getExpiresAt().isBefore(now))
-      .forEach(repo::delete);
+  public int purgeExpired(Instant now, int limit) {
+    // Um statement (e uma transação curta) por bloco, pelo índice de expires_at. SKIP LOCKED:
+    // purgers em outros nós e reservas em andamento não esperam uns pelos outros.
+    return jdbc.update(isPostgres() ? PURGE_SQL + " FOR UPDATE SKIP LOCKED)" : PURGE_SQL + ")",
+      utc(now), utc(now.minus(RETENTION)), limit);
+  }
+
+  @Override
+  public Optional<Instant> oldestExpiry() {
+    var oldest = jdbc.queryForObject(
+      "SELECT MIN(expires_at) FROM idempotency_keys WHERE response IS NOT NULL OR request_hash IS NULL",
+      OffsetDateTime.class);
+    return Optional.ofNullable(oldest).map(OffsetDateTime::toInstant);
+  }
+
+  private boolean isPostgres() {
+    var pg = postgres;
+    if (pg == null) {
+      pg = Boolean.TRUE.equals(jdbc.execute((ConnectionCallback<Boolean>) c ->
+        c.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("postgres")));
+      postgres = pg;
+    }
+    return pg;
+  }
+
+  private static IdempotencyRecord withLease(IdempotencyRecord r) {
+    return new IdempotencyRecord(r.resourceId(), r.fingerprint(), r.response(), true);
+  }
+
+  private static OffsetDateTime utc(Instant instant) {
+    return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
   }
 }
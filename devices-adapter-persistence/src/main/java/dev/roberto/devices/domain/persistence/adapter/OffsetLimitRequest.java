@@ -0,0 +1,28 @@
+package dev.roberto.devices.domain.persistence.adapter;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Pageable com OFFSET arbitrário: PageRequest só anda em múltiplos de size, e o modo
+ * "has next" precisa de size + 1 linhas a partir de page * size.
+ */
+record OffsetLimitRequest(long offset, int limit, Sort sort) implements Pageable {
+
+  static OffsetLimitRequest of(long offset, int limit, Sort sort) {
+    if (offset < 0) throw new IllegalArgumentException("offset must not be negative");
+    if (limit < 1) throw new IllegalArgumentException("limit must be positive");
+    return new OffsetLimitRequest(offset, limit, sort);
+  }
+
+  @Override public int getPageNumber() { return (int) (offset / limit); }
+  @Override public int getPageSize() { return limit; }
+  @Override public long getOffset() { return offset; }
+  @Override public Sort getSort() { return sort; }
+
+  @Override public Pageable next() { return new OffsetLimitRequest(offset + limit, limit, sort); }
+  @Override public Pageable previousOrFirst() { return hasPrevious() ? new OffsetLimitRequest(Math.max(0, offset - limit), limit, sort) : first(); }
+  @Override public Pageable first() { return new OffsetLimitRequest(0, limit, sort); }
+  @Override public Pageable withPage(int pageNumber) { return new OffsetLimitRequest((long) pageNumber * limit, limit, sort); }
+  @Override public boolean hasPrevious() { return offset > 0; }
+}
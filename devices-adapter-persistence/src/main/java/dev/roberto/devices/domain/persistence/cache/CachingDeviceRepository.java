@@ -0,0 +1,287 @@
+package dev.roberto.devices.domain.persistence.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceCount;
+import dev.roberto.devices.domain.model.DeviceField;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.model.DeviceView;
+import dev.roberto.devices.domain.persistence.routing.ReadRouting;
+import dev.roberto.devices.domain.port.DeviceCursor;
+import dev.roberto.devices.domain.port.DeviceRepository;
+import dev.roberto.devices.domain.port.DeviceWriteBatch;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Decorator read-through para leituras por id. Capacidade limitada com eviction
+ * por frequência (W-TinyLFU do Caffeine); escritas invalidam as chaves afetadas.
+ * O TTL limita quanto tempo uma escrita feita em outro nó pode ficar invisível aqui.
+ * Listagens e contagens vão direto ao delegate, assim como findCurrentById/findAllCurrentById:
+ * decisões de escrita (If-Match, lote) não podem partir de uma linha em cache.
+ * A leitura no delegate acontece fora do lock interno do mapa (que é um monitor e
+ * prenderia a carrier thread de uma virtual thread durante o JDBC); leituras concorrentes
+ * da mesma chave esperam a mesma carga.
+ * Com réplicas de leitura, as cargas vão sempre ao primário: uma linha velha de uma réplica
+ * atrasada ficaria no cache pelo TTL inteiro.
+ */
+public class CachingDeviceRepository implements DeviceRepository {
+
+  private final DeviceRepository delegate;
+  private final AsyncCache<UUID, Device> loads;
+  private final Cache<UUID, Device> byId;
+
+  public CachingDeviceRepository(DeviceRepository delegate, long maxSize, Duration ttl) {
+    this.delegate = Objects.requireNonNull(delegate);
+    this.loads = Caffeine.newBuilder()
+      .maximumSize(maxSize)
+      .expireAfterWrite(ttl)
+      .recordStats()
+      .buildAsync();
+    this.byId = loads.synchronous();
+  }
+
+  public CacheStats stats() {
+    return byId.stats();
+  }
+
+  public long estimatedSize() {
+    return byId.estimatedSize();
+  }
+
+  @Override
+  public Optional<Device> findById(UUID id) {
+    // O mapping function só publica um future vazio; quem o publicou faz a leitura.
+    var mine = new CompletableFuture<Device>();
+    var pending = loads.get(id, (k, executor) -> mine);
+    if (pending != mine) return Optional.ofNullable(join(pending));
+    try {
+      // Ausências não são cacheadas: um future completado com null é descartado pelo cache.
+      var loaded = ReadRouting.onPrimary(() -> delegate.findById(id)).orElse(null);
+      mine.complete(loaded);
+      return Optional.ofNullable(loaded);
+    } catch (RuntimeException e) {
+      mine.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  // Sem cache, para quem vai decidir uma escrita. A entrada é descartada (quem chega aqui em geral
+  // viu uma versão velha) e não repopulada: uma escrita concorrente poderia invalidar antes do put
+  // e a linha lida ficaria velha no cache pelo TTL.
+  @Override
+  public Optional<Device> findCurrentById(UUID id) {
+    try {
+      return ReadRouting.onPrimary(() -> delegate.findCurrentById(id));
+    } finally {
+      byId.invalidate(id);
+    }
+  }
+
+  @Override
+  public List<Device> findAllCurrentById(Collection<UUID> ids) {
+    try {
+      return ReadRouting.onPrimary(() -> delegate.findAllCurrentById(ids));
+    } finally {
+      byId.invalidateAll(ids);
+    }
+  }
+
+  @Override
+  public Device save(Device device) {
+    try {
+      return delegate.save(device);
+    } finally {
+      byId.invalidate(device.id());
+    }
+  }
+
+  @Override
+  public Optional<Device> updateIfVersion(Device device, long expectedVersion) {
+    // Invalida também quando falha: a versão em cache provavelmente está velha.
+    try {
+      return delegate.updateIfVersion(device, expectedVersion);
+    } finally {
+      byId.invalidate(device.id());
+    }
+  }
+
+  @Override
+  public boolean deleteIfVersion(UUID id, long expectedVersion) {
+    try {
+      return delegate.deleteIfVersion(id, expectedVersion);
+    } finally {
+      byId.invalidate(id);
+    }
+  }
+
+  @Override
+  public Optional<Device> updateStateIf(UUID id, DeviceState expected, DeviceState target) {
+    try {
+      return delegate.updateStateIf(id, expected, target);
+    } finally {
+      byId.invalidate(id);
+    }
+  }
+
+  @Override
+  public OptionalLong estimateCount(String brand, DeviceState state) {
+    return delegate.estimateCount(brand, state);
+  }
+
+  @Override
+  public long changeWatermark() {
+    // Nunca em cache: é o que detecta escritas feitas por outros nós.
+    return delegate.changeWatermark();
+  }
+
+  @Override
+  public void deleteById(UUID id) {
+    try {
+      delegate.deleteById(id);
+    } finally {
+      byId.invalidate(id);
+    }
+  }
+
+  @Override
+  public void applyBatch(DeviceWriteBatch batch) {
+    try {
+      delegate.applyBatch(batch);
+    } finally {
+      byId.invalidateAll(Stream.of(
+          batch.inserts().stream().map(Device::id),
+          batch.updates().stream().map(Device::id),
+          batch.deletes().stream().map(Device::id))
+        .flatMap(s -> s)
+        .toList());
+    }
+  }
+
+  // ---- leituras não cacheadas ----
+
+  @Override
+  public List<Device> findAll() {
+    return delegate.findAll();
+  }
+
+  @Override
+  public void scanAll(Consumer<Device> consumer) {
+    delegate.scanAll(consumer);
+  }
+
+  @Override
+  public List<Device> findByBrand(String brand) {
+    return delegate.findByBrand(brand);
+  }
+
+  @Override
+  public List<Device> findByState(DeviceState state) {
+    return delegate.findByState(state);
+  }
+
+  @Override
+  public List<Device> findAllPaged(long offset, int limit) {
+    return delegate.findAllPaged(offset, limit);
+  }
+
+  @Override
+  public List<Device> findByBrandPaged(String brand, long offset, int limit) {
+    return delegate.findByBrandPaged(brand, offset, limit);
+  }
+
+  @Override
+  public List<Device> findByStatePaged(DeviceState state, long offset, int limit) {
+    return delegate.findByStatePaged(state, offset, limit);
+  }
+
+  @Override
+  public List<Device> findByBrandAndStatePaged(String brand, DeviceState state, long offset, int limit) {
+    return delegate.findByBrandAndStatePaged(brand, state, offset, limit);
+  }
+
+  @Override
+  public List<Device> findAllAfter(DeviceCursor after, int limit) {
+    return delegate.findAllAfter(after, limit);
+  }
+
+  @Override
+  public List<Device> findByBrandAfter(String brand, DeviceCursor after, int limit) {
+    return delegate.findByBrandAfter(brand, after, limit);
+  }
+
+  @Override
+  public List<Device> findByStateAfter(DeviceState state, DeviceCursor after, int limit) {
+    return delegate.findByStateAfter(state, after, limit);
+  }
+
+  @Override
+  public List<Device> findByBrandAndStateAfter(String brand, DeviceState state, DeviceCursor after, int limit) {
+    return delegate.findByBrandAndStateAfter(brand, state, after, limit);
+  }
+
+  @Override
+  public List<DeviceView> findPagedView(Set<DeviceField> fields, String brand, DeviceState state,
+                                        long offset, int limit) {
+    return delegate.findPagedView(fields, brand, state, offset, limit);
+  }
+
+  @Override
+  public List<DeviceView> findAfterView(Set<DeviceField> fields, String brand, DeviceState state,
+                                        DeviceCursor after, int limit) {
+    return delegate.findAfterView(fields, brand, state, after, limit);
+  }
+
+  @Override
+  public List<Device> searchByName(String q, String brand, DeviceState state, long offset, int limit) {
+    return delegate.searchByName(q, brand, state, offset, limit);
+  }
+
+  @Override
+  public long countAll() {
+    return delegate.countAll();
+  }
+
+  @Override
+  public long countByBrand(String brand) {
+    return delegate.countByBrand(brand);
+  }
+
+  @Override
+  public long countByState(DeviceState state) {
+    return delegate.countByState(state);
+  }
+
+  @Override
+  public long countByBrandAndState(String brand, DeviceState state) {
+    return delegate.countByBrandAndState(brand, state);
+  }
+
+  @Override
+  public List<DeviceCount> countGroupedByBrandAndState() {
+    return delegate.countGroupedByBrandAndState();
+  }
+
+  private static Device join(CompletableFuture<Device> pending) {
+    try {
+      return pending.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException re) throw re;
+      throw e;
+    }
+  }
+}
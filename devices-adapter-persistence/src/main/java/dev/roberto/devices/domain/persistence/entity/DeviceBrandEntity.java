@@ -0,0 +1,25 @@
+package dev.roberto.devices.domain.persistence.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Linha do dicionário device_brands. Lida e gravada via JDBC pelo BrandDictionary; a entidade
+ * existe para o schema gerado nos testes e para o ddl-auto=validate.
+ */
+@Entity
+@Table(name = "device_brands")
+public class DeviceBrandEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "id", nullable = false, updatable = false)
+  private Integer id;
+
+  @Column(name = "name", nullable = false, length = 255, unique = true)
+  private String name;
+
+  protected DeviceBrandEntity() { /* JPA */ }
+
+  public Integer getId() { return id; }
+  public String getName() { return name; }
+}
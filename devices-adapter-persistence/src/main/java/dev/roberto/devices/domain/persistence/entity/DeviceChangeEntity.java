@@ -0,0 +1,57 @@
+package dev.roberto.devices.domain.persistence.entity;
+
+import dev.roberto.devices.domain.model.DeviceChange;
+import dev.roberto.devices.domain.model.DeviceState;
+import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Linha do outbox device_changes. Escrita e lida via JDBC pelo JpaDeviceChangeLog; a entidade
+ * existe para o schema gerado nos testes e para o ddl-auto=validate.
+ */
+@Entity
+@Table(name = "device_changes")
+public class DeviceChangeEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "seq", nullable = false, updatable = false)
+  private Long seq;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "change_type", nullable = false, length = 8)
+  private DeviceChange.Type type;
+
+  @Column(name = "device_id", nullable = false)
+  private UUID deviceId;
+
+  @Column(name = "name", nullable = false, length = 255)
+  private String name;
+
+  @Column(name = "brand", nullable = false, length = 255)
+  private String brand;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "state", nullable = false, length = 20)
+  private DeviceState state;
+
+  @Column(name = "creation_time", nullable = false)
+  private Instant creationTime;
+
+  @Column(name = "version", nullable = false)
+  private long version;
+
+  @ColumnDefault("CURRENT_TIMESTAMP")
+  @Column(name = "changed_at", nullable = false, insertable = false, updatable = false)
+  private Instant changedAt;
+
+  protected DeviceChangeEntity() { /* JPA */ }
+
+  public Long getSeq() { return seq; }
+  public DeviceChange.Type getType() { return type; }
+  public UUID getDeviceId() { return deviceId; }
+  public Instant getChangedAt() { return changedAt; }
+}
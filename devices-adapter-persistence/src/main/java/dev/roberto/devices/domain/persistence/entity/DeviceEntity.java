@@ -17,35 +17,43 @@ public class DeviceEntity {
   @Column(name = "name", nullable = false, length = 255)
   private String name;
 
-  @Column(name = "brand", nullable = false, length = 255)
-  private String brand;
+  // Chave em device_brands (V11): 4 bytes por linha e por entrada de índice em vez do texto.
+  @Column(name = "brand_id", nullable = false)
+  private Integer brandId;
 
-  @Enumerated(EnumType.STRING)
-  @Column(name = "state", nullable = false, length = 20)
+  @Convert(converter = DeviceStateConverter.class)
+  @Column(name = "state", nullable = false)
   private DeviceState state;
 
   @Column(name = "creation_time", nullable = false)
   private Instant creationTime;
 
+  // Controlado explicitamente pelas escritas condicionais (UPDATE ... WHERE version = ?), sem @Version.
+  @Column(name = "version", nullable = false)
+  private long version;
+
   protected DeviceEntity() { /* JPA */ }
 
-  public DeviceEntity(UUID id, String name, String brand, DeviceState state, Instant creationTime) {
+  public DeviceEntity(UUID id, String name, Integer brandId, DeviceState state, Instant creationTime, long version) {
     this.id = id;
     this.name = name;
-    this.brand = brand;
+    this.brandId = brandId;
     this.state = state;
     this.creationTime = creationTime;
+    this.version = version;
   }
 
   public UUID getId() { return id; }
   public String getName() { return name; }
-  public String getBrand() { return brand; }
+  public Integer getBrandId() { return brandId; }
   public DeviceState getState() { return state; }
   public Instant getCreationTime() { return creationTime; }
+  public long getVersion() { return version; }
 
   public void setId(UUID id) { this.id = id; }
   public void setName(String name) { this.name = name; }
-  public void setBrand(String brand) { this.brand = brand; }
+  public void setBrandId(Integer brandId) { this.brandId = brandId; }
   public void setState(DeviceState state) { this.state = state; }
   public void setCreationTime(Instant creationTime) { this.creationTime = creationTime; }
+  public void setVersion(long version) { this.version = version; }
 }
@@ -0,0 +1,21 @@
+package dev.roberto.devices.domain.persistence.entity;
+
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.port.DeviceStateCodes;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// state em SMALLINT (2 bytes) com os códigos de DeviceStateCodes, em vez do nome em VARCHAR.
+@Converter
+public class DeviceStateConverter implements AttributeConverter<DeviceState, Short> {
+
+  @Override
+  public Short convertToDatabaseColumn(DeviceState state) {
+    return state == null ? null : DeviceStateCodes.code(state);
+  }
+
+  @Override
+  public DeviceState convertToEntityAttribute(Short code) {
+    return code == null ? null : DeviceStateCodes.fromCode(code);
+  }
+}
@@ -0,0 +1,31 @@
+package dev.roberto.devices.domain.persistence.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Uma das linhas (id 1..{@link #STRIPES}) do contador de mudanças em devices. O valor do
+ * watermark é a soma de todas; cada transação de escrita incrementa uma delas.
+ */
+@Entity
+@Table(name = "device_watermark")
+public class DeviceWatermarkEntity {
+
+  public static final short STRIPES = 16;
+
+  @Id
+  @Column(name = "id", nullable = false, updatable = false)
+  private short id;
+
+  @Column(name = "seq", nullable = false)
+  private long value;
+
+  protected DeviceWatermarkEntity() {}
+
+  public DeviceWatermarkEntity(short id, long value) {
+    this.id = id;
+    this.value = value;
+  }
+
+  public short getId() { return id; }
+  public long getValue() { return value; }
+}
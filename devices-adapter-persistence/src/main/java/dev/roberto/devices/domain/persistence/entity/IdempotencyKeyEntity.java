@@ -21,6 +21,12 @@ public class IdempotencyKeyEntity {
   @Column(name = "expires_at", nullable = false)
   private Instant expiresAt;
 
+  @Column(name = "request_hash", length = 64)
+  private String requestHash;
+
+  @Column(name = "response", length = 65536)
+  private byte[] response;
+
   protected IdempotencyKeyEntity() {}
 
   public IdempotencyKeyEntity(String key, UUID resourceId, Instant createdAt, Instant expiresAt) {
@@ -34,6 +40,8 @@ public class IdempotencyKeyEntity {
   public UUID getResourceId() { return resourceId; }
   public Instant getCreatedAt() { return createdAt; }
   public Instant getExpiresAt() { return expiresAt; }
+  public String getRequestHash() { return requestHash; }
+  public byte[] getResponse() { return response; }
 
   public void setResourceId(UUID resourceId) { this.resourceId = resourceId; }
   public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
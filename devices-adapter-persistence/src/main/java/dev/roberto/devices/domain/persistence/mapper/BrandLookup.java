@@ -0,0 +1,11 @@
+package dev.roberto.devices.domain.persistence.mapper;
+
+/** Tradução entre o nome do brand e a chave em device_brands usada por DeviceJpaMapper. */
+public interface BrandLookup {
+
+  /** Chave do brand, criando a entrada no dicionário se ainda não existir. */
+  int idOf(String brand);
+
+  /** Nome do brand; a mesma instância de String para todas as linhas do mesmo brand. */
+  String nameOf(int id);
+}
@@ -6,11 +6,12 @@ import dev.roberto.devices.domain.persistence.entity.DeviceEntity;
 public final class DeviceJpaMapper {
   private DeviceJpaMapper() {}
 
-  public static DeviceEntity toEntity(Device d) {
-    return new DeviceEntity(d.id(), d.name(), d.brand(), d.state(), d.creationTime());
+  public static DeviceEntity toEntity(Device d, BrandLookup brands) {
+    return new DeviceEntity(d.id(), d.name(), brands.idOf(d.brand()), d.state(), d.creationTime(), d.version());
   }
 
-  public static Device toDomain(DeviceEntity e) {
-    return new Device(e.getId(), e.getName(), e.getBrand(), e.getState(), e.getCreationTime());
+  public static Device toDomain(DeviceEntity e, BrandLookup brands) {
+    return new Device(e.getId(), e.getName(), brands.nameOf(e.getBrandId()), e.getState(), e.getCreationTime(),
+      e.getVersion());
   }
 }
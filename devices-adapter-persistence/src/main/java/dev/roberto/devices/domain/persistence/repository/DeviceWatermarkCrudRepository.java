@@ -0,0 +1,17 @@
+package dev.roberto.devices.domain.persistence.repository;
+
+import dev.roberto.devices.domain.persistence.entity.DeviceWatermarkEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface DeviceWatermarkCrudRepository extends JpaRepository<DeviceWatermarkEntity, Short> {
+
+  @Modifying
+  @Query("update DeviceWatermarkEntity w set w.value = w.value + 1 where w.id = :id")
+  int increment(@Param("id") short id);
+
+  @Query("select coalesce(sum(w.value), 0) from DeviceWatermarkEntity w")
+  long total();
+}
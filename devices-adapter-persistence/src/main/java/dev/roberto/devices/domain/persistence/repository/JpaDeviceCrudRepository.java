@@ -2,21 +2,85 @@ package dev.roberto.devices.domain.persistence.repository;
 
 import dev.roberto.devices.domain.model.DeviceState;
 import dev.roberto.devices.domain.persistence.entity.DeviceEntity;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+// brand é filtrado pela chave do dicionário (brandId); o JpaDeviceRepository resolve o nome antes.
 public interface JpaDeviceCrudRepository extends JpaRepository<DeviceEntity, UUID> {
-  List<DeviceEntity> findByBrand(String brand);
+  List<DeviceEntity> findByBrandId(Integer brandId);
   List<DeviceEntity> findByState(DeviceState state);
 
-  Page<DeviceEntity> findAll(Pageable pageable);
-  Page<DeviceEntity> findByBrand(String brand, Pageable pageable);
-  Page<DeviceEntity> findByState(DeviceState state, Pageable pageable);
+  // List em vez de Page: Page dispara um COUNT(*) escondido a cada chamada.
+  @Query("select d from DeviceEntity d")
+  List<DeviceEntity> findPage(Pageable pageable);
+  List<DeviceEntity> findByBrandId(Integer brandId, Pageable pageable);
+  List<DeviceEntity> findByState(DeviceState state, Pageable pageable);
+  List<DeviceEntity> findByBrandIdAndState(Integer brandId, DeviceState state, Pageable pageable);
 
-  long countByBrand(String brand);
+  // Cursor no servidor: o driver busca em lotes de fetchSize (exige transação ativa no Postgres).
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+    @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+  })
+  @Query("select d from DeviceEntity d order by d.creationTime, d.id")
+  Stream<DeviceEntity> streamAllOrdered();
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("""
+    update DeviceEntity d
+    set d.name = :name, d.brandId = :brandId, d.state = :state, d.version = d.version + 1
+    where d.id = :id and d.version = :version""")
+  int updateIfVersion(@Param("id") UUID id, @Param("name") String name, @Param("brandId") Integer brandId,
+                      @Param("state") DeviceState state, @Param("version") long version);
+
+  long countByBrandId(Integer brandId);
   long countByState(DeviceState state);
+  long countByBrandIdAndState(Integer brandId, DeviceState state);
+
+  // Keyset (creation_time, id): comparação de tupla usa os índices compostos da V3.
+  List<DeviceEntity> findByOrderByCreationTimeAscIdAsc(Limit limit);
+  List<DeviceEntity> findByBrandIdOrderByCreationTimeAscIdAsc(Integer brandId, Limit limit);
+  List<DeviceEntity> findByStateOrderByCreationTimeAscIdAsc(DeviceState state, Limit limit);
+  List<DeviceEntity> findByBrandIdAndStateOrderByCreationTimeAscIdAsc(Integer brandId, DeviceState state, Limit limit);
+
+  @Query("""
+    select d from DeviceEntity d
+    where (d.creationTime, d.id) > (:creationTime, :id)
+    order by d.creationTime, d.id""")
+  List<DeviceEntity> findAfter(@Param("creationTime") Instant creationTime, @Param("id") UUID id, Limit limit);
+
+  @Query("""
+    select d from DeviceEntity d
+    where d.brandId = :brandId and (d.creationTime, d.id) > (:creationTime, :id)
+    order by d.creationTime, d.id""")
+  List<DeviceEntity> findByBrandAfter(@Param("brandId") Integer brandId, @Param("creationTime") Instant creationTime,
+                                      @Param("id") UUID id, Limit limit);
+
+  @Query("""
+    select d from DeviceEntity d
+    where d.state = :state and (d.creationTime, d.id) > (:creationTime, :id)
+    order by d.creationTime, d.id""")
+  List<DeviceEntity> findByStateAfter(@Param("state") DeviceState state, @Param("creationTime") Instant creationTime,
+                                      @Param("id") UUID id, Limit limit);
+
+  @Query("""
+    select d from DeviceEntity d
+    where d.brandId = :brandId and d.state = :state and (d.creationTime, d.id) > (:creationTime, :id)
+    order by d.creationTime, d.id""")
+  List<DeviceEntity> findByBrandAndStateAfter(@Param("brandId") Integer brandId, @Param("state") DeviceState state,
+                                              @Param("creationTime") Instant creationTime, @Param("id") UUID id,
+                                              Limit limit);
 }
@@ -0,0 +1,89 @@
+package dev.roberto.devices.domain.persistence.routing;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Decide, por thread, em qual banco cai a próxima conexão do ReplicaRoutingDataSource.
+ * Sem marcação tudo vai ao primário; {@link #read} manda a chamada a uma réplica saudável.
+ * <p>
+ * Dentro de uma requisição ({@link #beginRequest}) a primeira leitura fixa a réplica e as
+ * seguintes usam a mesma: o watermark do ETag e a página vêm do mesmo banco, nunca um
+ * watermark novo com dados de uma réplica mais atrasada.
+ */
+public final class ReadRouting {
+
+  /** Chamada roteável; o aspecto passa o proceed() do join point. */
+  @FunctionalInterface
+  public interface Call<T> {
+    T run() throws Throwable;
+  }
+
+  private static final class Request {
+    final boolean primaryOnly;
+    String replica;
+
+    Request(boolean primaryOnly) {
+      this.primaryOnly = primaryOnly;
+    }
+  }
+
+  private static final ThreadLocal<String> TARGET = new ThreadLocal<>();
+  private static final ThreadLocal<Request> REQUEST = new ThreadLocal<>();
+
+  private ReadRouting() { }
+
+  /** primaryOnly: o cliente escreveu há pouco e precisa ler a própria escrita. */
+  public static void beginRequest(boolean primaryOnly) {
+    REQUEST.set(new Request(primaryOnly));
+  }
+
+  public static void endRequest() {
+    REQUEST.remove();
+    TARGET.remove();
+  }
+
+  /** Executa numa réplica escolhida pelo monitor, ou no primário se nenhuma servir. */
+  public static <T> T read(ReplicaLagMonitor replicas, Call<T> call) throws Throwable {
+    // Já dentro de uma transação (ou de outra leitura roteada): a conexão já foi escolhida.
+    if (TARGET.get() != null || TransactionSynchronizationManager.isActualTransactionActive()) return call.run();
+
+    var request = REQUEST.get();
+    if (request != null && request.primaryOnly) return call.run();
+
+    String replica;
+    if (request != null && request.replica != null) {
+      // A réplica fixada saiu do rodízio: só o primário está garantidamente à frente dela.
+      if (!replicas.isHealthy(request.replica)) return call.run();
+      replica = request.replica;
+    } else {
+      replica = replicas.pick();
+      if (replica == null) return call.run();
+      if (request != null) request.replica = replica;
+    }
+
+    TARGET.set(replica);
+    try {
+      return call.run();
+    } finally {
+      TARGET.remove();
+    }
+  }
+
+  /** Força o primário, mesmo dentro de uma leitura roteada (ex.: carga do cache por id). */
+  public static <T> T onPrimary(Supplier<T> call) {
+    var previous = TARGET.get();
+    if (previous == null) return call.get();
+    TARGET.remove();
+    try {
+      return call.get();
+    } finally {
+      TARGET.set(previous);
+    }
+  }
+
+  static String currentTarget() {
+    return TARGET.get();
+  }
+}
@@ -0,0 +1,158 @@
+package dev.roberto.devices.domain.persistence.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mede o atraso de cada réplica pelo watermark de devices (soma de device_watermark.seq), que
+ * sobe no commit de cada escrita: funciona com qualquer replicação e em qualquer banco.
+ * <p>
+ * A cada rodada guarda (instante, seq do primário). Uma réplica com seq >= s de uma amostra
+ * já aplicou tudo o que foi confirmado até aquele instante; o atraso é o tempo desde a amostra
+ * mais nova que ela cobre. Acima de maxLag, ou sem responder, a réplica sai do rodízio até
+ * alcançar o primário de novo.
+ */
+public class ReplicaLagMonitor implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+  static final String WATERMARK_SQL = "SELECT CAST(COALESCE(SUM(seq), 0) AS BIGINT) FROM device_watermark";
+  static final long UNKNOWN = -1;
+
+  private record Sample(long nanos, long seq) { }
+
+  private final JdbcTemplate primary;
+  private final Map<String, DataSource> replicas;
+  private final Map<String, JdbcTemplate> probes = new LinkedHashMap<>();
+  private final long maxLagNanos;
+  private final Deque<Sample> samples = new ArrayDeque<>();
+  private final Map<String, Long> lagNanos = new ConcurrentHashMap<>();
+  private final List<String> names;
+  private final AtomicInteger next = new AtomicInteger();
+  private volatile List<String> healthy = List.of();
+  private ScheduledExecutorService executor;
+
+  public ReplicaLagMonitor(DataSource primary, Map<String, DataSource> replicas, Duration maxLag) {
+    this.primary = new JdbcTemplate(primary);
+    this.replicas = Map.copyOf(replicas);
+    this.maxLagNanos = maxLag.toNanos();
+    replicas.forEach((name, ds) -> probes.put(name, new JdbcTemplate(ds)));
+    this.names = List.copyOf(probes.keySet());
+  }
+
+  public Map<String, DataSource> replicas() {
+    return replicas;
+  }
+
+  public List<String> names() {
+    return names;
+  }
+
+  public synchronized void start(Duration interval) {
+    if (executor != null) throw new IllegalStateException("Replica lag monitor already started");
+    executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      var t = new Thread(r, "replica-lag");
+      t.setDaemon(true);
+      return t;
+    });
+    long ms = interval.toMillis();
+    executor.scheduleWithFixedDelay(this::tick, ms, ms, TimeUnit.MILLISECONDS);
+  }
+
+  /** Uma rodada de medição; público para os testes. */
+  public synchronized void check() {
+    long now = System.nanoTime();
+    long primarySeq = seq(primary);
+    samples.addLast(new Sample(now, primarySeq));
+    // Amostras além de 2 x maxLag não mudam a decisão: réplica tão atrasada já está fora.
+    while (samples.size() > 1 && now - samples.peekFirst().nanos() > 2 * maxLagNanos) samples.removeFirst();
+
+    var ok = new ArrayList<String>(names.size());
+    for (var name : names) {
+      long lag;
+      try {
+        lag = lagOf(seq(probes.get(name)), now);
+      } catch (RuntimeException e) {
+        log.warn("Replica {} unreachable, reads go to the primary", name, e);
+        lag = UNKNOWN;
+      }
+      lagNanos.put(name, lag);
+      if (lag != UNKNOWN && lag <= maxLagNanos) ok.add(name);
+    }
+    healthy = List.copyOf(ok);
+  }
+
+  private long lagOf(long replicaSeq, long now) {
+    Sample covered = null;
+    for (var it = samples.descendingIterator(); it.hasNext(); ) {
+      var s = it.next();
+      if (s.seq() <= replicaSeq) {
+        covered = s;
+        break;
+      }
+    }
+    // Atrás de todo o histórico guardado: só se sabe um mínimo, e ele já basta para tirá-la do rodízio.
+    if (covered == null) return Math.max(now - samples.peekFirst().nanos(), maxLagNanos + 1);
+    return covered == samples.peekLast() ? 0 : now - covered.nanos();
+  }
+
+  /** Réplica saudável em rodízio; null quando nenhuma está dentro do limite. */
+  public String pick() {
+    var candidates = healthy;
+    if (candidates.isEmpty()) return null;
+    return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+  }
+
+  public boolean isHealthy(String replica) {
+    return healthy.contains(replica);
+  }
+
+  /** Atraso medido na última rodada em ms; -1 se a réplica não respondeu. */
+  public double lagMillis(String replica) {
+    long lag = lagNanos.getOrDefault(replica, UNKNOWN);
+    return lag == UNKNOWN ? UNKNOWN : lag / 1_000_000.0;
+  }
+
+  /** Para as medições e fecha os pools das réplicas. */
+  @Override
+  public void close() throws Exception {
+    ScheduledExecutorService running;
+    synchronized (this) {
+      running = executor;
+    }
+    if (running != null) running.shutdownNow();
+    for (var ds : replicas.values()) {
+      if (ds instanceof AutoCloseable c) c.close();
+    }
+  }
+
+  private void tick() {
+    try {
+      check();
+    } catch (RuntimeException e) {
+      // Primário fora: sem amostra nova, as réplicas saem do rodízio até a próxima rodada.
+      healthy = List.of();
+      log.warn("Replica lag check failed", e);
+    }
+  }
+
+  private static long seq(JdbcTemplate jdbc) {
+    var rows = jdbc.queryForList(WATERMARK_SQL, Long.class);
+    return rows.isEmpty() || rows.get(0) == null ? 0 : rows.get(0);
+  }
+}
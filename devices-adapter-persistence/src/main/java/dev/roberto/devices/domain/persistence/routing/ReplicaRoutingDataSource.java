@@ -0,0 +1,27 @@
+package dev.roberto.devices.domain.persistence.routing;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Primário por padrão; a réplica marcada em {@link ReadRouting} quando houver.
+ * Deve ficar atrás de um LazyConnectionDataSourceProxy, para que a escolha aconteça no
+ * primeiro statement e não na abertura da transação.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+  public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas) {
+    setDefaultTargetDataSource(primary);
+    setTargetDataSources(new HashMap<>(replicas));
+    setLenientFallback(false);
+    afterPropertiesSet();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    return ReadRouting.currentTarget();
+  }
+}
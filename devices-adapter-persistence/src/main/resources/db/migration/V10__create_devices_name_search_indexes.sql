@@ -0,0 +1,7 @@
+-- Busca por nome (GET /devices?q=): LIKE '%q%' via trigramas, LIKE 'q%' via B-tree em lower(name).
+-- CREATE EXTENSION exige permissão no banco (dono do database ou superusuário).
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_devices_name_trgm ON devices USING gin (lower(name) gin_trgm_ops);
+-- text_pattern_ops: o prefixo usa o índice qualquer que seja a collation do banco.
+CREATE INDEX IF NOT EXISTS idx_devices_name_prefix ON devices (lower(name) text_pattern_ops);
@@ -0,0 +1,60 @@
+-- Linha mais estreita: brand vira chave inteira de um dicionário e state vira SMALLINT.
+-- Tuplas e índices menores cabem mais por página (heap e B-trees de brand/state).
+-- Atenção: o ALTER ... TYPE reescreve a tabela sob ACCESS EXCLUSIVE; rodar em janela de manutenção.
+
+CREATE TABLE IF NOT EXISTS device_brands (
+  id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name VARCHAR(255) NOT NULL UNIQUE
+);
+
+INSERT INTO device_brands (name)
+SELECT DISTINCT brand FROM devices
+ON CONFLICT (name) DO NOTHING;
+
+ALTER TABLE devices ADD COLUMN brand_id INTEGER;
+UPDATE devices d SET brand_id = b.id FROM device_brands b WHERE b.name = d.brand;
+ALTER TABLE devices ALTER COLUMN brand_id SET NOT NULL;
+ALTER TABLE devices
+  ADD CONSTRAINT fk_devices_brand FOREIGN KEY (brand_id) REFERENCES device_brands (id);
+
+-- Leva junto idx_devices_brand_creation_time_id e idx_devices_brand_state.
+ALTER TABLE devices DROP COLUMN brand;
+CREATE INDEX IF NOT EXISTS idx_devices_brand_creation_time_id ON devices (brand_id, creation_time, id);
+CREATE INDEX IF NOT EXISTS idx_devices_brand_state ON devices (brand_id, state, creation_time, id);
+
+-- Códigos fixos (DeviceStateCodes): nunca renumerar, só acrescentar.
+ALTER TABLE devices DROP CONSTRAINT IF EXISTS chk_devices_state;
+ALTER TABLE devices ALTER COLUMN state TYPE SMALLINT USING
+  CASE state WHEN 'AVAILABLE' THEN 0 WHEN 'IN_USE' THEN 1 WHEN 'INACTIVE' THEN 2 END;
+ALTER TABLE devices ADD CONSTRAINT chk_devices_state CHECK (state BETWEEN 0 AND 2);
+
+-- Mesma assinatura (nomes de brand e state): a aplicação não muda a chamada.
+CREATE OR REPLACE FUNCTION devices_count_estimate(p_brand TEXT, p_state TEXT)
+RETURNS BIGINT
+LANGUAGE plpgsql
+VOLATILE
+AS $$
+DECLARE
+  q   TEXT := 'SELECT 1 FROM devices WHERE true';
+  bid INTEGER;
+  rec RECORD;
+  n   BIGINT;
+BEGIN
+  IF p_brand IS NOT NULL THEN
+    SELECT id INTO bid FROM device_brands WHERE name = p_brand;
+    IF bid IS NULL THEN
+      RETURN 0;
+    END IF;
+    q := q || format(' AND brand_id = %s', bid);
+  END IF;
+  IF p_state IS NOT NULL THEN
+    q := q || format(' AND state = %s',
+      CASE p_state WHEN 'AVAILABLE' THEN 0 WHEN 'IN_USE' THEN 1 WHEN 'INACTIVE' THEN 2 END);
+  END IF;
+  FOR rec IN EXECUTE 'EXPLAIN ' || q LOOP
+    n := substring(rec."QUERY PLAN" FROM ' rows=([[:digit:]]+)');
+    EXIT WHEN n IS NOT NULL;
+  END LOOP;
+  RETURN n;
+END
+$$;
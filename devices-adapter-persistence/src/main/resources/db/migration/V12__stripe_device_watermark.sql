@@ -0,0 +1,7 @@
+-- O watermark vira a soma de várias linhas: cada transação de escrita incrementa uma linha
+-- sorteada, logo antes do commit. Escritas concorrentes raramente disputam o mesmo lock, e a
+-- soma continua subindo a cada commit (ordem de WAL, o que o ReplicaLagMonitor precisa).
+-- A linha 1 mantém o valor acumulado; DeviceWatermarkEntity.STRIPES precisa bater com a série.
+INSERT INTO device_watermark (id, seq)
+SELECT g, 0 FROM generate_series(2, 16) AS g
+ON CONFLICT (id) DO NOTHING;
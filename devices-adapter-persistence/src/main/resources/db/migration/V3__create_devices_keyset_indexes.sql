@@ -0,0 +1,8 @@
+-- Paginação por keyset: (creation_time, id) é a chave estável de ordenação.
+CREATE INDEX IF NOT EXISTS idx_devices_creation_time_id ON devices (creation_time, id);
+CREATE INDEX IF NOT EXISTS idx_devices_brand_creation_time_id ON devices (brand, creation_time, id);
+CREATE INDEX IF NOT EXISTS idx_devices_state_creation_time_id ON devices (state, creation_time, id);
+
+-- Os índices simples viram prefixo dos compostos acima; removê-los reduz o custo de escrita.
+DROP INDEX IF EXISTS idx_devices_brand;
+DROP INDEX IF EXISTS idx_devices_state;
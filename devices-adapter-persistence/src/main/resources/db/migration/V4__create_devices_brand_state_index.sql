@@ -0,0 +1,3 @@
+-- Filtro combinado brand + state (listagem paginada e COUNT).
+-- (creation_time, id) no final atende também à ordenação estável e ao keyset.
+CREATE INDEX IF NOT EXISTS idx_devices_brand_state ON devices (brand, state, creation_time, id);
@@ -0,0 +1,2 @@
+-- Versão para concorrência otimista: If-Match vira UPDATE ... WHERE id = ? AND version = ?
+ALTER TABLE devices ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,7 @@
+-- Contador de mudanças da coleção: validador barato (ETag fraco) para GET /devices
+CREATE TABLE IF NOT EXISTS device_watermark (
+  id SMALLINT PRIMARY KEY,
+  seq BIGINT NOT NULL
+);
+
+INSERT INTO device_watermark (id, seq) VALUES (1, 0) ON CONFLICT (id) DO NOTHING;
@@ -0,0 +1,25 @@
+-- Estimativa do planner para COUNT(*) filtrado: custa um EXPLAIN, não uma varredura.
+-- Os filtros entram via format(%L), nunca concatenados crus.
+CREATE OR REPLACE FUNCTION devices_count_estimate(p_brand TEXT, p_state TEXT)
+RETURNS BIGINT
+LANGUAGE plpgsql
+VOLATILE
+AS $$
+DECLARE
+  q   TEXT := 'SELECT 1 FROM devices WHERE true';
+  rec RECORD;
+  n   BIGINT;
+BEGIN
+  IF p_brand IS NOT NULL THEN
+    q := q || format(' AND brand = %L', p_brand);
+  END IF;
+  IF p_state IS NOT NULL THEN
+    q := q || format(' AND state = %L', p_state);
+  END IF;
+  FOR rec IN EXECUTE 'EXPLAIN ' || q LOOP
+    n := substring(rec."QUERY PLAN" FROM ' rows=([[:digit:]]+)');
+    EXIT WHEN n IS NOT NULL;
+  END LOOP;
+  RETURN n;
+END
+$$;
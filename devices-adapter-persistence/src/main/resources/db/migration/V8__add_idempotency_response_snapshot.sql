@@ -0,0 +1,4 @@
+-- Replays servidos da própria chave: hash da requisição original e resposta serializada
+-- (NULL enquanto a criação está em andamento ou em chaves gravadas antes desta versão)
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS request_hash VARCHAR(64);
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS response BYTEA;
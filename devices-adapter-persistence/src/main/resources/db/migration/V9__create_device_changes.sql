@@ -0,0 +1,13 @@
+-- Outbox das mutações de devices (GET /devices/changes): gravado na mesma transação da escrita.
+-- seq vem de uma IDENTITY: crescente, com buracos quando uma transação é desfeita.
+CREATE TABLE IF NOT EXISTS device_changes (
+  seq BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+  change_type VARCHAR(8) NOT NULL,
+  device_id UUID NOT NULL,
+  name VARCHAR(255) NOT NULL,
+  brand VARCHAR(255) NOT NULL,
+  state VARCHAR(20) NOT NULL,
+  creation_time TIMESTAMPTZ NOT NULL,
+  version BIGINT NOT NULL,
+  changed_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
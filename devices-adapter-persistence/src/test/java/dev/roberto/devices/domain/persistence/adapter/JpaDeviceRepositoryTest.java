@@ -1,14 +1,30 @@
 package dev.roberto.devices.domain.persistence.adapter;
 
 import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceChange;
+import dev.roberto.devices.domain.model.DeviceCount;
+import dev.roberto.devices.domain.model.DeviceField;
 import dev.roberto.devices.domain.model.DeviceState;
 import dev.roberto.devices.domain.persistence.repository.JpaDeviceCrudRepository;
+import dev.roberto.devices.domain.port.DeviceCursor;
+import dev.roberto.devices.domain.port.DeviceWriteBatch;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -17,12 +33,15 @@ import static org.junit.jupiter.api.Assertions.*;
   "spring.flyway.enabled=false",
   "spring.jpa.hibernate.ddl-auto=create-drop"
 })
-@Import(JpaDeviceRepository.class)
+@Import({ JpaDeviceRepository.class, BrandDictionary.class, ChangeWatermark.class, JpaDeviceChangeLog.class })
 class JpaDeviceRepositoryTest {
 
   @Autowired JpaDeviceRepository repo;
   @Autowired
   JpaDeviceCrudRepository crud; // sanity checks
+  @Autowired EntityManager em;
+  @Autowired JpaDeviceChangeLog changes;
+  @Autowired PlatformTransactionManager txManager;
 
   @Test
   void save_and_findById_shouldRoundTrip() {
@@ -56,6 +75,139 @@ class JpaDeviceRepositoryTest {
     assertEquals("C", inUse.get(0).name());
   }
 
+  @Test
+  void findByBrandAndStatePaged_shouldFilterInQuery_andCount() {
+    repo.save(new Device(UUID.randomUUID(), "A", "Apple", DeviceState.IN_USE, Instant.now()));
+    repo.save(new Device(UUID.randomUUID(), "B", "Apple", DeviceState.IN_USE, Instant.now()));
+    repo.save(new Device(UUID.randomUUID(), "C", "Apple", DeviceState.AVAILABLE, Instant.now()));
+    repo.save(new Device(UUID.randomUUID(), "D", "Lenovo", DeviceState.IN_USE, Instant.now()));
+
+    var page0 = repo.findByBrandAndStatePaged("Apple", DeviceState.IN_USE, 0, 1);
+    var page1 = repo.findByBrandAndStatePaged("Apple", DeviceState.IN_USE, 1, 1);
+
+    assertEquals(1, page0.size());
+    assertEquals(1, page1.size());
+    assertNotEquals(page0.get(0).id(), page1.get(0).id());
+    assertEquals(2, repo.countByBrandAndState("Apple", DeviceState.IN_USE));
+  }
+
+  @Test
+  void findAllPaged_shouldHonorUnalignedOffset_andEstimateIsEmptyOutsidePostgres() {
+    var t0 = Instant.parse("2025-01-01T00:00:00Z");
+    for (int i = 0; i < 5; i++) {
+      repo.save(new Device(UUID.randomUUID(), "P" + i, "HP", DeviceState.AVAILABLE, t0.plusSeconds(i)));
+    }
+
+    var rows = repo.findAllPaged(1, 3);
+
+    assertEquals(List.of("P1", "P2", "P3"), rows.stream().map(Device::name).toList());
+    assertTrue(repo.estimateCount("HP", null).isEmpty());
+  }
+
+  @Test
+  void findAfter_shouldWalkKeysetInCreationTimeThenIdOrder() {
+    var t0 = Instant.parse("2025-01-01T00:00:00Z");
+    for (int i = 0; i < 5; i++) {
+      // dois a dois com o mesmo creationTime para exercitar o desempate por id
+      repo.save(new Device(UUID.randomUUID(), "D" + i, "Dell", DeviceState.AVAILABLE, t0.plusSeconds(i / 2)));
+    }
+    repo.save(new Device(UUID.randomUUID(), "H", "HP", DeviceState.AVAILABLE, t0));
+
+    var walked = new ArrayList<Device>();
+    DeviceCursor cursor = null;
+    while (true) {
+      var batch = repo.findByBrandAfter("Dell", cursor, 2);
+      if (batch.isEmpty()) break;
+      walked.addAll(batch);
+      cursor = DeviceCursor.of(batch.get(batch.size() - 1));
+    }
+
+    assertEquals(5, walked.size());
+    assertEquals(5, walked.stream().map(Device::id).distinct().count());
+    assertTrue(walked.stream().allMatch(d -> d.brand().equals("Dell")));
+    for (int i = 1; i < walked.size(); i++) {
+      assertFalse(walked.get(i).creationTime().isBefore(walked.get(i - 1).creationTime()));
+    }
+  }
+
+  @Test
+  void scanAll_shouldStreamEveryRowInKeysetOrder() {
+    var t0 = Instant.parse("2025-01-01T00:00:00Z");
+    repo.save(new Device(UUID.randomUUID(), "B", "HP", DeviceState.AVAILABLE, t0.plusSeconds(1)));
+    repo.save(new Device(UUID.randomUUID(), "A", "HP", DeviceState.AVAILABLE, t0));
+
+    var names = new ArrayList<String>();
+    repo.scanAll(d -> names.add(d.name()));
+
+    assertEquals(List.of("A", "B"), names);
+  }
+
+  @Test
+  void applyBatch_shouldInsertUpdateAndDelete() {
+    var t = Instant.parse("2025-01-01T00:00:00Z");
+    var kept = repo.save(new Device(UUID.randomUUID(), "K", "HP", DeviceState.AVAILABLE, t));
+    var gone = repo.save(new Device(UUID.randomUUID(), "G", "HP", DeviceState.AVAILABLE, t));
+    var fresh = new Device(UUID.randomUUID(), "N", "Dell", DeviceState.INACTIVE, t);
+
+    repo.applyBatch(new DeviceWriteBatch(
+      List.of(fresh), List.of(kept.withBrand("Dell").withVersion(1)), List.of(gone)));
+    em.clear();
+
+    assertEquals("Dell", repo.findById(kept.id()).orElseThrow().brand());
+    assertEquals(1, repo.findById(kept.id()).orElseThrow().version());
+    assertEquals(fresh, repo.findById(fresh.id()).orElseThrow());
+    assertTrue(repo.findById(gone.id()).isEmpty());
+    assertEquals(2, repo.findAllCurrentById(List.of(kept.id(), fresh.id(), gone.id())).size());
+  }
+
+  @Test
+  void updateIfVersion_shouldApplyOnlyOnMatchingVersion() {
+    var d = repo.save(new Device(UUID.randomUUID(), "A", "HP", DeviceState.AVAILABLE, Instant.now()));
+
+    var written = repo.updateIfVersion(d.withName("B"), 0);
+    assertEquals(1, written.orElseThrow().version());
+    assertTrue(repo.updateIfVersion(d.withName("C"), 0).isEmpty());
+
+    assertFalse(repo.deleteIfVersion(d.id(), 0));
+    assertEquals("B", repo.findById(d.id()).orElseThrow().name());
+    assertTrue(repo.deleteIfVersion(d.id(), 1));
+    assertTrue(repo.findById(d.id()).isEmpty());
+  }
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED) // o incremento só acontece após commit real
+  void writes_shouldBumpChangeWatermarkAfterCommit() {
+    var before = repo.changeWatermark();
+    var d = repo.save(new Device(UUID.randomUUID(), "W", "HP", DeviceState.AVAILABLE, Instant.now()));
+    var afterSave = repo.changeWatermark();
+
+    assertTrue(repo.updateIfVersion(d.withName("W2"), 1).isEmpty()); // versão errada: nada muda
+    assertEquals(afterSave, repo.changeWatermark());
+
+    assertTrue(repo.deleteIfVersion(d.id(), 0));
+    assertTrue(afterSave > before);
+    assertTrue(repo.changeWatermark() > afterSave);
+  }
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  void writes_shouldBumpWatermarkOncePerTransaction_onCommitOnly() {
+    var tx = new TransactionTemplate(txManager);
+    var before = repo.changeWatermark();
+
+    tx.executeWithoutResult(status -> {
+      repo.save(new Device(UUID.randomUUID(), "T1", "HP", DeviceState.AVAILABLE, Instant.now()));
+      repo.save(new Device(UUID.randomUUID(), "T2", "HP", DeviceState.AVAILABLE, Instant.now()));
+    });
+    assertEquals(before + 1, repo.changeWatermark());
+
+    tx.executeWithoutResult(status -> {
+      repo.save(new Device(UUID.randomUUID(), "T3", "HP", DeviceState.AVAILABLE, Instant.now()));
+      status.setRollbackOnly();
+    });
+    assertEquals(before + 1, repo.changeWatermark());
+  }
+
   @Test
   void deleteById_shouldRemove() {
     var id = UUID.randomUUID();
@@ -63,4 +215,154 @@ class JpaDeviceRepositoryTest {
     repo.deleteById(id);
     assertTrue(repo.findById(id).isEmpty());
   }
+
+  @Test
+  void deleteIfVersion_shouldDeleteOnlyAtExpectedVersion_andRecordLastState() {
+    var d = repo.save(new Device(UUID.randomUUID(), "T", "HP", DeviceState.AVAILABLE, Instant.parse("2025-01-01T00:00:00Z")));
+    var moved = repo.updateStateIf(d.id(), DeviceState.AVAILABLE, DeviceState.IN_USE).orElseThrow();
+
+    assertFalse(repo.deleteIfVersion(d.id(), 0)); // versão velha
+    assertTrue(repo.deleteIfVersion(d.id(), moved.version()));
+    assertFalse(repo.deleteIfVersion(d.id(), moved.version())); // já apagado
+    assertTrue(repo.findById(d.id()).isEmpty());
+
+    var last = changes.readAfter(0, 10).getLast();
+    assertEquals(DeviceChange.Type.DELETED, last.type());
+    assertEquals(moved, last.device());
+  }
+
+  @Test
+  void brand_shouldBeStoredOnceAndReadBackAsOneSharedInstance() {
+    var a = repo.save(new Device(UUID.randomUUID(), "A", new String("Apple"), DeviceState.IN_USE, Instant.now()));
+    var b = repo.save(new Device(UUID.randomUUID(), "B", new String("Apple"), DeviceState.AVAILABLE, Instant.now()));
+    em.flush();
+    em.clear();
+
+    assertEquals(1L, em.createNativeQuery("SELECT COUNT(*) FROM device_brands").getSingleResult());
+    assertEquals((short) 1, ((Number) em.createNativeQuery("SELECT state FROM devices WHERE id = ?1")
+      .setParameter(1, a.id()).getSingleResult()).shortValue());
+    assertSame(repo.findById(a.id()).orElseThrow().brand(), repo.findById(b.id()).orElseThrow().brand());
+
+    assertEquals(Set.of(new DeviceCount("Apple", DeviceState.IN_USE, 1), new DeviceCount("Apple", DeviceState.AVAILABLE, 1)),
+      Set.copyOf(repo.countGroupedByBrandAndState()));
+
+    // Marca nunca gravada: filtro vazio sem tocar em devices.
+    assertTrue(repo.findByBrand("Nokia").isEmpty());
+    assertEquals(0, repo.countByBrandAndState("Nokia", DeviceState.IN_USE));
+  }
+
+  @Test
+  void updateStateIf_shouldApplyOnlyFromExpectedState_andRecordChange() {
+    var d = repo.save(new Device(UUID.randomUUID(), "T", "HP", DeviceState.AVAILABLE, Instant.parse("2025-01-01T00:00:00Z")));
+
+    var moved = repo.updateStateIf(d.id(), DeviceState.AVAILABLE, DeviceState.IN_USE).orElseThrow();
+    assertEquals(d.withState(DeviceState.IN_USE).withVersion(1), moved);
+    assertTrue(repo.updateStateIf(d.id(), DeviceState.AVAILABLE, DeviceState.IN_USE).isEmpty()); // perdeu a corrida
+    assertTrue(repo.updateStateIf(UUID.randomUUID(), DeviceState.AVAILABLE, DeviceState.IN_USE).isEmpty());
+
+    em.clear(); // a transição é SQL direto; a entidade gerenciada ficou velha
+    assertEquals(moved, repo.findById(d.id()).orElseThrow());
+    var last = changes.readAfter(0, 10).getLast();
+    assertEquals(DeviceChange.Type.UPDATED, last.type());
+    assertEquals(moved, last.device());
+  }
+
+  @Test
+  void views_shouldSelectOnlyRequestedColumns_inListingOrder() {
+    var t = Instant.parse("2025-01-01T00:00:00Z");
+    var a = repo.save(new Device(UUID.randomUUID(), "A", "HP", DeviceState.AVAILABLE, t));
+    var b = repo.save(new Device(UUID.randomUUID(), "B", "HP", DeviceState.IN_USE, t.plusSeconds(1)));
+    repo.save(new Device(UUID.randomUUID(), "C", "Dell", DeviceState.IN_USE, t.plusSeconds(2)));
+    em.flush(); // as projeções são SQL nativo
+
+    var page = repo.findPagedView(EnumSet.of(DeviceField.ID, DeviceField.STATE), "HP", null, 1, 10);
+    assertEquals(1, page.size());
+    assertEquals(b.id(), page.get(0).id());
+    assertEquals(DeviceState.IN_USE, page.get(0).state());
+    assertNull(page.get(0).name());
+    assertNull(page.get(0).creationTime());
+
+    var keyset = repo.findAfterView(EnumSet.of(DeviceField.NAME, DeviceField.CREATION_TIME), null,
+      DeviceState.IN_USE, new DeviceCursor(a.creationTime(), a.id()), 10);
+    assertEquals(List.of("B", "C"), keyset.stream().map(v -> v.name()).toList());
+    assertEquals(t.plusSeconds(1), keyset.get(0).creationTime());
+    assertNull(keyset.get(0).id());
+  }
+
+  @Test
+  void searchByName_shouldRankMatches_andTreatWildcardsLiterally() {
+    var t = Instant.parse("2025-01-01T00:00:00Z");
+    for (var name : List.of("Office WS_10", "ws_10", "WS_100", "WSX10", "Laptop")) {
+      repo.save(new Device(UUID.randomUUID(), name, "HP", DeviceState.AVAILABLE, t));
+    }
+    repo.save(new Device(UUID.randomUUID(), "WS_1", "Dell", DeviceState.AVAILABLE, t));
+    em.flush(); // a busca é SQL nativo
+
+    var names = repo.searchByName("ws_1", "HP", null, 0, 10).stream().map(Device::name).toList();
+    // "_" é literal: WSX10 não casa. Prefixo antes de substring, nome mais curto primeiro.
+    assertEquals(List.of("ws_10", "WS_100", "Office WS_10"), names);
+    assertEquals(List.of("WS_100"), repo.searchByName("ws_1", "HP", null, 1, 1).stream().map(Device::name).toList());
+    assertEquals(List.of("WS_1"), repo.searchByName("ws_1", null, DeviceState.AVAILABLE, 0, 1).stream().map(Device::name).toList());
+    assertTrue(repo.searchByName("10", null, null, 0, 10).isEmpty()); // curto: só prefixo
+  }
+
+  @Test
+  void writes_shouldRecordEachMutationInOutboxInOrder() {
+    var from = changes.latestSeq();
+    var t = Instant.parse("2025-01-01T00:00:00Z");
+    var a = repo.save(new Device(UUID.randomUUID(), "A", "HP", DeviceState.AVAILABLE, t));
+    var b = repo.save(new Device(UUID.randomUUID(), "B", "HP", DeviceState.AVAILABLE, t));
+    repo.updateIfVersion(a.withState(DeviceState.IN_USE), 0).orElseThrow();
+    assertTrue(repo.updateIfVersion(a.withName("stale"), 0).isEmpty()); // sem escrita, sem mudança
+    assertTrue(repo.deleteIfVersion(b.id(), 0));
+    var c = new Device(UUID.randomUUID(), "C", "Dell", DeviceState.INACTIVE, t);
+    repo.applyBatch(new DeviceWriteBatch(List.of(c), List.of(), List.of()));
+
+    var log = changes.readAfter(from, 100);
+
+    assertEquals(List.of(DeviceChange.Type.CREATED, DeviceChange.Type.CREATED, DeviceChange.Type.UPDATED,
+      DeviceChange.Type.DELETED, DeviceChange.Type.CREATED), log.stream().map(DeviceChange::type).toList());
+    for (int i = 1; i < log.size(); i++) assertTrue(log.get(i).seq() > log.get(i - 1).seq());
+    assertEquals(a.withState(DeviceState.IN_USE).withVersion(1), log.get(2).device());
+    assertEquals(b, log.get(3).device()); // último estado antes da remoção
+    assertEquals(c, log.get(4).device());
+    assertEquals(log.get(4).seq(), changes.latestSeq());
+  }
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  void rejectedBatch_shouldLeaveNoChange_andCommitShouldSignalWaiters() throws Exception {
+    var d = repo.save(new Device(UUID.randomUUID(), "S", "HP", DeviceState.AVAILABLE, Instant.now()));
+    var latest = changes.latestSeq();
+
+    var stale = d.withName("S2").withVersion(5);
+    assertThrows(OptimisticLockingFailureException.class,
+      () -> repo.applyBatch(new DeviceWriteBatch(List.of(), List.of(stale), List.of())));
+    assertEquals(latest, changes.latestSeq());
+
+    changes.awaitChange(Duration.ZERO); // consome sinais anteriores
+    repo.updateIfVersion(d.withName("S3"), 0).orElseThrow();
+    long start = System.nanoTime();
+    changes.awaitChange(Duration.ofSeconds(5));
+    assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+    assertEquals(DeviceChange.Type.UPDATED, changes.readAfter(latest, 10).get(0).type());
+  }
+
+  @Test
+  void purgeBefore_shouldRemoveOldestFirstUpToLimit() {
+    for (int i = 0; i < 3; i++) {
+      repo.save(new Device(UUID.randomUUID(), "P" + i, "HP", DeviceState.AVAILABLE, Instant.now()));
+    }
+    var first = changes.firstSeq();
+
+    assertEquals(2, changes.purgeBefore(Instant.now().plusSeconds(60), 2));
+    assertTrue(changes.firstSeq() > first);
+    assertEquals(0, changes.purgeBefore(Instant.now().minusSeconds(3600), 10));
+
+    // Tudo vencido: a mais recente fica, e com ela a posição da sequence.
+    var latest = changes.latestSeq();
+    assertEquals(0, changes.purgeBefore(Instant.now().plusSeconds(60), 10));
+    assertEquals(latest, changes.firstSeq());
+    assertEquals(latest, changes.latestSeq());
+  }
 }
@@ -0,0 +1,94 @@
+package dev.roberto.devices.domain.persistence.adapter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+  "spring.flyway.enabled=false",
+  "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import(JpaIdempotencyStore.class)
+class JpaIdempotencyStoreTest {
+
+  private static final Instant T0 = Instant.parse("2025-01-01T00:00:00Z");
+  private static final Duration LEASE = Duration.ofSeconds(30);
+
+  @Autowired JpaIdempotencyStore store;
+
+  @Test
+  void reserve_shouldKeepFirstOwnerUntilExpired() {
+    var first = UUID.randomUUID();
+    var second = UUID.randomUUID();
+
+    var mine = store.reserve("k1", first, "fp1", T0, LEASE);
+    assertEquals(first, mine.resourceId());
+    assertTrue(mine.leased());
+    var current = store.reserve("k1", second, "fp2", T0.plusSeconds(1), LEASE);
+    assertEquals(first, current.resourceId());
+    assertEquals("fp1", current.fingerprint());
+    assertFalse(current.completed());
+    assertFalse(current.leased());
+    // Reserva órfã (nunca confirmada) é retomada depois do lease, com o id e o fingerprint dela:
+    // o dono anterior pode ter criado o recurso antes de cair.
+    var resumed = store.reserve("k1", second, "fp2", T0.plus(LEASE), LEASE);
+    assertEquals(first, resumed.resourceId());
+    assertEquals("fp1", resumed.fingerprint());
+    assertTrue(resumed.leased());
+    assertFalse(store.reserve("k1", second, "fp2", T0.plus(LEASE).plusSeconds(1), LEASE).leased());
+  }
+
+  @Test
+  void confirm_shouldStoreResponseForReplays() {
+    var owner = UUID.randomUUID();
+    var other = UUID.randomUUID();
+    store.reserve("k2", owner, "fp", T0, LEASE);
+
+    store.release("k2", other);
+    store.confirm("k2", owner, new byte[] { 1, 2, 3 }, T0, Duration.ofHours(24));
+    var replay = store.reserve("k2", other, "fp", T0.plus(LEASE), LEASE);
+    assertEquals(owner, replay.resourceId());
+    assertArrayEquals(new byte[] { 1, 2, 3 }, replay.response());
+
+    store.release("k2", owner);
+    assertEquals(other, store.reserve("k2", other, "fp", T0.plus(LEASE), LEASE).resourceId());
+  }
+
+  @Test
+  void purgeExpired_shouldDeleteOldestFirstUpToLimit() {
+    for (int i = 0; i < 5; i++) {
+      var id = store.reserve("old-" + i, UUID.randomUUID(), "fp", T0.plusSeconds(i), LEASE).resourceId();
+      store.confirm("old-" + i, id, new byte[] { 1 }, T0.plusSeconds(i), LEASE);
+    }
+    var live = store.reserve("live", UUID.randomUUID(), "fp", T0.plus(Duration.ofHours(1)), LEASE).resourceId();
+    var now = T0.plus(Duration.ofMinutes(10));
+
+    assertEquals(3, store.purgeExpired(now, 3));
+    assertEquals(T0.plusSeconds(3).plus(LEASE), store.oldestExpiry().orElseThrow());
+    assertEquals(2, store.purgeExpired(now, 3));
+    assertEquals(0, store.purgeExpired(now, 3));
+    assertEquals(live, store.reserve("live", UUID.randomUUID(), "fp", now, LEASE).resourceId());
+  }
+
+  @Test
+  void purgeExpired_shouldKeepUnconfirmedReservationUntilRetention() {
+    var first = UUID.randomUUID();
+    store.reserve("orphan", first, "fp", T0, LEASE);
+    var later = T0.plus(Duration.ofMinutes(2));
+
+    assertEquals(0, store.purgeExpired(later, 100));
+    assertTrue(store.oldestExpiry().isEmpty());
+    var resumed = store.reserve("orphan", UUID.randomUUID(), "fp", later, LEASE);
+    assertEquals(first, resumed.resourceId());
+    assertTrue(resumed.leased());
+
+    assertEquals(1, store.purgeExpired(later.plus(JpaIdempotencyStore.RETENTION).plusSeconds(1), 100));
+  }
+}
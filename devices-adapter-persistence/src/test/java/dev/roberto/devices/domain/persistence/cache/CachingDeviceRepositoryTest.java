@@ -0,0 +1,127 @@
+package dev.roberto.devices.domain.persistence.cache;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.port.DeviceRepository;
+import dev.roberto.devices.domain.port.DeviceWriteBatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class CachingDeviceRepositoryTest {
+
+  private DeviceRepository delegate;
+  private CachingDeviceRepository cache;
+  private Device device;
+
+  @BeforeEach
+  void setUp() {
+    delegate = mock(DeviceRepository.class);
+    cache = new CachingDeviceRepository(delegate, 100, Duration.ofMinutes(1));
+    device = new Device(UUID.randomUUID(), "WS-01", "Lenovo", DeviceState.AVAILABLE, Instant.parse("2025-01-01T00:00:00Z"));
+    when(delegate.findById(device.id())).thenReturn(Optional.of(device));
+  }
+
+  @Test
+  void findById_shouldHitDelegateOnce_thenServeFromMemory() {
+    for (int i = 0; i < 5; i++) {
+      assertEquals(device, cache.findById(device.id()).orElseThrow());
+    }
+
+    verify(delegate, times(1)).findById(device.id());
+    assertEquals(4, cache.stats().hitCount());
+    assertEquals(1, cache.stats().missCount());
+  }
+
+  @Test
+  void findById_shouldNotCacheAbsence() {
+    var unknown = UUID.randomUUID();
+    when(delegate.findById(unknown)).thenReturn(Optional.empty());
+
+    assertTrue(cache.findById(unknown).isEmpty());
+    assertTrue(cache.findById(unknown).isEmpty());
+
+    verify(delegate, times(2)).findById(unknown);
+  }
+
+  @Test
+  void findById_concurrentMisses_shouldShareOneLoadOnVirtualThreads() throws Exception {
+    var release = new CountDownLatch(1);
+    when(delegate.findById(device.id())).thenAnswer(inv -> {
+      release.await();
+      return Optional.of(device);
+    });
+
+    try (var pool = Executors.newVirtualThreadPerTaskExecutor()) {
+      var reads = IntStream.range(0, 50)
+        .mapToObj(i -> pool.submit(() -> cache.findById(device.id()).orElseThrow()))
+        .toList();
+      Thread.sleep(50);
+      release.countDown();
+      for (var r : reads) assertEquals(device, r.get());
+    }
+
+    verify(delegate, times(1)).findById(device.id());
+  }
+
+  @Test
+  void save_and_delete_shouldInvalidate() {
+    cache.findById(device.id());
+    when(delegate.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+    cache.save(device.withName("WS-02"));
+    cache.findById(device.id());
+    cache.deleteById(device.id());
+    cache.findById(device.id());
+
+    verify(delegate, times(3)).findById(device.id());
+  }
+
+  @Test
+  void conditionalUpdate_shouldInvalidateEvenWhenVersionMismatches() {
+    cache.findById(device.id());
+    when(delegate.updateIfVersion(any(), anyLong())).thenReturn(Optional.empty());
+
+    assertTrue(cache.updateIfVersion(device.withName("WS-02"), 0).isEmpty());
+    cache.findById(device.id());
+
+    verify(delegate, times(2)).findById(device.id());
+  }
+
+  @Test
+  void applyBatch_shouldInvalidateEveryTouchedId() {
+    cache.findById(device.id());
+
+    cache.applyBatch(new DeviceWriteBatch(List.of(), List.of(device.withBrand("HP")), List.of()));
+    cache.findById(device.id());
+
+    verify(delegate, times(2)).findById(device.id());
+  }
+
+  @Test
+  void findCurrentById_shouldBypassTheCacheAndDropTheStaleEntry() {
+    var current = device.withName("WS-02").withVersion(1);
+    cache.findById(device.id());
+    when(delegate.findCurrentById(device.id())).thenReturn(Optional.of(current));
+    when(delegate.findAllCurrentById(List.of(device.id()))).thenReturn(List.of(current));
+
+    assertEquals(current, cache.findCurrentById(device.id()).orElseThrow());
+    assertEquals(List.of(current), cache.findAllCurrentById(List.of(device.id())));
+    cache.findById(device.id());
+
+    verify(delegate, times(2)).findById(device.id());
+  }
+}
@@ -17,14 +17,19 @@ class DeviceJpaMapperTest {
     var t = Instant.parse("2025-01-01T00:00:00Z");
     var d = new Device(id, "WS-01", "Lenovo", DeviceState.AVAILABLE, t);
 
-    var e = DeviceJpaMapper.toEntity(d);
+    var e = DeviceJpaMapper.toEntity(d, BRANDS);
     assertEquals(id, e.getId());
     assertEquals("WS-01", e.getName());
-    assertEquals("Lenovo", e.getBrand());
+    assertEquals(7, e.getBrandId());
     assertEquals(DeviceState.AVAILABLE, e.getState());
     assertEquals(t, e.getCreationTime());
 
-    var back = DeviceJpaMapper.toDomain(e);
+    var back = DeviceJpaMapper.toDomain(e, BRANDS);
     assertEquals(d, back);
   }
+
+  private static final BrandLookup BRANDS = new BrandLookup() {
+    @Override public int idOf(String brand) { return 7; }
+    @Override public String nameOf(int id) { return "Lenovo"; }
+  };
 }
@@ -0,0 +1,100 @@
+package dev.roberto.devices.domain.persistence.routing;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicaRoutingTest {
+
+  private JdbcTemplate primary;
+  private JdbcTemplate replica;
+  private ReplicaLagMonitor monitor;
+  private JdbcTemplate routed;
+
+  @BeforeEach
+  void setUp() {
+    var primaryDs = h2("primary");
+    var replicaDs = h2("replica");
+    primary = new JdbcTemplate(primaryDs);
+    replica = new JdbcTemplate(replicaDs);
+    monitor = new ReplicaLagMonitor(primaryDs, Map.of("replica-0", replicaDs), Duration.ofMillis(50));
+    routed = new JdbcTemplate(new LazyConnectionDataSourceProxy(
+      new ReplicaRoutingDataSource(primaryDs, monitor.replicas())));
+  }
+
+  @AfterEach
+  void tearDown() {
+    ReadRouting.endRequest();
+  }
+
+  @Test
+  void read_shouldUseHealthyReplicaAndEverythingElseThePrimary() throws Throwable {
+    monitor.check();
+
+    assertEquals("replica", ReadRouting.read(monitor, this::whoAmI));
+    assertEquals("primary", whoAmI());
+    assertEquals("primary", ReadRouting.read(monitor, () -> ReadRouting.onPrimary(this::whoAmI)));
+
+    ReadRouting.beginRequest(true);
+    assertEquals("primary", ReadRouting.read(monitor, this::whoAmI));
+  }
+
+  @Test
+  void check_shouldDropLaggingReplicaUntilItCatchesUp() throws Throwable {
+    monitor.check();
+    assertEquals(0.0, monitor.lagMillis("replica-0"));
+
+    primary.update("UPDATE device_watermark SET seq = 2 WHERE id = 1");
+    monitor.check();
+    Thread.sleep(80);
+    monitor.check();
+
+    assertTrue(monitor.lagMillis("replica-0") >= 50, "lag " + monitor.lagMillis("replica-0"));
+    assertNull(monitor.pick());
+    assertEquals("primary", ReadRouting.read(monitor, this::whoAmI));
+
+    replica.update("UPDATE device_watermark SET seq = 2 WHERE id = 1");
+    monitor.check();
+    assertEquals(0.0, monitor.lagMillis("replica-0"));
+    assertEquals("replica", ReadRouting.read(monitor, this::whoAmI));
+  }
+
+  @Test
+  void request_shouldPinOneReplicaAndFallBackToThePrimaryIfItDrops() throws Throwable {
+    monitor.check();
+    ReadRouting.beginRequest(false);
+    assertEquals("replica", ReadRouting.read(monitor, this::whoAmI));
+
+    replica.execute("DROP TABLE device_watermark");
+    monitor.check();
+
+    assertEquals(-1.0, monitor.lagMillis("replica-0"));
+    assertEquals("primary", ReadRouting.read(monitor, this::whoAmI));
+  }
+
+  private String whoAmI() {
+    return routed.queryForObject("SELECT name FROM whoami", String.class);
+  }
+
+  private static JdbcDataSource h2(String name) {
+    var ds = new JdbcDataSource();
+    ds.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+    var jdbc = new JdbcTemplate(ds);
+    jdbc.execute("CREATE TABLE device_watermark (id SMALLINT PRIMARY KEY, seq BIGINT NOT NULL)");
+    jdbc.execute("INSERT INTO device_watermark VALUES (1, 1)");
+    jdbc.execute("CREATE TABLE whoami (name VARCHAR(16))");
+    jdbc.update("INSERT INTO whoami VALUES (?)", name);
+    return ds;
+  }
+}
@@ -0,0 +1,363 @@
+package dev.roberto.devices.domain.r2dbc;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceChange;
+import dev.roberto.devices.domain.model.DeviceCount;
+import dev.roberto.devices.domain.model.DeviceField;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.model.DeviceView;
+import dev.roberto.devices.domain.port.DeviceCursor;
+import dev.roberto.devices.domain.port.DeviceStateCodes;
+import dev.roberto.devices.domain.port.NameSearch;
+import dev.roberto.devices.domain.port.ReactiveDeviceRepository;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * {@link ReactiveDeviceRepository} sobre R2DBC, no mesmo schema das migrations do adapter JPA
+ * (tabelas devices, device_changes e device_watermark): as duas pilhas podem servir o mesmo
+ * banco lado a lado. Cada escrita, sua linha no outbox device_changes e o incremento do
+ * watermark (uma linha sorteada, no fim da transação, como no ChangeWatermark do adapter JPA)
+ * confirmam juntos.
+ * <p>
+ * brand fica no dicionário device_brands (V11): leituras fazem JOIN, filtros e escritas
+ * resolvem o id por subselect. Sem cache local, então nada a invalidar entre nós.
+ */
+public class R2dbcDeviceRepository implements ReactiveDeviceRepository {
+
+  private static final String COLUMNS = "d.id, d.name, b.name AS brand, d.state, d.creation_time, d.version";
+  private static final String FROM = " FROM devices d JOIN device_brands b ON b.id = d.brand_id";
+  private static final String BRAND_ID = "(SELECT id FROM device_brands WHERE name = :brand)";
+  private static final String ORDER = " ORDER BY d.creation_time, d.id";
+  // Linhas de device_watermark semeadas por V12 (DeviceWatermarkEntity.STRIPES no adapter JPA).
+  private static final int WATERMARK_STRIPES = 16;
+  // Linhas pedidas ao servidor por vez no scanAll (mesmo fetch size do export JPA).
+  private static final int FETCH_SIZE = 500;
+
+  private final DatabaseClient db;
+  private final TransactionalOperator tx;
+  private final boolean postgres;
+
+  public R2dbcDeviceRepository(DatabaseClient db) {
+    this.db = db;
+    this.tx = TransactionalOperator.create(new R2dbcTransactionManager(db.getConnectionFactory()));
+    this.postgres = db.getConnectionFactory().getMetadata().getName().toLowerCase(Locale.ROOT).contains("postgres");
+  }
+
+  @Override
+  public Mono<Device> insert(Device device) {
+    return ensureBrand(device.brand())
+      .then(db.sql("INSERT INTO devices (id, name, brand_id, state, creation_time, version) "
+          + "VALUES (:id, :name, " + BRAND_ID + ", :state, :creationTime, :version)")
+        .bind("id", device.id())
+        .bind("name", device.name())
+        .bind("brand", device.brand())
+        .bind("state", DeviceStateCodes.code(device.state()))
+        .bind("creationTime", utc(device))
+        .bind("version", device.version())
+        .fetch().rowsUpdated())
+      .then(recordChange(DeviceChange.Type.CREATED, device))
+      .then(bumpWatermark())
+      .as(tx::transactional)
+      .thenReturn(device);
+  }
+
+  @Override
+  public Mono<Device> updateIfVersion(Device device, long expectedVersion) {
+    return ensureBrand(device.brand())
+      .then(db.sql("UPDATE devices SET name = :name, brand_id = " + BRAND_ID + ", state = :state, "
+          + "version = :version + 1 WHERE id = :id AND version = :version")
+        .bind("name", device.name())
+        .bind("brand", device.brand())
+        .bind("state", DeviceStateCodes.code(device.state()))
+        .bind("version", expectedVersion)
+        .bind("id", device.id())
+        .fetch().rowsUpdated())
+      .filter(rows -> rows == 1)
+      .map(rows -> device.withVersion(expectedVersion + 1))
+      .flatMap(updated -> recordChange(DeviceChange.Type.UPDATED, updated)
+        .then(bumpWatermark())
+        .thenReturn(updated))
+      .as(tx::transactional);
+  }
+
+  // Mesmo UPDATE condicional do adapter JPA (RETURNING / FINAL TABLE), com a marca resolvida
+  // na própria consulta.
+  @Override
+  public Mono<Device> updateStateIf(UUID id, DeviceState expected, DeviceState target) {
+    var update = "UPDATE devices SET state = :target, version = version + 1 WHERE id = :id AND state = :expected";
+    var columns = "u.id, u.name, (SELECT name FROM device_brands WHERE id = u.brand_id) AS brand, "
+      + "u.state, u.creation_time, u.version";
+    var sql = postgres
+      ? "WITH u AS (" + update + " RETURNING *) SELECT " + columns + " FROM u"
+      : "SELECT " + columns + " FROM FINAL TABLE (" + update + ") u";
+    return db.sql(sql)
+      .bind("target", DeviceStateCodes.code(target))
+      .bind("id", id)
+      .bind("expected", DeviceStateCodes.code(expected))
+      .map(R2dbcDeviceRepository::toDevice)
+      .one()
+      .flatMap(moved -> recordChange(DeviceChange.Type.UPDATED, moved)
+        .then(bumpWatermark())
+        .thenReturn(moved))
+      .as(tx::transactional);
+  }
+
+  @Override
+  public Mono<Boolean> deleteIfVersion(UUID id, long expectedVersion) {
+    // Trava a linha antes do DELETE: o outbox registra o último estado de quem foi removido.
+    // Sem JOIN: o FOR UPDATE trava só a linha de devices, não a marca compartilhada.
+    return db.sql("SELECT d.id, d.name, (SELECT name FROM device_brands WHERE id = d.brand_id) AS brand, "
+        + "d.state, d.creation_time, d.version FROM devices d WHERE d.id = :id AND d.version = :version FOR UPDATE")
+      .bind("id", id)
+      .bind("version", expectedVersion)
+      .map(R2dbcDeviceRepository::toDevice)
+      .one()
+      .flatMap(current -> db.sql("DELETE FROM devices WHERE id = :id AND version = :version")
+        .bind("id", id)
+        .bind("version", expectedVersion)
+        .fetch().rowsUpdated()
+        .then(recordChange(DeviceChange.Type.DELETED, current))
+        .then(bumpWatermark())
+        .thenReturn(true))
+      .as(tx::transactional)
+      .defaultIfEmpty(false);
+  }
+
+  @Override
+  public Mono<Device> findById(UUID id) {
+    return db.sql("SELECT " + COLUMNS + FROM + " WHERE d.id = :id")
+      .bind("id", id)
+      .map(R2dbcDeviceRepository::toDevice)
+      .one();
+  }
+
+  @Override
+  public Flux<Device> scanAll() {
+    return db.sql("SELECT " + COLUMNS + FROM + ORDER)
+      .filter(s -> s.fetchSize(FETCH_SIZE))
+      .map(R2dbcDeviceRepository::toDevice)
+      .all();
+  }
+
+  @Override
+  public Flux<Device> findPaged(String brand, DeviceState state, long offset, int limit) {
+    var sql = "SELECT " + COLUMNS + FROM + where(brand, state, false) + ORDER
+      + " OFFSET :offset ROWS FETCH FIRST :limit ROWS ONLY";
+    return bindFilters(db.sql(sql), brand, state)
+      .bind("offset", offset)
+      .bind("limit", limit)
+      .map(R2dbcDeviceRepository::toDevice)
+      .all();
+  }
+
+  @Override
+  public Flux<Device> findAfter(String brand, DeviceState state, DeviceCursor after, int limit) {
+    // Keyset (creation_time, id): comparação de tupla usa os índices compostos da V3.
+    var sql = "SELECT " + COLUMNS + FROM + where(brand, state, after != null) + ORDER
+      + " FETCH FIRST :limit ROWS ONLY";
+    var spec = bindFilters(db.sql(sql), brand, state).bind("limit", limit);
+    if (after != null) {
+      spec = spec.bind("afterTime", OffsetDateTime.ofInstant(after.creationTime(), ZoneOffset.UTC))
+        .bind("afterId", after.id());
+    }
+    return spec.map(R2dbcDeviceRepository::toDevice).all();
+  }
+
+  @Override
+  public Flux<DeviceView> findPagedView(Set<DeviceField> fields, String brand, DeviceState state,
+                                        long offset, int limit) {
+    var sql = "SELECT " + columns(fields) + from(fields) + where(brand, state, false) + ORDER
+      + " OFFSET :offset ROWS FETCH FIRST :limit ROWS ONLY";
+    return bindFilters(db.sql(sql), brand, state)
+      .bind("offset", offset)
+      .bind("limit", limit)
+      .map(row -> toView(row, fields))
+      .all();
+  }
+
+  @Override
+  public Flux<DeviceView> findAfterView(Set<DeviceField> fields, String brand, DeviceState state,
+                                        DeviceCursor after, int limit) {
+    var sql = "SELECT " + columns(fields) + from(fields) + where(brand, state, after != null) + ORDER
+      + " FETCH FIRST :limit ROWS ONLY";
+    var spec = bindFilters(db.sql(sql), brand, state).bind("limit", limit);
+    if (after != null) {
+      spec = spec.bind("afterTime", OffsetDateTime.ofInstant(after.creationTime(), ZoneOffset.UTC))
+        .bind("afterId", after.id());
+    }
+    return spec.map(row -> toView(row, fields)).all();
+  }
+
+  // Mesmo SQL e ranking do JpaDeviceRepository#searchByName (índices da V10).
+  @Override
+  public Flux<Device> searchByName(String q, String brand, DeviceState state, long offset, int limit) {
+    var sql = "SELECT " + COLUMNS + FROM + " WHERE lower(d.name) LIKE :pattern ESCAPE '\\'"
+      + conditions(brand, state, false)
+      + " ORDER BY CASE WHEN lower(d.name) = :q THEN 0 WHEN lower(d.name) LIKE :prefix ESCAPE '\\' THEN 1 ELSE 2 END,"
+      + " length(d.name), d.creation_time, d.id OFFSET :offset ROWS FETCH FIRST :limit ROWS ONLY";
+    return bindFilters(db.sql(sql), brand, state)
+      .bind("pattern", NameSearch.likePattern(q))
+      .bind("q", q)
+      .bind("prefix", NameSearch.prefixPattern(q))
+      .bind("offset", offset)
+      .bind("limit", limit)
+      .map(R2dbcDeviceRepository::toDevice)
+      .all();
+  }
+
+  @Override
+  public Mono<Long> count(String brand, DeviceState state) {
+    return bindFilters(db.sql("SELECT COUNT(*) AS n FROM devices d" + where(brand, state, false)), brand, state)
+      .map(row -> row.get("n", Long.class))
+      .one();
+  }
+
+  // Agrupa pelas chaves antes do JOIN: o dicionário entra uma vez por grupo, não por linha.
+  @Override
+  public Flux<DeviceCount> countGroupedByBrandAndState() {
+    return db.sql("SELECT b.name AS brand, g.state, g.n FROM "
+        + "(SELECT brand_id, state, COUNT(*) AS n FROM devices GROUP BY brand_id, state) g "
+        + "JOIN device_brands b ON b.id = g.brand_id")
+      .map(row -> new DeviceCount(row.get("brand", String.class),
+        DeviceStateCodes.fromCode(row.get("state", Short.class)), row.get("n", Long.class)))
+      .all();
+  }
+
+  @Override
+  public Mono<Long> estimateCount(String brand, DeviceState state) {
+    if (!postgres) return Mono.empty();
+    // Mesmas fontes do adapter JPA: reltuples sem filtro, EXPLAIN (função da V7) com filtro.
+    var spec = brand == null && state == null
+      ? db.sql("SELECT reltuples::bigint AS n FROM pg_class WHERE oid = 'devices'::regclass")
+      : bindNullable(bindNullable(db.sql("SELECT devices_count_estimate(:brand, :state) AS n"), "brand", brand),
+          "state", state == null ? null : state.name());
+    return spec.map(row -> row.get("n", Long.class)).one().filter(n -> n >= 0);
+  }
+
+  @Override
+  public Mono<Long> changeWatermark() {
+    return db.sql("SELECT CAST(COALESCE(SUM(seq), 0) AS BIGINT) AS seq FROM device_watermark")
+      .map(row -> row.get("seq", Long.class))
+      .one()
+      .defaultIfEmpty(0L);
+  }
+
+  // Mesmo outbox e canal de NOTIFY do JpaDeviceChangeLog: os nós servlet recebem estas mudanças.
+  private Mono<Void> recordChange(DeviceChange.Type type, Device device) {
+    var insert = db.sql("INSERT INTO device_changes "
+        + "(change_type, device_id, name, brand, state, creation_time, version) "
+        + "VALUES (:type, :id, :name, :brand, :state, :creationTime, :version)")
+      .bind("type", type.name())
+      .bind("id", device.id())
+      .bind("name", device.name())
+      .bind("brand", device.brand())
+      .bind("state", device.state().name())
+      .bind("creationTime", utc(device))
+      .bind("version", device.version())
+      .then();
+    return postgres ? insert.then(db.sql("NOTIFY device_changes").then()) : insert;
+  }
+
+  // Garante a marca no dicionário antes da escrita. O NOT EXISTS evita gastar um valor da
+  // identity a cada escrita de marca já conhecida; o ON CONFLICT cobre a corrida entre nós.
+  private Mono<Void> ensureBrand(String brand) {
+    var sql = postgres
+      ? "INSERT INTO device_brands (name) SELECT :brand WHERE NOT EXISTS "
+        + "(SELECT 1 FROM device_brands WHERE name = :brand) ON CONFLICT (name) DO NOTHING"
+      : "MERGE INTO device_brands (name) KEY (name) VALUES (:brand)";
+    return db.sql(sql).bind("brand", brand).fetch().rowsUpdated().then();
+  }
+
+  // Último passo da transação: a linha sorteada fica travada só até o commit.
+  private Mono<Void> bumpWatermark() {
+    var stripe = (short) ThreadLocalRandom.current().nextInt(1, WATERMARK_STRIPES + 1);
+    // A migration semeia as linhas; sem elas (ex.: schema de testes) cria na primeira escrita.
+    return db.sql("UPDATE device_watermark SET seq = seq + 1 WHERE id = :id")
+      .bind("id", stripe)
+      .fetch().rowsUpdated()
+      .flatMap(rows -> rows > 0 ? Mono.<Void>empty()
+        : db.sql("INSERT INTO device_watermark (id, seq) VALUES (:id, 1)").bind("id", stripe).then());
+  }
+
+  private static String where(String brand, DeviceState state, boolean keyset) {
+    var and = conditions(brand, state, keyset);
+    return and.isEmpty() ? "" : " WHERE" + and.substring(4);
+  }
+
+  private static String conditions(String brand, DeviceState state, boolean keyset) {
+    var sb = new StringBuilder();
+    // Marca desconhecida: o subselect dá NULL e a consulta volta vazia, sem erro.
+    if (brand != null) sb.append(" AND d.brand_id = ").append(BRAND_ID);
+    if (state != null) sb.append(" AND d.state = :state");
+    if (keyset) sb.append(" AND (d.creation_time, d.id) > (:afterTime, :afterId)");
+    return sb.toString();
+  }
+
+  private static DatabaseClient.GenericExecuteSpec bindFilters(DatabaseClient.GenericExecuteSpec spec,
+                                                               String brand, DeviceState state) {
+    if (brand != null) spec = spec.bind("brand", brand);
+    if (state != null) spec = spec.bind("state", DeviceStateCodes.code(state));
+    return spec;
+  }
+
+  private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec,
+                                                                String name, String value) {
+    return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+  }
+
+  private static Device toDevice(Readable row) {
+    return new Device(
+      row.get("id", UUID.class),
+      row.get("name", String.class),
+      row.get("brand", String.class),
+      DeviceStateCodes.fromCode(row.get("state", Short.class)),
+      row.get("creation_time", OffsetDateTime.class).toInstant(),
+      row.get("version", Long.class));
+  }
+
+  private static String columns(Set<DeviceField> fields) {
+    if (fields.isEmpty()) throw new IllegalArgumentException("fields must not be empty");
+    return fields.stream().map(R2dbcDeviceRepository::column).collect(Collectors.joining(", "));
+  }
+
+  private static String column(DeviceField f) {
+    return switch (f) {
+      case ID -> "d.id";
+      case NAME -> "d.name";
+      case BRAND -> "b.name AS brand";
+      case STATE -> "d.state";
+      case CREATION_TIME -> "d.creation_time";
+    };
+  }
+
+  // O JOIN com o dicionário só entra quando brand foi pedido.
+  private static String from(Set<DeviceField> fields) {
+    return fields.contains(DeviceField.BRAND) ? FROM : " FROM devices d";
+  }
+
+  private static DeviceView toView(Readable row, Set<DeviceField> fields) {
+    return new DeviceView(
+      fields.contains(DeviceField.ID) ? row.get("id", UUID.class) : null,
+      fields.contains(DeviceField.NAME) ? row.get("name", String.class) : null,
+      fields.contains(DeviceField.BRAND) ? row.get("brand", String.class) : null,
+      fields.contains(DeviceField.STATE) ? DeviceStateCodes.fromCode(row.get("state", Short.class)) : null,
+      fields.contains(DeviceField.CREATION_TIME) ? row.get("creation_time", OffsetDateTime.class).toInstant() : null);
+  }
+
+  private static OffsetDateTime utc(Device device) {
+    return OffsetDateTime.ofInstant(device.creationTime(), ZoneOffset.UTC);
+  }
+}
@@ -0,0 +1,157 @@
+package dev.roberto.devices.domain.r2dbc;
+
+import dev.roberto.devices.domain.port.IdempotencyRecord;
+import dev.roberto.devices.domain.port.IdempotencyStore;
+import dev.roberto.devices.domain.port.ReactiveIdempotencyStore;
+import io.r2dbc.spi.Readable;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.UUID;
+
+/** Mesmos statements do JpaIdempotencyStore, sobre a mesma tabela idempotency_keys. */
+public class R2dbcIdempotencyStore implements ReactiveIdempotencyStore {
+
+  // Ver JpaIdempotencyStore: a colisão sempre "atualiza" para o RETURNING devolver o registro
+  // vigente, e uma reserva expirada sem resposta é retomada com o resource_id dela.
+  private static final String EXPIRED = "idempotency_keys.expires_at <= EXCLUDED.created_at";
+  private static final String ORPHAN = "idempotency_keys.response IS NULL AND idempotency_keys.request_hash IS NOT NULL";
+  private static final String RESERVE_SQL = """
+    INSERT INTO idempotency_keys (ikey, resource_id, request_hash, created_at, expires_at)
+    VALUES (:key, :resourceId, :fingerprint, :createdAt, :expiresAt)
+    ON CONFLICT (ikey) DO UPDATE SET
+      resource_id = CASE WHEN %1$s AND NOT (%2$s)
+        THEN EXCLUDED.resource_id ELSE idempotency_keys.resource_id END,
+      request_hash = CASE WHEN %1$s AND NOT (%2$s)
+        THEN EXCLUDED.request_hash ELSE idempotency_keys.request_hash END,
+      response = CASE WHEN %1$s
+        THEN NULL ELSE idempotency_keys.response END,
+      created_at = CASE WHEN %1$s
+        THEN EXCLUDED.created_at ELSE idempotency_keys.created_at END,
+      expires_at = CASE WHEN %1$s
+        THEN EXCLUDED.expires_at ELSE idempotency_keys.expires_at END
+    RETURNING resource_id, request_hash, response, created_at
+    """.formatted(EXPIRED, ORPHAN);
+  private static final String SELECT_SQL =
+    "SELECT resource_id, request_hash, response, created_at FROM idempotency_keys WHERE ikey = :key";
+
+  // Reserva sem resposta fica até RETENTION, como no JpaIdempotencyStore.
+  private static final String PURGE_SQL = "DELETE FROM idempotency_keys WHERE ikey IN ("
+    + "SELECT ikey FROM idempotency_keys WHERE expires_at < :now "
+    + "AND (response IS NOT NULL OR request_hash IS NULL OR created_at < :orphanCutoff) "
+    + "ORDER BY expires_at FETCH FIRST :limit ROWS ONLY";
+
+  private final DatabaseClient db;
+  private final boolean postgres;
+
+  public R2dbcIdempotencyStore(DatabaseClient db) {
+    this.db = db;
+    this.postgres = db.getConnectionFactory().getMetadata().getName().toLowerCase(Locale.ROOT).contains("postgres");
+  }
+
+  @Override
+  public Mono<IdempotencyRecord> reserve(String key, UUID resourceId, String fingerprint, Instant now,
+                                         Duration lease) {
+    // Mesma precisão do timestamptz: created_at devolvido igual ao nosso = a reserva é nossa.
+    var at = now.truncatedTo(ChronoUnit.MICROS);
+    var createdAt = utc(at);
+    var expiresAt = utc(at.plus(lease));
+    if (postgres) {
+      return db.sql(RESERVE_SQL)
+        .bind("key", key)
+        .bind("resourceId", resourceId)
+        .bind("fingerprint", fingerprint)
+        .bind("createdAt", createdAt)
+        .bind("expiresAt", expiresAt)
+        .map(row -> {
+          var current = toRecord(row);
+          var ours = current.resourceId().equals(resourceId)
+            || row.get("created_at", OffsetDateTime.class).toInstant().equals(at);
+          return ours ? withLease(current) : current;
+        })
+        .one();
+    }
+    // Fora do Postgres (testes em H2): a PK continua garantindo um único dono, em até quatro statements.
+    var mine = new IdempotencyRecord(resourceId, fingerprint, null, true);
+    return db.sql("INSERT INTO idempotency_keys (ikey, resource_id, request_hash, created_at, expires_at) "
+        + "VALUES (:key, :resourceId, :fingerprint, :createdAt, :expiresAt)")
+      .bind("key", key)
+      .bind("resourceId", resourceId)
+      .bind("fingerprint", fingerprint)
+      .bind("createdAt", createdAt)
+      .bind("expiresAt", expiresAt)
+      .then()
+      .thenReturn(mine)
+      .onErrorResume(DuplicateKeyException.class, e -> db.sql("UPDATE idempotency_keys SET created_at = :createdAt, "
+          + "expires_at = :expiresAt WHERE ikey = :key AND expires_at <= :createdAt "
+          + "AND response IS NULL AND request_hash IS NOT NULL")
+        .bind("createdAt", createdAt)
+        .bind("expiresAt", expiresAt)
+        .bind("key", key)
+        .fetch().rowsUpdated()
+        .flatMap(resumed -> resumed == 1 ? select(key).map(R2dbcIdempotencyStore::withLease)
+          : db.sql("UPDATE idempotency_keys SET resource_id = :resourceId, request_hash = :fingerprint, "
+              + "response = NULL, created_at = :createdAt, expires_at = :expiresAt "
+              + "WHERE ikey = :key AND expires_at <= :createdAt")
+            .bind("resourceId", resourceId)
+            .bind("fingerprint", fingerprint)
+            .bind("createdAt", createdAt)
+            .bind("expiresAt", expiresAt)
+            .bind("key", key)
+            .fetch().rowsUpdated()
+            .flatMap(taken -> taken == 1 ? Mono.just(mine) : select(key))));
+  }
+
+  @Override
+  public Mono<Void> confirm(String key, UUID resourceId, byte[] response, Instant now, Duration ttl) {
+    return db.sql("UPDATE idempotency_keys SET response = :response, expires_at = :expiresAt "
+        + "WHERE ikey = :key AND resource_id = :resourceId")
+      .bind("response", response)
+      .bind("expiresAt", utc(now.plus(ttl)))
+      .bind("key", key)
+      .bind("resourceId", resourceId)
+      .then();
+  }
+
+  @Override
+  public Mono<Void> release(String key, UUID resourceId) {
+    return db.sql("DELETE FROM idempotency_keys WHERE ikey = :key AND resource_id = :resourceId")
+      .bind("key", key)
+      .bind("resourceId", resourceId)
+      .then();
+  }
+
+  @Override
+  public Mono<Integer> purgeExpired(Instant now, int limit) {
+    return db.sql(postgres ? PURGE_SQL + " FOR UPDATE SKIP LOCKED)" : PURGE_SQL + ")")
+      .bind("now", utc(now))
+      .bind("orphanCutoff", utc(now.minus(IdempotencyStore.RETENTION)))
+      .bind("limit", limit)
+      .fetch().rowsUpdated()
+      .map(Long::intValue);
+  }
+
+  private Mono<IdempotencyRecord> select(String key) {
+    return db.sql(SELECT_SQL).bind("key", key).map(R2dbcIdempotencyStore::toRecord).one();
+  }
+
+  private static IdempotencyRecord withLease(IdempotencyRecord r) {
+    return new IdempotencyRecord(r.resourceId(), r.fingerprint(), r.response(), true);
+  }
+
+  private static IdempotencyRecord toRecord(Readable row) {
+    return new IdempotencyRecord(row.get("resource_id", UUID.class), row.get("request_hash", String.class),
+      row.get("response", byte[].class));
+  }
+
+  private static OffsetDateTime utc(Instant instant) {
+    return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+  }
+}
@@ -0,0 +1,134 @@
+package dev.roberto.devices.domain.r2dbc;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceField;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.model.DeviceView;
+import dev.roberto.devices.domain.port.DeviceCursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class R2dbcDeviceRepositoryTest {
+
+  private final DatabaseClient db = R2dbcTestDatabase.create();
+  private final R2dbcDeviceRepository repo = new R2dbcDeviceRepository(db);
+
+  @Test
+  void insert_and_findById_shouldRoundTrip() {
+    var d = new Device(UUID.randomUUID(), "WS-01", "Lenovo", DeviceState.IN_USE, Instant.parse("2025-01-01T10:00:00.123456Z"));
+
+    repo.insert(d).block();
+
+    assertEquals(d, repo.findById(d.id()).block());
+    assertNull(repo.findById(UUID.randomUUID()).block());
+  }
+
+  @Test
+  void conditionalWrites_shouldCheckVersionAndBumpWatermark() {
+    var d = repo.insert(device("A", "Apple", DeviceState.AVAILABLE, 0)).block();
+    long w0 = repo.changeWatermark().block();
+
+    var updated = repo.updateIfVersion(d.withName("A2"), 0).block();
+    assertEquals(1, updated.version());
+    assertNull(repo.updateIfVersion(d.withName("A3"), 0).block(), "stale version must not write");
+    assertEquals("A2", repo.findById(d.id()).block().name());
+
+    assertFalse(repo.deleteIfVersion(d.id(), 0).block());
+    assertTrue(repo.deleteIfVersion(d.id(), 1).block());
+    assertNull(repo.findById(d.id()).block());
+    assertEquals(w0 + 2, repo.changeWatermark().block());
+  }
+
+  @Test
+  void updateStateIf_shouldApplyOnlyFromExpectedState() {
+    var d = repo.insert(device("T", "HP", DeviceState.AVAILABLE, 0)).block();
+    long w0 = repo.changeWatermark().block();
+
+    var moved = repo.updateStateIf(d.id(), DeviceState.AVAILABLE, DeviceState.IN_USE).block();
+    assertEquals(d.withState(DeviceState.IN_USE).withVersion(1), moved);
+    assertNull(repo.updateStateIf(d.id(), DeviceState.AVAILABLE, DeviceState.IN_USE).block());
+    assertEquals(moved, repo.findById(d.id()).block());
+    assertEquals(w0 + 1, repo.changeWatermark().block());
+  }
+
+  @Test
+  void writes_shouldRecordOutboxRowsOnlyWhenApplied() {
+    var d = repo.insert(device("A", "Apple", DeviceState.AVAILABLE, 0)).block();
+    repo.updateIfVersion(d.withState(DeviceState.IN_USE), 0).block();
+    assertNull(repo.updateIfVersion(d.withName("stale"), 0).block());
+    assertFalse(repo.deleteIfVersion(d.id(), 0).block());
+    assertTrue(repo.deleteIfVersion(d.id(), 1).block());
+
+    var rows = db.sql("SELECT change_type, state, version FROM device_changes ORDER BY seq")
+      .map(r -> r.get("change_type", String.class) + ":" + r.get("state", String.class) + ":" + r.get("version", Long.class))
+      .all().collectList().block();
+
+    // DELETED traz o último estado antes da remoção.
+    assertEquals(List.of("CREATED:AVAILABLE:0", "UPDATED:IN_USE:1", "DELETED:IN_USE:1"), rows);
+  }
+
+  @Test
+  void views_shouldSelectOnlyRequestedColumns() {
+    var first = repo.insert(device("V1", "HP", DeviceState.AVAILABLE, 0)).block();
+    var second = repo.insert(device("V2", "HP", DeviceState.IN_USE, 1)).block();
+
+    var page = repo.findPagedView(EnumSet.of(DeviceField.ID, DeviceField.STATE), "HP", null, 0, 10)
+      .collectList().block();
+    assertEquals(List.of(new DeviceView(first.id(), null, null, DeviceState.AVAILABLE, null),
+      new DeviceView(second.id(), null, null, DeviceState.IN_USE, null)), page);
+
+    var after = repo.findAfterView(EnumSet.of(DeviceField.BRAND), null, null, DeviceCursor.of(first), 10)
+      .collectList().block();
+    assertEquals(List.of(new DeviceView(null, null, "HP", null, null)), after);
+  }
+
+  @Test
+  void searchByName_shouldRankLikeTheJpaAdapter() {
+    repo.insert(device("Office WS-10", "HP", DeviceState.AVAILABLE, 0)).block();
+    repo.insert(device("ws-10", "HP", DeviceState.AVAILABLE, 1)).block();
+    repo.insert(device("WS-100", "HP", DeviceState.AVAILABLE, 2)).block();
+    repo.insert(device("WS-10", "Dell", DeviceState.AVAILABLE, 3)).block();
+
+    var names = repo.searchByName("ws-10", "HP", null, 0, 10).map(Device::name).collectList().block();
+
+    assertEquals(List.of("ws-10", "WS-100", "Office WS-10"), names);
+    assertEquals(List.of("WS-10"), repo.searchByName("ws-10", "Dell", DeviceState.AVAILABLE, 0, 10)
+      .map(Device::name).collectList().block());
+  }
+
+  @Test
+  void pagedAndKeyset_shouldFollowCreationTimeOrderWithFilters() {
+    for (int i = 0; i < 5; i++) repo.insert(device("D" + i, i % 2 == 0 ? "Apple" : "Dell", DeviceState.AVAILABLE, i)).block();
+    repo.insert(device("X", "Apple", DeviceState.INACTIVE, 9)).block();
+
+    assertEquals(List.of("D2", "D4"),
+      repo.findPaged("Apple", DeviceState.AVAILABLE, 1, 10).map(Device::name).collectList().block());
+    assertEquals(3L, repo.count("Apple", DeviceState.AVAILABLE).block());
+    assertEquals(6L, repo.count(null, null).block());
+    // Uma linha por marca no dicionário; marca desconhecida filtra para vazio.
+    assertEquals(2L, db.sql("SELECT COUNT(*) AS n FROM device_brands").map(r -> r.get("n", Long.class)).one().block());
+    assertEquals(0L, repo.count("Nokia", null).block());
+
+    var first = repo.findAfter(null, null, null, 2).collectList().block();
+    assertEquals(List.of("D0", "D1"), first.stream().map(Device::name).toList());
+    var next = repo.findAfter(null, null, DeviceCursor.of(first.get(1)), 10).map(Device::name).collectList().block();
+    assertEquals(List.of("D2", "D3", "D4", "X"), next);
+    assertEquals(6, repo.scanAll().count().block());
+  }
+
+  @Test
+  void estimateCount_shouldBeEmptyOutsidePostgres() {
+    assertNull(repo.estimateCount(null, null).block());
+  }
+
+  private static Device device(String name, String brand, DeviceState state, int minute) {
+    return new Device(UUID.randomUUID(), name, brand, state, Instant.parse("2025-01-01T00:00:00Z").plusSeconds(60L * minute));
+  }
+}
@@ -0,0 +1,75 @@
+package dev.roberto.devices.domain.r2dbc;
+
+import dev.roberto.devices.domain.port.IdempotencyStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class R2dbcIdempotencyStoreTest {
+
+  private final R2dbcIdempotencyStore store = new R2dbcIdempotencyStore(R2dbcTestDatabase.create());
+
+  @Test
+  void reserve_shouldKeepFirstOwnerUntilExpiry() {
+    var now = Instant.parse("2025-01-01T00:00:00Z");
+    var first = UUID.randomUUID();
+    var second = UUID.randomUUID();
+
+    assertEquals(first, store.reserve("k", first, "fp", now, Duration.ofSeconds(30)).block().resourceId());
+    store.confirm("k", first, new byte[] {1, 2}, now, Duration.ofHours(1)).block();
+
+    var current = store.reserve("k", second, "fp", now.plusSeconds(60), Duration.ofSeconds(30)).block();
+    assertEquals(first, current.resourceId());
+    assertTrue(current.completed());
+    assertArrayEquals(new byte[] {1, 2}, current.response());
+
+    var afterExpiry = store.reserve("k", second, "fp2", now.plus(Duration.ofHours(2)), Duration.ofSeconds(30)).block();
+    assertEquals(second, afterExpiry.resourceId());
+    assertFalse(afterExpiry.completed());
+  }
+
+  @Test
+  void reserve_shouldResumeExpiredUnconfirmedReservationWithItsId() {
+    var now = Instant.parse("2025-01-01T00:00:00Z");
+    var first = UUID.randomUUID();
+    assertTrue(store.reserve("k", first, "fp", now, Duration.ofSeconds(30)).block().leased());
+
+    var resumed = store.reserve("k", UUID.randomUUID(), "fp", now.plusSeconds(31), Duration.ofSeconds(30)).block();
+    assertEquals(first, resumed.resourceId());
+    assertTrue(resumed.leased());
+    assertFalse(store.reserve("k", UUID.randomUUID(), "fp", now.plusSeconds(32), Duration.ofSeconds(30)).block().leased());
+  }
+
+  @Test
+  void releaseAndPurge_shouldFreeKeys() {
+    var now = Instant.parse("2025-01-01T00:00:00Z");
+    var id = UUID.randomUUID();
+    store.reserve("k", id, "fp", now, Duration.ofSeconds(30)).block();
+    store.release("k", id).block();
+    var other = UUID.randomUUID();
+    assertEquals(other, store.reserve("k", other, "fp", now, Duration.ofSeconds(30)).block().resourceId());
+
+    var old = store.reserve("old", UUID.randomUUID(), "fp", now.minusSeconds(120), Duration.ofSeconds(30)).block();
+    store.confirm("old", old.resourceId(), new byte[] {1}, now.minusSeconds(120), Duration.ofSeconds(30)).block();
+    assertEquals(1, store.purgeExpired(now, 100).block());
+  }
+
+  @Test
+  void purge_shouldKeepUnconfirmedReservationUntilRetention() {
+    var now = Instant.parse("2025-01-01T00:00:00Z");
+    var first = UUID.randomUUID();
+    store.reserve("k", first, "fp", now, Duration.ofSeconds(30)).block();
+    var later = now.plus(Duration.ofMinutes(2));
+
+    assertEquals(0, store.purgeExpired(later, 100).block());
+    var resumed = store.reserve("k", UUID.randomUUID(), "fp", later, Duration.ofSeconds(30)).block();
+    assertEquals(first, resumed.resourceId());
+    assertTrue(resumed.leased());
+
+    assertEquals(1, store.purgeExpired(later.plus(IdempotencyStore.RETENTION).plusSeconds(1), 100).block());
+  }
+}
@@ -0,0 +1,24 @@
+package dev.roberto.devices.domain.r2dbc;
+
+import io.r2dbc.spi.ConnectionFactories;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ScriptUtils;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+// Banco H2 novo por teste, com o schema de schema-h2.sql.
+final class R2dbcTestDatabase {
+
+  private R2dbcTestDatabase() {}
+
+  static DatabaseClient create() {
+    var cf = ConnectionFactories.get("r2dbc:h2:mem:///" + UUID.randomUUID() + "?options=DB_CLOSE_DELAY=-1");
+    Mono.usingWhen(Mono.from(cf.create()),
+        c -> ScriptUtils.executeSqlScript(c, new ClassPathResource("schema-h2.sql")),
+        c -> c.close())
+      .block();
+    return DatabaseClient.create(cf);
+  }
+}
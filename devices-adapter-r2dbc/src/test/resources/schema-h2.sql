@@ -0,0 +1,38 @@
+-- Equivalente em H2 das migrations V1..V12 (o que os adapters R2DBC usam). Único: os testes
+-- de devices-boot-reactive usam este mesmo arquivo (testResource no pom). As linhas de
+-- device_watermark (V6/V12) são criadas na primeira escrita.
+CREATE TABLE device_brands (
+  id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name VARCHAR(255) NOT NULL UNIQUE
+);
+CREATE TABLE devices (
+  id UUID PRIMARY KEY,
+  name VARCHAR(255) NOT NULL,
+  brand_id INTEGER NOT NULL REFERENCES device_brands (id),
+  state SMALLINT NOT NULL,
+  creation_time TIMESTAMP WITH TIME ZONE NOT NULL,
+  version BIGINT NOT NULL DEFAULT 0
+);
+CREATE TABLE device_watermark (
+  id SMALLINT PRIMARY KEY,
+  seq BIGINT NOT NULL
+);
+CREATE TABLE device_changes (
+  seq BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+  change_type VARCHAR(8) NOT NULL,
+  device_id UUID NOT NULL,
+  name VARCHAR(255) NOT NULL,
+  brand VARCHAR(255) NOT NULL,
+  state VARCHAR(20) NOT NULL,
+  creation_time TIMESTAMP WITH TIME ZONE NOT NULL,
+  version BIGINT NOT NULL,
+  changed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE TABLE idempotency_keys (
+  ikey VARCHAR(200) PRIMARY KEY,
+  resource_id UUID NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  request_hash VARCHAR(64),
+  response VARBINARY(65536)
+);
@@ -0,0 +1,71 @@
+package dev.roberto.devices.domain.web;
+
+import dev.roberto.devices.domain.model.Device;
+
+/**
+ * Hash de conteúdo não criptográfico de 64 bits (FNV-1a sobre os campos + finalizador
+ * do MurmurHash3). Percorre os chars direto, sem montar String intermediária nem
+ * codificar bytes; a única alocação é a String final de 18 chars.
+ * <p>
+ * O algoritmo é fixo e independe da JVM/locale: mudar qualquer coisa aqui invalida
+ * os ETags já entregues aos clientes.
+ */
+public final class ContentHashEtagStrategy implements EtagStrategy {
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  @Override
+  public String etagFor(Device d) {
+    var buf = new char[18];
+    buf[0] = '"';
+    buf[17] = '"';
+    long h = hash(d);
+    for (int i = 16; i >= 1; i--) {
+      buf[i] = HEX[(int) (h & 0xF)];
+      h >>>= 4;
+    }
+    return new String(buf);
+  }
+
+  static long hash(Device d) {
+    long h = FNV_OFFSET;
+    h = mix(h, d.id().getMostSignificantBits());
+    h = mix(h, d.id().getLeastSignificantBits());
+    h = mix(h, d.name());
+    h = mix(h, d.brand());
+    h = mix(h, d.state().ordinal());
+    h = mix(h, d.creationTime().getEpochSecond());
+    h = mix(h, d.creationTime().getNano());
+    return fmix64(h);
+  }
+
+  private static long mix(long h, long v) {
+    for (int i = 0; i < 8; i++) {
+      h = (h ^ (v & 0xFF)) * FNV_PRIME;
+      v >>>= 8;
+    }
+    return h;
+  }
+
+  private static long mix(long h, String s) {
+    // Comprimento antes do conteúdo: ("ab","c") e ("a","bc") não colidem.
+    h = mix(h, s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      h = (h ^ (c & 0xFF)) * FNV_PRIME;
+      h = (h ^ (c >>> 8)) * FNV_PRIME;
+    }
+    return h;
+  }
+
+  private static long fmix64(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+}
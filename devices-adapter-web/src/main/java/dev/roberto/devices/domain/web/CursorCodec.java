@@ -0,0 +1,43 @@
+package dev.roberto.devices.domain.web;
+
+import dev.roberto.devices.domain.port.DeviceCursor;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Token opaco para paginação por keyset: versão + creationTime (segundos, nanos) + id,
+ * em Base64 URL-safe. O cliente só deve repassar o valor recebido em X-Next-Cursor.
+ */
+public final class CursorCodec {
+  private static final byte VERSION = 1;
+  private static final int LENGTH = 1 + Long.BYTES + Integer.BYTES + 2 * Long.BYTES;
+
+  private CursorCodec() {}
+
+  public static String encode(DeviceCursor cursor) {
+    var buf = ByteBuffer.allocate(LENGTH)
+      .put(VERSION)
+      .putLong(cursor.creationTime().getEpochSecond())
+      .putInt(cursor.creationTime().getNano())
+      .putLong(cursor.id().getMostSignificantBits())
+      .putLong(cursor.id().getLeastSignificantBits());
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buf.array());
+  }
+
+  public static DeviceCursor decode(String token) {
+    try {
+      var buf = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token.trim()));
+      if (buf.remaining() != LENGTH || buf.get() != VERSION) {
+        throw new IllegalArgumentException("Invalid cursor");
+      }
+      var creationTime = Instant.ofEpochSecond(buf.getLong(), buf.getInt());
+      var id = new UUID(buf.getLong(), buf.getLong());
+      return new DeviceCursor(creationTime, id);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid cursor");
+    }
+  }
+}
@@ -0,0 +1,299 @@
+package dev.roberto.devices.domain.web;
+
+import dev.roberto.devices.domain.model.DeviceChange;
+import dev.roberto.devices.domain.port.DeviceChangeLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Um único leitor do outbox por nó, repassando cada mudança para todos os assinantes de
+ * GET /devices/changes: o banco vê uma consulta por lote de mudanças, não uma por cliente.
+ * <p>
+ * O leitor acorda no sinal do DeviceChangeLog (NOTIFY/commit local) e entrega em ordem de seq.
+ * Um buraco no seq é uma transação ainda não confirmada ou desfeita: o leitor espera até
+ * gap-timeout por ela antes de seguir, para não entregar a mudança seguinte antes. Depois disso
+ * os seqs que faltam ficam pendentes e são entregues fora de ordem se aparecerem; um buraco que
+ * passa de gap-max-wait é abandonado com um evento reset, para os clientes recarregarem.
+ * <p>
+ * O id de cada evento é uma posição de retomada, não o seq: nunca passa do primeiro seq pendente,
+ * então um Last-Event-ID relê também as mudanças que confirmarem depois. O preço são duplicatas
+ * na retomada, que o cliente reconhece pelo seq da mudança.
+ * <p>
+ * Cada assinante tem uma fila limitada; quem não consome a tempo é desligado (overflow) e
+ * retoma pelo Last-Event-ID, com o replay vindo do banco e não da memória do nó.
+ */
+@Service
+class DeviceChangeFeed implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(DeviceChangeFeed.class);
+
+  private static final int READ_BATCH = 500;
+  // Releitura enquanto há um buraco pendente: o sinal da transação atrasada pode já ter passado.
+  private static final long GAP_RECHECK_MILLIS = 10;
+  // Buraco maior que isso (ex.: salto da sequence após crash) não é esperado: vira reset direto.
+  private static final int MAX_PENDING = 10_000;
+
+  /** Uma mudança (ou, com change null, um reset) e a posição de retomada do cliente depois dela. */
+  record Event(DeviceChange change, long resumeId, boolean late) {
+    boolean isReset() {
+      return change == null;
+    }
+  }
+
+  private final DeviceChangeLog changes;
+  private final int bufferSize;
+  private final long gapTimeoutNanos;
+  private final long gapMaxWaitNanos;
+  private final Duration pollInterval;
+
+  private final Object lock = new Object();
+  private final List<Subscription> subscribers = new CopyOnWriteArrayList<>();
+  // Último seq repassado aos assinantes; -1 até o leitor subir. Guardado por lock.
+  private long last = -1;
+  // Seqs abaixo de last que não chegaram no gap-timeout -> quando foram deixados para trás. Guardado por lock.
+  private final TreeMap<Long, Long> pending = new TreeMap<>();
+  private Thread reader;
+  private volatile boolean closed;
+  // Só a thread leitora usa.
+  private long gapSince = -1;
+
+  DeviceChangeFeed(
+    DeviceChangeLog changes,
+    @Value("${app.changes.subscriber-buffer:1024}") int bufferSize,
+    @Value("${app.changes.gap-timeout:1s}") Duration gapTimeout,
+    @Value("${app.changes.gap-max-wait:60s}") Duration gapMaxWait,
+    @Value("${app.changes.poll-interval:1s}") Duration pollInterval
+  ) {
+    if (bufferSize <= 0) throw new IllegalArgumentException("app.changes.subscriber-buffer must be > 0");
+    if (gapMaxWait.compareTo(gapTimeout) < 0) {
+      throw new IllegalArgumentException("app.changes.gap-max-wait must be >= app.changes.gap-timeout");
+    }
+    this.changes = changes;
+    this.bufferSize = bufferSize;
+    this.gapTimeoutNanos = gapTimeout.toNanos();
+    this.gapMaxWaitNanos = gapMaxWait.toNanos();
+    this.pollInterval = pollInterval;
+  }
+
+  /**
+   * Assina a partir de lastEventId (só o que vier depois dele) ou, sem ele, a partir de agora.
+   * O que já saiu do outbox até o momento da assinatura é relido do banco; o resto chega ao vivo.
+   */
+  Subscription subscribe(Long lastEventId) {
+    synchronized (lock) {
+      if (closed) throw new IllegalStateException("Change feed is closed");
+      // O leitor sobe na primeira assinatura: um nó sem clientes não consulta o outbox.
+      if (reader == null) {
+        last = changes.latestSeq();
+        reader = Thread.ofPlatform().name("device-change-feed").daemon().start(this::run);
+      }
+      var sub = new Subscription(lastEventId == null ? last : lastEventId, last, resumeId());
+      subscribers.add(sub);
+      return sub;
+    }
+  }
+
+  /** false quando as mudanças depois de lastEventId já foram expurgadas: o cliente precisa recomeçar. */
+  boolean canResume(long lastEventId) {
+    return lastEventId >= changes.firstSeq() - 1;
+  }
+
+  private void run() {
+    while (!closed) {
+      try {
+        if (pollOnce()) {
+          Thread.sleep(GAP_RECHECK_MILLIS);
+        } else {
+          changes.awaitChange(pollInterval);
+        }
+      } catch (InterruptedException e) {
+        return;
+      } catch (RuntimeException e) {
+        log.warn("Change feed poll failed, retrying in {}", pollInterval, e);
+        try {
+          Thread.sleep(pollInterval.toMillis());
+        } catch (InterruptedException ie) {
+          return;
+        }
+      }
+    }
+  }
+
+  /** Lê e repassa o que houver; true se parou num buraco ainda dentro do gap-timeout. */
+  boolean pollOnce() {
+    long from;
+    List<Long> late;
+    synchronized (lock) {
+      from = last;
+      late = List.copyOf(pending.keySet());
+    }
+    if (!late.isEmpty()) {
+      for (var c : changes.readSeqs(late)) publish(c, true);
+    }
+    while (true) {
+      var batch = changes.readAfter(from, READ_BATCH);
+      for (var c : batch) {
+        if (c.seq() != from + 1) {
+          long now = System.nanoTime();
+          if (gapSince < 0) gapSince = now;
+          if (now - gapSince < gapTimeoutNanos) return true;
+          leaveBehind(from + 1, c.seq() - 1, now);
+        }
+        gapSince = -1;
+        publish(c, false);
+        from = c.seq();
+      }
+      if (batch.size() < READ_BATCH) {
+        abandonOlderThan(System.nanoTime() - gapMaxWaitNanos);
+        return false;
+      }
+    }
+  }
+
+  private void leaveBehind(long from, long to, long now) {
+    log.debug("Change seq gap {}..{} still open after gap-timeout, delivering later changes first", from, to);
+    synchronized (lock) {
+      if (pending.size() + (to - from + 1) > MAX_PENDING) {
+        log.warn("Change seq gap {}..{} is too large to wait for ({} seqs already pending), sending reset",
+          from, to, pending.size());
+        pending.clear();
+        reset();
+        return;
+      }
+      for (long seq = from; seq <= to; seq++) pending.put(seq, now);
+    }
+  }
+
+  // Transação desfeita (ou mais longa que gap-max-wait): os clientes não têm como saber se perderam algo.
+  private void abandonOlderThan(long cutoff) {
+    synchronized (lock) {
+      if (!pending.values().removeIf(since -> since - cutoff < 0)) return;
+      log.warn("Change seq gap not filled within gap-max-wait, sending reset ({} seqs still pending)", pending.size());
+      reset();
+    }
+  }
+
+  // Sob lock.
+  private void reset() {
+    var event = new Event(null, resumeId(), false);
+    for (var s : subscribers) s.offer(event);
+  }
+
+  private void publish(DeviceChange c, boolean late) {
+    synchronized (lock) {
+      if (late) {
+        if (pending.remove(c.seq()) == null) return;
+      } else {
+        last = c.seq();
+      }
+      var event = new Event(c, resumeId(), late);
+      for (var s : subscribers) s.offer(event);
+    }
+  }
+
+  // Sob lock: tudo até aqui já foi repassado (ou abandonado com reset).
+  private long resumeId() {
+    return pending.isEmpty() ? last : Math.min(last, pending.firstKey() - 1);
+  }
+
+  @Override
+  public void close() {
+    Thread r;
+    synchronized (lock) {
+      closed = true;
+      r = reader;
+      subscribers.forEach(Subscription::close);
+    }
+    if (r != null) r.interrupt();
+  }
+
+  /** Um cliente do stream. Consumida por uma thread só. */
+  final class Subscription implements AutoCloseable {
+
+    private final ArrayBlockingQueue<Event> live = new ArrayBlockingQueue<>(bufferSize);
+    private final ArrayDeque<DeviceChange> replay = new ArrayDeque<>();
+    private long replayedUpTo;
+    private final long replayTarget;
+    // Posição de retomada do feed na assinatura: o replay não a ultrapassa.
+    private final long replayResumeId;
+    private long delivered;
+    private volatile boolean overflowed;
+    private volatile boolean closed;
+
+    private Subscription(long after, long replayTarget, long replayResumeId) {
+      this.delivered = after;
+      this.replayedUpTo = after;
+      this.replayTarget = replayTarget;
+      this.replayResumeId = replayResumeId;
+    }
+
+    // Chamado pelo leitor, sob o lock do feed.
+    private void offer(Event e) {
+      if (!live.offer(e)) {
+        overflowed = true;
+        subscribers.remove(this);
+      }
+    }
+
+    /**
+     * Próximo evento: mudança depois da última entregue, mudança atrasada (seq abaixo dela) ou reset;
+     * null se nada chegou dentro de timeout, ou se a assinatura acabou ({@link #isOverflowed()} /
+     * fechada) e a fila já foi esvaziada.
+     */
+    Event next(Duration timeout) throws InterruptedException {
+      while (true) {
+        var c = replay.isEmpty() ? nextReplayPage() : replay.poll();
+        if (c != null) {
+          if (c.seq() <= delivered) continue;
+          delivered = c.seq();
+          return new Event(c, Math.min(c.seq(), replayResumeId), false);
+        }
+        if (closed) return null;
+        var e = overflowed ? live.poll() : live.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        if (e == null) return null;
+        if (e.isReset() || e.late()) return e;
+        // Replay e fila ao vivo se sobrepõem na borda da assinatura.
+        if (e.change().seq() <= delivered) continue;
+        delivered = e.change().seq();
+        return e;
+      }
+    }
+
+    private DeviceChange nextReplayPage() {
+      if (replayedUpTo >= replayTarget) return null;
+      var page = changes.readAfter(replayedUpTo, READ_BATCH);
+      for (var c : page) {
+        if (c.seq() > replayTarget) break;
+        replay.add(c);
+      }
+      replayedUpTo = page.size() < READ_BATCH || replay.isEmpty()
+        ? replayTarget
+        : replay.peekLast().seq();
+      return replay.poll();
+    }
+
+    boolean isOverflowed() {
+      return overflowed;
+    }
+
+    boolean isClosed() {
+      return closed;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+      subscribers.remove(this);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package dev.roberto.devices.domain.web;
+
+import dev.roberto.devices.domain.model.DeviceChange;
+import dev.roberto.devices.domain.web.dto.DeviceChangeResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Stream SSE das mudanças de devices. Cada conexão é servida por uma virtual thread que
+ * só consome a fila da sua assinatura no DeviceChangeFeed; o banco é lido pelo leitor do feed.
+ */
+@Tag(name = "Devices", description = "Devices CRUD and filters")
+@RestController
+@RequestMapping("/devices")
+public class DeviceChangesController {
+
+  private final DeviceChangeFeed feed;
+  private final Duration heartbeat;
+  private final Duration streamTimeout;
+
+  public DeviceChangesController(
+    DeviceChangeFeed feed,
+    @Value("${app.changes.heartbeat:15s}") Duration heartbeat,
+    @Value("${app.changes.stream-timeout:30m}") Duration streamTimeout
+  ) {
+    this.feed = feed;
+    this.heartbeat = heartbeat;
+    this.streamTimeout = streamTimeout;
+  }
+
+  @Operation(summary = "Stream device changes (SSE)",
+    description = "One event per create, update or delete, in sequence order; a change whose transaction "
+      + "committed late may arrive after later ones. The event id is a resume position: reconnecting with "
+      + "Last-Event-ID resumes from it and may repeat changes already received (the payload seq identifies "
+      + "them). If that point was already purged, or a missing change was given up on, a 'reset' event is "
+      + "sent: reload the list. A client that falls too far behind is disconnected and should reconnect "
+      + "with Last-Event-ID.")
+  @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+    Long after = parseEventId(lastEventId);
+    boolean reset = after != null && !feed.canResume(after);
+    var subscription = feed.subscribe(reset ? null : after);
+
+    var emitter = new SseEmitter(streamTimeout.toMillis());
+    emitter.onCompletion(subscription::close);
+    emitter.onTimeout(subscription::close);
+    emitter.onError(e -> subscription.close());
+    Thread.ofVirtual().name("device-changes-sse").start(() -> pump(emitter, subscription, reset));
+    return emitter;
+  }
+
+  private void pump(SseEmitter emitter, DeviceChangeFeed.Subscription subscription, boolean reset) {
+    try (subscription) {
+      if (reset) emitter.send(SseEmitter.event().name("reset").data(""));
+      while (true) {
+        var event = subscription.next(heartbeat);
+        if (event != null && event.isReset()) {
+          emitter.send(SseEmitter.event().id(Long.toString(event.resumeId())).name("reset").data(""));
+        } else if (event != null) {
+          emitter.send(SseEmitter.event()
+            .id(Long.toString(event.resumeId()))
+            .name("change")
+            .data(toResponse(event.change()), MediaType.APPLICATION_JSON));
+        } else if (subscription.isOverflowed() || subscription.isClosed()) {
+          // Ficou para trás (ou o nó está parando): o cliente reconecta com Last-Event-ID e o resto vem do banco.
+          emitter.complete();
+          return;
+        } else {
+          // Mantém proxies e balanceadores sem fechar a conexão ociosa; falha aqui = cliente foi embora.
+          emitter.send(SseEmitter.event().comment("keep-alive"));
+        }
+      }
+    } catch (IOException | IllegalStateException e) {
+      // Cliente desconectou ou o emitter já terminou (timeout): o container encerra a requisição.
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      emitter.complete();
+    }
+  }
+
+  private static DeviceChangeResponse toResponse(DeviceChange c) {
+    return new DeviceChangeResponse(c.seq(), c.type(), c.at(), c.device().version(),
+      DeviceMapper.toResponse(c.device()));
+  }
+
+  private static Long parseEventId(String header) {
+    if (header == null || header.isBlank()) return null;
+    try {
+      return Long.parseLong(header.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Last-Event-ID must be a change sequence number");
+    }
+  }
+}
@@ -1,19 +1,45 @@
 package dev.roberto.devices.domain.web;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceField;
 import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.model.DeviceView;
+import dev.roberto.devices.domain.port.DeviceCursor;
+import dev.roberto.devices.domain.usecase.BatchItemResult;
+import dev.roberto.devices.domain.usecase.CountMode;
 import dev.roberto.devices.domain.usecase.DeviceService;
+import dev.roberto.devices.domain.usecase.DeviceTransition;
+import dev.roberto.devices.domain.usecase.PageResult;
+import dev.roberto.devices.domain.usecase.command.BatchOperation;
 import dev.roberto.devices.domain.web.dto.DeviceResponse;
 import dev.roberto.devices.domain.usecase.command.CreateDeviceCommand;
 import dev.roberto.devices.domain.usecase.command.UpdateDevicePatchCommand;
 import dev.roberto.devices.domain.usecase.command.UpdateDevicePutCommand;
+import dev.roberto.devices.domain.web.dto.DeviceBatchRequest;
+import dev.roberto.devices.domain.web.dto.DeviceBatchResponse;
+import dev.roberto.devices.domain.web.dto.DeviceFieldsResponse;
 import dev.roberto.devices.domain.web.dto.DevicePatchRequest;
 import dev.roberto.devices.domain.web.dto.DeviceRequest;
+import dev.roberto.devices.domain.web.dto.DeviceStatsResponse;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.*;
 
@@ -22,41 +48,81 @@ import java.util.*;
 @RequestMapping("/devices")
 public class DeviceController {
 
+  static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
   private final DeviceService service;
   private final IdempotencyService idempotencyService;
-  public DeviceController(DeviceService service, IdempotencyService idempotencyService) {
+  private final ObjectMapper objectMapper;
+  private final ObjectWriter ndjsonWriter;
+  private final EtagStrategy etags;
+  private final CountMode defaultCountMode;
+  public DeviceController(DeviceService service, IdempotencyService idempotencyService, ObjectMapper objectMapper,
+                          EtagStrategy etags, @Value("${app.list.count-mode:exact}") String defaultCountMode) {
     this.service = service;
     this.idempotencyService = idempotencyService;
+    this.objectMapper = objectMapper;
+    this.etags = etags;
+    this.defaultCountMode = DeviceRequests.parseCountMode(defaultCountMode);
+    // Sem flush por linha: o gerador e o buffer do container decidem quando escrever no socket.
+    // Sem separador de raiz: o padrão do Jackson (espaço) abriria cada linha depois da primeira.
+    this.ndjsonWriter = objectMapper.writerFor(DeviceResponse.class)
+      .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+      .withRootValueSeparator("");
   }
 
 
-  @Operation(summary = "Create a device")
+  @Operation(summary = "Create a device",
+    description = "With Idempotency-Key, a retry returns the original response (Idempotency-Replay: true); "
+      + "reusing the key with a different payload returns 422 and a retry while the first request is still "
+      + "running on another node returns 409.")
+  @ApiResponse(responseCode = "201", content = @Content(schema = @Schema(implementation = DeviceResponse.class)))
   @PostMapping
-  public ResponseEntity<DeviceResponse> create(
+  public ResponseEntity<?> create(
     @RequestHeader(value = "Idempotency-Key", required = false) String idemKey,
     @Valid @RequestBody DeviceRequest req
   ) {
     if (idemKey != null && !idemKey.isBlank()) {
-      var existing = idempotencyService.get(idemKey);
-      if (existing.isPresent()) {
-        var d = service.get(existing.get());
-        return ResponseEntity.ok()
-          .header("Idempotency-Replay", "true")
-          .header("ETag", EtagUtil.etagFor(d))
-          .location(URI.create("/devices/" + d.id()))
-          .body(DeviceMapper.toResponse(d));
-      }
+      var outcome = idempotencyService.execute(idemKey, DeviceRequests.fingerprint(req),
+        id -> createdSnapshot(service.create(new CreateDeviceCommand(id, req.name(), req.brand(), req.state()))),
+        id -> createdSnapshot(service.get(id)));
+      var r = outcome.response();
+      var response = ResponseEntity.status(r.status()).contentType(MediaType.APPLICATION_JSON);
+      r.headers().forEach(h -> response.header(h.name(), h.value()));
+      if (outcome.replay()) response.header("Idempotency-Replay", "true");
+      return response.body(r.body());
     }
 
     var created = service.create(new CreateDeviceCommand(req.name(), req.brand(), req.state()));
+    return ResponseEntity.created(URI.create("/devices/" + created.id()))
+      .header("ETag", etags.etagFor(created))
+      .body(DeviceMapper.toResponse(created));
+  }
 
-    if (idemKey != null && !idemKey.isBlank()) {
-      idempotencyService.putIfAbsent(idemKey, created.id());
+  // Corpo já serializado: a mesma sequência de bytes vai para o cliente e para a chave.
+  private ResponseSnapshot createdSnapshot(Device d) {
+    try {
+      return new ResponseSnapshot(201, List.of(
+        new ResponseSnapshot.Header("Location", "/devices/" + d.id()),
+        new ResponseSnapshot.Header("ETag", etags.etagFor(d))),
+        objectMapper.writeValueAsBytes(DeviceMapper.toResponse(d)));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
+  }
 
-    return ResponseEntity.created(URI.create("/devices/" + created.id()))
-      .header("ETag", EtagUtil.etagFor(created))
-      .body(DeviceMapper.toResponse(created));
+  @Operation(summary = "Create, patch or delete many devices in one call",
+    description = "Operations run in order with the same rules as the single-item endpoints and are written in "
+      + "chunked transactions. Each item reports its own status (201/200/204/404/422/400/500) and ETag.")
+  @PostMapping("/batch")
+  public ResponseEntity<DeviceBatchResponse> batch(@Valid @RequestBody DeviceBatchRequest req) {
+    var ops = new ArrayList<BatchOperation>(req.operations().size());
+    for (int i = 0; i < req.operations().size(); i++) {
+      ops.add(toBatchOperation(i, req.operations().get(i)));
+    }
+    var items = service.batch(ops).stream().map(this::toBatchItem).toList();
+    return ResponseEntity.ok()
+      .header("Cache-Control", "no-store")
+      .body(new DeviceBatchResponse(items));
   }
 
   @Operation(summary = "Get a device by ID")
@@ -66,7 +132,7 @@ public class DeviceController {
     @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch
   ) {
     var d = service.get(id);
-    var etag = EtagUtil.etagFor(d);
+    var etag = etags.etagFor(d);
     if (ifNoneMatch != null && ifNoneMatch.equals(etag)) {
       return ResponseEntity.status(304)
         .eTag(etag)
@@ -79,26 +145,140 @@ public class DeviceController {
       .body(DeviceMapper.toResponse(d));
   }
 
-  @Operation(summary = "List devices with filters and pagination")
+  @Operation(summary = "List devices with filters and pagination",
+    description = "Offset paging via page/size. Pass cursor (empty for the first page) to switch to keyset paging; "
+      + "the next page token is returned in X-Next-Cursor and Link rel=next. "
+      + "Responses carry a weak collection ETag; send it back in If-None-Match to get 304 while nothing changed. "
+      + "count=exact|estimate|none picks how X-Total-Count is produced (estimate flags X-Total-Count-Approximate; "
+      + "none omits it and only links rel=next). "
+      + "q searches names (case-insensitive), ranked exact > prefix > substring, with brand/state as filters; "
+      + "queries under 3 characters match prefixes only. Search pages by page/size, without a total. "
+      + "fields=id,state (any of id, name, brand, state, creationTime) returns only those properties and, "
+      + "outside of q, reads only those columns.")
+  @ApiResponse(responseCode = "200",
+    content = @Content(array = @ArraySchema(schema = @Schema(implementation = DeviceResponse.class))))
   @GetMapping
-  public ResponseEntity<List<DeviceResponse>> list(
+  public ResponseEntity<?> list(
     @RequestParam Optional<String> brand,
     @RequestParam Optional<String> state,
+    @RequestParam(required = false) String q,
+    @RequestParam(required = false) String fields,
     @RequestParam(defaultValue = "0") int page,
-    @RequestParam(defaultValue = "20") int size
+    @RequestParam(defaultValue = "20") int size,
+    @RequestParam(required = false) String cursor,
+    @RequestParam Optional<String> count,
+    @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch
   ) {
     size = Math.max(1, Math.min(size, 200));
     page = Math.max(0, page);
 
-    Optional<DeviceState> st = state.map(this::parseState);
-    var pr = service.listPaged(brand, st, page, size);
-    var body = pr.items().stream().map(DeviceMapper::toResponse).toList();
+    Optional<DeviceState> st = state.map(DeviceRequests::parseState);
+    var countMode = count.map(DeviceRequests::parseCountMode).orElse(defaultCountMode);
+    Optional<DeviceCursor> after = cursor == null || cursor.isBlank()
+      ? Optional.empty() : Optional.of(CursorCodec.decode(cursor));
+    Set<DeviceField> only = fields == null ? null : DeviceRequests.parseFields(fields);
+
+    // Lido ANTES das consultas: se algo mudar no meio, o ETag fica velho e o próximo poll revalida.
+    var etag = "W/\"" + service.changeWatermark() + "\"";
+    if (DeviceRequests.weakMatch(ifNoneMatch, etag)) {
+      return ResponseEntity.status(304)
+        .eTag(etag)
+        .header("Cache-Control", "no-cache")
+        .build();
+    }
+
+    if (q != null) {
+      if (cursor != null) throw new IllegalArgumentException("q cannot be combined with cursor");
+      // A busca lê name de qualquer jeito para ranquear: fields só estreita a resposta.
+      var pr = service.search(q, brand, st, page, size);
+      return pageResponse(pr, only == null ? devices(pr.items()) : views(pr.items(), only), etag);
+    }
+    if (cursor != null) {
+      if (only != null) {
+        var cp = service.listAfterView(only, brand, st, after, size);
+        return cursorResponse(cp.next(), new DeviceFieldsResponse(cp.items(), only), etag);
+      }
+      var cp = service.listAfter(brand, st, after, size);
+      return cursorResponse(cp.next(), devices(cp.items()), etag);
+    }
+    if (only != null) {
+      var pr = service.listPagedView(only, brand, st, page, size, countMode);
+      return pageResponse(pr, new DeviceFieldsResponse(pr.items(), only), etag);
+    }
+    var pr = service.listPaged(brand, st, page, size, countMode);
+    return pageResponse(pr, devices(pr.items()), etag);
+  }
+
+  private static List<DeviceResponse> devices(List<Device> items) {
+    return items.stream().map(DeviceMapper::toResponse).toList();
+  }
 
+  private static DeviceFieldsResponse views(List<Device> items, Set<DeviceField> fields) {
+    return new DeviceFieldsResponse(items.stream().map(d -> DeviceView.of(d, fields)).toList(), fields);
+  }
+
+  private ResponseEntity<Object> pageResponse(PageResult<?> pr, Object body, String etag) {
+    var res = ResponseEntity.ok().eTag(etag).header("Cache-Control", "no-cache");
+    if (pr.accuracy() != PageResult.Accuracy.NONE) {
+      res.header("X-Total-Count", String.valueOf(pr.total()));
+    }
+    if (pr.accuracy() == PageResult.Accuracy.APPROXIMATE) {
+      res.header("X-Total-Count-Approximate", "true");
+    }
+    if (pr.hasNext()) {
+      var nextUri = ServletUriComponentsBuilder.fromCurrentRequest()
+        .replaceQueryParam("page", pr.page() + 1)
+        .build()
+        .toUriString();
+      res.header("Link", "<" + nextUri + ">; rel=\"next\"");
+    }
+    return res.body(body);
+  }
+
+  private ResponseEntity<Object> cursorResponse(Optional<DeviceCursor> next, Object body, String etag) {
+    var res = ResponseEntity.ok().eTag(etag).header("Cache-Control", "no-cache");
+    next.map(CursorCodec::encode).ifPresent(token -> {
+      var nextUri = ServletUriComponentsBuilder.fromCurrentRequest()
+        .replaceQueryParam("cursor", token)
+        .replaceQueryParam("page")
+        .build()
+        .toUriString();
+      res.header("X-Next-Cursor", token);
+      res.header("Link", "<" + nextUri + ">; rel=\"next\"");
+    });
+    return res.body(body);
+  }
+
+  @Operation(summary = "Device counts by brand and state",
+    description = "One grouped count for the whole fleet. Writes made through this node are reflected "
+      + "immediately; writes from other nodes within app.stats.max-age (see refreshedAt).")
+  @GetMapping("/stats")
+  public DeviceStatsResponse stats() {
+    return DeviceMapper.toStatsResponse(service.stats());
+  }
+
+  @Operation(summary = "Export all devices as NDJSON",
+    description = "Streams one JSON object per line, ordered by creationTime and id, with constant memory use.")
+  @GetMapping(value = "/export", produces = "application/x-ndjson")
+  public ResponseEntity<StreamingResponseBody> export() {
+    StreamingResponseBody body = out -> {
+      try (var gen = objectMapper.getFactory().createGenerator(out)) {
+        service.exportAll(d -> {
+          try {
+            ndjsonWriter.writeValue(gen, DeviceMapper.toResponse(d));
+            gen.writeRaw('\n');
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      }
+    };
     return ResponseEntity.ok()
-      .header("X-Total-Count", String.valueOf(pr.total()))
+      .contentType(NDJSON)
       .header("Cache-Control", "no-store")
       .body(body);
   }
+
   @Operation(summary = "Replace a device (PUT)")
   @PutMapping("/{id}")
   public ResponseEntity<DeviceResponse> updatePut(
@@ -106,10 +286,10 @@ public class DeviceController {
     @RequestHeader(value = "If-Match", required = false) String ifMatch,
     @Valid @RequestBody DeviceRequest req
   ) {
-    assertIfMatch(id, ifMatch);
-    var updated = service.updatePut(new UpdateDevicePutCommand(id, req.name(), req.brand(), req.state()));
+    var updated = service.updatePut(new UpdateDevicePutCommand(
+      id, req.name(), req.brand(), req.state(), expectedVersion(id, ifMatch)));
     return ResponseEntity.ok()
-      .eTag(EtagUtil.etagFor(updated))
+      .eTag(etags.etagFor(updated))
       .body(DeviceMapper.toResponse(updated));
   }
   @Operation(summary = "Partially update a device (PATCH)")
@@ -119,42 +299,104 @@ public class DeviceController {
     @RequestHeader(value = "If-Match", required = false) String ifMatch,
     @RequestBody DevicePatchRequest req
   ) {
-    assertIfMatch(id, ifMatch);
     var updated = service.updatePatch(new UpdateDevicePatchCommand(
       id,
       Optional.ofNullable(req.name()),
       Optional.ofNullable(req.brand()),
-      Optional.ofNullable(req.state())
+      Optional.ofNullable(req.state()),
+      expectedVersion(id, ifMatch)
     ));
     return ResponseEntity.ok()
-      .eTag(EtagUtil.etagFor(updated))
+      .eTag(etags.etagFor(updated))
       .body(DeviceMapper.toResponse(updated));
   }
+  @Operation(summary = "Check out a device (AVAILABLE -> IN_USE)",
+    description = "One conditional UPDATE on the current state, without reading the device first. "
+      + "409 when the device is not AVAILABLE, e.g. another client checked it out first.")
+  @PostMapping("/{id}/checkout")
+  public ResponseEntity<DeviceResponse> checkout(@PathVariable UUID id) {
+    return transitioned(service.transition(id, DeviceTransition.CHECKOUT));
+  }
+
+  @Operation(summary = "Release a device (IN_USE -> AVAILABLE)",
+    description = "One conditional UPDATE on the current state; 409 when the device is not IN_USE.")
+  @PostMapping("/{id}/release")
+  public ResponseEntity<DeviceResponse> release(@PathVariable UUID id) {
+    return transitioned(service.transition(id, DeviceTransition.RELEASE));
+  }
+
+  private ResponseEntity<DeviceResponse> transitioned(Device moved) {
+    return ResponseEntity.ok()
+      .eTag(etags.etagFor(moved))
+      .body(DeviceMapper.toResponse(moved));
+  }
+
   @Operation(summary = "Delete a device")
   @DeleteMapping("/{id}")
   public ResponseEntity<Void> delete(
     @PathVariable UUID id,
     @RequestHeader(value = "If-Match", required = false) String ifMatch
   ) {
-    assertIfMatch(id, ifMatch);
-    service.delete(id);
+    service.delete(id, expectedVersion(id, ifMatch));
     return ResponseEntity.noContent().build();
   }
 
-  private DeviceState parseState(String raw) {
-    try {
-      return DeviceState.valueOf(raw.trim().toUpperCase(Locale.ROOT));
-    } catch (Exception e) {
-      throw new IllegalArgumentException("Invalid state: " + raw);
+  private static BatchOperation toBatchOperation(int index, DeviceBatchRequest.Operation op) {
+    return switch (op.op()) {
+      case CREATE -> new BatchOperation.Create(new CreateDeviceCommand(op.name(), op.brand(), op.state()));
+      case PATCH -> new BatchOperation.Patch(new UpdateDevicePatchCommand(
+        requireId(index, op),
+        Optional.ofNullable(op.name()),
+        Optional.ofNullable(op.brand()),
+        Optional.ofNullable(op.state())
+      ));
+      case DELETE -> new BatchOperation.Delete(requireId(index, op));
+    };
+  }
+
+  private static UUID requireId(int index, DeviceBatchRequest.Operation op) {
+    if (op.id() == null) {
+      throw new IllegalArgumentException("operations[%d]: id is required for %s".formatted(index, op.op()));
     }
+    return op.id();
   }
 
-  private void assertIfMatch(UUID id, String ifMatchHeader) {
-    if (ifMatchHeader == null || ifMatchHeader.isBlank()) return;
+  private DeviceBatchResponse.Item toBatchItem(BatchItemResult r) {
+    int status = switch (r.outcome()) {
+      case CREATED -> 201;
+      case UPDATED -> 200;
+      case DELETED -> 204;
+      case NOT_FOUND -> 404;
+      case REJECTED -> 422;
+      case INVALID -> 400;
+      case FAILED -> 500;
+    };
+    var d = r.device();
+    return new DeviceBatchResponse.Item(
+      r.index(), status, r.id(),
+      d != null ? etags.etagFor(d) : null,
+      d != null ? DeviceMapper.toResponse(d) : null,
+      r.message());
+  }
+
+  /**
+   * If-Match ausente ou "*" = escrita incondicional. Com ETag de versão a tag vira a versão
+   * esperada; com ETag de conteúdo, compara com o estado atual e ancora a escrita na versão lida.
+   * Uma linha em cache que casa serve (se estiver velha, o UPDATE condicional não aplica e o
+   * serviço relê); uma que não casa pode ser só velha, então o 412 sai da leitura sem cache.
+   */
+  private OptionalLong expectedVersion(UUID id, String ifMatch) {
+    if (ifMatch == null || ifMatch.isBlank()) return OptionalLong.empty();
+    var tag = ifMatch.trim();
+    if (tag.equals("*")) return OptionalLong.empty();
+    if (etags instanceof VersionedEtagStrategy v) return OptionalLong.of(v.versionOf(tag));
     var current = service.get(id);
-    var currentEtag = EtagUtil.etagFor(current);
-    if (!ifMatchHeader.equals(currentEtag)) {
-      throw new PreconditionFailed("If-Match does not match current ETag");
+    if (!tag.equals(etags.etagFor(current))) {
+      current = service.getCurrent(id);
+      if (!tag.equals(etags.etagFor(current))) {
+        throw new PreconditionFailed("If-Match does not match current ETag");
+      }
     }
+    return OptionalLong.of(current.version());
   }
 }
@@ -1,12 +1,47 @@
 package dev.roberto.devices.domain.web;
 
 import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.usecase.DeviceStats;
 import dev.roberto.devices.domain.web.dto.DeviceResponse;
+import dev.roberto.devices.domain.web.dto.DeviceStatsResponse;
 
-final class DeviceMapper {
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+
+public final class DeviceMapper {
   private DeviceMapper() {}
 
-  static DeviceResponse toResponse(Device d) {
+  public static DeviceResponse toResponse(Device d) {
     return new DeviceResponse(d.id(), d.name(), d.brand(), d.state(), d.creationTime());
   }
+
+  // counts já vem ordenado por marca: cada marca é uma sequência contígua.
+  public static DeviceStatsResponse toStatsResponse(DeviceStats stats) {
+    var fleet = zeroByState();
+    var brands = new ArrayList<DeviceStatsResponse.Brand>();
+    String brand = null;
+    Map<DeviceState, Long> byState = null;
+    long brandTotal = 0;
+    for (var c : stats.counts()) {
+      if (!c.brand().equals(brand)) {
+        if (brand != null) brands.add(new DeviceStatsResponse.Brand(brand, brandTotal, byState));
+        brand = c.brand();
+        byState = zeroByState();
+        brandTotal = 0;
+      }
+      byState.merge(c.state(), c.count(), Long::sum);
+      fleet.merge(c.state(), c.count(), Long::sum);
+      brandTotal += c.count();
+    }
+    if (brand != null) brands.add(new DeviceStatsResponse.Brand(brand, brandTotal, byState));
+    return new DeviceStatsResponse(stats.total(), fleet, brands, stats.refreshedAt());
+  }
+
+  private static Map<DeviceState, Long> zeroByState() {
+    var m = new EnumMap<DeviceState, Long>(DeviceState.class);
+    for (var s : DeviceState.values()) m.put(s, 0L);
+    return m;
+  }
 }
@@ -0,0 +1,85 @@
+package dev.roberto.devices.domain.web;
+
+import dev.roberto.devices.domain.model.DeviceField;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.usecase.CountMode;
+import dev.roberto.devices.domain.web.dto.DeviceRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Interpretação de parâmetros e cabeçalhos de /devices independente da pilha HTTP:
+ * o controller servlet e o reativo respondem igual à mesma requisição.
+ */
+public final class DeviceRequests {
+
+  private static final String FIELD_NAMES = Arrays.stream(DeviceField.values())
+    .map(DeviceField::property)
+    .collect(Collectors.joining(", "));
+
+  private DeviceRequests() {}
+
+  /** Identidade da requisição de criação guardada junto da Idempotency-Key. */
+  public static String fingerprint(DeviceRequest req) {
+    var canonical = "POST /devices\n" + req.name() + "\n" + req.brand() + "\n" + req.state();
+    try {
+      var digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // If-None-Match usa comparação fraca (RFC 9110 §13.1.2): ignora o prefixo W/ dos dois lados.
+  public static boolean weakMatch(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+    var opaque = etag.substring(2);
+    for (var candidate : ifNoneMatch.split(",")) {
+      var c = candidate.trim();
+      if (c.equals("*")) return true;
+      if (c.startsWith("W/")) c = c.substring(2);
+      if (c.equals(opaque)) return true;
+    }
+    return false;
+  }
+
+  public static CountMode parseCountMode(String raw) {
+    try {
+      return CountMode.valueOf(raw.trim().toUpperCase(Locale.ROOT));
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Invalid count mode: " + raw + " (expected exact, estimate or none)");
+    }
+  }
+
+  public static DeviceState parseState(String raw) {
+    try {
+      return DeviceState.valueOf(raw.trim().toUpperCase(Locale.ROOT));
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Invalid state: " + raw);
+    }
+  }
+
+  // ?fields=id,state: nomes das propriedades da resposta, sem diferenciar maiúsculas; a ordem
+  // de saída é sempre a de DeviceResponse.
+  public static Set<DeviceField> parseFields(String raw) {
+    var fields = EnumSet.noneOf(DeviceField.class);
+    for (var part : raw.split(",")) {
+      var name = part.trim();
+      if (name.isEmpty()) continue;
+      fields.add(Arrays.stream(DeviceField.values())
+        .filter(f -> f.property().equalsIgnoreCase(name))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Invalid field: " + name + " (expected " + FIELD_NAMES + ")")));
+    }
+    if (fields.isEmpty()) throw new IllegalArgumentException("fields must name at least one of " + FIELD_NAMES);
+    return fields;
+  }
+}
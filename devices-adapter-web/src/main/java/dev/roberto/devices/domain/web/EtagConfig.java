@@ -0,0 +1,21 @@
+package dev.roberto.devices.domain.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Locale;
+
+@Configuration
+public class EtagConfig {
+
+  @Bean
+  public EtagStrategy etagStrategy(@Value("${app.etag.strategy:version}") String strategy) {
+    return switch (strategy.trim().toLowerCase(Locale.ROOT)) {
+      case "version" -> new VersionEtagStrategy();
+      case "hash" -> new ContentHashEtagStrategy();
+      case "sha256" -> new Sha256EtagStrategy();
+      default -> throw new IllegalArgumentException("Unknown app.etag.strategy: " + strategy);
+    };
+  }
+}
@@ -0,0 +1,14 @@
+package dev.roberto.devices.domain.web;
+
+import dev.roberto.devices.domain.model.Device;
+
+/**
+ * Como o ETag de um device é calculado. O resultado depende só do conteúdo/versão
+ * do device (nunca de estado do nó), para ser idêntico em todas as réplicas.
+ * Escolhido por {@code app.etag.strategy}: version (padrão), hash ou sha256.
+ * Estratégias cujo ETag codifica a versão implementam {@link VersionedEtagStrategy}.
+ */
+public interface EtagStrategy {
+
+  String etagFor(Device d);
+}
@@ -0,0 +1,6 @@
+package dev.roberto.devices.domain.web;
+
+// Outra requisição com a mesma Idempotency-Key ainda está criando o recurso (em outro nó).
+public class IdempotencyInProgress extends RuntimeException {
+  public IdempotencyInProgress(String message) { super(message); }
+}
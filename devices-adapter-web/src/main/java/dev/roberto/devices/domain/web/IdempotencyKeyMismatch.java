@@ -0,0 +1,6 @@
+package dev.roberto.devices.domain.web;
+
+// Idempotency-Key reutilizada com um payload diferente do da requisição original.
+public class IdempotencyKeyMismatch extends RuntimeException {
+  public IdempotencyKeyMismatch(String message) { super(message); }
+}
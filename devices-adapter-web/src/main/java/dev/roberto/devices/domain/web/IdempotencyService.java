@@ -1,29 +1,144 @@
 package dev.roberto.devices.domain.web;
 
 import dev.roberto.devices.domain.port.IdempotencyStore;
+import dev.roberto.devices.domain.usecase.exception.NotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
+/**
+ * Criação com Idempotency-Key: a chave é reservada (com o id do recurso já escolhido e o
+ * fingerprint da requisição) antes da escrita, então retries concorrentes nunca criam dois
+ * recursos. A resposta fica guardada na própria chave: um replay custa só o statement da
+ * reserva, sem reler o recurso. Uma reserva que expirou sem resposta (crash entre a criação e o
+ * confirm) é retomada com o mesmo id: se o recurso existe, a resposta é remontada a partir dele.
+ * No mesmo processo, duplicatas simultâneas esperam o resultado da primeira em vez de
+ * irem ao banco; em outro nó, recebem {@link IdempotencyInProgress} até a primeira terminar.
+ */
 @Service
 class IdempotencyService {
 
-  private static final Duration DEFAULT_TTL = Duration.ofHours(24);
+  // Prazo da reserva até a criação confirmar; uma reserva órfã (crash) expira e pode ser retomada.
+  private static final Duration LEASE = Duration.ofSeconds(30);
+
+  record Outcome(ResponseSnapshot response, boolean replay) {
+  }
+
+  private record InFlight(String fingerprint, CompletableFuture<ResponseSnapshot> result) {
+  }
 
   private final IdempotencyStore store;
+  private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
 
   IdempotencyService(IdempotencyStore store) {
     this.store = store;
   }
 
-  Optional<UUID> get(String key) {
-    return store.get(key);
+  /**
+   * @param create cria o recurso com o id reservado e monta a resposta
+   * @param rebuild monta a resposta a partir do recurso já criado, para chaves sem resposta guardada
+   *                (gravadas antes do snapshot, ou reservas órfãs retomadas)
+   */
+  Outcome execute(String key, String fingerprint,
+                  Function<UUID, ResponseSnapshot> create, Function<UUID, ResponseSnapshot> rebuild) {
+    var mine = new InFlight(fingerprint, new CompletableFuture<>());
+    var running = inFlight.putIfAbsent(key, mine);
+    if (running != null) {
+      requireSameRequest(running.fingerprint(), fingerprint);
+      return new Outcome(await(running.result()), true);
+    }
+    try {
+      var outcome = reserveAndCreate(key, fingerprint, create, rebuild);
+      mine.result().complete(outcome.response());
+      return outcome;
+    } catch (RuntimeException e) {
+      mine.result().completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  private Outcome reserveAndCreate(String key, String fingerprint,
+                                   Function<UUID, ResponseSnapshot> create, Function<UUID, ResponseSnapshot> rebuild) {
+    var proposed = UUID.randomUUID();
+    var current = store.reserve(key, proposed, fingerprint, Instant.now(), LEASE);
+    if (!current.leased()) {
+      if (current.fingerprint() != null) requireSameRequest(current.fingerprint(), fingerprint);
+      if (current.completed()) return new Outcome(ResponseSnapshot.decode(current.response()), true);
+      if (current.fingerprint() == null) {
+        // Chave anterior ao snapshot de resposta: remonta a partir do recurso.
+        var legacy = existing(rebuild, current.resourceId()).orElseThrow(IdempotencyService::inProgress);
+        return new Outcome(legacy, true);
+      }
+      throw inProgress();
+    }
+    var id = current.resourceId();
+    var resumed = !id.equals(proposed);
+    if (resumed) {
+      // Reserva órfã: o dono anterior pode ter criado o recurso e caído antes do confirm.
+      requireSameRequest(current.fingerprint(), fingerprint);
+      var existing = existing(rebuild, id);
+      if (existing.isPresent()) return confirmed(key, id, existing.get(), true);
+    }
+    ResponseSnapshot response;
+    try {
+      response = create.apply(id);
+    } catch (RuntimeException e) {
+      // Dono anterior ainda vivo e mais rápido: o mesmo id faz a PK barrar a segunda criação.
+      var existing = resumed ? existing(rebuild, id) : Optional.<ResponseSnapshot>empty();
+      if (existing.isPresent()) return confirmed(key, id, existing.get(), true);
+      store.release(key, id);
+      throw e;
+    }
+    return confirmed(key, id, response, false);
+  }
+
+  private Outcome confirmed(String key, UUID id, ResponseSnapshot response, boolean replay) {
+    store.confirm(key, id, response.encode(), Instant.now(), IdempotencyStore.RETENTION);
+    return new Outcome(response, replay);
+  }
+
+  private static Optional<ResponseSnapshot> existing(Function<UUID, ResponseSnapshot> rebuild, UUID id) {
+    try {
+      return Optional.of(rebuild.apply(id));
+    } catch (NotFoundException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static void requireSameRequest(String original, String fingerprint) {
+    if (!original.equals(fingerprint)) {
+      throw new IdempotencyKeyMismatch("Idempotency-Key was already used with a different request payload");
+    }
+  }
+
+  private static IdempotencyInProgress inProgress() {
+    return new IdempotencyInProgress("Request with this Idempotency-Key is still in progress");
   }
 
-  void putIfAbsent(String key, UUID id) {
-    store.saveIfAbsent(key, id, Instant.now(), DEFAULT_TTL);
+  private static ResponseSnapshot await(CompletableFuture<ResponseSnapshot> running) {
+    try {
+      return running.get(LEASE.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      // Mesma entrada, mesmo erro (ex.: 422 da regra de domínio).
+      if (e.getCause() instanceof RuntimeException re) throw re;
+      throw new IllegalStateException(e.getCause());
+    } catch (TimeoutException e) {
+      throw inProgress();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IdempotencyInProgress("Interrupted while waiting for request with the same Idempotency-Key");
+    }
   }
 }
@@ -0,0 +1,54 @@
+package dev.roberto.devices.domain.web;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resposta guardada junto da chave de idempotência e devolvida byte a byte nos replays.
+ * Formato: versão, status, cabeçalhos (nome/valor), corpo.
+ */
+public record ResponseSnapshot(int status, List<Header> headers, byte[] body) {
+
+  private static final int FORMAT = 1;
+
+  public record Header(String name, String value) {
+  }
+
+  public byte[] encode() {
+    var bytes = new ByteArrayOutputStream(body.length + 128);
+    try (var out = new DataOutputStream(bytes)) {
+      out.writeByte(FORMAT);
+      out.writeShort(status);
+      out.writeByte(headers.size());
+      for (var h : headers) {
+        out.writeUTF(h.name());
+        out.writeUTF(h.value());
+      }
+      out.writeInt(body.length);
+      out.write(body);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  public static ResponseSnapshot decode(byte[] encoded) {
+    try (var in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+      int format = in.readUnsignedByte();
+      if (format != FORMAT) throw new IllegalStateException("Unsupported response snapshot format " + format);
+      int status = in.readUnsignedShort();
+      int count = in.readUnsignedByte();
+      var headers = new ArrayList<Header>(count);
+      for (int i = 0; i < count; i++) headers.add(new Header(in.readUTF(), in.readUTF()));
+      return new ResponseSnapshot(status, headers, in.readNBytes(in.readInt()));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -2,6 +2,8 @@ package dev.roberto.devices.domain.web;
 
 import dev.roberto.devices.domain.usecase.exception.DomainRuleViolationException;
 import dev.roberto.devices.domain.usecase.exception.NotFoundException;
+import dev.roberto.devices.domain.usecase.exception.StateConflictException;
+import dev.roberto.devices.domain.usecase.exception.VersionConflictException;
 import dev.roberto.devices.domain.web.dto.ErrorResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
@@ -12,6 +14,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.sql.SQLTransientConnectionException;
 import java.time.Instant;
 import java.util.stream.Collectors;
 
@@ -29,6 +32,11 @@ public class RestExceptionHandler {
     return build(HttpStatus.UNPROCESSABLE_ENTITY, "Domain Rule Violation", ex.getMessage(), req);
   }
 
+  @ExceptionHandler(StateConflictException.class)
+  public ResponseEntity<ErrorResponse> stateConflict(StateConflictException ex, HttpServletRequest req) {
+    return build(HttpStatus.CONFLICT, "Conflict", ex.getMessage(), req);
+  }
+
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ResponseEntity<ErrorResponse> validation(MethodArgumentNotValidException ex, HttpServletRequest req) {
     String msg = ex.getBindingResult().getFieldErrors().stream()
@@ -44,6 +52,14 @@ public class RestExceptionHandler {
 
   @ExceptionHandler(Exception.class)
   public ResponseEntity<ErrorResponse> generic(Exception ex, HttpServletRequest req) {
+    // Pool de conexões esgotado (timeout do Hikari), embrulhado pelo Spring/JPA: sobrecarga, não erro.
+    for (Throwable t = ex; t != null; t = t.getCause()) {
+      if (t instanceof SQLTransientConnectionException) {
+        var body = new ErrorResponse(Instant.now(), HttpStatus.SERVICE_UNAVAILABLE.value(), "Service Unavailable",
+          "No database connection available, retry later", req.getRequestURI());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(body);
+      }
+    }
     return build(HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error", "Unexpected error", req);
   }
 
@@ -56,11 +72,20 @@ public class RestExceptionHandler {
     return "%s: %s".formatted(fe.getField(), fe.getDefaultMessage());
   }
 
-  @ExceptionHandler(PreconditionFailed.class)
-  public ResponseEntity<ErrorResponse> precondition(PreconditionFailed ex, HttpServletRequest req) {
-    return build(HttpStatus.PRECONDITION_FAILED, "Precondition Failed", ex.getMessage(), req);
+  @ExceptionHandler(IdempotencyKeyMismatch.class)
+  public ResponseEntity<ErrorResponse> keyMismatch(IdempotencyKeyMismatch ex, HttpServletRequest req) {
+    return build(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency Key Mismatch", ex.getMessage(), req);
   }
 
-  class PreconditionFailed extends RuntimeException { PreconditionFailed(String m){ super(m);} }
+  @ExceptionHandler(IdempotencyInProgress.class)
+  public ResponseEntity<ErrorResponse> inProgress(IdempotencyInProgress ex, HttpServletRequest req) {
+    var body = new ErrorResponse(Instant.now(), HttpStatus.CONFLICT.value(), "Conflict", ex.getMessage(), req.getRequestURI());
+    return ResponseEntity.status(HttpStatus.CONFLICT).header("Retry-After", "1").body(body);
+  }
+
+  @ExceptionHandler({ PreconditionFailed.class, VersionConflictException.class })
+  public ResponseEntity<ErrorResponse> precondition(RuntimeException ex, HttpServletRequest req) {
+    return build(HttpStatus.PRECONDITION_FAILED, "Precondition Failed", ex.getMessage(), req);
+  }
 
 }
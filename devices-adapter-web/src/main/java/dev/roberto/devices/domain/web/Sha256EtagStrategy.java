@@ -0,0 +1,119 @@
+package dev.roberto.devices.domain.web;
+
+import dev.roberto.devices.domain.model.Device;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * ETag legado: SHA-256 de {@code id|name|brand|state|creationTime}, em Base64url.
+ * Gera exatamente os mesmos bytes da implementação original, mas reaproveita o MessageDigest
+ * e um buffer onde os campos são codificados direto em UTF-8, sem concatenar Strings; o
+ * digest recebe uma única chamada de update. Os pares digest + buffer ficam num pool pequeno
+ * compartilhado entre threads, e não num ThreadLocal: com virtual threads cada requisição
+ * roda numa thread nova, e um ThreadLocal alocaria os dois a cada chamada.
+ */
+public final class Sha256EtagStrategy implements EtagStrategy {
+
+  private static final byte SEP = '|';
+  private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  // Mais chamadas simultâneas que isso alocam um Scratch avulso, descartado na devolução.
+  private final BlockingQueue<Scratch> pool =
+    new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+  @Override
+  public String etagFor(Device d) {
+    var s = pool.poll();
+    if (s == null) s = new Scratch();
+    try {
+      return digest(s, d);
+    } finally {
+      pool.offer(s);
+    }
+  }
+
+  private static String digest(Scratch s, Device d) {
+    s.len = 0;
+    s.uuid(d.id().getMostSignificantBits(), d.id().getLeastSignificantBits());
+    s.put(SEP);
+    s.utf8(d.name());
+    s.put(SEP);
+    s.utf8(d.brand());
+    s.put(SEP);
+    s.utf8(d.state().name());
+    s.put(SEP);
+    s.utf8(d.creationTime().toString());
+    s.md.reset();
+    s.md.update(s.buf, 0, s.len);
+    return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(s.md.digest()) + "\"";
+  }
+
+  private static final class Scratch {
+    final MessageDigest md;
+    byte[] buf = new byte[256];
+    int len;
+
+    Scratch() {
+      try {
+        md = MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    void put(byte b) {
+      if (len == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+      buf[len++] = b;
+    }
+
+    // Mesmo formato de UUID.toString() (8-4-4-4-12, minúsculo).
+    void uuid(long msb, long lsb) {
+      hex(msb >>> 32, 8);
+      put((byte) '-');
+      hex(msb >>> 16, 4);
+      put((byte) '-');
+      hex(msb, 4);
+      put((byte) '-');
+      hex(lsb >>> 48, 4);
+      put((byte) '-');
+      hex(lsb, 12);
+    }
+
+    private void hex(long v, int digits) {
+      for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+        put(HEX[(int) ((v >>> shift) & 0xF)]);
+      }
+    }
+
+    // Mesmo resultado de String.getBytes(UTF_8), inclusive '?' para surrogates órfãos.
+    void utf8(String str) {
+      for (int i = 0; i < str.length(); i++) {
+        char c = str.charAt(i);
+        if (c < 0x80) {
+          put((byte) c);
+        } else if (c < 0x800) {
+          put((byte) (0xC0 | (c >> 6)));
+          put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+          int cp = Character.toCodePoint(c, str.charAt(++i));
+          put((byte) (0xF0 | (cp >> 18)));
+          put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+          put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+          put((byte) (0x80 | (cp & 0x3F)));
+        } else if (Character.isSurrogate(c)) {
+          put((byte) '?');
+        } else {
+          put((byte) (0xE0 | (c >> 12)));
+          put((byte) (0x80 | ((c >> 6) & 0x3F)));
+          put((byte) (0x80 | (c & 0x3F)));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package dev.roberto.devices.domain.web;
+
+import dev.roberto.devices.domain.model.Device;
+
+/** ETag forte = versão da linha ("3"). Não lê nem hasheia o conteúdo. */
+public final class VersionEtagStrategy implements VersionedEtagStrategy {
+
+  @Override
+  public String etagFor(Device d) {
+    return "\"" + d.version() + "\"";
+  }
+
+  @Override
+  public long versionOf(String etag) {
+    // ETags fracos (W/"...") ou que não vieram deste servidor nunca casam.
+    if (etag.length() < 3 || etag.charAt(0) != '"' || etag.charAt(etag.length() - 1) != '"') {
+      throw new PreconditionFailed("If-Match does not match current ETag");
+    }
+    try {
+      return Long.parseLong(etag, 1, etag.length() - 1, 10);
+    } catch (NumberFormatException e) {
+      throw new PreconditionFailed("If-Match does not match current ETag");
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package dev.roberto.devices.domain.web;
+
+/**
+ * ETag que codifica a versão da linha: o If-Match vira a versão esperada e vai direto para a
+ * escrita condicional, sem ler o device antes.
+ */
+public interface VersionedEtagStrategy extends EtagStrategy {
+
+  /** Versão contida no ETag. Tags fracas ou estranhas lançam {@link PreconditionFailed}. */
+  long versionOf(String etag);
+}
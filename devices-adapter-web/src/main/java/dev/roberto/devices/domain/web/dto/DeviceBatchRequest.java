@@ -0,0 +1,35 @@
+package dev.roberto.devices.domain.web.dto;
+
+import dev.roberto.devices.domain.model.DeviceState;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.UUID;
+
+public record DeviceBatchRequest(
+  @NotEmpty @Size(max = 1000)
+  List<@Valid @NotNull Operation> operations
+) {
+
+  public enum Op { CREATE, PATCH, DELETE }
+
+  public record Operation(
+    @NotNull Op op,
+
+    UUID id,
+
+    @Size(min = 1, max = 255)
+    @Pattern(regexp = "^[\\p{L}0-9 ._\\-]{1,255}$", message = "invalid characters")
+    String name,
+
+    @Size(min = 1, max = 255)
+    @Pattern(regexp = "^[\\p{L}0-9 ._\\-]{1,255}$", message = "invalid characters")
+    String brand,
+
+    DeviceState state
+  ) {}
+}
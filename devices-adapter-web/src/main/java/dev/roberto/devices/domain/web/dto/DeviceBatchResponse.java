@@ -0,0 +1,19 @@
+package dev.roberto.devices.domain.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.UUID;
+
+public record DeviceBatchResponse(List<Item> results) {
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  public record Item(
+    int index,
+    int status,
+    UUID id,
+    String etag,
+    DeviceResponse device,
+    String error
+  ) {}
+}
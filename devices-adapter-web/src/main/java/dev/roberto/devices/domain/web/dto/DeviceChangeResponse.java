@@ -0,0 +1,14 @@
+package dev.roberto.devices.domain.web.dto;
+
+import dev.roberto.devices.domain.model.DeviceChange;
+
+import java.time.Instant;
+
+// Evento de GET /devices/changes; em DELETED, device é o último estado antes da remoção.
+public record DeviceChangeResponse(
+  long seq,
+  DeviceChange.Type type,
+  Instant at,
+  long version,
+  DeviceResponse device
+) {}
@@ -0,0 +1,45 @@
+package dev.roberto.devices.domain.web.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import dev.roberto.devices.domain.model.DeviceField;
+import dev.roberto.devices.domain.model.DeviceView;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Corpo de GET /devices?fields=...: um array JSON com só as propriedades pedidas de cada device,
+ * com os mesmos nomes e formatos de DeviceResponse. Os campos são escritos direto do DeviceView,
+ * sem um objeto de resposta por linha.
+ */
+@JsonSerialize(using = DeviceFieldsResponse.Serializer.class)
+public record DeviceFieldsResponse(List<DeviceView> items, Set<DeviceField> fields) {
+
+  public static final class Serializer extends JsonSerializer<DeviceFieldsResponse> {
+    @Override
+    public void serialize(DeviceFieldsResponse body, JsonGenerator gen, SerializerProvider provider)
+      throws IOException {
+      var fields = body.fields().toArray(DeviceField[]::new);
+      gen.writeStartArray(body.items(), body.items().size());
+      for (var v : body.items()) {
+        gen.writeStartObject(v);
+        for (var f : fields) {
+          switch (f) {
+            case ID -> gen.writeStringField(f.property(), v.id().toString());
+            case NAME -> gen.writeStringField(f.property(), v.name());
+            case BRAND -> gen.writeStringField(f.property(), v.brand());
+            case STATE -> gen.writeStringField(f.property(), v.state().name());
+            // Instant segue a configuração do ObjectMapper, como em DeviceResponse.
+            case CREATION_TIME -> provider.defaultSerializeField(f.property(), v.creationTime(), gen);
+          }
+        }
+        gen.writeEndObject();
+      }
+      gen.writeEndArray();
+    }
+  }
+}
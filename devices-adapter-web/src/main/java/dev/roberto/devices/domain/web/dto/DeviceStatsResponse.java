@@ -0,0 +1,18 @@
+package dev.roberto.devices.domain.web.dto;
+
+import dev.roberto.devices.domain.model.DeviceState;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+// GET /devices/stats: frota inteira e por marca; byState traz todos os estados, zero incluído.
+public record DeviceStatsResponse(
+  long total,
+  Map<DeviceState, Long> byState,
+  List<Brand> brands,
+  Instant refreshedAt
+) {
+
+  public record Brand(String brand, long total, Map<DeviceState, Long> byState) {}
+}
@@ -0,0 +1,229 @@
+package dev.roberto.devices.domain.web;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceChange;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.port.DeviceChangeLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceChangeFeedTest {
+
+  private static final Duration WAIT = Duration.ofSeconds(5);
+
+  private final ListLog log = new ListLog();
+  private DeviceChangeFeed feed;
+
+  @AfterEach
+  void tearDown() {
+    if (feed != null) feed.close();
+  }
+
+  @Test
+  void oneReader_shouldFanOutEveryChangeInOrder() throws Exception {
+    feed = new DeviceChangeFeed(log, 16, Duration.ofSeconds(10), Duration.ofSeconds(60), Duration.ofSeconds(10));
+    var a = feed.subscribe(null);
+    var b = feed.subscribe(null);
+
+    log.append(1);
+    log.append(2);
+
+    assertEquals(List.of(1L, 2L), seqs(a, 2));
+    assertEquals(List.of(1L, 2L), seqs(b, 2));
+  }
+
+  @Test
+  void lastEventId_shouldReplayFromLogThenContinueLive() throws Exception {
+    for (long s = 1; s <= 5; s++) log.append(s);
+    feed = new DeviceChangeFeed(log, 16, Duration.ofSeconds(10), Duration.ofSeconds(60), Duration.ofSeconds(10));
+    feed.subscribe(null); // sobe o leitor com last = 5
+
+    var resumed = feed.subscribe(2L);
+    log.append(6);
+
+    assertEquals(List.of(3L, 4L, 5L, 6L), seqs(resumed, 4));
+    assertTrue(feed.canResume(2));
+  }
+
+  @Test
+  void gap_shouldHoldLaterChangesUntilTheMissingOneCommits() throws Exception {
+    feed = new DeviceChangeFeed(log, 16, Duration.ofSeconds(10), Duration.ofSeconds(60), Duration.ofSeconds(10));
+    var sub = feed.subscribe(null);
+
+    log.append(1);
+    log.append(3); // 2 ainda não confirmou
+    assertEquals(1, sub.next(WAIT).change().seq());
+    assertNull(sub.next(Duration.ofMillis(200)));
+
+    log.append(2);
+    assertEquals(List.of(2L, 3L), seqs(sub, 2));
+  }
+
+  @Test
+  void gap_shouldDeliverLaterChangesAfterTimeoutAndTheMissingOneWhenItCommits() throws Exception {
+    feed = new DeviceChangeFeed(log, 16, Duration.ofMillis(50), Duration.ofSeconds(60), Duration.ofSeconds(10));
+    var sub = feed.subscribe(null);
+
+    log.append(1);
+    log.append(3); // 2 ainda não confirmou
+    assertEquals(1, sub.next(WAIT).resumeId());
+    var three = sub.next(WAIT);
+    assertEquals(3, three.change().seq());
+    assertEquals(1, three.resumeId()); // retomar daqui relê o 2 quando ele aparecer
+
+    log.append(2);
+    var two = sub.next(WAIT);
+    assertEquals(2, two.change().seq());
+    assertTrue(two.late());
+    assertEquals(3, two.resumeId());
+  }
+
+  @Test
+  void gap_shouldSendResetWhenAbandoned() throws Exception {
+    feed = new DeviceChangeFeed(log, 16, Duration.ofMillis(50), Duration.ofMillis(200), Duration.ofMillis(50));
+    var sub = feed.subscribe(null);
+
+    log.append(1);
+    log.append(3); // 2 desfeita: nunca aparece
+
+    assertEquals(List.of(1L, 3L), seqs(sub, 2));
+    var reset = sub.next(WAIT);
+    assertNotNull(reset);
+    assertTrue(reset.isReset());
+    assertEquals(3, reset.resumeId());
+  }
+
+  @Test
+  void lastEventId_shouldReplayChangesThatCommittedAfterIt() throws Exception {
+    feed = new DeviceChangeFeed(log, 16, Duration.ofMillis(50), Duration.ofSeconds(60), Duration.ofSeconds(10));
+    var sub = feed.subscribe(null);
+    log.append(1);
+    log.append(3);
+    assertEquals(List.of(1L, 3L), seqs(sub, 2));
+
+    // Cliente caiu depois do 3 e reconecta com o id dele (1); o 2 confirma no meio tempo.
+    log.append(2);
+    var resumed = feed.subscribe(1L);
+    assertEquals(List.of(2L, 3L), seqs(resumed, 2));
+  }
+
+  @Test
+  void slowSubscriber_shouldOverflowWithoutAffectingOthers() throws Exception {
+    feed = new DeviceChangeFeed(log, 2, Duration.ofSeconds(10), Duration.ofSeconds(60), Duration.ofSeconds(10));
+    var slow = feed.subscribe(null);
+    var fast = feed.subscribe(null);
+
+    log.append(1);
+    assertEquals(1, fast.next(WAIT).change().seq());
+    for (long s = 2; s <= 4; s++) {
+      log.append(s);
+      assertEquals(s, fast.next(WAIT).change().seq());
+    }
+
+    assertTrue(slow.isOverflowed());
+    assertEquals(List.of(1L, 2L), seqs(slow, 2));
+    assertNull(slow.next(WAIT)); // esvaziou: o cliente retoma com Last-Event-ID = 2
+    assertFalse(fast.isOverflowed());
+  }
+
+  @Test
+  void canResume_shouldFailOnceHistoryWasPurged() {
+    for (long s = 1; s <= 5; s++) log.append(s);
+    feed = new DeviceChangeFeed(log, 16, Duration.ofSeconds(1), Duration.ofSeconds(60), Duration.ofSeconds(1));
+    log.purgeBefore(Instant.MAX, 3);
+
+    assertTrue(feed.canResume(3));
+    assertFalse(feed.canResume(2));
+  }
+
+  @Test
+  void purgeOfAllHistory_shouldStillResetOldIds_andStartTheReaderAtTheLatestSeq() throws Exception {
+    for (long s = 1; s <= 5; s++) log.append(s);
+    assertEquals(4, log.purgeBefore(Instant.MAX, 100)); // o seq 5 fica como marca d'água
+    feed = new DeviceChangeFeed(log, 16, Duration.ofSeconds(10), Duration.ofSeconds(60), Duration.ofSeconds(10));
+
+    assertFalse(feed.canResume(2));
+    assertTrue(feed.canResume(4));
+
+    var sub = feed.subscribe(null);
+    log.append(6);
+    var e = sub.next(WAIT);
+    assertFalse(e.isReset());
+    assertEquals(6, e.change().seq()); // sem buraco 1..5 esperando gap-timeout
+  }
+
+  private static List<Long> seqs(DeviceChangeFeed.Subscription sub, int n) throws InterruptedException {
+    var seqs = new ArrayList<Long>();
+    while (seqs.size() < n) {
+      var e = sub.next(WAIT);
+      assertNotNull(e, "expected " + n + " changes, got " + seqs);
+      seqs.add(e.change().seq());
+    }
+    return seqs;
+  }
+
+  // Outbox em memória com seq escolhido pelo teste (para simular buracos).
+  private static final class ListLog implements DeviceChangeLog {
+    private final TreeMap<Long, DeviceChange> rows = new TreeMap<>();
+    private boolean pending;
+
+    synchronized void append(long seq) {
+      var d = new Device(UUID.randomUUID(), "D" + seq, "HP", DeviceState.AVAILABLE, Instant.now());
+      rows.put(seq, new DeviceChange(seq, DeviceChange.Type.CREATED, d, Instant.now()));
+      pending = true;
+      notifyAll();
+    }
+
+    @Override
+    public synchronized List<DeviceChange> readAfter(long after, int limit) {
+      return rows.tailMap(after, false).values().stream().limit(limit).toList();
+    }
+
+    @Override
+    public synchronized List<DeviceChange> readSeqs(Collection<Long> seqs) {
+      return seqs.stream().sorted().map(rows::get).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public synchronized long latestSeq() {
+      return rows.isEmpty() ? 0 : rows.lastKey();
+    }
+
+    @Override
+    public synchronized long firstSeq() {
+      return rows.isEmpty() ? 1 : rows.firstKey();
+    }
+
+    @Override
+    public synchronized void awaitChange(Duration timeout) throws InterruptedException {
+      long deadline = System.nanoTime() + timeout.toNanos();
+      while (!pending) {
+        long left = deadline - System.nanoTime();
+        if (left <= 0) break;
+        wait(Math.max(1, left / 1_000_000));
+      }
+      pending = false;
+    }
+
+    @Override
+    public synchronized int purgeBefore(Instant cutoff, int limit) {
+      int n = 0;
+      while (n < limit && rows.size() > 1) {
+        rows.pollFirstEntry();
+        n++;
+      }
+      return n;
+    }
+  }
+}
@@ -2,28 +2,45 @@ package dev.roberto.devices.domain.web;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceCount;
+import dev.roberto.devices.domain.model.DeviceField;
 import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.model.DeviceView;
+import dev.roberto.devices.domain.port.DeviceCursor;
+import dev.roberto.devices.domain.usecase.BatchItemResult;
+import dev.roberto.devices.domain.usecase.CountMode;
+import dev.roberto.devices.domain.usecase.CursorPage;
 import dev.roberto.devices.domain.usecase.DeviceService;
+import dev.roberto.devices.domain.usecase.DeviceStats;
+import dev.roberto.devices.domain.usecase.DeviceTransition;
 import dev.roberto.devices.domain.usecase.PageResult;
 import dev.roberto.devices.domain.usecase.command.UpdateDevicePutCommand;
 import dev.roberto.devices.domain.usecase.exception.DomainRuleViolationException;
 import dev.roberto.devices.domain.usecase.exception.NotFoundException;
+import dev.roberto.devices.domain.usecase.exception.StateConflictException;
+import dev.roberto.devices.domain.usecase.exception.VersionConflictException;
 import dev.roberto.devices.domain.web.dto.DeviceRequest;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
@@ -31,6 +48,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = DeviceController.class)
+@Import(EtagConfig.class)
 class DeviceControllerTest {
 
   @Autowired MockMvc mvc;
@@ -60,6 +78,17 @@ class DeviceControllerTest {
       .andExpect(jsonPath("$.state", is("AVAILABLE")));
   }
 
+  @Test
+  void get_shouldReturn503_whenConnectionPoolIsExhausted() throws Exception {
+    var id = UUID.randomUUID();
+    org.mockito.Mockito.when(service.get(id)).thenThrow(new IllegalStateException("Could not open JPA EntityManager",
+      new java.sql.SQLTransientConnectionException("HikariPool-1 - Connection is not available")));
+
+    mvc.perform(get("/devices/{id}", id))
+      .andExpect(status().isServiceUnavailable())
+      .andExpect(header().string("Retry-After", "1"));
+  }
+
   @Test
   void get_shouldReturn404_whenNotFound() throws Exception {
     var id = UUID.randomUUID();
@@ -78,13 +107,32 @@ class DeviceControllerTest {
     var d = new Device(id, "WS-01", "Lenovo", DeviceState.AVAILABLE, Instant.parse("2025-01-01T00:00:00Z"));
     org.mockito.Mockito.when(service.get(id)).thenReturn(d);
 
-    var etag = EtagUtil.etagFor(d);
+    var etag = new VersionEtagStrategy().etagFor(d);
 
     mvc.perform(get("/devices/{id}", id).header("If-None-Match", etag))
       .andExpect(status().isNotModified())
       .andExpect(header().string("ETag", etag));
   }
 
+  @Test
+  void stats_shouldGroupByBrand_withEveryStateListed() throws Exception {
+    org.mockito.Mockito.when(service.stats()).thenReturn(new DeviceStats(List.of(
+      new DeviceCount("Apple", DeviceState.AVAILABLE, 3),
+      new DeviceCount("Apple", DeviceState.IN_USE, 2),
+      new DeviceCount("Dell", DeviceState.IN_USE, 1)), Instant.parse("2025-01-01T00:00:00Z")));
+
+    mvc.perform(get("/devices/stats"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.total", is(6)))
+      .andExpect(jsonPath("$.byState.IN_USE", is(3)))
+      .andExpect(jsonPath("$.byState.INACTIVE", is(0)))
+      .andExpect(jsonPath("$.brands", hasSize(2)))
+      .andExpect(jsonPath("$.brands[0].brand", is("Apple")))
+      .andExpect(jsonPath("$.brands[0].total", is(5)))
+      .andExpect(jsonPath("$.brands[1].byState.AVAILABLE", is(0)))
+      .andExpect(jsonPath("$.refreshedAt", is("2025-01-01T00:00:00Z")));
+  }
+
   @Test
   void list_byState_shouldReturnFiltered_andTotalCountHeader() throws Exception {
     var a = new Device(UUID.randomUUID(), "A", "Apple", DeviceState.AVAILABLE, Instant.now());
@@ -92,7 +140,7 @@ class DeviceControllerTest {
 
 
     org.mockito.Mockito.when(
-      service.listPaged(eq(Optional.empty()), eq(Optional.of(DeviceState.AVAILABLE)), anyInt(), anyInt())
+      service.listPaged(eq(Optional.empty()), eq(Optional.of(DeviceState.AVAILABLE)), anyInt(), anyInt(), eq(CountMode.EXACT))
     ).thenReturn(page);
 
     mvc.perform(get("/devices").param("state", "available"))
@@ -103,6 +151,191 @@ class DeviceControllerTest {
       .andExpect(jsonPath("$[0].state", is("AVAILABLE")));
   }
 
+  @Test
+  void list_withCursor_shouldUseKeyset_andReturnNextCursor() throws Exception {
+    var a = new Device(UUID.randomUUID(), "A", "Apple", DeviceState.AVAILABLE, Instant.parse("2025-01-01T00:00:00Z"));
+    var next = DeviceCursor.of(a);
+    org.mockito.Mockito.when(
+      service.listAfter(eq(Optional.of("Apple")), eq(Optional.empty()), eq(Optional.empty()), eq(1))
+    ).thenReturn(new CursorPage<>(List.of(a), Optional.of(next), 1));
+
+    var token = CursorCodec.encode(next);
+    mvc.perform(get("/devices").param("brand", "Apple").param("size", "1").param("cursor", ""))
+      .andExpect(status().isOk())
+      .andExpect(header().doesNotExist("X-Total-Count"))
+      .andExpect(header().string("X-Next-Cursor", token))
+      .andExpect(header().string("Link", containsString("cursor=" + token)))
+      .andExpect(jsonPath("$", hasSize(1)));
+
+    org.mockito.Mockito.verify(service, org.mockito.Mockito.never())
+      .listPaged(any(), any(), anyInt(), anyInt(), any());
+  }
+
+  @Test
+  void list_withQ_shouldSearchByName_andLinkNextPageWithoutTotal() throws Exception {
+    var a = new Device(UUID.randomUUID(), "WS-10", "Dell", DeviceState.AVAILABLE, Instant.now());
+    org.mockito.Mockito.when(service.search(eq("ws"), eq(Optional.of("Dell")), eq(Optional.empty()), eq(0), eq(1)))
+      .thenReturn(new PageResult<>(List.of(a), -1, 0, 1, PageResult.Accuracy.NONE, true));
+
+    mvc.perform(get("/devices").param("q", "ws").param("brand", "Dell").param("size", "1"))
+      .andExpect(status().isOk())
+      .andExpect(header().doesNotExist("X-Total-Count"))
+      .andExpect(header().string("Link", containsString("page=1")))
+      .andExpect(jsonPath("$[0].name", is("WS-10")));
+
+    mvc.perform(get("/devices").param("q", "ws").param("cursor", ""))
+      .andExpect(status().isBadRequest());
+    org.mockito.Mockito.verify(service, org.mockito.Mockito.never())
+      .listPaged(any(), any(), anyInt(), anyInt(), any());
+  }
+
+  @Test
+  void list_withFields_shouldUseProjection_andWriteOnlyThoseProperties() throws Exception {
+    var id = UUID.randomUUID();
+    var fields = Set.of(DeviceField.ID, DeviceField.STATE);
+    org.mockito.Mockito.when(service.listPagedView(eq(fields), eq(Optional.empty()), eq(Optional.empty()),
+        eq(0), eq(20), any()))
+      .thenReturn(new PageResult<>(List.of(new DeviceView(id, null, null, DeviceState.IN_USE, null)), 1, 0, 20));
+
+    mvc.perform(get("/devices").param("fields", "state, ID"))
+      .andExpect(status().isOk())
+      .andExpect(header().string("X-Total-Count", "1"))
+      .andExpect(content().json("[{\"id\":\"" + id + "\",\"state\":\"IN_USE\"}]", true));
+
+    mvc.perform(get("/devices").param("fields", "id,serial"))
+      .andExpect(status().isBadRequest());
+    org.mockito.Mockito.verify(service, org.mockito.Mockito.never())
+      .listPaged(any(), any(), anyInt(), anyInt(), any());
+  }
+
+  @Test
+  void list_withFieldsAndCursor_shouldWriteOnlyRequested_evenThoughCursorColumnsAreRead() throws Exception {
+    var last = new DeviceView(UUID.randomUUID(), "WS-1", null, null, Instant.parse("2025-01-01T00:00:00Z"));
+    org.mockito.Mockito.when(service.listAfterView(eq(Set.of(DeviceField.NAME)), any(), any(), any(), eq(1)))
+      .thenReturn(new CursorPage<>(List.of(last),
+        Optional.of(new DeviceCursor(last.creationTime(), last.id())), 1));
+
+    mvc.perform(get("/devices").param("fields", "name").param("cursor", "").param("size", "1"))
+      .andExpect(status().isOk())
+      .andExpect(header().exists("X-Next-Cursor"))
+      .andExpect(content().json("[{\"name\":\"WS-1\"}]", true));
+  }
+
+  @Test
+  void list_shouldAnswer304_fromWatermark_withoutRunningQueries() throws Exception {
+    org.mockito.Mockito.when(service.changeWatermark()).thenReturn(41L);
+
+    mvc.perform(get("/devices").param("brand", "Apple").header("If-None-Match", "W/\"41\""))
+      .andExpect(status().isNotModified())
+      .andExpect(header().string("ETag", "W/\"41\""));
+
+    org.mockito.Mockito.verify(service, org.mockito.Mockito.never())
+      .listPaged(any(), any(), anyInt(), anyInt(), any());
+  }
+
+  @Test
+  void list_shouldReturnWeakEtag_whenWatermarkMoved() throws Exception {
+    org.mockito.Mockito.when(service.changeWatermark()).thenReturn(42L);
+    org.mockito.Mockito.when(service.listPaged(any(), any(), anyInt(), anyInt(), any()))
+      .thenReturn(new PageResult<>(List.of(), 0L, 0, 20));
+
+    mvc.perform(get("/devices").header("If-None-Match", "W/\"41\""))
+      .andExpect(status().isOk())
+      .andExpect(header().string("ETag", "W/\"42\""))
+      .andExpect(header().string("Cache-Control", "no-cache"));
+  }
+
+  @Test
+  void list_withEstimate_shouldFlagApproximateTotal_andLinkNextPage() throws Exception {
+    var a = new Device(UUID.randomUUID(), "A", "Apple", DeviceState.AVAILABLE, Instant.now());
+    org.mockito.Mockito.when(service.listPaged(any(), any(), eq(0), eq(1), eq(CountMode.ESTIMATE)))
+      .thenReturn(new PageResult<>(List.of(a), 120_000L, 0, 1, PageResult.Accuracy.APPROXIMATE, true));
+
+    mvc.perform(get("/devices").param("size", "1").param("count", "estimate"))
+      .andExpect(status().isOk())
+      .andExpect(header().string("X-Total-Count", "120000"))
+      .andExpect(header().string("X-Total-Count-Approximate", "true"))
+      .andExpect(header().string("Link", containsString("page=1")));
+  }
+
+  @Test
+  void list_withCountNone_shouldOmitTotal() throws Exception {
+    org.mockito.Mockito.when(service.listPaged(any(), any(), anyInt(), anyInt(), eq(CountMode.NONE)))
+      .thenReturn(new PageResult<>(List.of(), -1, 0, 20, PageResult.Accuracy.NONE, false));
+
+    mvc.perform(get("/devices").param("count", "none"))
+      .andExpect(status().isOk())
+      .andExpect(header().doesNotExist("X-Total-Count"))
+      .andExpect(header().doesNotExist("Link"));
+  }
+
+  @Test
+  void list_withInvalidCursor_shouldReturn400() throws Exception {
+    mvc.perform(get("/devices").param("cursor", "not-a-cursor"))
+      .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void export_shouldStreamNdjson_oneDevicePerLine() throws Exception {
+    var a = new Device(UUID.randomUUID(), "A", "Apple", DeviceState.AVAILABLE, Instant.parse("2025-01-01T00:00:00Z"));
+    var b = new Device(UUID.randomUUID(), "B", "HP", DeviceState.IN_USE, Instant.parse("2025-01-02T00:00:00Z"));
+    org.mockito.Mockito.doAnswer(inv -> {
+      Consumer<Device> sink = inv.getArgument(0);
+      sink.accept(a);
+      sink.accept(b);
+      return null;
+    }).when(service).exportAll(any());
+
+    var started = mvc.perform(get("/devices/export"))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    var body = mvc.perform(asyncDispatch(started))
+      .andExpect(status().isOk())
+      .andExpect(header().string("Content-Type", containsString("application/x-ndjson")))
+      .andReturn().getResponse().getContentAsString();
+
+    assertTrue(body.endsWith("}\n"));
+    var lines = body.lines().toList();
+    assertEquals(2, lines.size());
+    // readTree ignora espaço inicial: o corpo cru precisa ter cada linha abrindo com o objeto.
+    lines.forEach(l -> assertTrue(l.startsWith("{"), l));
+    assertEquals("A", om.readTree(lines.get(0)).get("name").asText());
+    assertEquals("B", om.readTree(lines.get(1)).get("name").asText());
+  }
+
+  @Test
+  void batch_shouldReturnPerItemStatusAndEtag() throws Exception {
+    var created = new Device(UUID.randomUUID(), "N", "HP", DeviceState.AVAILABLE, Instant.parse("2025-01-01T00:00:00Z"));
+    var missing = UUID.randomUUID();
+    org.mockito.Mockito.when(service.batch(any())).thenReturn(List.of(
+      new BatchItemResult(0, BatchItemResult.Outcome.CREATED, created.id(), created, null),
+      new BatchItemResult(1, BatchItemResult.Outcome.NOT_FOUND, missing, null, "not found")
+    ));
+
+    var body = """
+      {"operations":[
+        {"op":"CREATE","name":"N","brand":"HP"},
+        {"op":"DELETE","id":"%s"}
+      ]}""".formatted(missing);
+
+    mvc.perform(post("/devices/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.results", hasSize(2)))
+      .andExpect(jsonPath("$.results[0].status", is(201)))
+      .andExpect(jsonPath("$.results[0].etag", is(new VersionEtagStrategy().etagFor(created))))
+      .andExpect(jsonPath("$.results[0].device.name", is("N")))
+      .andExpect(jsonPath("$.results[1].status", is(404)))
+      .andExpect(jsonPath("$.results[1].error", is("not found")));
+  }
+
+  @Test
+  void batch_patchWithoutId_shouldReturn400() throws Exception {
+    mvc.perform(post("/devices/batch").contentType(MediaType.APPLICATION_JSON)
+        .content("{\"operations\":[{\"op\":\"PATCH\",\"name\":\"X\"}]}"))
+      .andExpect(status().isBadRequest());
+  }
+
   @Test
   void updatePut_shouldReturn422_onDomainViolation() throws Exception {
     var id = UUID.randomUUID();
@@ -118,6 +351,50 @@ class DeviceControllerTest {
       .andExpect(jsonPath("$.status", is(422)));
   }
 
+  @Test
+  void updatePut_shouldPassIfMatchVersion_andReturn412_onConflict() throws Exception {
+    var id = UUID.randomUUID();
+    org.mockito.Mockito.when(service.updatePut(any(UpdateDevicePutCommand.class)))
+      .thenThrow(new VersionConflictException("stale"));
+
+    var body = new DeviceRequest("WS-02", "Lenovo", DeviceState.AVAILABLE);
+
+    mvc.perform(put("/devices/{id}", id)
+        .header("If-Match", "\"3\"")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(om.writeValueAsBytes(body)))
+      .andExpect(status().isPreconditionFailed())
+      .andExpect(jsonPath("$.status", is(412)));
+
+    org.mockito.Mockito.verify(service).updatePut(
+      new UpdateDevicePutCommand(id, "WS-02", "Lenovo", DeviceState.AVAILABLE, OptionalLong.of(3)));
+  }
+
+  @Test
+  void checkout_shouldReturnMovedDeviceWithEtag_andRelease409OnLostRace() throws Exception {
+    var id = UUID.randomUUID();
+    var moved = new Device(id, "WS-01", "Lenovo", DeviceState.IN_USE, Instant.parse("2025-01-01T00:00:00Z"), 4);
+    org.mockito.Mockito.when(service.transition(id, DeviceTransition.CHECKOUT)).thenReturn(moved);
+    org.mockito.Mockito.when(service.transition(id, DeviceTransition.RELEASE))
+      .thenThrow(new StateConflictException("Device is AVAILABLE"));
+
+    mvc.perform(post("/devices/{id}/checkout", id))
+      .andExpect(status().isOk())
+      .andExpect(header().string("ETag", new VersionEtagStrategy().etagFor(moved)))
+      .andExpect(jsonPath("$.state", is("IN_USE")));
+    mvc.perform(post("/devices/{id}/release", id))
+      .andExpect(status().isConflict())
+      .andExpect(jsonPath("$.status", is(409)));
+  }
+
+  @Test
+  void delete_withForeignOrWeakEtag_shouldReturn412() throws Exception {
+    var id = UUID.randomUUID();
+    mvc.perform(delete("/devices/{id}", id).header("If-Match", "W/\"3\""))
+      .andExpect(status().isPreconditionFailed());
+    org.mockito.Mockito.verifyNoInteractions(service);
+  }
+
   @Test
   void delete_shouldReturn204() throws Exception {
     var id = UUID.randomUUID();
@@ -0,0 +1,57 @@
+package dev.roberto.devices.domain.web;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceState;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EtagStrategyTest {
+
+  private final Device device = new Device(
+    UUID.fromString("0189f7ea-ae2c-7b3d-9c4e-5f6a7b8c9d0e"), "WS-01 ção", "Lenovo",
+    DeviceState.IN_USE, Instant.parse("2025-01-01T10:15:30.123Z"), 7);
+
+  @Test
+  void version_shouldRoundTripAndRejectWeakOrForeignTags() {
+    var s = new VersionEtagStrategy();
+    assertEquals("\"7\"", s.etagFor(device));
+    assertEquals(7, s.versionOf(s.etagFor(device)));
+    assertThrows(PreconditionFailed.class, () -> s.versionOf("W/\"7\""));
+    assertThrows(PreconditionFailed.class, () -> s.versionOf("\"abc\""));
+  }
+
+  @Test
+  void sha256_shouldMatchLegacyConcatenatedDigest() throws Exception {
+    var raw = (device.id() + "|" + device.name() + "|" + device.brand() + "|" + device.state() + "|" + device.creationTime())
+      .getBytes(StandardCharsets.UTF_8);
+    var legacy = "\"" + Base64.getUrlEncoder().withoutPadding()
+      .encodeToString(MessageDigest.getInstance("SHA-256").digest(raw)) + "\"";
+
+    var s = new Sha256EtagStrategy();
+    assertEquals(legacy, s.etagFor(device));
+    assertEquals(legacy, s.etagFor(device)); // digest reaproveitado não vaza estado
+
+    var odd = device.withName("emoji \uD83D\uDCBB órfão \uD800 fim");
+    var oddRaw = (odd.id() + "|" + odd.name() + "|" + odd.brand() + "|" + odd.state() + "|" + odd.creationTime())
+      .getBytes(StandardCharsets.UTF_8);
+    assertEquals("\"" + Base64.getUrlEncoder().withoutPadding()
+      .encodeToString(MessageDigest.getInstance("SHA-256").digest(oddRaw)) + "\"", s.etagFor(odd));
+  }
+
+  @Test
+  void hash_shouldBeStableAndSensitiveToContent() {
+    var s = new ContentHashEtagStrategy();
+    // Valor fixo: se mudar, os ETags já emitidos por outros nós deixam de casar.
+    assertEquals("\"912bd476cd830ef1\"", s.etagFor(device));
+    assertEquals(s.etagFor(device), s.etagFor(device.withVersion(8)));
+    assertNotEquals(s.etagFor(device), s.etagFor(device.withName("WS-02 ção")));
+    assertNotEquals(s.etagFor(device.withName("ab").withBrand("c")), s.etagFor(device.withName("a").withBrand("bc")));
+  }
+}
@@ -0,0 +1,172 @@
+package dev.roberto.devices.domain.web;
+
+import dev.roberto.devices.domain.port.IdempotencyRecord;
+import dev.roberto.devices.domain.port.IdempotencyStore;
+import dev.roberto.devices.domain.usecase.exception.DomainRuleViolationException;
+import dev.roberto.devices.domain.usecase.exception.NotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyServiceTest {
+
+  private final MapStore store = new MapStore();
+  private final IdempotencyService service = new IdempotencyService(store);
+
+  @Test
+  void concurrentDuplicates_shouldWaitForFirstInsteadOfWriting() throws Exception {
+    var creates = new AtomicInteger();
+    var release = new CountDownLatch(1);
+    try (var pool = Executors.newFixedThreadPool(2)) {
+      var first = pool.submit(() -> service.execute("k", "fp", id -> {
+        creates.incrementAndGet();
+        await(release);
+        return snapshot(id);
+      }, IdempotencyServiceTest::notFound));
+      while (store.records.isEmpty()) Thread.onSpinWait();
+      var second = pool.submit(() -> service.execute("k", "fp", id -> {
+        creates.incrementAndGet();
+        return snapshot(id);
+      }, IdempotencyServiceTest::notFound));
+
+      release.countDown();
+      var a = first.get();
+      var b = second.get();
+      assertEquals(1, creates.get());
+      // O segundo pode esperar o primeiro em processo ou chegar depois e ler o snapshot gravado.
+      assertEquals(a.response().headers(), b.response().headers());
+      assertArrayEquals(a.response().body(), b.response().body());
+      assertTrue(a.replay() != b.replay());
+    }
+  }
+
+  @Test
+  void replay_shouldComeFromStoredResponseWithoutLookup() {
+    var original = service.execute("k", "fp", IdempotencyServiceTest::snapshot, IdempotencyServiceTest::notFound);
+
+    var replayed = service.execute("k", "fp", id -> fail("must not create"), id -> fail("must not look up"));
+
+    assertTrue(replayed.replay());
+    assertEquals(original.response().status(), replayed.response().status());
+    assertEquals(original.response().headers(), replayed.response().headers());
+    assertArrayEquals(original.response().body(), replayed.response().body());
+  }
+
+  @Test
+  void reusedKeyWithDifferentPayload_shouldBeRejected() {
+    service.execute("k", "fp", IdempotencyServiceTest::snapshot, IdempotencyServiceTest::notFound);
+
+    assertThrows(IdempotencyKeyMismatch.class,
+      () -> service.execute("k", "other", IdempotencyServiceTest::snapshot, IdempotencyServiceTest::notFound));
+  }
+
+  @Test
+  void failedCreate_shouldReleaseKeyForRetry() {
+    Function<UUID, ResponseSnapshot> failing = id -> {
+      throw new DomainRuleViolationException("nope");
+    };
+    assertThrows(DomainRuleViolationException.class,
+      () -> service.execute("k", "fp", failing, IdempotencyServiceTest::notFound));
+
+    var retried = service.execute("k", "fp", IdempotencyServiceTest::snapshot, IdempotencyServiceTest::notFound);
+    assertFalse(retried.replay());
+  }
+
+  @Test
+  void keyPendingElsewhere_shouldReportInProgress() {
+    store.records.put("k", new IdempotencyRecord(UUID.randomUUID(), "fp", null));
+
+    assertThrows(IdempotencyInProgress.class,
+      () -> service.execute("k", "fp", IdempotencyServiceTest::snapshot, IdempotencyServiceTest::notFound));
+  }
+
+  @Test
+  void legacyKeyWithoutStoredResponse_shouldReplayFromResource() {
+    var owner = UUID.randomUUID();
+    store.records.put("k", new IdempotencyRecord(owner, null, null));
+
+    var replayed = service.execute("k", "fp", IdempotencyServiceTest::snapshot, IdempotencyServiceTest::snapshot);
+
+    assertTrue(replayed.replay());
+    assertEquals("/devices/" + owner, replayed.response().headers().get(0).value());
+  }
+
+  @Test
+  void orphanReservationWhoseResourceExists_shouldReplayWithoutCreatingAgain() {
+    var owner = UUID.randomUUID();
+    store.records.put("k", new IdempotencyRecord(owner, "fp", null));
+    store.expired.add("k");
+
+    var replayed = service.execute("k", "fp", id -> fail("must not create a second resource"),
+      IdempotencyServiceTest::snapshot);
+
+    assertTrue(replayed.replay());
+    assertEquals("/devices/" + owner, replayed.response().headers().get(0).value());
+    assertTrue(store.records.get("k").completed());
+  }
+
+  @Test
+  void orphanReservationWithoutResource_shouldCreateWithReservedId() {
+    var owner = UUID.randomUUID();
+    store.records.put("k", new IdempotencyRecord(owner, "fp", null));
+    store.expired.add("k");
+
+    var created = service.execute("k", "fp", IdempotencyServiceTest::snapshot, IdempotencyServiceTest::notFound);
+
+    assertFalse(created.replay());
+    assertEquals("/devices/" + owner, created.response().headers().get(0).value());
+    assertTrue(store.records.get("k").completed());
+  }
+
+  private static ResponseSnapshot notFound(UUID id) {
+    throw new NotFoundException("Device %s not found".formatted(id));
+  }
+
+  private static ResponseSnapshot snapshot(UUID id) {
+    return new ResponseSnapshot(201, List.of(new ResponseSnapshot.Header("Location", "/devices/" + id)),
+      ("{\"id\":\"" + id + "\"}").getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class MapStore implements IdempotencyStore {
+    final Map<String, IdempotencyRecord> records = new ConcurrentHashMap<>();
+    // Chaves cuja reserva (sem resposta) já expirou: o próximo reserve retoma com o mesmo id.
+    final Set<String> expired = ConcurrentHashMap.newKeySet();
+
+    @Override public IdempotencyRecord reserve(String key, UUID id, String fingerprint, Instant now, Duration lease) {
+      if (expired.remove(key)) {
+        var orphan = records.get(key);
+        return new IdempotencyRecord(orphan.resourceId(), orphan.fingerprint(), null, true);
+      }
+      var current = records.computeIfAbsent(key, k -> new IdempotencyRecord(id, fingerprint, null));
+      return current.resourceId().equals(id) ? new IdempotencyRecord(id, fingerprint, null, true) : current;
+    }
+    @Override public void confirm(String key, UUID id, byte[] response, Instant now, Duration ttl) {
+      records.computeIfPresent(key, (k, r) -> r.resourceId().equals(id) ? new IdempotencyRecord(id, r.fingerprint(), response) : r);
+    }
+    @Override public void release(String key, UUID id) { records.computeIfPresent(key, (k, r) -> r.resourceId().equals(id) ? null : r); }
+    @Override public int purgeExpired(Instant now, int limit) { return 0; }
+    @Override public Optional<Instant> oldestExpiry() { return Optional.empty(); }
+  }
+}
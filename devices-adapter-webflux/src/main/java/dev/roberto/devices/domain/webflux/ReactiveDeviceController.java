@@ -0,0 +1,321 @@
+package dev.roberto.devices.domain.webflux;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceField;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.model.DeviceView;
+import dev.roberto.devices.domain.port.DeviceCursor;
+import dev.roberto.devices.domain.usecase.CountMode;
+import dev.roberto.devices.domain.usecase.DeviceTransition;
+import dev.roberto.devices.domain.usecase.PageResult;
+import dev.roberto.devices.domain.usecase.ReactiveDeviceService;
+import dev.roberto.devices.domain.usecase.command.CreateDeviceCommand;
+import dev.roberto.devices.domain.usecase.command.UpdateDevicePatchCommand;
+import dev.roberto.devices.domain.usecase.command.UpdateDevicePutCommand;
+import dev.roberto.devices.domain.web.CursorCodec;
+import dev.roberto.devices.domain.web.DeviceMapper;
+import dev.roberto.devices.domain.web.DeviceRequests;
+import dev.roberto.devices.domain.web.EtagStrategy;
+import dev.roberto.devices.domain.web.PreconditionFailed;
+import dev.roberto.devices.domain.web.ResponseSnapshot;
+import dev.roberto.devices.domain.web.VersionedEtagStrategy;
+import dev.roberto.devices.domain.web.dto.DeviceFieldsResponse;
+import dev.roberto.devices.domain.web.dto.DevicePatchRequest;
+import dev.roberto.devices.domain.web.dto.DeviceRequest;
+import dev.roberto.devices.domain.web.dto.DeviceResponse;
+import dev.roberto.devices.domain.web.dto.DeviceStatsResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Espelho não bloqueante do DeviceController: mesmas rotas, cabeçalhos (ETag, If-Match,
+ * If-None-Match, Idempotency-Key, X-Total-Count, X-Next-Cursor, Link) e códigos de status.
+ * O lote (POST /devices/batch) fica só na pilha servlet.
+ */
+@Tag(name = "Devices", description = "Devices CRUD and filters (reactive)")
+@RestController
+@RequestMapping("/devices")
+public class ReactiveDeviceController {
+
+  private final ReactiveDeviceService service;
+  private final ReactiveIdempotencyService idempotencyService;
+  private final ObjectMapper objectMapper;
+  private final EtagStrategy etags;
+  private final CountMode defaultCountMode;
+
+  public ReactiveDeviceController(ReactiveDeviceService service, ReactiveIdempotencyService idempotencyService,
+                                  ObjectMapper objectMapper, EtagStrategy etags,
+                                  @Value("${app.list.count-mode:exact}") String defaultCountMode) {
+    this.service = service;
+    this.idempotencyService = idempotencyService;
+    this.objectMapper = objectMapper;
+    this.etags = etags;
+    this.defaultCountMode = DeviceRequests.parseCountMode(defaultCountMode);
+  }
+
+  @Operation(summary = "Create a device",
+    description = "With Idempotency-Key, a retry returns the original response (Idempotency-Replay: true); "
+      + "reusing the key with a different payload returns 422 and a retry while the first request is still "
+      + "running on another node returns 409.")
+  @ApiResponse(responseCode = "201", content = @Content(schema = @Schema(implementation = DeviceResponse.class)))
+  @PostMapping
+  public Mono<ResponseEntity<?>> create(
+    @RequestHeader(value = "Idempotency-Key", required = false) String idemKey,
+    @Valid @RequestBody DeviceRequest req
+  ) {
+    if (idemKey != null && !idemKey.isBlank()) {
+      return idempotencyService.execute(idemKey, DeviceRequests.fingerprint(req),
+          id -> service.create(new CreateDeviceCommand(id, req.name(), req.brand(), req.state()))
+            .map(this::createdSnapshot),
+          id -> service.get(id).map(this::createdSnapshot))
+        .map(outcome -> {
+          var r = outcome.response();
+          var response = ResponseEntity.status(r.status()).contentType(MediaType.APPLICATION_JSON);
+          r.headers().forEach(h -> response.header(h.name(), h.value()));
+          if (outcome.replay()) response.header("Idempotency-Replay", "true");
+          return response.body(r.body());
+        });
+    }
+    return service.create(new CreateDeviceCommand(req.name(), req.brand(), req.state()))
+      .map(created -> ResponseEntity.created(URI.create("/devices/" + created.id()))
+        .header("ETag", etags.etagFor(created))
+        .body(DeviceMapper.toResponse(created)));
+  }
+
+  // Mesmos bytes para o cliente e para a chave, como no controller servlet.
+  private ResponseSnapshot createdSnapshot(Device d) {
+    try {
+      return new ResponseSnapshot(201, List.of(
+        new ResponseSnapshot.Header("Location", "/devices/" + d.id()),
+        new ResponseSnapshot.Header("ETag", etags.etagFor(d))),
+        objectMapper.writeValueAsBytes(DeviceMapper.toResponse(d)));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Operation(summary = "Get a device by ID")
+  @GetMapping("/{id}")
+  public Mono<ResponseEntity<DeviceResponse>> get(
+    @PathVariable UUID id,
+    @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch
+  ) {
+    return service.get(id).map(d -> {
+      var etag = etags.etagFor(d);
+      if (ifNoneMatch != null && ifNoneMatch.equals(etag)) {
+        return ResponseEntity.status(304)
+          .eTag(etag)
+          .header("Cache-Control", "max-age=60, must-revalidate")
+          .<DeviceResponse>build();
+      }
+      return ResponseEntity.ok()
+        .eTag(etag)
+        .header("Cache-Control", "max-age=60, must-revalidate")
+        .body(DeviceMapper.toResponse(d));
+    });
+  }
+
+  @Operation(summary = "List devices with filters and pagination",
+    description = "Same contract as the servlet stack: page/size or cursor, weak collection ETag, "
+      + "count=exact|estimate|none, ranked name search with q, sparse fieldsets with fields.")
+  @GetMapping
+  public Mono<ResponseEntity<Object>> list(
+    @RequestParam Optional<String> brand,
+    @RequestParam Optional<String> state,
+    @RequestParam(required = false) String q,
+    @RequestParam(required = false) String fields,
+    @RequestParam(defaultValue = "0") int page,
+    @RequestParam(defaultValue = "20") int size,
+    @RequestParam(required = false) String cursor,
+    @RequestParam Optional<String> count,
+    @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+    ServerHttpRequest request
+  ) {
+    int pageSize = Math.max(1, Math.min(size, 200));
+    int pageNumber = Math.max(0, page);
+    Optional<DeviceState> st = state.map(DeviceRequests::parseState);
+    var countMode = count.map(DeviceRequests::parseCountMode).orElse(defaultCountMode);
+    Optional<DeviceCursor> after = cursor == null || cursor.isBlank()
+      ? Optional.empty() : Optional.of(CursorCodec.decode(cursor));
+    if (q != null && cursor != null) throw new IllegalArgumentException("q cannot be combined with cursor");
+    Set<DeviceField> only = fields == null ? null : DeviceRequests.parseFields(fields);
+
+    // Lido ANTES das consultas: se algo mudar no meio, o ETag fica velho e o próximo poll revalida.
+    return service.changeWatermark().flatMap(watermark -> {
+      var etag = "W/\"" + watermark + "\"";
+      if (DeviceRequests.weakMatch(ifNoneMatch, etag)) {
+        return Mono.just(ResponseEntity.status(304).eTag(etag).header("Cache-Control", "no-cache").build());
+      }
+      if (cursor != null) {
+        return only != null
+          ? service.listAfterView(only, brand, st, after, pageSize)
+            .map(cp -> cursorResponse(request, cp.next(), new DeviceFieldsResponse(cp.items(), only), etag))
+          : service.listAfter(brand, st, after, pageSize)
+            .map(cp -> cursorResponse(request, cp.next(), devices(cp.items()), etag));
+      }
+      if (q != null) {
+        // A busca lê name de qualquer jeito para ranquear: fields só estreita a resposta.
+        return service.search(q, brand, st, pageNumber, pageSize)
+          .map(pr -> pageResponse(request, pr, only == null ? devices(pr.items()) : views(pr.items(), only), etag));
+      }
+      return only != null
+        ? service.listPagedView(only, brand, st, pageNumber, pageSize, countMode)
+          .map(pr -> pageResponse(request, pr, new DeviceFieldsResponse(pr.items(), only), etag))
+        : service.listPaged(brand, st, pageNumber, pageSize, countMode)
+          .map(pr -> pageResponse(request, pr, devices(pr.items()), etag));
+    });
+  }
+
+  private static List<DeviceResponse> devices(List<Device> items) {
+    return items.stream().map(DeviceMapper::toResponse).toList();
+  }
+
+  private static DeviceFieldsResponse views(List<Device> items, Set<DeviceField> fields) {
+    return new DeviceFieldsResponse(items.stream().map(d -> DeviceView.of(d, fields)).toList(), fields);
+  }
+
+  private static ResponseEntity<Object> pageResponse(ServerHttpRequest request, PageResult<?> pr, Object body,
+                                                     String etag) {
+    var res = ResponseEntity.ok().eTag(etag).header("Cache-Control", "no-cache");
+    if (pr.accuracy() != PageResult.Accuracy.NONE) {
+      res.header("X-Total-Count", String.valueOf(pr.total()));
+    }
+    if (pr.accuracy() == PageResult.Accuracy.APPROXIMATE) {
+      res.header("X-Total-Count-Approximate", "true");
+    }
+    if (pr.hasNext()) {
+      var nextUri = UriComponentsBuilder.fromUri(request.getURI())
+        .replaceQueryParam("page", pr.page() + 1)
+        .build()
+        .toUriString();
+      res.header("Link", "<" + nextUri + ">; rel=\"next\"");
+    }
+    return res.body(body);
+  }
+
+  private static ResponseEntity<Object> cursorResponse(ServerHttpRequest request, Optional<DeviceCursor> next,
+                                                       Object body, String etag) {
+    var res = ResponseEntity.ok().eTag(etag).header("Cache-Control", "no-cache");
+    next.map(CursorCodec::encode).ifPresent(token -> {
+      var nextUri = UriComponentsBuilder.fromUri(request.getURI())
+        .replaceQueryParam("cursor", token)
+        .replaceQueryParam("page")
+        .build()
+        .toUriString();
+      res.header("X-Next-Cursor", token);
+      res.header("Link", "<" + nextUri + ">; rel=\"next\"");
+    });
+    return res.body(body);
+  }
+
+  @Operation(summary = "Device counts by brand and state",
+    description = "One grouped count for the whole fleet. Writes made through this node are reflected "
+      + "immediately; writes from other nodes within app.stats.max-age (see refreshedAt).")
+  @GetMapping("/stats")
+  public Mono<DeviceStatsResponse> stats() {
+    return service.stats().map(DeviceMapper::toStatsResponse);
+  }
+
+  @Operation(summary = "Export all devices as NDJSON",
+    description = "Streams one JSON object per line, ordered by creationTime and id, paced by the client.")
+  @GetMapping(value = "/export", produces = "application/x-ndjson")
+  public ResponseEntity<Flux<DeviceResponse>> export() {
+    return ResponseEntity.ok()
+      .header("Cache-Control", "no-store")
+      .body(service.exportAll().map(DeviceMapper::toResponse));
+  }
+
+  @Operation(summary = "Replace a device (PUT)")
+  @PutMapping("/{id}")
+  public Mono<ResponseEntity<DeviceResponse>> updatePut(
+    @PathVariable UUID id,
+    @RequestHeader(value = "If-Match", required = false) String ifMatch,
+    @Valid @RequestBody DeviceRequest req
+  ) {
+    return expectedVersion(id, ifMatch)
+      .flatMap(expected -> service.updatePut(new UpdateDevicePutCommand(id, req.name(), req.brand(), req.state(), expected)))
+      .map(this::written);
+  }
+
+  @Operation(summary = "Partially update a device (PATCH)")
+  @PatchMapping("/{id}")
+  public Mono<ResponseEntity<DeviceResponse>> updatePatch(
+    @PathVariable UUID id,
+    @RequestHeader(value = "If-Match", required = false) String ifMatch,
+    @RequestBody DevicePatchRequest req
+  ) {
+    return expectedVersion(id, ifMatch)
+      .flatMap(expected -> service.updatePatch(new UpdateDevicePatchCommand(
+        id,
+        Optional.ofNullable(req.name()),
+        Optional.ofNullable(req.brand()),
+        Optional.ofNullable(req.state()),
+        expected)))
+      .map(this::written);
+  }
+
+  @Operation(summary = "Check out a device (AVAILABLE -> IN_USE)",
+    description = "One conditional UPDATE on the current state, without reading the device first. "
+      + "409 when the device is not AVAILABLE, e.g. another client checked it out first.")
+  @PostMapping("/{id}/checkout")
+  public Mono<ResponseEntity<DeviceResponse>> checkout(@PathVariable UUID id) {
+    return service.transition(id, DeviceTransition.CHECKOUT).map(this::written);
+  }
+
+  @Operation(summary = "Release a device (IN_USE -> AVAILABLE)",
+    description = "One conditional UPDATE on the current state; 409 when the device is not IN_USE.")
+  @PostMapping("/{id}/release")
+  public Mono<ResponseEntity<DeviceResponse>> release(@PathVariable UUID id) {
+    return service.transition(id, DeviceTransition.RELEASE).map(this::written);
+  }
+
+  @Operation(summary = "Delete a device")
+  @DeleteMapping("/{id}")
+  public Mono<ResponseEntity<Void>> delete(
+    @PathVariable UUID id,
+    @RequestHeader(value = "If-Match", required = false) String ifMatch
+  ) {
+    return expectedVersion(id, ifMatch)
+      .flatMap(expected -> service.delete(id, expected))
+      .then(Mono.fromSupplier(() -> ResponseEntity.noContent().<Void>build()));
+  }
+
+  private ResponseEntity<DeviceResponse> written(Device updated) {
+    return ResponseEntity.ok().eTag(etags.etagFor(updated)).body(DeviceMapper.toResponse(updated));
+  }
+
+  // Mesma regra do controller servlet: versão direto da tag, ou comparação com o conteúdo atual.
+  private Mono<OptionalLong> expectedVersion(UUID id, String ifMatch) {
+    if (ifMatch == null || ifMatch.isBlank()) return Mono.just(OptionalLong.empty());
+    var tag = ifMatch.trim();
+    if (tag.equals("*")) return Mono.just(OptionalLong.empty());
+    if (etags instanceof VersionedEtagStrategy v) return Mono.fromSupplier(() -> OptionalLong.of(v.versionOf(tag)));
+    return service.get(id).map(current -> {
+      if (!tag.equals(etags.etagFor(current))) {
+        throw new PreconditionFailed("If-Match does not match current ETag");
+      }
+      return OptionalLong.of(current.version());
+    });
+  }
+}
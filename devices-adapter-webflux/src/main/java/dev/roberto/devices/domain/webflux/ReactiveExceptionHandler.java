@@ -0,0 +1,104 @@
+package dev.roberto.devices.domain.webflux;
+
+import dev.roberto.devices.domain.usecase.exception.DomainRuleViolationException;
+import dev.roberto.devices.domain.usecase.exception.NotFoundException;
+import dev.roberto.devices.domain.usecase.exception.StateConflictException;
+import dev.roberto.devices.domain.usecase.exception.VersionConflictException;
+import dev.roberto.devices.domain.web.IdempotencyInProgress;
+import dev.roberto.devices.domain.web.IdempotencyKeyMismatch;
+import dev.roberto.devices.domain.web.PreconditionFailed;
+import dev.roberto.devices.domain.web.dto.ErrorResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.time.Instant;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+// Mesmo mapeamento de exceções do RestExceptionHandler servlet.
+@RestControllerAdvice
+public class ReactiveExceptionHandler {
+
+  @ExceptionHandler(NotFoundException.class)
+  public ResponseEntity<ErrorResponse> notFound(NotFoundException ex, ServerHttpRequest req) {
+    return build(HttpStatus.NOT_FOUND, "Not Found", ex.getMessage(), req);
+  }
+
+  @ExceptionHandler(DomainRuleViolationException.class)
+  public ResponseEntity<ErrorResponse> domainRule(DomainRuleViolationException ex, ServerHttpRequest req) {
+    return build(HttpStatus.UNPROCESSABLE_ENTITY, "Domain Rule Violation", ex.getMessage(), req);
+  }
+
+  @ExceptionHandler(StateConflictException.class)
+  public ResponseEntity<ErrorResponse> stateConflict(StateConflictException ex, ServerHttpRequest req) {
+    return build(HttpStatus.CONFLICT, "Conflict", ex.getMessage(), req);
+  }
+
+  @ExceptionHandler(WebExchangeBindException.class)
+  public ResponseEntity<ErrorResponse> validation(WebExchangeBindException ex, ServerHttpRequest req) {
+    String msg = ex.getBindingResult().getFieldErrors().stream()
+      .map(ReactiveExceptionHandler::formatFieldError)
+      .collect(Collectors.joining("; "));
+    return build(HttpStatus.BAD_REQUEST, "Validation Error", msg, req);
+  }
+
+  @ExceptionHandler({ IllegalArgumentException.class, ServerWebInputException.class })
+  public ResponseEntity<ErrorResponse> badRequest(RuntimeException ex, ServerHttpRequest req) {
+    var message = ex instanceof ServerWebInputException in ? in.getReason() : ex.getMessage();
+    return build(HttpStatus.BAD_REQUEST, "Bad Request", message, req);
+  }
+
+  @ExceptionHandler(IdempotencyKeyMismatch.class)
+  public ResponseEntity<ErrorResponse> keyMismatch(IdempotencyKeyMismatch ex, ServerHttpRequest req) {
+    return build(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency Key Mismatch", ex.getMessage(), req);
+  }
+
+  @ExceptionHandler(IdempotencyInProgress.class)
+  public ResponseEntity<ErrorResponse> inProgress(IdempotencyInProgress ex, ServerHttpRequest req) {
+    var body = new ErrorResponse(Instant.now(), HttpStatus.CONFLICT.value(), "Conflict", ex.getMessage(),
+      req.getPath().value());
+    return ResponseEntity.status(HttpStatus.CONFLICT).header("Retry-After", "1").body(body);
+  }
+
+  @ExceptionHandler({ PreconditionFailed.class, VersionConflictException.class })
+  public ResponseEntity<ErrorResponse> precondition(RuntimeException ex, ServerHttpRequest req) {
+    return build(HttpStatus.PRECONDITION_FAILED, "Precondition Failed", ex.getMessage(), req);
+  }
+
+  // Rota inexistente, método ou mídia não suportados: o status já vem decidido pelo WebFlux.
+  @ExceptionHandler(ResponseStatusException.class)
+  public ResponseEntity<ErrorResponse> status(ResponseStatusException ex, ServerHttpRequest req) {
+    var status = HttpStatus.valueOf(ex.getStatusCode().value());
+    return build(status, status.getReasonPhrase(), ex.getReason(), req);
+  }
+
+  @ExceptionHandler(Exception.class)
+  public ResponseEntity<ErrorResponse> generic(Exception ex, ServerHttpRequest req) {
+    // max-acquire-time do r2dbc-pool estourado (TimeoutException embrulhada pelo Spring): sobrecarga, não erro.
+    for (Throwable t = ex; t != null; t = t.getCause()) {
+      if (t instanceof TimeoutException) {
+        var body = new ErrorResponse(Instant.now(), HttpStatus.SERVICE_UNAVAILABLE.value(), "Service Unavailable",
+          "No database connection available, retry later", req.getPath().value());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(body);
+      }
+    }
+    return build(HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error", "Unexpected error", req);
+  }
+
+  private static ResponseEntity<ErrorResponse> build(HttpStatus status, String error, String message,
+                                                     ServerHttpRequest req) {
+    var body = new ErrorResponse(Instant.now(), status.value(), error, message, req.getPath().value());
+    return ResponseEntity.status(status).body(body);
+  }
+
+  private static String formatFieldError(FieldError fe) {
+    return "%s: %s".formatted(fe.getField(), fe.getDefaultMessage());
+  }
+}
@@ -0,0 +1,118 @@
+package dev.roberto.devices.domain.webflux;
+
+import dev.roberto.devices.domain.port.IdempotencyStore;
+import dev.roberto.devices.domain.port.ReactiveIdempotencyStore;
+import dev.roberto.devices.domain.usecase.exception.NotFoundException;
+import dev.roberto.devices.domain.web.IdempotencyInProgress;
+import dev.roberto.devices.domain.web.IdempotencyKeyMismatch;
+import dev.roberto.devices.domain.web.ResponseSnapshot;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Mesmo protocolo do IdempotencyService servlet (reserva, criação, confirmação com a resposta
+ * guardada, retomada de reservas órfãs pelo mesmo id), sem bloquear: duplicatas no mesmo processo assinam o resultado da primeira.
+ */
+@Service
+class ReactiveIdempotencyService {
+
+  private static final Duration LEASE = Duration.ofSeconds(30);
+
+  record Outcome(ResponseSnapshot response, boolean replay) {
+  }
+
+  private record InFlight(String fingerprint, CompletableFuture<ResponseSnapshot> result) {
+  }
+
+  private final ReactiveIdempotencyStore store;
+  private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+  ReactiveIdempotencyService(ReactiveIdempotencyStore store) {
+    this.store = store;
+  }
+
+  Mono<Outcome> execute(String key, String fingerprint,
+                        Function<UUID, Mono<ResponseSnapshot>> create, Function<UUID, Mono<ResponseSnapshot>> rebuild) {
+    return Mono.defer(() -> {
+      var mine = new InFlight(fingerprint, new CompletableFuture<>());
+      var running = inFlight.putIfAbsent(key, mine);
+      if (running != null) {
+        requireSameRequest(running.fingerprint(), fingerprint);
+        // suppressCancel: um cliente desistindo não cancela a criação de outro.
+        return Mono.fromFuture(running.result(), true)
+          .timeout(LEASE, Mono.error(ReactiveIdempotencyService::inProgress))
+          .map(r -> new Outcome(r, true));
+      }
+      return reserveAndCreate(key, fingerprint, create, rebuild)
+        .doOnNext(outcome -> mine.result().complete(outcome.response()))
+        .doOnError(e -> mine.result().completeExceptionally(e))
+        .doFinally(signal -> {
+          // Cancelado no meio (cliente caiu): quem espera recebe 409 e tenta de novo.
+          mine.result().completeExceptionally(inProgress());
+          inFlight.remove(key, mine);
+        });
+    });
+  }
+
+  private Mono<Outcome> reserveAndCreate(String key, String fingerprint,
+                                         Function<UUID, Mono<ResponseSnapshot>> create,
+                                         Function<UUID, Mono<ResponseSnapshot>> rebuild) {
+    var proposed = UUID.randomUUID();
+    return store.reserve(key, proposed, fingerprint, Instant.now(), LEASE).flatMap(current -> {
+      if (!current.leased()) {
+        if (current.fingerprint() != null) requireSameRequest(current.fingerprint(), fingerprint);
+        if (current.completed()) return Mono.just(new Outcome(ResponseSnapshot.decode(current.response()), true));
+        if (current.fingerprint() == null) {
+          // Chave anterior ao snapshot de resposta: remonta a partir do recurso.
+          return existing(rebuild, current.resourceId())
+            .map(r -> new Outcome(r, true))
+            .switchIfEmpty(Mono.error(ReactiveIdempotencyService::inProgress));
+        }
+        return Mono.error(inProgress());
+      }
+      var id = current.resourceId();
+      if (id.equals(proposed)) {
+        return create.apply(id)
+          .onErrorResume(e -> store.release(key, id).then(Mono.error(e)))
+          .flatMap(response -> confirmed(key, id, response, false));
+      }
+      // Reserva órfã: o dono anterior pode ter criado o recurso e caído antes do confirm. Se não
+      // criou, cria com o mesmo id (a PK barra um dono anterior ainda vivo e mais rápido).
+      requireSameRequest(current.fingerprint(), fingerprint);
+      return existing(rebuild, id)
+        .flatMap(response -> confirmed(key, id, response, true))
+        .switchIfEmpty(Mono.defer(() -> create.apply(id)
+          .flatMap(response -> confirmed(key, id, response, false))
+          .onErrorResume(e -> existing(rebuild, id)
+            .flatMap(response -> confirmed(key, id, response, true))
+            .switchIfEmpty(Mono.defer(() -> store.release(key, id).then(Mono.error(e)))))));
+    });
+  }
+
+  private Mono<Outcome> confirmed(String key, UUID id, ResponseSnapshot response, boolean replay) {
+    return store.confirm(key, id, response.encode(), Instant.now(), IdempotencyStore.RETENTION)
+      .thenReturn(new Outcome(response, replay));
+  }
+
+  private static Mono<ResponseSnapshot> existing(Function<UUID, Mono<ResponseSnapshot>> rebuild, UUID id) {
+    return rebuild.apply(id).onErrorResume(NotFoundException.class, e -> Mono.empty());
+  }
+
+  private static void requireSameRequest(String original, String fingerprint) {
+    if (!original.equals(fingerprint)) {
+      throw new IdempotencyKeyMismatch("Idempotency-Key was already used with a different request payload");
+    }
+  }
+
+  private static IdempotencyInProgress inProgress() {
+    return new IdempotencyInProgress("Request with this Idempotency-Key is still in progress");
+  }
+}
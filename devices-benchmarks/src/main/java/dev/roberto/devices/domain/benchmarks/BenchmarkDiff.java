@@ -0,0 +1,67 @@
+package dev.roberto.devices.domain.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compara dois resultados JSON do JMH (ex.: release anterior × atual):
+ * <pre>
+ * java -cp devices-benchmarks/target/benchmarks.jar \
+ *   dev.roberto.devices.domain.benchmarks.BenchmarkDiff old.json new.json [limiar%]
+ * </pre>
+ * Sai com código 1 se algum benchmark piorou mais que o limiar (padrão 10%), para uso em CI.
+ * Todos os modos usados aqui são "menor é melhor" (tempo/op, bytes/op).
+ */
+public final class BenchmarkDiff {
+
+  private static final String ALLOC = "gc.alloc.rate.norm";
+
+  private BenchmarkDiff() {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("usage: BenchmarkDiff <baseline.json> <candidate.json> [threshold%]");
+      System.exit(2);
+    }
+    double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+    var base = load(new File(args[0]));
+    var cand = load(new File(args[1]));
+
+    boolean regressed = false;
+    System.out.printf(Locale.ROOT, "%-70s %14s %14s %9s%n", "benchmark", "baseline", "candidate", "delta");
+    for (var e : new TreeMap<>(cand).entrySet()) {
+      var before = base.get(e.getKey());
+      if (before == null) {
+        System.out.printf(Locale.ROOT, "%-70s %14s %14.3f %9s%n", e.getKey(), "-", e.getValue(), "new");
+        continue;
+      }
+      double delta = before == 0 ? 0 : (e.getValue() - before) / before * 100;
+      boolean worse = delta > threshold;
+      regressed |= worse;
+      System.out.printf(Locale.ROOT, "%-70s %14.3f %14.3f %+8.1f%%%s%n",
+        e.getKey(), before, e.getValue(), delta, worse ? "  <-- regression" : "");
+    }
+    if (regressed) System.exit(1);
+  }
+
+  // Chave: benchmark + params + métrica (score principal e bytes/op quando rodado com -prof gc).
+  static Map<String, Double> load(File file) throws IOException {
+    var out = new LinkedHashMap<String, Double>();
+    for (JsonNode run : new ObjectMapper().readTree(file)) {
+      var key = new StringBuilder(run.path("benchmark").asText().replaceFirst("^.*\\.benchmarks\\.", ""));
+      run.path("params").fields().forEachRemaining(p -> key.append(' ').append(p.getKey()).append('=').append(p.getValue().asText()));
+      var primary = run.path("primaryMetric");
+      out.put(key + " [" + primary.path("scoreUnit").asText() + "]", primary.path("score").asDouble());
+      var alloc = run.path("secondaryMetrics").path(ALLOC);
+      if (!alloc.isMissingNode()) out.put(key + " [B/op]", alloc.path("score").asDouble());
+    }
+    return out;
+  }
+}
@@ -0,0 +1,32 @@
+package dev.roberto.devices.domain.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ponto de entrada do benchmarks.jar: aceita as mesmas opções do JMH, mas grava o
+ * resultado em JSON ({@value #DEFAULT_RESULT}) quando -rf/-rff não são informados,
+ * para comparar versões com {@link BenchmarkDiff}.
+ */
+public final class BenchmarkMain {
+
+  static final String DEFAULT_RESULT = "jmh-result.json";
+
+  private BenchmarkMain() {}
+
+  public static void main(String[] args) throws Exception {
+    var cli = new CommandLineOptions(args);
+    if (cli.shouldHelp() || cli.shouldList() || cli.shouldListWithParams()
+      || cli.shouldListProfilers() || cli.shouldListResultFormats()) {
+      Main.main(args);
+      return;
+    }
+    var options = new OptionsBuilder().parent(cli);
+    if (!cli.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+    if (!cli.getResult().hasValue()) options.result(DEFAULT_RESULT);
+    new Runner(options.build()).run();
+  }
+}
@@ -0,0 +1,41 @@
+package dev.roberto.devices.domain.benchmarks;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.time.TimeProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Criação do agregado e cópias via with* (normalização de name/brand incluída). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeviceModelBenchmark {
+
+  private final TimeProvider time = () -> Fixtures.T0;
+  private Device device;
+
+  @Setup
+  public void setUp() {
+    device = Fixtures.devices(1).get(0);
+  }
+
+  @Benchmark
+  public Device create() {
+    return Device.create("  Workstation-0042 ", "Lenovo", null, time);
+  }
+
+  @Benchmark
+  public Device withName() {
+    return device.withName("Workstation-0043");
+  }
+
+  @Benchmark
+  public Device patchChain() {
+    return device.withName("Workstation-0043").withBrand("Dell").withState(DeviceState.INACTIVE);
+  }
+}
@@ -0,0 +1,87 @@
+package dev.roberto.devices.domain.benchmarks;
+
+import dev.roberto.devices.domain.inmemory.InMemoryDeviceRepository;
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.usecase.CountMode;
+import dev.roberto.devices.domain.usecase.CursorPage;
+import dev.roberto.devices.domain.usecase.DeviceService;
+import dev.roberto.devices.domain.usecase.PageResult;
+import dev.roberto.devices.domain.usecase.command.CreateDeviceCommand;
+import dev.roberto.devices.domain.usecase.command.UpdateDevicePatchCommand;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operações do DeviceService sobre {@link InMemoryDeviceRepository}, o mesmo adapter do
+ * perfil inmemory: sem I/O, o que sobra é custo do use case e dos índices. O estado é recriado
+ * a cada iteração para que create/patch não façam a base crescer entre medições.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeviceServiceBenchmark {
+
+  @Param({ "10000" })
+  public int rows;
+
+  private InMemoryDeviceRepository repo;
+  private DeviceService service;
+  private List<Device> seed;
+  private UUID hot;
+  private boolean flip;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    repo = new InMemoryDeviceRepository();
+    seed = Fixtures.devices(rows);
+    seed.forEach(repo::save);
+    service = new DeviceService(repo, Instant::now);
+    hot = seed.stream().filter(d -> d.state() != DeviceState.IN_USE).findFirst().orElseThrow().id();
+  }
+
+  @Benchmark
+  public Device get() {
+    return service.get(hot);
+  }
+
+  @Benchmark
+  public Device create() {
+    return service.create(new CreateDeviceCommand("Bench", "Lenovo", null));
+  }
+
+  @Benchmark
+  public Device patch() {
+    flip = !flip;
+    return service.updatePatch(new UpdateDevicePatchCommand(
+      hot, Optional.of(flip ? "Hot-A" : "Hot-B"), Optional.empty(), Optional.empty()));
+  }
+
+  @Benchmark
+  public PageResult<Device> listPagedExact() {
+    return service.listPaged(Optional.of("Dell"), Optional.empty(), 10, 20, CountMode.EXACT);
+  }
+
+  @Benchmark
+  public PageResult<Device> listPagedNoCount() {
+    return service.listPaged(Optional.of("Dell"), Optional.empty(), 10, 20, CountMode.NONE);
+  }
+
+  @Benchmark
+  public CursorPage<Device> listAfter() {
+    return service.listAfter(Optional.of("Dell"), Optional.empty(), Optional.empty(), 20);
+  }
+
+  @Benchmark
+  public long countByBrandAndState() {
+    return repo.countByBrandAndState("Dell", DeviceState.AVAILABLE);
+  }
+}
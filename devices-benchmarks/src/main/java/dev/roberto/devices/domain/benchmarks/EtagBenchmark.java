@@ -0,0 +1,68 @@
+package dev.roberto.devices.domain.benchmarks;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.web.ContentHashEtagStrategy;
+import dev.roberto.devices.domain.web.EtagStrategy;
+import dev.roberto.devices.domain.web.Sha256EtagStrategy;
+import dev.roberto.devices.domain.web.VersionEtagStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo por chamada de cada {@link EtagStrategy} contra o cálculo original
+ * (concatenação + MessageDigest.getInstance a cada chamada).
+ * <pre>
+ * java -jar devices-benchmarks/target/benchmarks.jar EtagBenchmark -prof gc
+ * </pre>
+ * Com {@code -prof gc}, compare {@code gc.alloc.rate.norm} (bytes/op).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EtagBenchmark {
+
+  private final EtagStrategy version = new VersionEtagStrategy();
+  private final EtagStrategy hash = new ContentHashEtagStrategy();
+  private final EtagStrategy sha256 = new Sha256EtagStrategy();
+
+  private Device device;
+
+  @Setup
+  public void setUp() {
+    device = new Device(UUID.randomUUID(), "Workstation-0042", "Lenovo",
+      DeviceState.AVAILABLE, Instant.parse("2025-01-01T10:15:30.123456Z"), 42);
+  }
+
+  @Benchmark
+  public String legacySha256() throws Exception {
+    var raw = (device.id() + "|" + device.name() + "|" + device.brand() + "|" + device.state() + "|" + device.creationTime())
+      .getBytes(StandardCharsets.UTF_8);
+    var digest = MessageDigest.getInstance("SHA-256").digest(raw);
+    return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+  }
+
+  @Benchmark
+  public String sha256() {
+    return sha256.etagFor(device);
+  }
+
+  @Benchmark
+  public String contentHash() {
+    return hash.etagFor(device);
+  }
+
+  @Benchmark
+  public String version() {
+    return version.etagFor(device);
+  }
+}
@@ -0,0 +1,34 @@
+package dev.roberto.devices.domain.benchmarks;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceState;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/** Dados determinísticos (semente fixa) para que execuções diferentes meçam a mesma coisa. */
+final class Fixtures {
+  private Fixtures() {}
+
+  static final String[] BRANDS = { "Lenovo", "Dell", "HP", "Apple", "Samsung", "Acer", "Asus", "Microsoft" };
+  static final Instant T0 = Instant.parse("2025-01-01T00:00:00Z");
+
+  static List<Device> devices(int n) {
+    var rnd = new Random(42);
+    var states = DeviceState.values();
+    var out = new ArrayList<Device>(n);
+    for (int i = 0; i < n; i++) {
+      out.add(new Device(
+        new UUID(rnd.nextLong(), rnd.nextLong()),
+        "Device-" + i,
+        BRANDS[i % BRANDS.length],
+        states[rnd.nextInt(states.length)],
+        T0.plusMillis(i * 1_000L + rnd.nextInt(1_000)),
+        rnd.nextInt(5)));
+    }
+    return out;
+  }
+}
@@ -0,0 +1,155 @@
+package dev.roberto.devices.domain.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * Carga HTTP fechada contra uma instância já no ar: N clientes concorrentes, cada um
+ * repetindo a requisição assim que recebe a resposta. Serve para comparar o servidor com
+ * e sem virtual threads (VIRTUAL_THREADS=true|false) nos mesmos cenários:
+ * <pre>
+ * java -cp devices-benchmarks/target/benchmarks.jar dev.roberto.devices.domain.benchmarks.HttpLoadDriver \
+ *   http://localhost:8080 get 1000 30
+ * </pre>
+ * Cenários: get (GET /devices/{id} de um device criado no início) e post (POST /devices).
+ * Os clientes rodam em virtual threads para que o gerador não seja o gargalo.
+ */
+public final class HttpLoadDriver {
+
+  private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*\"([0-9a-f-]{36})\"");
+  private static final String BODY = "{\"name\":\"Load\",\"brand\":\"Bench\"}";
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 4) {
+      System.err.println("usage: HttpLoadDriver <baseUrl> <get|post> <concurrency> <seconds> [warmupSeconds]");
+      System.exit(2);
+    }
+    var base = URI.create(args[0].endsWith("/") ? args[0] : args[0] + "/");
+    var scenario = args[1];
+    int concurrency = Integer.parseInt(args[2]);
+    var duration = Duration.ofSeconds(Long.parseLong(args[3]));
+    var warmup = Duration.ofSeconds(args.length > 4 ? Long.parseLong(args[4]) : 5);
+
+    try (var client = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .connectTimeout(Duration.ofSeconds(10))
+      .executor(Executors.newVirtualThreadPerTaskExecutor())
+      .build()) {
+
+      var request = switch (scenario) {
+        case "get" -> HttpRequest.newBuilder(base.resolve("devices/" + seedDevice(client, base))).GET().build();
+        case "post" -> post(base);
+        default -> throw new IllegalArgumentException("unknown scenario " + scenario);
+      };
+
+      System.out.printf("%s %s, %d clients, warmup %ds%n", scenario, request.uri(), concurrency, warmup.toSeconds());
+      run(client, request, concurrency, warmup);
+      var result = run(client, request, concurrency, duration);
+      result.print(duration);
+    }
+  }
+
+  private static String seedDevice(HttpClient client, URI base) throws Exception {
+    var res = client.send(post(base), HttpResponse.BodyHandlers.ofString());
+    var m = ID.matcher(res.body());
+    if (res.statusCode() != 201 || !m.find()) throw new IllegalStateException("seed failed: " + res.statusCode());
+    return m.group(1);
+  }
+
+  private static HttpRequest post(URI base) {
+    return HttpRequest.newBuilder(base.resolve("devices"))
+      .header("Content-Type", "application/json")
+      .POST(HttpRequest.BodyPublishers.ofString(BODY))
+      .build();
+  }
+
+  private static Result run(HttpClient client, HttpRequest request, int concurrency, Duration duration)
+    throws InterruptedException {
+    long deadline = System.nanoTime() + duration.toNanos();
+    var workers = new ArrayList<Worker>(concurrency);
+    var threads = new ArrayList<Thread>(concurrency);
+    for (int i = 0; i < concurrency; i++) {
+      var w = new Worker(client, request, deadline);
+      workers.add(w);
+      threads.add(Thread.ofVirtual().start(w));
+    }
+    for (var t : threads) t.join();
+    return Result.merge(workers);
+  }
+
+  private static final class Worker implements Runnable {
+    private final HttpClient client;
+    private final HttpRequest request;
+    private final long deadline;
+    private long[] latencies = new long[1024];
+    private int count;
+    private final Map<Integer, Integer> statuses = new TreeMap<>();
+    private int failures;
+
+    Worker(HttpClient client, HttpRequest request, long deadline) {
+      this.client = client;
+      this.request = request;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public void run() {
+      while (System.nanoTime() < deadline) {
+        long start = System.nanoTime();
+        try {
+          var res = client.send(request, HttpResponse.BodyHandlers.discarding());
+          statuses.merge(res.statusCode(), 1, Integer::sum);
+        } catch (Exception e) {
+          if (e instanceof InterruptedException) return;
+          failures++;
+          continue;
+        }
+        if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+        latencies[count++] = System.nanoTime() - start;
+      }
+    }
+  }
+
+  private record Result(long[] latencies, Map<Integer, Integer> statuses, int failures) {
+
+    static Result merge(List<Worker> workers) {
+      int total = workers.stream().mapToInt(w -> w.count).sum();
+      var all = new long[total];
+      int pos = 0;
+      var statuses = new TreeMap<Integer, Integer>();
+      int failures = 0;
+      for (var w : workers) {
+        System.arraycopy(w.latencies, 0, all, pos, w.count);
+        pos += w.count;
+        w.statuses.forEach((k, v) -> statuses.merge(k, v, Integer::sum));
+        failures += w.failures;
+      }
+      Arrays.sort(all);
+      return new Result(all, statuses, failures);
+    }
+
+    void print(Duration duration) {
+      double seconds = duration.toMillis() / 1000.0;
+      System.out.printf("requests %d (%.0f req/s), connection failures %d, statuses %s%n",
+        latencies.length, latencies.length / seconds, failures, statuses);
+      if (latencies.length == 0) return;
+      System.out.printf("latency ms: p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+        pct(0.50), pct(0.90), pct(0.99), pct(0.999), latencies[latencies.length - 1] / 1e6);
+    }
+
+    private double pct(double p) {
+      int i = (int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1);
+      return latencies[Math.max(0, i)] / 1e6;
+    }
+  }
+}
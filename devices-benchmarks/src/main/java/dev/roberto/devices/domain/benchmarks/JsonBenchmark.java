@@ -0,0 +1,60 @@
+package dev.roberto.devices.domain.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.roberto.devices.domain.web.DeviceMapper;
+import dev.roberto.devices.domain.web.dto.DeviceResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialização de uma página de GET /devices. O ObjectMapper segue os defaults do
+ * Spring Boot (módulos registrados, datas ISO-8601).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+  @Param({ "20", "200" })
+  public int pageSize;
+
+  private ObjectWriter writer;
+  private List<DeviceResponse> page;
+  private OutputStream sink;
+
+  @Setup
+  public void setUp(Blackhole bh) {
+    var mapper = JsonMapper.builder()
+      .findAndAddModules()
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+      .build();
+    writer = mapper.writerFor(new TypeReference<List<DeviceResponse>>() {});
+    page = Fixtures.devices(pageSize).stream().map(DeviceMapper::toResponse).toList();
+    // Descarta os bytes: mede só o gerador, sem o buffer de saída.
+    sink = new OutputStream() {
+      @Override public void write(int b) { bh.consume(b); }
+      @Override public void write(byte[] b, int off, int len) { bh.consume(len); }
+    };
+  }
+
+  @Benchmark
+  public byte[] toBytes() throws IOException {
+    return writer.writeValueAsBytes(page);
+  }
+
+  @Benchmark
+  public void toStream() throws IOException {
+    writer.writeValue(sink, page);
+  }
+}
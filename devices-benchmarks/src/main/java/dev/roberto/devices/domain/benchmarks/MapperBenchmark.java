@@ -0,0 +1,52 @@
+package dev.roberto.devices.domain.benchmarks;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.persistence.entity.DeviceEntity;
+import dev.roberto.devices.domain.persistence.mapper.BrandLookup;
+import dev.roberto.devices.domain.persistence.mapper.DeviceJpaMapper;
+import dev.roberto.devices.domain.web.DeviceMapper;
+import dev.roberto.devices.domain.web.dto.DeviceResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Conversões por linha: entidade JPA ⇄ domínio e domínio → DTO de resposta. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+  private Device device;
+  private DeviceEntity entity;
+  // Dicionário já aquecido: o custo medido é o do acerto no cache, o caso comum.
+  private BrandLookup brands;
+
+  @Setup
+  public void setUp() {
+    device = Fixtures.devices(1).get(0);
+    var brand = device.brand();
+    brands = new BrandLookup() {
+      @Override public int idOf(String name) { return 1; }
+      @Override public String nameOf(int id) { return brand; }
+    };
+    entity = DeviceJpaMapper.toEntity(device, brands);
+  }
+
+  @Benchmark
+  public DeviceEntity jpaToEntity() {
+    return DeviceJpaMapper.toEntity(device, brands);
+  }
+
+  @Benchmark
+  public Device jpaToDomain() {
+    return DeviceJpaMapper.toDomain(entity, brands);
+  }
+
+  @Benchmark
+  public DeviceResponse toResponse() {
+    return DeviceMapper.toResponse(device);
+  }
+}
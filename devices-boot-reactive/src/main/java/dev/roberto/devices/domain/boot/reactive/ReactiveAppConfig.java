@@ -0,0 +1,76 @@
+package dev.roberto.devices.domain.boot.reactive;
+
+import dev.roberto.devices.domain.port.ReactiveDeviceRepository;
+import dev.roberto.devices.domain.port.ReactiveIdempotencyStore;
+import dev.roberto.devices.domain.r2dbc.R2dbcDeviceRepository;
+import dev.roberto.devices.domain.r2dbc.R2dbcIdempotencyStore;
+import dev.roberto.devices.domain.time.TimeProvider;
+import dev.roberto.devices.domain.usecase.ReactiveDeviceService;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.info.Info;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+@Configuration
+@EnableScheduling
+public class ReactiveAppConfig {
+
+  @Bean
+  TimeProvider timeProvider() {
+    return Instant::now;
+  }
+
+  @Bean
+  ReactiveDeviceRepository reactiveDeviceRepository(DatabaseClient db) {
+    return new R2dbcDeviceRepository(db);
+  }
+
+  @Bean
+  ReactiveIdempotencyStore reactiveIdempotencyStore(DatabaseClient db) {
+    return new R2dbcIdempotencyStore(db);
+  }
+
+  @Bean
+  ReactiveDeviceService reactiveDeviceService(ReactiveDeviceRepository repository, TimeProvider timeProvider,
+                                              @Value("${app.stats.max-age:30s}") Duration statsMaxAge) {
+    return new ReactiveDeviceService(repository, timeProvider, statsMaxAge);
+  }
+
+  @Bean
+  OpenAPI devicesOpenAPI() {
+    return new OpenAPI()
+      .info(new Info()
+        .title("Devices API (reactive)")
+        .version("0.1.0")
+        .description("API para gestão de dispositivos sobre WebFlux + R2DBC"));
+  }
+
+  // Mesma política de CORS da pilha servlet (CorsConfig).
+  @Bean
+  CorsWebFilter corsWebFilter(@Value("${app.cors.allowed-origins:}") String allowedOrigins) {
+    var config = new CorsConfiguration();
+    Arrays.stream(allowedOrigins.split(","))
+      .map(String::trim)
+      .filter(s -> !s.isEmpty())
+      .forEach(config::addAllowedOriginPattern);
+    config.setAllowedMethods(List.of("GET","POST","PUT","PATCH","DELETE","OPTIONS"));
+    config.setAllowedHeaders(List.of("*"));
+    config.setExposedHeaders(List.of("ETag","Location","X-Total-Count","X-Total-Count-Approximate","Idempotency-Replay","X-Next-Cursor","Link"));
+    config.setAllowCredentials(false);
+
+    var source = new UrlBasedCorsConfigurationSource();
+    source.registerCorsConfiguration("/**", config);
+    return new CorsWebFilter(source);
+  }
+}
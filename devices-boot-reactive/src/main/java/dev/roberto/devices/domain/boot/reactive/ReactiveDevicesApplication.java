@@ -0,0 +1,28 @@
+package dev.roberto.devices.domain.boot.reactive;
+
+import dev.roberto.devices.domain.web.EtagConfig;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+
+// Só o adapter WebFlux entra no scan; do módulo web servlet vêm apenas DTOs e a EtagConfig.
+// Sem DataSource: o JDBC existe só para o Flyway (spring.flyway.url) na subida.
+@SpringBootApplication(exclude = DataSourceAutoConfiguration.class)
+@ComponentScan(basePackages = {
+  "dev.roberto.devices.domain.boot.reactive",
+  "dev.roberto.devices.domain.webflux"
+}, excludeFilters = {
+  @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class),
+  @ComponentScan.Filter(type = FilterType.CUSTOM, classes = AutoConfigurationExcludeFilter.class)
+})
+@Import(EtagConfig.class)
+public class ReactiveDevicesApplication {
+  public static void main(String[] args) {
+    SpringApplication.run(ReactiveDevicesApplication.class, args);
+  }
+}
@@ -0,0 +1,74 @@
+package dev.roberto.devices.domain.boot.reactive;
+
+import dev.roberto.devices.domain.port.ReactiveIdempotencyStore;
+import dev.roberto.devices.domain.time.TimeProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Mesma rotina do IdempotencyPurger servlet (blocos de DELETE com pausa, métrica
+ * idempotency.purge.rows), encadeada sem bloquear a thread do agendador.
+ */
+@Component
+@ConditionalOnProperty(name = "app.idempotency.purge.enabled", havingValue = "true", matchIfMissing = true)
+class ReactiveIdempotencyPurger {
+
+  private static final Logger log = LoggerFactory.getLogger(ReactiveIdempotencyPurger.class);
+
+  private final ReactiveIdempotencyStore store;
+  private final TimeProvider time;
+  private final int batchSize;
+  private final Duration pause;
+  private final Counter purged;
+
+  ReactiveIdempotencyPurger(
+    ReactiveIdempotencyStore store,
+    TimeProvider time,
+    MeterRegistry registry,
+    @Value("${app.idempotency.purge.batch-size:1000}") int batchSize,
+    @Value("${app.idempotency.purge.pause:50ms}") Duration pause
+  ) {
+    if (batchSize <= 0) throw new IllegalArgumentException("app.idempotency.purge.batch-size must be > 0");
+    this.store = store;
+    this.time = time;
+    this.batchSize = batchSize;
+    this.pause = pause;
+    this.purged = Counter.builder("idempotency.purge.rows").register(registry);
+  }
+
+  // fixedDelay só conta depois do fim da rodada anterior: a rodada é bloqueada aqui até terminar.
+  @Scheduled(
+    initialDelayString = "${app.idempotency.purge.interval:PT1M}",
+    fixedDelayString = "${app.idempotency.purge.interval:PT1M}")
+  void run() {
+    try {
+      var total = purge().block();
+      if (total != null && total > 0) log.debug("Purged {} expired idempotency keys", total);
+    } catch (RuntimeException e) {
+      log.warn("Idempotency key purge failed", e);
+    }
+  }
+
+  /** Purga tudo que expirou até o início da rodada; emite o total removido. */
+  Mono<Long> purge() {
+    return purgeFrom(time.now(), 0);
+  }
+
+  private Mono<Long> purgeFrom(Instant now, long total) {
+    return store.purgeExpired(now, batchSize).flatMap(n -> {
+      purged.increment(n);
+      if (n < batchSize) return Mono.just(total + n);
+      return Mono.delay(pause).then(Mono.defer(() -> purgeFrom(now, total + n)));
+    });
+  }
+}
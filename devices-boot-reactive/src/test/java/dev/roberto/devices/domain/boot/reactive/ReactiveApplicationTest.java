@@ -0,0 +1,87 @@
+package dev.roberto.devices.domain.boot.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+// Pilha reativa inteira sobre H2 (R2DBC); Flyway desligado, o schema vem do schema-h2.sql do adapter R2DBC.
+@SpringBootTest(properties = {
+  "spring.r2dbc.url=r2dbc:h2:mem:///reactive-app;DB_CLOSE_DELAY=-1",
+  "spring.r2dbc.username=sa",
+  "spring.r2dbc.password=",
+  "spring.flyway.enabled=false",
+  "spring.sql.init.mode=always",
+  "spring.sql.init.schema-locations=classpath:schema-h2.sql",
+  "app.idempotency.purge.enabled=false"
+})
+@AutoConfigureWebTestClient
+class ReactiveApplicationTest {
+
+  @Autowired
+  WebTestClient client;
+
+  @Test
+  void shouldCreateReadAndRevalidate() {
+    var created = client.post().uri("/devices").contentType(MediaType.APPLICATION_JSON)
+      .bodyValue("{\"name\":\"RX-01\",\"brand\":\"Lenovo\"}")
+      .exchange()
+      .expectStatus().isCreated()
+      .expectHeader().exists("ETag")
+      .returnResult(Void.class);
+    var location = created.getResponseHeaders().getLocation().toString();
+    var etag = created.getResponseHeaders().getETag();
+
+    client.get().uri(location).exchange()
+      .expectStatus().isOk()
+      .expectHeader().valueEquals("ETag", etag)
+      .expectBody().jsonPath("$.name").isEqualTo("RX-01");
+
+    client.get().uri(location).header("If-None-Match", etag).exchange()
+      .expectStatus().isNotModified();
+
+    client.get().uri("/devices?brand=Lenovo").exchange()
+      .expectStatus().isOk()
+      .expectHeader().valueEquals("X-Total-Count", "1")
+      .expectBody().jsonPath("$[0].name").isEqualTo("RX-01");
+
+    client.put().uri(location).header("If-Match", "\"99\"").contentType(MediaType.APPLICATION_JSON)
+      .bodyValue("{\"name\":\"RX-02\",\"brand\":\"Lenovo\"}")
+      .exchange()
+      .expectStatus().isEqualTo(412);
+
+    client.delete().uri(location).header("If-Match", etag).exchange()
+      .expectStatus().isNoContent();
+    client.get().uri(location).exchange()
+      .expectStatus().isNotFound();
+  }
+
+  @Test
+  void idempotentCreate_shouldReplayStoredResponseAndRejectOtherPayload() {
+    var body = "{\"name\":\"RX-03\",\"brand\":\"Dell\"}";
+    var first = client.post().uri("/devices").header("Idempotency-Key", "rk-1")
+      .contentType(MediaType.APPLICATION_JSON).bodyValue(body)
+      .exchange()
+      .expectStatus().isCreated()
+      .expectBody().returnResult();
+
+    var replay = client.post().uri("/devices").header("Idempotency-Key", "rk-1")
+      .contentType(MediaType.APPLICATION_JSON).bodyValue(body)
+      .exchange()
+      .expectStatus().isCreated()
+      .expectHeader().valueEquals("Idempotency-Replay", "true")
+      .expectHeader().valueEquals("Location", first.getResponseHeaders().getFirst("Location"))
+      .expectHeader().valueEquals("ETag", first.getResponseHeaders().getFirst("ETag"))
+      .expectBody().returnResult();
+    assertArrayEquals(first.getResponseBody(), replay.getResponseBody());
+
+    client.post().uri("/devices").header("Idempotency-Key", "rk-1")
+      .contentType(MediaType.APPLICATION_JSON).bodyValue("{\"name\":\"RX-04\",\"brand\":\"Dell\"}")
+      .exchange()
+      .expectStatus().isEqualTo(422);
+  }
+}
@@ -0,0 +1,152 @@
+package dev.roberto.devices.domain.boot;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Access log fora da thread da requisição: o filtro só decide a amostragem e enfileira
+ * no AccessLogRing; uma thread própria formata o JSON e escreve no logger "access".
+ * Erros (status >= 400) e requisições lentas são sempre mantidos; as demais entram com
+ * probabilidade sample-rate. Fila cheia descarta o evento e conta em access.log.dropped.
+ */
+@Component
+@ConditionalOnProperty(name = "app.access-log.enabled", havingValue = "true", matchIfMissing = true)
+class AccessLog implements AutoCloseable {
+
+  record Event(long epochMillis, String method, String path, String route, int status, long durationNanos) { }
+
+  private static final Logger accessLogger = LoggerFactory.getLogger("access");
+  private static final long IDLE_PARK_NANOS = 1_000_000;
+
+  private final AccessLogRing<Event> ring;
+  private final double sampleRate;
+  private final long slowNanos;
+  private final Consumer<String> sink;
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder sampledOut = new LongAdder();
+  private final LongAdder written = new LongAdder();
+  private final Thread writer;
+  private volatile boolean running = true;
+
+  @Autowired
+  AccessLog(
+    MeterRegistry registry,
+    @Value("${app.access-log.buffer-size:8192}") int bufferSize,
+    @Value("${app.access-log.sample-rate:1.0}") double sampleRate,
+    @Value("${app.access-log.slow-threshold:500ms}") Duration slowThreshold
+  ) {
+    this(bufferSize, sampleRate, slowThreshold, accessLogger::info);
+    FunctionCounter.builder("access.log.dropped", dropped, LongAdder::sum).register(registry);
+    FunctionCounter.builder("access.log.sampled.out", sampledOut, LongAdder::sum).register(registry);
+    FunctionCounter.builder("access.log.written", written, LongAdder::sum).register(registry);
+    Gauge.builder("access.log.backlog", ring, AccessLogRing::size).register(registry);
+  }
+
+  AccessLog(int bufferSize, double sampleRate, Duration slowThreshold, Consumer<String> sink) {
+    if (sampleRate < 0 || sampleRate > 1) throw new IllegalArgumentException("app.access-log.sample-rate must be in [0, 1]");
+    this.ring = new AccessLogRing<>(bufferSize);
+    this.sampleRate = sampleRate;
+    this.slowNanos = slowThreshold.toNanos();
+    this.sink = sink;
+    // Thread de plataforma: o appender pode bloquear em I/O sem segurar carrier threads
+    this.writer = Thread.ofPlatform().name("access-log-writer").daemon().start(this::drainLoop);
+  }
+
+  /** Chamado na thread da requisição: sem I/O, sem alocação quando a amostragem descarta. */
+  void record(String method, String path, String route, int status, long durationNanos) {
+    boolean keep = status >= 400
+      || durationNanos >= slowNanos
+      || sampleRate >= 1.0
+      || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    if (!keep) {
+      sampledOut.increment();
+      return;
+    }
+    var event = new Event(System.currentTimeMillis(), method, path, route, status, durationNanos);
+    if (!ring.offer(event)) dropped.increment();
+  }
+
+  long dropped() {
+    return dropped.sum();
+  }
+
+  long sampledOut() {
+    return sampledOut.sum();
+  }
+
+  private void drainLoop() {
+    while (running) {
+      if (!drain()) LockSupport.parkNanos(IDLE_PARK_NANOS);
+    }
+    drain();
+  }
+
+  private boolean drain() {
+    boolean any = false;
+    for (Event e; (e = ring.poll()) != null; ) {
+      any = true;
+      try {
+        sink.accept(toJson(e));
+        written.increment();
+      } catch (RuntimeException ex) {
+        dropped.increment();
+      }
+    }
+    return any;
+  }
+
+  /** Para a thread depois de escrever o que já estava na fila. */
+  @Override
+  public void close() throws InterruptedException {
+    running = false;
+    LockSupport.unpark(writer);
+    writer.join(Duration.ofSeconds(5));
+  }
+
+  static String toJson(Event e) {
+    var sb = new StringBuilder(160)
+      .append("{\"ts\":\"").append(Instant.ofEpochMilli(e.epochMillis())).append('"')
+      .append(",\"method\":");
+    quote(sb, e.method());
+    sb.append(",\"path\":");
+    quote(sb, e.path());
+    if (e.route() != null) {
+      sb.append(",\"route\":");
+      quote(sb, e.route());
+    }
+    return sb.append(",\"status\":").append(e.status())
+      .append(",\"duration_ns\":").append(e.durationNanos())
+      .append('}')
+      .toString();
+  }
+
+  private static void quote(StringBuilder sb, String s) {
+    sb.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '"' -> sb.append("\\\"");
+        case '\\' -> sb.append("\\\\");
+        default -> {
+          if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+          else sb.append(c);
+        }
+      }
+    }
+    sb.append('"');
+  }
+}
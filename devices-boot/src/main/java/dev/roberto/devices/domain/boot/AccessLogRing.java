@@ -0,0 +1,56 @@
+package dev.roberto.devices.domain.boot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fila circular limitada, vários produtores e um consumidor, sem locks.
+ * O produtor reserva a posição com CAS no tail e publica o item com lazySet; o consumidor
+ * só avança o head depois de limpar o slot, então um slot reservado está sempre livre.
+ * Cheia, offer devolve false na hora: quem chama nunca espera.
+ */
+final class AccessLogRing<T> {
+
+  private final AtomicReferenceArray<T> slots;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong();
+
+  AccessLogRing(int capacity) {
+    if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("capacity must be a power of two >= 2");
+    }
+    this.slots = new AtomicReferenceArray<>(capacity);
+    this.mask = capacity - 1;
+  }
+
+  boolean offer(T item) {
+    while (true) {
+      long t = tail.get();
+      if (t - head.get() >= slots.length()) return false;
+      if (tail.compareAndSet(t, t + 1)) {
+        slots.lazySet((int) (t & mask), item);
+        return true;
+      }
+    }
+  }
+
+  /** Só a thread consumidora chama. Null: vazia, ou o próximo produtor ainda não publicou. */
+  T poll() {
+    long h = head.get();
+    int i = (int) (h & mask);
+    T item = slots.get(i);
+    if (item == null) return null;
+    slots.lazySet(i, null);
+    head.lazySet(h + 1);
+    return item;
+  }
+
+  int size() {
+    return (int) Math.max(0, tail.get() - head.get());
+  }
+
+  int capacity() {
+    return slots.length();
+  }
+}
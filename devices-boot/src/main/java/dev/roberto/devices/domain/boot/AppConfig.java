@@ -3,12 +3,16 @@ package dev.roberto.devices.domain.boot;
 import dev.roberto.devices.domain.port.DeviceRepository;
 import dev.roberto.devices.domain.time.TimeProvider;
 import dev.roberto.devices.domain.usecase.DeviceService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.time.Duration;
 import java.time.Instant;
 
 @Configuration
+@EnableScheduling
 public class AppConfig {
 
   @Bean
@@ -17,7 +21,8 @@ public class AppConfig {
   }
 
   @Bean
-  DeviceService deviceService(DeviceRepository repository, TimeProvider timeProvider) {
-    return new DeviceService(repository, timeProvider);
+  DeviceService deviceService(DeviceRepository repository, TimeProvider timeProvider,
+                              @Value("${app.stats.max-age:30s}") Duration statsMaxAge) {
+    return new DeviceService(repository, timeProvider, statsMaxAge);
   }
 }
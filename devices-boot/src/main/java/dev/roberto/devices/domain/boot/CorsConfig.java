@@ -27,7 +27,7 @@ public class CorsConfig {
     }
     config.setAllowedMethods(List.of("GET","POST","PUT","PATCH","DELETE","OPTIONS"));
     config.setAllowedHeaders(List.of("*"));
-    config.setExposedHeaders(List.of("ETag","Location","X-Total-Count","Idempotency-Replay"));
+    config.setExposedHeaders(List.of("ETag","Location","X-Total-Count","X-Total-Count-Approximate","Idempotency-Replay","X-Next-Cursor","Link"));
     config.setAllowCredentials(false);
 
     UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,78 @@
+package dev.roberto.devices.domain.boot;
+
+import dev.roberto.devices.domain.port.DeviceChangeLog;
+import dev.roberto.devices.domain.time.TimeProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Expurga do outbox device_changes o que passou da retenção, nos mesmos blocos com pausa do
+ * IdempotencyPurger. Um cliente com Last-Event-ID mais antigo que isso recebe o evento reset.
+ * Métrica: device.changes.purge.rows.
+ */
+@Component
+@ConditionalOnProperty(name = "app.changes.purge.enabled", havingValue = "true", matchIfMissing = true)
+class DeviceChangePurger {
+
+  private static final Logger log = LoggerFactory.getLogger(DeviceChangePurger.class);
+
+  private final DeviceChangeLog changes;
+  private final TimeProvider time;
+  private final Duration retention;
+  private final int batchSize;
+  private final Duration pause;
+  private final Counter purged;
+
+  DeviceChangePurger(
+    DeviceChangeLog changes,
+    TimeProvider time,
+    MeterRegistry registry,
+    @Value("${app.changes.retention:24h}") Duration retention,
+    @Value("${app.changes.purge.batch-size:1000}") int batchSize,
+    @Value("${app.changes.purge.pause:50ms}") Duration pause
+  ) {
+    if (batchSize <= 0) throw new IllegalArgumentException("app.changes.purge.batch-size must be > 0");
+    this.changes = changes;
+    this.time = time;
+    this.retention = retention;
+    this.batchSize = batchSize;
+    this.pause = pause;
+    this.purged = Counter.builder("device.changes.purge.rows").register(registry);
+  }
+
+  @Scheduled(
+    initialDelayString = "${app.changes.purge.interval:PT5M}",
+    fixedDelayString = "${app.changes.purge.interval:PT5M}")
+  void run() {
+    try {
+      purge();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      log.warn("Device change purge failed", e);
+    }
+  }
+
+  /** Remove tudo gravado antes de (início da rodada - retenção), menos a mudança mais recente; devolve o total removido. */
+  long purge() throws InterruptedException {
+    var cutoff = time.now().minus(retention);
+    long total = 0;
+    int n;
+    do {
+      n = changes.purgeBefore(cutoff, batchSize);
+      total += n;
+      purged.increment(n);
+      if (n == batchSize && !pause.isZero()) Thread.sleep(pause);
+    } while (n == batchSize);
+    if (total > 0) log.debug("Purged {} device changes older than {}", total, cutoff);
+    return total;
+  }
+}
@@ -1,13 +1,20 @@
 package dev.roberto.devices.domain.boot;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.boot.autoconfigure.domain.EntityScan;
-import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
 
-@SpringBootApplication(scanBasePackages = "dev.roberto.devices")
-@EntityScan("dev.roberto.devices.domain.persistence.entity")
-@EnableJpaRepositories("dev.roberto.devices.domain.persistence.repository")
+// Os adapters de persistência ficam fora do scan: JpaAdapterConfig ou InMemoryAdapterConfig
+// liga um deles conforme o perfil ativo.
+@SpringBootApplication
+@ComponentScan(basePackages = "dev.roberto.devices", excludeFilters = {
+  @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class),
+  @ComponentScan.Filter(type = FilterType.CUSTOM, classes = AutoConfigurationExcludeFilter.class),
+  @ComponentScan.Filter(type = FilterType.REGEX, pattern = "dev\\.roberto\\.devices\\.domain\\.(persistence|inmemory)\\..*")
+})
 public class DevicesApplication {
   public static void main(String[] args) {
     SpringApplication.run(DevicesApplication.class, args);
@@ -0,0 +1,46 @@
+package dev.roberto.devices.domain.boot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Contadores dos desfechos que o http.server.requests não separa: replays idempotentes
+ * (Idempotency-Replay: true), 304 e 412, com tags method e uri (o padrão da rota).
+ */
+@Component
+public class HttpOutcomeMetricsFilter extends OncePerRequestFilter {
+
+  private final MeterRegistry registry;
+
+  public HttpOutcomeMetricsFilter(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+    throws ServletException, IOException {
+    filterChain.doFilter(request, response);
+
+    String name;
+    if ("true".equals(response.getHeader("Idempotency-Replay"))) name = "http.idempotency.replays";
+    else if (response.getStatus() == 304) name = "http.not.modified";
+    else if (response.getStatus() == 412) name = "http.precondition.failed";
+    else return;
+
+    var uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    Counter.builder(name)
+      .tag("method", request.getMethod())
+      .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+      .register(registry)
+      .increment();
+  }
+}
@@ -0,0 +1,88 @@
+package dev.roberto.devices.domain.boot;
+
+import dev.roberto.devices.domain.port.IdempotencyStore;
+import dev.roberto.devices.domain.time.TimeProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remove chaves de idempotência expiradas em blocos pequenos, com pausa entre eles:
+ * cada bloco é um DELETE curto pelo índice de expires_at, sem carregar linhas no heap
+ * e sem segurar locks por muito tempo.
+ * Métricas: idempotency.purge.rows (linhas removidas) e idempotency.purge.lag
+ * (idade da chave expirada mais antiga ainda presente; 0 quando o purger está em dia).
+ */
+@Component
+@ConditionalOnProperty(name = "app.idempotency.purge.enabled", havingValue = "true", matchIfMissing = true)
+class IdempotencyPurger {
+
+  private static final Logger log = LoggerFactory.getLogger(IdempotencyPurger.class);
+
+  private final IdempotencyStore store;
+  private final TimeProvider time;
+  private final int batchSize;
+  private final Duration pause;
+  private final Counter purged;
+  private final AtomicLong lagMillis = new AtomicLong();
+
+  IdempotencyPurger(
+    IdempotencyStore store,
+    TimeProvider time,
+    MeterRegistry registry,
+    @Value("${app.idempotency.purge.batch-size:1000}") int batchSize,
+    @Value("${app.idempotency.purge.pause:50ms}") Duration pause
+  ) {
+    if (batchSize <= 0) throw new IllegalArgumentException("app.idempotency.purge.batch-size must be > 0");
+    this.store = store;
+    this.time = time;
+    this.batchSize = batchSize;
+    this.pause = pause;
+    this.purged = Counter.builder("idempotency.purge.rows").register(registry);
+    TimeGauge.builder("idempotency.purge.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get).register(registry);
+  }
+
+  @Scheduled(
+    initialDelayString = "${app.idempotency.purge.interval:PT1M}",
+    fixedDelayString = "${app.idempotency.purge.interval:PT1M}")
+  void run() {
+    try {
+      purge();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      log.warn("Idempotency key purge failed", e);
+    }
+  }
+
+  /** Purga tudo que expirou até o início da rodada; devolve o total removido. */
+  long purge() throws InterruptedException {
+    var now = time.now();
+    long total = 0;
+    int n;
+    do {
+      n = store.purgeExpired(now, batchSize);
+      total += n;
+      purged.increment(n);
+      if (n == batchSize && !pause.isZero()) Thread.sleep(pause);
+    } while (n == batchSize);
+
+    var end = time.now();
+    lagMillis.set(store.oldestExpiry()
+      .filter(o -> o.isBefore(end))
+      .map(o -> Duration.between(o, end).toMillis())
+      .orElse(0L));
+    if (total > 0) log.debug("Purged {} expired idempotency keys", total);
+    return total;
+  }
+}
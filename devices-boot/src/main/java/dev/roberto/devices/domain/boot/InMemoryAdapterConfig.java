@@ -0,0 +1,60 @@
+package dev.roberto.devices.domain.boot;
+
+import dev.roberto.devices.domain.inmemory.DeviceSnapshot;
+import dev.roberto.devices.domain.inmemory.DeviceSnapshotter;
+import dev.roberto.devices.domain.inmemory.InMemoryDeviceRepository;
+import dev.roberto.devices.domain.inmemory.InMemoryIdempotencyStore;
+import dev.roberto.devices.domain.port.DeviceChangeLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Perfil "inmemory": sem banco. Os devices vivem em memória e são restaurados da
+ * última fotografia no startup; ver application-inmemory.yml.
+ */
+@Configuration
+@Profile("inmemory")
+class InMemoryAdapterConfig {
+
+  @Bean
+  InMemoryDeviceRepository inMemoryDeviceRepository(
+    @Value("${app.inmemory.snapshot.enabled:true}") boolean snapshots,
+    @Value("${app.inmemory.snapshot.path}") Path path
+  ) throws IOException {
+    if (!snapshots) return new InMemoryDeviceRepository();
+    // Fotografia corrompida interrompe o startup em vez de subir vazio e sobrescrevê-la.
+    return DeviceSnapshot.read(path)
+      .map(InMemoryDeviceRepository::restore)
+      .orElseGet(InMemoryDeviceRepository::new);
+  }
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(name = "app.inmemory.snapshot.enabled", havingValue = "true", matchIfMissing = true)
+  DeviceSnapshotter deviceSnapshotter(
+    InMemoryDeviceRepository repository,
+    @Value("${app.inmemory.snapshot.path}") Path path,
+    @Value("${app.inmemory.snapshot.interval:30s}") Duration interval
+  ) {
+    var snapshotter = new DeviceSnapshotter(repository, path);
+    snapshotter.start(interval);
+    return snapshotter;
+  }
+
+  // Outbox do próprio repositório, gravado sob o mesmo lock das escritas.
+  @Bean
+  DeviceChangeLog deviceChangeLog(InMemoryDeviceRepository repository) {
+    return repository.changes();
+  }
+
+  @Bean
+  InMemoryIdempotencyStore inMemoryIdempotencyStore() {
+    return new InMemoryIdempotencyStore();
+  }
+}
@@ -0,0 +1,50 @@
+package dev.roberto.devices.domain.boot;
+
+import dev.roberto.devices.domain.persistence.adapter.JpaDeviceRepository;
+import dev.roberto.devices.domain.persistence.cache.CachingDeviceRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.time.Duration;
+
+/** Persistência padrão: Postgres via JPA/JDBC, com cache por id na frente. */
+@Configuration
+@Profile("!inmemory")
+@ComponentScan("dev.roberto.devices.domain.persistence.adapter")
+@EntityScan("dev.roberto.devices.domain.persistence.entity")
+@EnableJpaRepositories("dev.roberto.devices.domain.persistence.repository")
+class JpaAdapterConfig {
+
+  @Bean
+  @Primary
+  @ConditionalOnProperty(name = "app.cache.devices.enabled", havingValue = "true", matchIfMissing = true)
+  CachingDeviceRepository cachingDeviceRepository(
+    JpaDeviceRepository jpa,
+    @Value("${app.cache.devices.max-size:10000}") long maxSize,
+    @Value("${app.cache.devices.ttl:60s}") Duration ttl
+  ) {
+    return new CachingDeviceRepository(jpa, maxSize, ttl);
+  }
+
+  @Bean
+  @ConditionalOnBean(CachingDeviceRepository.class)
+  MeterBinder deviceCacheMetrics(CachingDeviceRepository cache) {
+    return registry -> {
+      FunctionCounter.builder("devices.cache.hits", cache, c -> c.stats().hitCount()).register(registry);
+      FunctionCounter.builder("devices.cache.misses", cache, c -> c.stats().missCount()).register(registry);
+      FunctionCounter.builder("devices.cache.evictions", cache, c -> c.stats().evictionCount()).register(registry);
+      Gauge.builder("devices.cache.size", cache, CachingDeviceRepository::estimatedSize).register(registry);
+    };
+  }
+}
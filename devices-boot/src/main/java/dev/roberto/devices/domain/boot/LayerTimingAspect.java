@@ -0,0 +1,73 @@
+package dev.roberto.devices.domain.boot;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer devices.layer por chamada ao DeviceService, ao DeviceRepository e ao IdempotencyStore,
+ * com tags layer, class, method e exception. O cache e o JPA são beans distintos, então o
+ * mesmo findById aparece duas vezes (CachingDeviceRepository e JpaDeviceRepository): a
+ * diferença entre eles é o tempo no banco. Histograma e limites em management.metrics.distribution.
+ */
+@Aspect
+@Component
+class LayerTimingAspect {
+
+  static final String METRIC = "devices.layer";
+
+  private final MeterRegistry registry;
+  // Evita o lookup no registry a cada chamada; a chave é finita (classe x método x exceção)
+  private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+  LayerTimingAspect(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Around("execution(public * dev.roberto.devices.domain.usecase.DeviceService.*(..))")
+  Object service(ProceedingJoinPoint pjp) throws Throwable {
+    return time("service", pjp);
+  }
+
+  @Around("execution(* dev.roberto.devices.domain.port.DeviceRepository.*(..))")
+  Object repository(ProceedingJoinPoint pjp) throws Throwable {
+    return time("repository", pjp);
+  }
+
+  @Around("execution(* dev.roberto.devices.domain.port.IdempotencyStore.*(..))")
+  Object idempotencyStore(ProceedingJoinPoint pjp) throws Throwable {
+    return time("idempotency", pjp);
+  }
+
+  private Object time(String layer, ProceedingJoinPoint pjp) throws Throwable {
+    long start = System.nanoTime();
+    String exception = "none";
+    try {
+      return pjp.proceed();
+    } catch (Throwable t) {
+      exception = t.getClass().getSimpleName();
+      throw t;
+    } finally {
+      timer(layer, pjp, exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private Timer timer(String layer, ProceedingJoinPoint pjp, String exception) {
+    var type = pjp.getTarget().getClass().getSimpleName();
+    var method = pjp.getSignature().getName();
+    return timers.computeIfAbsent(layer + '|' + type + '|' + method + '|' + exception, k ->
+      Timer.builder(METRIC)
+        .tag("layer", layer)
+        .tag("class", type)
+        .tag("method", method)
+        .tag("exception", exception)
+        .register(registry));
+  }
+}
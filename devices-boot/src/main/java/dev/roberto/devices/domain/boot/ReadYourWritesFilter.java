@@ -0,0 +1,71 @@
+package dev.roberto.devices.domain.boot;
+
+import dev.roberto.devices.domain.persistence.routing.ReadRouting;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Read-your-writes com réplicas: quem escreve recebe um cookie com o instante até o qual
+ * suas leituras ficam no primário. A janela cobre o atraso máximo aceito nas réplicas, então
+ * quando ela vence a escrita já está em qualquer réplica ainda no rodízio.
+ * O cookie sai antes da escrita (a resposta pode já estar enviada depois); uma escrita que
+ * falhou só custa alguns segundos de leituras no primário.
+ */
+class ReadYourWritesFilter extends OncePerRequestFilter {
+
+  static final String COOKIE = "devices-primary-until";
+
+  private final Duration window;
+
+  ReadYourWritesFilter(Duration window) {
+    this.window = window;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+    throws ServletException, IOException {
+    long now = System.currentTimeMillis();
+    boolean write = switch (request.getMethod()) {
+      case "POST", "PUT", "PATCH", "DELETE" -> true;
+      default -> false;
+    };
+    if (write) {
+      response.addHeader("Set-Cookie", ResponseCookie.from(COOKIE, Long.toString(now + window.toMillis()))
+        .path("/")
+        .maxAge(window)
+        .httpOnly(true)
+        .sameSite("Lax")
+        .build()
+        .toString());
+    }
+    ReadRouting.beginRequest(write || primaryUntil(request) > now);
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      ReadRouting.endRequest();
+    }
+  }
+
+  private static long primaryUntil(HttpServletRequest request) {
+    var cookies = request.getCookies();
+    if (cookies == null) return 0;
+    for (Cookie c : cookies) {
+      if (COOKIE.equals(c.getName())) {
+        try {
+          return Long.parseLong(c.getValue());
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,103 @@
+package dev.roberto.devices.domain.boot;
+
+import com.zaxxer.hikari.HikariDataSource;
+import dev.roberto.devices.domain.persistence.routing.ReplicaLagMonitor;
+import dev.roberto.devices.domain.persistence.routing.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+/**
+ * Réplicas de leitura (app.replicas.urls): o DataSource da aplicação passa a ser um roteador
+ * entre o primário (spring.datasource.*) e as réplicas, com mesmo usuário, senha e tamanho de pool.
+ * Flyway, escritas e transações continuam no primário.
+ */
+@Configuration
+@Profile("!inmemory")
+@ConditionalOnExpression("!'${app.replicas.urls:}'.isBlank()")
+class ReplicaConfig {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    var ds = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    ds.setPoolName("primary");
+    return ds;
+  }
+
+  @Bean(destroyMethod = "close")
+  ReplicaLagMonitor replicaLagMonitor(
+    HikariDataSource primaryDataSource,
+    MeterRegistry registry,
+    @Value("${app.replicas.urls}") String urls,
+    @Value("${app.replicas.max-lag:2s}") Duration maxLag,
+    @Value("${app.replicas.check-interval:1s}") Duration checkInterval
+  ) {
+    var replicas = new LinkedHashMap<String, DataSource>();
+    var list = Arrays.stream(urls.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    for (int i = 0; i < list.size(); i++) {
+      var ds = new HikariDataSource();
+      ds.setPoolName("replica-" + i);
+      ds.setJdbcUrl(list.get(i));
+      ds.setUsername(primaryDataSource.getUsername());
+      ds.setPassword(primaryDataSource.getPassword());
+      ds.setMaximumPoolSize(primaryDataSource.getMaximumPoolSize());
+      ds.setConnectionTimeout(primaryDataSource.getConnectionTimeout());
+      ds.setReadOnly(true);
+      replicas.put(ds.getPoolName(), ds);
+    }
+    var monitor = new ReplicaLagMonitor(primaryDataSource, replicas, maxLag);
+    for (var name : monitor.names()) {
+      Gauge.builder("db.replica.lag", monitor, m -> m.lagMillis(name))
+        .tag("replica", name)
+        .baseUnit("milliseconds")
+        .register(registry);
+      Gauge.builder("db.replica.healthy", monitor, m -> m.isHealthy(name) ? 1 : 0)
+        .tag("replica", name)
+        .register(registry);
+    }
+    monitor.start(checkInterval);
+    return monitor;
+  }
+
+  @Bean
+  @Primary
+  DataSource dataSource(HikariDataSource primaryDataSource, ReplicaLagMonitor replicaLagMonitor) {
+    var proxy = new LazyConnectionDataSourceProxy(
+      new ReplicaRoutingDataSource(primaryDataSource, replicaLagMonitor.replicas()));
+    // Sem isso o proxy abriria uma conexão só para descobrir os defaults
+    proxy.setDefaultAutoCommit(true);
+    proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+    return proxy;
+  }
+
+  @Bean
+  ReplicaRoutingAspect replicaRoutingAspect(ReplicaLagMonitor replicaLagMonitor) {
+    return new ReplicaRoutingAspect(replicaLagMonitor);
+  }
+
+  @Bean
+  FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+    @Value("${app.replicas.sticky-window:5s}") Duration window
+  ) {
+    var registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(window));
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+    return registration;
+  }
+}
@@ -0,0 +1,41 @@
+package dev.roberto.devices.domain.boot;
+
+import dev.roberto.devices.domain.persistence.routing.ReadRouting;
+import dev.roberto.devices.domain.persistence.routing.ReplicaLagMonitor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Leituras que toleram o atraso de uma réplica. O watermark entra junto: o ETag da listagem
+ * tem que vir do mesmo banco que a página. Todo o resto (escritas, lote, export) fica no primário.
+ * stats() também: o GROUP BY substitui o agregado e descarta os deltas deste nó, que numa
+ * réplica atrasada sumiriam até a próxima releitura.
+ * Roda antes de qualquer @Transactional: dentro da transação a escolha já foi feita.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+class ReplicaRoutingAspect {
+
+  private final ReplicaLagMonitor replicas;
+
+  ReplicaRoutingAspect(ReplicaLagMonitor replicas) {
+    this.replicas = replicas;
+  }
+
+  @Around("execution(public * dev.roberto.devices.domain.usecase.DeviceService.get(..))"
+    + " || execution(public * dev.roberto.devices.domain.usecase.DeviceService.listAll(..))"
+    + " || execution(public * dev.roberto.devices.domain.usecase.DeviceService.listByBrand(..))"
+    + " || execution(public * dev.roberto.devices.domain.usecase.DeviceService.listByState(..))"
+    + " || execution(public * dev.roberto.devices.domain.usecase.DeviceService.listPaged(..))"
+    + " || execution(public * dev.roberto.devices.domain.usecase.DeviceService.listAfter(..))"
+    + " || execution(public * dev.roberto.devices.domain.usecase.DeviceService.listPagedView(..))"
+    + " || execution(public * dev.roberto.devices.domain.usecase.DeviceService.listAfterView(..))"
+    + " || execution(public * dev.roberto.devices.domain.usecase.DeviceService.search(..))"
+    + " || execution(public * dev.roberto.devices.domain.usecase.DeviceService.changeWatermark(..))")
+  Object onReplica(ProceedingJoinPoint pjp) throws Throwable {
+    return ReadRouting.read(replicas, pjp::proceed);
+  }
+}
@@ -4,28 +4,34 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
 
 import java.io.IOException;
 
+// Só mede e entrega o evento ao AccessLog; a escrita acontece na thread dele.
 @Component
+@ConditionalOnProperty(name = "app.access-log.enabled", havingValue = "true", matchIfMissing = true)
 public class RequestLoggingFilter extends OncePerRequestFilter {
-  private static final Logger log = LoggerFactory.getLogger(RequestLoggingFilter.class);
+
+  private final AccessLog accessLog;
+
+  RequestLoggingFilter(AccessLog accessLog) {
+    this.accessLog = accessLog;
+  }
 
   @Override
   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
     throws ServletException, IOException {
-    long start = System.currentTimeMillis();
+    long start = System.nanoTime();
     try {
       filterChain.doFilter(request, response);
     } finally {
-      long dur = System.currentTimeMillis() - start;
-
-      log.info("request method={} path={} status={} duration_ms={}",
-        request.getMethod(), request.getRequestURI(), response.getStatus(), dur);
+      var route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+      accessLog.record(request.getMethod(), request.getRequestURI(),
+        route == null ? null : route.toString(), response.getStatus(), System.nanoTime() - start);
     }
   }
 }
@@ -0,0 +1,99 @@
+package dev.roberto.devices.domain.boot;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogTest {
+
+  @Test
+  void ring_shouldRejectWhenFullAndDeliverEachItemOnceAcrossProducers() throws Exception {
+    var small = new AccessLogRing<Integer>(2);
+    assertTrue(small.offer(1));
+    assertTrue(small.offer(2));
+    assertFalse(small.offer(3));
+    assertEquals(1, small.poll());
+    assertTrue(small.offer(3));
+    assertEquals(2, small.poll());
+    assertEquals(3, small.poll());
+    assertNull(small.poll());
+
+    var ring = new AccessLogRing<Integer>(1024);
+    int producers = 4, perProducer = 20_000;
+    var received = new boolean[producers * perProducer];
+    ExecutorService pool = Executors.newFixedThreadPool(producers);
+    var start = new CountDownLatch(1);
+    for (int p = 0; p < producers; p++) {
+      int base = p * perProducer;
+      pool.submit(() -> {
+        start.await();
+        for (int i = 0; i < perProducer; i++) {
+          while (!ring.offer(base + i)) Thread.onSpinWait();
+        }
+        return null;
+      });
+    }
+    start.countDown();
+    int count = 0;
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (count < received.length && System.nanoTime() < deadline) {
+      Integer v = ring.poll();
+      if (v == null) continue;
+      assertFalse(received[v], "duplicate " + v);
+      received[v] = true;
+      count++;
+    }
+    pool.shutdownNow();
+    assertEquals(received.length, count);
+  }
+
+  @Test
+  void record_shouldKeepErrorsAndSlowRequestsAndSampleTheRest() throws Exception {
+    var lines = new ConcurrentLinkedQueue<String>();
+    var log = new AccessLog(64, 0.0, Duration.ofMillis(100), lines::add);
+
+    log.record("GET", "/devices", "/devices", 200, 1_000);
+    log.record("GET", "/devices/x", "/devices/{id}", 404, 2_000);
+    log.record("POST", "/devices", "/devices", 201, Duration.ofMillis(150).toNanos());
+    log.record("GET", "/a\"b", null, 500, 3_000);
+    log.close();
+
+    assertEquals(1, log.sampledOut());
+    assertEquals(0, log.dropped());
+    List<String> written = new ArrayList<>(lines);
+    assertEquals(3, written.size());
+    assertTrue(written.get(0).contains("\"route\":\"/devices/{id}\",\"status\":404,\"duration_ns\":2000}"));
+    assertTrue(written.get(1).contains("\"duration_ns\":150000000"));
+    assertTrue(written.get(2).contains("\"path\":\"/a\\\"b\""));
+    assertFalse(written.get(2).contains("\"route\""));
+  }
+
+  @Test
+  void record_shouldCountDropsWhenTheWriterFallsBehind() throws Exception {
+    var release = new CountDownLatch(1);
+    var log = new AccessLog(2, 1.0, Duration.ofSeconds(1), line -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    for (int i = 0; i < 10; i++) log.record("GET", "/devices", "/devices", 200, 1_000);
+    release.countDown();
+    log.close();
+
+    assertTrue(log.dropped() >= 7, "dropped " + log.dropped());
+  }
+}
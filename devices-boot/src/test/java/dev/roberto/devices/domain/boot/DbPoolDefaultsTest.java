@@ -0,0 +1,47 @@
+package dev.roberto.devices.domain.boot;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Os padrões do pool seguem o modo de threads; DB_POOL_* explícito vale nos dois.
+class DbPoolDefaultsTest {
+
+  @Test
+  void platformThreads_shouldKeepHikariDefaults() throws IOException {
+    var env = environment(Map.of("VIRTUAL_THREADS", "false"));
+    assertEquals("10", env.getProperty("spring.datasource.hikari.maximum-pool-size"));
+    assertEquals("30000", env.getProperty("spring.datasource.hikari.connection-timeout"));
+  }
+
+  @Test
+  void virtualThreads_shouldUseLargerPoolAndShortAcquireTimeout() throws IOException {
+    var env = environment(Map.of("VIRTUAL_THREADS", "true"));
+    assertEquals("20", env.getProperty("spring.datasource.hikari.maximum-pool-size"));
+    assertEquals("2000", env.getProperty("spring.datasource.hikari.connection-timeout"));
+  }
+
+  @Test
+  void explicitPoolSettings_shouldWinInEitherMode() throws IOException {
+    var env = environment(Map.of("VIRTUAL_THREADS", "false", "DB_POOL_SIZE", "50", "DB_POOL_TIMEOUT", "500"));
+    assertEquals("50", env.getProperty("spring.datasource.hikari.maximum-pool-size"));
+    assertEquals("500", env.getProperty("spring.datasource.hikari.connection-timeout"));
+  }
+
+  private static StandardEnvironment environment(Map<String, Object> vars) throws IOException {
+    var env = new StandardEnvironment();
+    var sources = env.getPropertySources();
+    sources.remove(StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME);
+    sources.addFirst(new MapPropertySource("vars", vars));
+    new YamlPropertySourceLoader().load("application", new ClassPathResource("application.yml"))
+      .forEach(sources::addLast);
+    return env;
+  }
+}
@@ -0,0 +1,96 @@
+package dev.roberto.devices.domain.boot;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// SSE de verdade (Tomcat + HttpClient): MockMvc não entrega o stream enquanto ele está aberto.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+  properties = "app.inmemory.snapshot.enabled=false")
+@ActiveProfiles("inmemory")
+class DeviceChangesStreamTest {
+
+  @LocalServerPort
+  int port;
+
+  private final HttpClient http = HttpClient.newHttpClient();
+
+  @Test
+  void writes_shouldReachOpenStreams_andLastEventIdShouldResume() throws Exception {
+    var live = open(null);
+    var id = create("SSE-1");
+    create("SSE-2");
+
+    var first = nextEvent(live);
+    assertTrue(first.contains("event:change"), first);
+    assertTrue(first.contains("\"type\":\"CREATED\""), first);
+    assertTrue(first.contains(id), first);
+    assertTrue(nextEvent(live).contains("SSE-2"));
+
+    // Reconexão depois do primeiro evento: só o segundo volta, relido do outbox.
+    var resumed = open(eventId(first));
+    var replayed = nextEvent(resumed);
+    assertTrue(replayed.contains("SSE-2"), replayed);
+    assertEquals(Long.parseLong(eventId(first)) + 1, Long.parseLong(eventId(replayed)));
+  }
+
+  private BlockingQueue<String> open(String lastEventId) throws Exception {
+    var req = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/devices/changes"))
+      .header("Accept", "text/event-stream");
+    if (lastEventId != null) req.header("Last-Event-ID", lastEventId);
+    HttpResponse<Stream<String>> res = http.send(req.build(), HttpResponse.BodyHandlers.ofLines());
+    assertEquals(200, res.statusCode());
+    BlockingQueue<String> lines = new ArrayBlockingQueue<>(1024);
+    Iterator<String> it = res.body().iterator();
+    Thread.ofVirtual().start(() -> {
+      while (it.hasNext()) lines.add(it.next());
+    });
+    return lines;
+  }
+
+  // Junta as linhas de um evento (até a linha em branco), ignorando comentários de keep-alive.
+  private static String nextEvent(BlockingQueue<String> lines) throws InterruptedException {
+    var event = new StringBuilder();
+    while (true) {
+      var line = lines.poll(10, TimeUnit.SECONDS);
+      assertNotNull(line, "no event within 10s, got: " + event);
+      if (line.isEmpty()) {
+        if (!event.isEmpty()) return event.toString();
+      } else if (!line.startsWith(":")) {
+        event.append(line).append('\n');
+      }
+    }
+  }
+
+  private static String eventId(String event) {
+    return event.lines().filter(l -> l.startsWith("id:")).findFirst().orElseThrow().substring(3).trim();
+  }
+
+  private String create(String name) throws Exception {
+    var res = http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/devices"))
+        .header("Content-Type", "application/json")
+        .timeout(Duration.ofSeconds(10))
+        .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"" + name + "\",\"brand\":\"Acme\"}"))
+        .build(),
+      HttpResponse.BodyHandlers.ofString());
+    assertEquals(201, res.statusCode());
+    var location = res.headers().firstValue("Location").orElseThrow();
+    return location.substring(location.lastIndexOf('/') + 1);
+  }
+}
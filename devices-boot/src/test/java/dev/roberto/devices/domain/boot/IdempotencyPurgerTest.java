@@ -0,0 +1,35 @@
+package dev.roberto.devices.domain.boot;
+
+import dev.roberto.devices.domain.inmemory.InMemoryIdempotencyStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IdempotencyPurgerTest {
+
+  private static final Instant T0 = Instant.parse("2025-01-01T00:00:00Z");
+
+  @Test
+  void purge_shouldDrainInChunksAndReportMetrics() throws Exception {
+    var store = new InMemoryIdempotencyStore();
+    for (int i = 0; i < 25; i++) {
+      var id = store.reserve("k" + i, UUID.randomUUID(), "fp", T0, Duration.ofSeconds(30)).resourceId();
+      store.confirm("k" + i, id, new byte[] { 1 }, T0, Duration.ofMinutes(1));
+    }
+    store.reserve("live", UUID.randomUUID(), "fp", T0, Duration.ofHours(1));
+    var registry = new SimpleMeterRegistry();
+    var purger = new IdempotencyPurger(store, () -> T0.plus(Duration.ofMinutes(5)), registry, 10, Duration.ZERO);
+
+    assertEquals(25, purger.purge());
+
+    assertEquals(25.0, registry.get("idempotency.purge.rows").counter().count());
+    assertEquals(0.0, registry.get("idempotency.purge.lag").timeGauge().value(TimeUnit.MILLISECONDS));
+    assertEquals(0, purger.purge());
+  }
+}
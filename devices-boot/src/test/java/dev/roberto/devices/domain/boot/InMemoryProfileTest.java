@@ -0,0 +1,67 @@
+package dev.roberto.devices.domain.boot;
+
+import dev.roberto.devices.domain.inmemory.InMemoryDeviceRepository;
+import dev.roberto.devices.domain.port.DeviceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Sobe a aplicação inteira sem DataSource: nenhum bean de JPA/Flyway pode vazar para o perfil.
+@SpringBootTest(properties = "app.inmemory.snapshot.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("inmemory")
+class InMemoryProfileTest {
+
+  @Autowired
+  DeviceRepository repository;
+
+  @Autowired
+  MockMvc mvc;
+
+  @Test
+  void shouldServeDevicesWithoutDatabase() throws Exception {
+    assertInstanceOf(InMemoryDeviceRepository.class, repository);
+
+    mvc.perform(post("/devices").contentType(MediaType.APPLICATION_JSON)
+        .content("{\"name\":\"WS-01\",\"brand\":\"Lenovo\"}"))
+      .andExpect(status().isCreated());
+
+    mvc.perform(get("/devices").param("brand", "Lenovo"))
+      .andExpect(status().isOk())
+      .andExpect(header().string("X-Total-Count", "1"))
+      .andExpect(jsonPath("$[0].name").value("WS-01"));
+  }
+
+  @Test
+  void idempotentCreate_shouldReplayStoredResponseAndRejectOtherPayload() throws Exception {
+    var body = "{\"name\":\"WS-02\",\"brand\":\"Dell\"}";
+    var first = mvc.perform(post("/devices").header("Idempotency-Key", "k-1")
+        .contentType(MediaType.APPLICATION_JSON).content(body))
+      .andExpect(status().isCreated())
+      .andReturn().getResponse();
+
+    mvc.perform(post("/devices").header("Idempotency-Key", "k-1")
+        .contentType(MediaType.APPLICATION_JSON).content(body))
+      .andExpect(status().isCreated())
+      .andExpect(header().string("Idempotency-Replay", "true"))
+      .andExpect(header().string("Location", first.getHeader("Location")))
+      .andExpect(header().string("ETag", first.getHeader("ETag")))
+      .andExpect(content().bytes(first.getContentAsByteArray()));
+
+    mvc.perform(post("/devices").header("Idempotency-Key", "k-1")
+        .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"WS-03\",\"brand\":\"Dell\"}"))
+      .andExpect(status().isUnprocessableEntity());
+  }
+}
@@ -0,0 +1,65 @@
+package dev.roberto.devices.domain.boot;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.inmemory.snapshot.enabled=false")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("inmemory")
+class MetricsTest {
+
+  @Autowired
+  MockMvc mvc;
+
+  @Autowired
+  MeterRegistry registry;
+
+  @Test
+  void shouldTimeEachLayerAndCountConditionalOutcomes() throws Exception {
+    var body = "{\"name\":\"M-01\",\"brand\":\"Acme\"}";
+    var created = mvc.perform(post("/devices").header("Idempotency-Key", "m-1")
+        .contentType(MediaType.APPLICATION_JSON).content(body))
+      .andExpect(status().isCreated())
+      .andReturn().getResponse();
+    mvc.perform(post("/devices").header("Idempotency-Key", "m-1")
+        .contentType(MediaType.APPLICATION_JSON).content(body))
+      .andExpect(status().isCreated());
+    var location = created.getHeader("Location");
+    mvc.perform(get(location).header("If-None-Match", created.getHeader("ETag")))
+      .andExpect(status().isNotModified());
+    mvc.perform(put(location).header("If-Match", "\"42\"")
+        .contentType(MediaType.APPLICATION_JSON).content(body))
+      .andExpect(status().isPreconditionFailed());
+
+    assertEquals(1, registry.get(LayerTimingAspect.METRIC)
+      .tags("layer", "service", "method", "create").timer().count());
+    assertTrue(registry.get(LayerTimingAspect.METRIC)
+      .tags("layer", "repository", "class", "InMemoryDeviceRepository", "method", "findById").timer().count() >= 1);
+    assertTrue(registry.get(LayerTimingAspect.METRIC)
+      .tags("layer", "idempotency", "method", "reserve").timer().count() >= 1);
+    assertEquals(1.0, registry.get("http.idempotency.replays").tags("uri", "/devices").counter().count());
+    assertEquals(1.0, registry.get("http.not.modified").tags("uri", "/devices/{id}").counter().count());
+    assertEquals(1.0, registry.get("http.precondition.failed").tags("method", "PUT").counter().count());
+
+    var scrape = mvc.perform(get("/actuator/prometheus"))
+      .andExpect(status().isOk())
+      .andReturn().getResponse().getContentAsString();
+    assertTrue(scrape.contains("devices_layer_seconds_bucket{"), "layer histogram buckets");
+    assertTrue(scrape.contains("http_server_requests_seconds_bucket{"), "route histogram buckets");
+  }
+}
@@ -0,0 +1,59 @@
+package dev.roberto.devices.domain.boot;
+
+import dev.roberto.devices.domain.persistence.routing.ReplicaLagMonitor;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A "réplica" é o mesmo H2 do primário: sempre em dia, o que basta para exercitar a fiação.
+@SpringBootTest(properties = {
+  "spring.datasource.url=jdbc:h2:mem:replica-routing;DB_CLOSE_DELAY=-1",
+  "spring.datasource.username=sa",
+  "spring.datasource.password=",
+  "spring.flyway.enabled=false",
+  "spring.jpa.hibernate.ddl-auto=create-drop",
+  "app.replicas.urls=jdbc:h2:mem:replica-routing;DB_CLOSE_DELAY=-1",
+  "app.idempotency.purge.enabled=false"
+})
+@AutoConfigureMockMvc
+class ReplicaRoutingConfigTest {
+
+  @Autowired
+  MockMvc mvc;
+
+  @Autowired
+  ReplicaLagMonitor monitor;
+
+  @Test
+  void writesSetStickyCookieAndReadsAreServed() throws Exception {
+    monitor.check();
+    assertEquals("replica-0", monitor.pick());
+
+    var location = mvc.perform(post("/devices").contentType(MediaType.APPLICATION_JSON)
+        .content("{\"name\":\"R-01\",\"brand\":\"Acme\"}"))
+      .andExpect(status().isCreated())
+      .andExpect(header().string("Set-Cookie", containsString(ReadYourWritesFilter.COOKIE + "=")))
+      .andReturn().getResponse().getHeader("Location");
+
+    var sticky = new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(System.currentTimeMillis() + 5_000));
+    mvc.perform(get(location).cookie(sticky))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.name").value("R-01"));
+
+    mvc.perform(get("/devices").param("brand", "Acme"))
+      .andExpect(status().isOk())
+      .andExpect(header().string("X-Total-Count", "1"));
+  }
+}
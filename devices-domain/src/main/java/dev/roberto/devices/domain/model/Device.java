@@ -10,13 +10,16 @@ import java.util.UUID;
  * Device é um agregado de domínio imutável.
  * Regras específicas como "não atualizar name/brand quando IN_USE" e
  * "não deletar quando IN_USE" serão aplicadas nos use cases.
+ * version é incrementada pelo repositório a cada escrita e serve de base
+ * para o controle de concorrência otimista (ETag / If-Match).
  */
 public record Device(
   UUID id,
   String name,
   String brand,
   DeviceState state,
-  Instant creationTime
+  Instant creationTime,
+  long version
 ) {
   public Device {
     Objects.requireNonNull(id, "id is required");
@@ -26,22 +29,35 @@ public record Device(
     brand = normalizeNonBlank(brand, "brand");
   }
 
+  public Device(UUID id, String name, String brand, DeviceState state, Instant creationTime) {
+    this(id, name, brand, state, creationTime, 0L);
+  }
+
   public static Device create(String name, String brand, DeviceState initialState, TimeProvider time) {
+    return create(UUID.randomUUID(), name, brand, initialState, time);
+  }
+
+  // id escolhido pelo chamador: permite reservar a chave de idempotência antes de gravar.
+  public static Device create(UUID id, String name, String brand, DeviceState initialState, TimeProvider time) {
     Objects.requireNonNull(time, "time provider is required");
     var state = initialState != null ? initialState : DeviceState.AVAILABLE;
-    return new Device(UUID.randomUUID(), name, brand, state, time.now());
+    return new Device(id, name, brand, state, time.now(), 0L);
   }
 
   public Device withName(String newName) {
-    return new Device(this.id, normalizeNonBlank(newName, "name"), this.brand, this.state, this.creationTime);
+    return new Device(this.id, normalizeNonBlank(newName, "name"), this.brand, this.state, this.creationTime, this.version);
   }
 
   public Device withBrand(String newBrand) {
-    return new Device(this.id, this.name, normalizeNonBlank(newBrand, "brand"), this.state, this.creationTime);
+    return new Device(this.id, this.name, normalizeNonBlank(newBrand, "brand"), this.state, this.creationTime, this.version);
   }
 
   public Device withState(DeviceState newState) {
-    return new Device(this.id, this.name, this.brand, Objects.requireNonNull(newState, "state"), this.creationTime);
+    return new Device(this.id, this.name, this.brand, Objects.requireNonNull(newState, "state"), this.creationTime, this.version);
+  }
+
+  public Device withVersion(long newVersion) {
+    return new Device(this.id, this.name, this.brand, this.state, this.creationTime, newVersion);
   }
 
   private static String normalizeNonBlank(String value, String field) {
@@ -0,0 +1,24 @@
+package dev.roberto.devices.domain.model;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Uma mutação confirmada de device, na ordem do outbox (seq crescente).
+ * device traz o estado depois da escrita; em DELETED é o último estado antes da remoção.
+ */
+public record DeviceChange(long seq, Type type, Device device, Instant at) {
+
+  public enum Type { CREATED, UPDATED, DELETED }
+
+  public DeviceChange {
+    Objects.requireNonNull(type, "type is required");
+    Objects.requireNonNull(device, "device is required");
+    Objects.requireNonNull(at, "at is required");
+  }
+
+  public UUID deviceId() {
+    return device.id();
+  }
+}
@@ -0,0 +1,4 @@
+package dev.roberto.devices.domain.model;
+
+/** Quantos devices de uma marca estão num estado: uma linha do GROUP BY brand, state. */
+public record DeviceCount(String brand, DeviceState state, long count) {}
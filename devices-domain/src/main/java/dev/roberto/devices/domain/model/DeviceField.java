@@ -0,0 +1,20 @@
+package dev.roberto.devices.domain.model;
+
+/** Propriedades de Device que uma listagem pode pedir (?fields=), pelo nome exposto na API. */
+public enum DeviceField {
+  ID("id"),
+  NAME("name"),
+  BRAND("brand"),
+  STATE("state"),
+  CREATION_TIME("creationTime");
+
+  private final String property;
+
+  DeviceField(String property) {
+    this.property = property;
+  }
+
+  public String property() {
+    return property;
+  }
+}
@@ -0,0 +1,22 @@
+package dev.roberto.devices.domain.model;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Leitura parcial de um Device: só os campos pedidos vêm preenchidos, o resto é null.
+ * Não é um agregado (sem invariantes, sem version): serve apenas para listagens estreitas,
+ * em que o repositório lê só as colunas necessárias.
+ */
+public record DeviceView(UUID id, String name, String brand, DeviceState state, Instant creationTime) {
+
+  public static DeviceView of(Device d, Set<DeviceField> fields) {
+    return new DeviceView(
+      fields.contains(DeviceField.ID) ? d.id() : null,
+      fields.contains(DeviceField.NAME) ? d.name() : null,
+      fields.contains(DeviceField.BRAND) ? d.brand() : null,
+      fields.contains(DeviceField.STATE) ? d.state() : null,
+      fields.contains(DeviceField.CREATION_TIME) ? d.creationTime() : null);
+  }
+}
@@ -0,0 +1,35 @@
+package dev.roberto.devices.domain.port;
+
+import dev.roberto.devices.domain.model.DeviceChange;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Outbox das mutações de devices, gravado pelo DeviceRepository na mesma transação da escrita.
+ * seq é crescente, mas pode ter buracos (transação desfeita) e ficar visível fora de ordem
+ * (transações concorrentes confirmam em ordem diferente da que reservaram o seq).
+ */
+public interface DeviceChangeLog {
+
+  // Até limit mudanças com seq > after, em ordem de seq.
+  List<DeviceChange> readAfter(long after, int limit);
+
+  // As mudanças já visíveis entre esses seq (buracos que o leitor ainda espera), em ordem de seq.
+  List<DeviceChange> readSeqs(Collection<Long> seqs);
+
+  // Maior seq já reservado; sem nenhum, um ponto de partida abaixo do primeiro seq que virá.
+  long latestSeq();
+
+  // Menor seq ainda guardado (os anteriores foram expurgados); sem nenhum, latestSeq() + 1.
+  long firstSeq();
+
+  // Bloqueia até um sinal de mudança nova ou até timeout. Pode voltar sem mudança nenhuma.
+  void awaitChange(Duration timeout) throws InterruptedException;
+
+  // Remove até limit mudanças gravadas antes de cutoff, as mais antigas primeiro; devolve quantas removeu.
+  // Nunca remove a mais recente: o seq dela é a marca d'água de latestSeq/firstSeq depois do expurgo.
+  int purgeBefore(Instant cutoff, int limit);
+}
@@ -0,0 +1,22 @@
+package dev.roberto.devices.domain.port;
+
+import dev.roberto.devices.domain.model.Device;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Posição estável na ordenação (creationTime, id) usada na paginação por keyset.
+ * O próximo lote começa estritamente depois desta posição.
+ */
+public record DeviceCursor(Instant creationTime, UUID id) {
+  public DeviceCursor {
+    Objects.requireNonNull(creationTime, "creationTime is required");
+    Objects.requireNonNull(id, "id is required");
+  }
+
+  public static DeviceCursor of(Device device) {
+    return new DeviceCursor(device.creationTime(), device.id());
+  }
+}
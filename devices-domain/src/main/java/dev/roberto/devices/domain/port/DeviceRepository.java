@@ -1,29 +1,86 @@
 package dev.roberto.devices.domain.port;
 
 import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceCount;
+import dev.roberto.devices.domain.model.DeviceField;
 import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.model.DeviceView;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface DeviceRepository {
   Device save(Device device);
 
+  // Escrita condicional em um único statement: só aplica se a versão no banco for expectedVersion.
+  // Retorna o device com a nova versão, ou vazio se a versão mudou (ou o device sumiu).
+  Optional<Device> updateIfVersion(Device device, long expectedVersion);
+  boolean deleteIfVersion(UUID id, long expectedVersion);
+
+  // Troca só o estado, também em um único statement: aplica se o estado no banco for expected,
+  // qualquer que seja a versão (que sobe). Vazio se o estado era outro ou o device sumiu.
+  Optional<Device> updateStateIf(UUID id, DeviceState expected, DeviceState target);
+
   Optional<Device> findById(UUID id);
 
+  // Como findById, mas sempre do banco primário e sem passar por cache: base para decidir uma
+  // escrita. Sem cache na frente, é o próprio findById.
+  default Optional<Device> findCurrentById(UUID id) {
+    return findById(id);
+  }
+
+  // Vários ids de uma vez, com a mesma garantia de findCurrentById (base do lote); ids ausentes ficam de fora.
+  List<Device> findAllCurrentById(Collection<UUID> ids);
+
   List<Device> findAll();
   List<Device> findByBrand(String brand);
   List<Device> findByState(DeviceState state);
 
+  // Percorre a tabela inteira em ordem (creationTime, id) sem materializá-la em memória.
+  void scanAll(Consumer<Device> consumer);
+
+  // OFFSET/LIMIT em ordem (creationTime, id), sem COUNT implícito.
+  List<Device> findAllPaged(long offset, int limit);
+  List<Device> findByBrandPaged(String brand, long offset, int limit);
+  List<Device> findByStatePaged(DeviceState state, long offset, int limit);
+  List<Device> findByBrandAndStatePaged(String brand, DeviceState state, long offset, int limit);
+
+  // Keyset: ordenado por (creationTime, id); after == null começa do início.
+  List<Device> findAllAfter(DeviceCursor after, int limit);
+  List<Device> findByBrandAfter(String brand, DeviceCursor after, int limit);
+  List<Device> findByStateAfter(DeviceState state, DeviceCursor after, int limit);
+  List<Device> findByBrandAndStateAfter(String brand, DeviceState state, DeviceCursor after, int limit);
 
-  List<Device> findAllPaged(int page, int size);
-  List<Device> findByBrandPaged(String brand, int page, int size);
-  List<Device> findByStatePaged(DeviceState state, int page, int size);
+  // Projeções: mesma ordem e filtros das listagens acima (brand/state null = sem filtro), lendo
+  // só as colunas de fields; os demais campos do DeviceView vêm null.
+  List<DeviceView> findPagedView(Set<DeviceField> fields, String brand, DeviceState state, long offset, int limit);
+  List<DeviceView> findAfterView(Set<DeviceField> fields, String brand, DeviceState state, DeviceCursor after, int limit);
+
+  // Busca por nome ranqueada (ver NameSearch): igual, prefixo, substring; empate pela proximidade
+  // do tamanho e depois (creationTime, id). q já normalizado; brand/state null = sem filtro.
+  List<Device> searchByName(String q, String brand, DeviceState state, long offset, int limit);
+
+  // Um único GROUP BY brand, state; só combinações com ao menos um device.
+  List<DeviceCount> countGroupedByBrandAndState();
 
   long countAll();
   long countByBrand(String brand);
   long countByState(DeviceState state);
+  long countByBrandAndState(String brand, DeviceState state);
+
+  // Estimativa barata (estatísticas do planner); null = sem filtro. Vazio quando o banco não oferece.
+  OptionalLong estimateCount(String brand, DeviceState state);
 
   void deleteById(UUID id);
+
+  // Inserções, atualizações e deleções numa única transação, com statements em lote.
+  void applyBatch(DeviceWriteBatch batch);
+
+  // Cresce a cada escrita confirmada; igual entre duas leituras = nenhuma mudança visível entre elas.
+  long changeWatermark();
 }
@@ -0,0 +1,30 @@
+package dev.roberto.devices.domain.port;
+
+import dev.roberto.devices.domain.model.DeviceState;
+
+/**
+ * Codificação de DeviceState na coluna devices.state (SMALLINT), comum aos adapters JPA e R2DBC.
+ * Os códigos são fixos por valor, nunca o ordinal: reordenar ou acrescentar constantes no enum
+ * não muda o que já está gravado. Os mesmos códigos aparecem no CHECK e na função da V11.
+ */
+public final class DeviceStateCodes {
+
+  private DeviceStateCodes() {}
+
+  public static short code(DeviceState state) {
+    return switch (state) {
+      case AVAILABLE -> 0;
+      case IN_USE -> 1;
+      case INACTIVE -> 2;
+    };
+  }
+
+  public static DeviceState fromCode(short code) {
+    return switch (code) {
+      case 0 -> DeviceState.AVAILABLE;
+      case 1 -> DeviceState.IN_USE;
+      case 2 -> DeviceState.INACTIVE;
+      default -> throw new IllegalStateException("Unknown device state code: " + code);
+    };
+  }
+}
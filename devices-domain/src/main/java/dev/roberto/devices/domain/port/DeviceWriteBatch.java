@@ -0,0 +1,22 @@
+package dev.roberto.devices.domain.port;
+
+import dev.roberto.devices.domain.model.Device;
+
+import java.util.List;
+
+/**
+ * Conjunto de escritas aplicado de uma vez (mesma transação) pelo repositório.
+ * updates já trazem a nova versão (lida + 1); deletes trazem o estado lido.
+ * Se alguma linha mudou de versão no banco, o lote inteiro é rejeitado.
+ */
+public record DeviceWriteBatch(List<Device> inserts, List<Device> updates, List<Device> deletes) {
+  public DeviceWriteBatch {
+    inserts = List.copyOf(inserts);
+    updates = List.copyOf(updates);
+    deletes = List.copyOf(deletes);
+  }
+
+  public boolean isEmpty() {
+    return inserts.isEmpty() && updates.isEmpty() && deletes.isEmpty();
+  }
+}
@@ -0,0 +1,21 @@
+package dev.roberto.devices.domain.port;
+
+import java.util.UUID;
+
+/**
+ * Estado de uma chave de idempotência. fingerprint identifica a requisição original;
+ * response é a resposta serializada (opaca para o domínio), null enquanto a criação
+ * não terminou. leased diz se o reserve que devolveu o registro ficou com a chave: reserva
+ * nova (resourceId é o proposto) ou retomada de uma reserva expirada sem resposta (resourceId
+ * é o do dono anterior, que pode já ter criado o recurso).
+ */
+public record IdempotencyRecord(UUID resourceId, String fingerprint, byte[] response, boolean leased) {
+
+  public IdempotencyRecord(UUID resourceId, String fingerprint, byte[] response) {
+    this(resourceId, fingerprint, response, false);
+  }
+
+  public boolean completed() {
+    return response != null;
+  }
+}
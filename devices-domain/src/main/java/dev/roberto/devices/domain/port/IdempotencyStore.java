@@ -6,7 +6,29 @@ import java.util.Optional;
 import java.util.UUID;
 
 public interface IdempotencyStore {
-  Optional<UUID> get(String key);
-  void saveIfAbsent(String key, UUID resourceId, Instant now, Duration ttl);
-  void purgeExpired(Instant now);
+  // Quanto uma chave vale depois da resposta guardada; também quanto uma reserva sem resposta
+  // fica guardada para ser retomada com o mesmo resourceId, embora o lease dela expire bem antes.
+  Duration RETENTION = Duration.ofHours(24);
+
+  // Reserva atômica (um statement): grava key -> (resourceId, fingerprint) até now + lease se a
+  // chave não existe ou expirou. Uma reserva expirada que nunca recebeu resposta é retomada com
+  // o resourceId e o fingerprint dela (o dono anterior pode ter criado o recurso e caído antes
+  // do confirm). Devolve o registro vigente, com leased = true quando a reserva ficou conosco.
+  IdempotencyRecord reserve(String key, UUID resourceId, String fingerprint, Instant now, Duration lease);
+
+  // Reserva cumprida: guarda a resposta e o prazo passa a ser now + ttl.
+  // Só afeta a chave se ainda for de resourceId.
+  void confirm(String key, UUID resourceId, byte[] response, Instant now, Duration ttl);
+
+  // Desfaz a reserva (a criação falhou), liberando a chave para um retry.
+  void release(String key, UUID resourceId);
+
+  // Remove até limit chaves expiradas antes de now, as mais antigas primeiro; devolve quantas removeu.
+  // Uma reserva sem resposta só sai depois de RETENTION desde a última reserva: até lá um retry
+  // ainda a retoma com o resourceId dela, em vez de criar um segundo recurso.
+  int purgeExpired(Instant now, int limit);
+
+  // Menor expires_at entre as chaves com resposta (ou sem fingerprint); vazio quando não há nenhuma.
+  // Reservas sem resposta ficam de fora: expiram em segundos, mas são guardadas por RETENTION.
+  Optional<Instant> oldestExpiry();
 }
@@ -0,0 +1,57 @@
+package dev.roberto.devices.domain.port;
+
+import java.util.Locale;
+
+/**
+ * Regras da busca por nome comuns a todos os adapters: sem diferenciar maiúsculas, ranking
+ * igual &gt; prefixo &gt; substring. Consultas curtas (menos de {@link #MIN_SUBSTRING} caracteres)
+ * só casam prefixo: abaixo de 3 caracteres o índice de trigramas não ajuda e a busca por
+ * substring viraria varredura da tabela.
+ */
+public final class NameSearch {
+
+  public static final int MIN_SUBSTRING = 3;
+  public static final int MAX_LENGTH = 100;
+
+  public static final int EXACT = 0;
+  public static final int PREFIX = 1;
+  public static final int SUBSTRING = 2;
+  public static final int NO_MATCH = 3;
+
+  private NameSearch() {}
+
+  /** Forma comparável da consulta (trim + minúsculas); falha se vazia ou longa demais. */
+  public static String normalize(String q) {
+    var n = q == null ? "" : q.trim().toLowerCase(Locale.ROOT);
+    if (n.isEmpty()) throw new IllegalArgumentException("q must not be blank");
+    if (n.length() > MAX_LENGTH) throw new IllegalArgumentException("q must be at most " + MAX_LENGTH + " characters");
+    return n;
+  }
+
+  public static boolean substringAllowed(String normalized) {
+    return normalized.length() >= MIN_SUBSTRING;
+  }
+
+  /** Padrão LIKE (com ESCAPE '\') que seleciona os candidatos da consulta normalizada. */
+  public static String likePattern(String normalized) {
+    var escaped = escapeLike(normalized);
+    return substringAllowed(normalized) ? "%" + escaped + "%" : escaped + "%";
+  }
+
+  public static String prefixPattern(String normalized) {
+    return escapeLike(normalized) + "%";
+  }
+
+  /** Posição no ranking de um nome para a consulta normalizada; NO_MATCH quando não casa. */
+  public static int rank(String name, String normalized) {
+    var n = name.toLowerCase(Locale.ROOT);
+    if (n.equals(normalized)) return EXACT;
+    if (n.startsWith(normalized)) return PREFIX;
+    if (substringAllowed(normalized) && n.contains(normalized)) return SUBSTRING;
+    return NO_MATCH;
+  }
+
+  private static String escapeLike(String s) {
+    return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+}
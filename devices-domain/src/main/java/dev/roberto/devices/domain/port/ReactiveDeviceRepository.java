@@ -0,0 +1,57 @@
+package dev.roberto.devices.domain.port;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceCount;
+import dev.roberto.devices.domain.model.DeviceField;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.model.DeviceView;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Versão não bloqueante de {@link DeviceRepository}, com a mesma semântica.
+ * Filtros são opcionais: brand/state null = sem filtro.
+ */
+public interface ReactiveDeviceRepository {
+  // Falha se o id já existir.
+  Mono<Device> insert(Device device);
+
+  // Vazio quando a versão no banco não é expectedVersion (ou o device sumiu).
+  Mono<Device> updateIfVersion(Device device, long expectedVersion);
+  Mono<Boolean> deleteIfVersion(UUID id, long expectedVersion);
+
+  // Mesmo UPDATE condicional de DeviceRepository#updateStateIf; vazio se não aplicou.
+  Mono<Device> updateStateIf(UUID id, DeviceState expected, DeviceState target);
+
+  Mono<Device> findById(UUID id);
+
+  // Toda a tabela em ordem (creationTime, id), sob demanda do assinante.
+  Flux<Device> scanAll();
+
+  // OFFSET/LIMIT em ordem (creationTime, id), sem COUNT implícito.
+  Flux<Device> findPaged(String brand, DeviceState state, long offset, int limit);
+
+  // Keyset: ordenado por (creationTime, id); after == null começa do início.
+  Flux<Device> findAfter(String brand, DeviceState state, DeviceCursor after, int limit);
+
+  // Projeções de DeviceRepository#findPagedView / #findAfterView: só as colunas de fields.
+  Flux<DeviceView> findPagedView(Set<DeviceField> fields, String brand, DeviceState state, long offset, int limit);
+  Flux<DeviceView> findAfterView(Set<DeviceField> fields, String brand, DeviceState state, DeviceCursor after, int limit);
+
+  // Mesma busca ranqueada de DeviceRepository#searchByName.
+  Flux<Device> searchByName(String q, String brand, DeviceState state, long offset, int limit);
+
+  Mono<Long> count(String brand, DeviceState state);
+
+  // Mesmo GROUP BY de DeviceRepository#countGroupedByBrandAndState.
+  Flux<DeviceCount> countGroupedByBrandAndState();
+
+  // Estimativa barata (estatísticas do planner); vazio quando o banco não oferece.
+  Mono<Long> estimateCount(String brand, DeviceState state);
+
+  // Mesmo contador de DeviceRepository#changeWatermark.
+  Mono<Long> changeWatermark();
+}
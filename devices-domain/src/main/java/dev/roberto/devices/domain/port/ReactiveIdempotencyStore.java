@@ -0,0 +1,20 @@
+package dev.roberto.devices.domain.port;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/** Versão não bloqueante de {@link IdempotencyStore}, com a mesma semântica. */
+public interface ReactiveIdempotencyStore {
+  // Devolve o registro vigente, com leased = true quando a reserva (nova ou retomada) ficou conosco.
+  Mono<IdempotencyRecord> reserve(String key, UUID resourceId, String fingerprint, Instant now, Duration lease);
+
+  Mono<Void> confirm(String key, UUID resourceId, byte[] response, Instant now, Duration ttl);
+
+  Mono<Void> release(String key, UUID resourceId);
+
+  // Reservas sem resposta ficam até IdempotencyStore.RETENTION, como em IdempotencyStore#purgeExpired.
+  Mono<Integer> purgeExpired(Instant now, int limit);
+}
@@ -0,0 +1,21 @@
+package dev.roberto.devices.domain.usecase;
+
+import dev.roberto.devices.domain.model.Device;
+
+import java.util.UUID;
+
+/**
+ * Resultado de uma operação do lote. device é o estado final (null para DELETE e falhas).
+ */
+public record BatchItemResult(int index, Outcome outcome, UUID id, Device device, String message) {
+
+  public enum Outcome { CREATED, UPDATED, DELETED, NOT_FOUND, REJECTED, INVALID, FAILED }
+
+  static BatchItemResult ok(int index, Outcome outcome, UUID id, Device device) {
+    return new BatchItemResult(index, outcome, id, device, null);
+  }
+
+  static BatchItemResult error(int index, Outcome outcome, UUID id, String message) {
+    return new BatchItemResult(index, outcome, id, null, message);
+  }
+}
@@ -0,0 +1,11 @@
+package dev.roberto.devices.domain.usecase;
+
+/** Como o total de uma listagem paginada é obtido. */
+public enum CountMode {
+  /** COUNT(*) exato a cada página. */
+  EXACT,
+  /** Estimativa do banco quando o resultado é grande; abaixo do limiar, conta de verdade. */
+  ESTIMATE,
+  /** Sem total: busca size + 1 linhas só para saber se há próxima página. */
+  NONE
+}
@@ -0,0 +1,8 @@
+package dev.roberto.devices.domain.usecase;
+
+import dev.roberto.devices.domain.port.DeviceCursor;
+
+import java.util.List;
+import java.util.Optional;
+
+public record CursorPage<T>(List<T> items, Optional<DeviceCursor> next, int size) {}
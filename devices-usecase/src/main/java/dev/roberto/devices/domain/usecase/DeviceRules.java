@@ -0,0 +1,119 @@
+package dev.roberto.devices.domain.usecase;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceField;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.time.TimeProvider;
+import dev.roberto.devices.domain.usecase.command.CreateDeviceCommand;
+import dev.roberto.devices.domain.usecase.command.UpdateDevicePatchCommand;
+import dev.roberto.devices.domain.usecase.command.UpdateDevicePutCommand;
+import dev.roberto.devices.domain.usecase.exception.DomainRuleViolationException;
+import dev.roberto.devices.domain.usecase.exception.NotFoundException;
+import dev.roberto.devices.domain.usecase.exception.StateConflictException;
+import dev.roberto.devices.domain.usecase.exception.VersionConflictException;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Regras de Device sem I/O, compartilhadas por {@link DeviceService} e
+ * {@link ReactiveDeviceService}: as duas pilhas decidem exatamente igual.
+ */
+final class DeviceRules {
+
+  /** Tentativas de escrita sem If-Match antes de desistir por concorrência. */
+  static final int MAX_WRITE_ATTEMPTS = 3;
+
+  private DeviceRules() {}
+
+  static Device newDevice(CreateDeviceCommand cmd, TimeProvider time) {
+    return cmd.id() != null
+      ? Device.create(cmd.id(), cmd.name(), cmd.brand(), cmd.state(), time)
+      : Device.create(cmd.name(), cmd.brand(), cmd.state(), time);
+  }
+
+  static NotFoundException notFound(UUID id) {
+    return new NotFoundException("Device %s not found".formatted(id));
+  }
+
+  static void assertVersion(Device current, OptionalLong expectedVersion) {
+    if (expectedVersion.isPresent() && current.version() != expectedVersion.getAsLong()) {
+      throw new VersionConflictException("Device %s is at version %d, expected %d"
+        .formatted(current.id(), current.version(), expectedVersion.getAsLong()));
+    }
+  }
+
+  static void assertMayRetry(UUID id, OptionalLong expectedVersion, int attempt) {
+    if (expectedVersion.isPresent() || attempt >= MAX_WRITE_ATTEMPTS) throw concurrentModification(id);
+  }
+
+  static VersionConflictException concurrentModification(UUID id) {
+    return new VersionConflictException("Device %s was modified concurrently".formatted(id));
+  }
+
+  static Device applyPut(Device current, UpdateDevicePutCommand cmd) {
+    if (current.state() == DeviceState.IN_USE &&
+      (!current.name().equals(cmd.name()) || !current.brand().equals(cmd.brand()))) {
+      throw new DomainRuleViolationException("Cannot change name/brand when device is IN_USE");
+    }
+
+
+    if (cmd.state() == DeviceState.IN_USE &&
+      (!current.name().equals(cmd.name()) || !current.brand().equals(cmd.brand()))) {
+      throw new DomainRuleViolationException("Cannot change name/brand when setting state to IN_USE");
+    }
+
+    return current
+      .withName(cmd.name())
+      .withBrand(cmd.brand())
+      .withState(cmd.state() != null ? cmd.state() : current.state());
+  }
+
+  static Device applyPatch(Device current, UpdateDevicePatchCommand cmd) {
+    var newName  = cmd.name().orElse(current.name());
+    var newBrand = cmd.brand().orElse(current.brand());
+    var newState = cmd.state().orElse(current.state());
+
+
+    boolean changingNameOrBrand = !current.name().equals(newName) || !current.brand().equals(newBrand);
+    if ((current.state() == DeviceState.IN_USE && changingNameOrBrand) ||
+      (newState == DeviceState.IN_USE && changingNameOrBrand)) {
+      throw new DomainRuleViolationException("Cannot change name/brand while device is or becomes IN_USE");
+    }
+
+    var updated = current;
+    if (!current.name().equals(newName))  updated = updated.withName(newName);
+    if (!current.brand().equals(newBrand)) updated = updated.withBrand(newBrand);
+    if (current.state() != newState)       updated = updated.withState(newState);
+    return updated;
+  }
+
+  // O UPDATE condicional não aplicou e o device existe: outro cliente chegou antes.
+  static StateConflictException stateConflict(Device current, DeviceTransition transition) {
+    return new StateConflictException("Device %s is %s; %s requires %s"
+      .formatted(current.id(), current.state(), transition.name().toLowerCase(Locale.ROOT), transition.from()));
+  }
+
+  static void assertDeletable(Device current) {
+    if (current.state() == DeviceState.IN_USE) {
+      throw new DomainRuleViolationException("Cannot delete a device in IN_USE state");
+    }
+  }
+
+  /**
+   * Página incompleta (e não além do fim): o total é exatamente o que já foi lido.
+   * -1 quando a página não basta para saber o total.
+   */
+  static long totalFromPage(long offset, int page, int size, int itemCount) {
+    return itemCount < size && (itemCount > 0 || page == 0) ? offset + itemCount : -1;
+  }
+
+  // Cópia própria: o caso de uso acrescenta as colunas do cursor sem mexer no Set de quem chamou.
+  static EnumSet<DeviceField> requireFields(Set<DeviceField> fields) {
+    if (fields == null || fields.isEmpty()) throw new IllegalArgumentException("fields must not be empty");
+    return EnumSet.copyOf(fields);
+  }
+}
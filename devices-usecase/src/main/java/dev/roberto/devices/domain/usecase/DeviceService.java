@@ -1,40 +1,77 @@
 package dev.roberto.devices.domain.usecase;
 
 import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceField;
 import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.model.DeviceView;
+import dev.roberto.devices.domain.port.DeviceCursor;
 import dev.roberto.devices.domain.port.DeviceRepository;
+import dev.roberto.devices.domain.port.DeviceWriteBatch;
+import dev.roberto.devices.domain.port.NameSearch;
 import dev.roberto.devices.domain.time.TimeProvider;
+import dev.roberto.devices.domain.usecase.BatchItemResult.Outcome;
+import dev.roberto.devices.domain.usecase.command.BatchOperation;
 import dev.roberto.devices.domain.usecase.command.CreateDeviceCommand;
 import dev.roberto.devices.domain.usecase.command.UpdateDevicePatchCommand;
 import dev.roberto.devices.domain.usecase.command.UpdateDevicePutCommand;
 import dev.roberto.devices.domain.usecase.exception.DomainRuleViolationException;
-import dev.roberto.devices.domain.usecase.exception.NotFoundException;
 import java.util.Optional;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import static dev.roberto.devices.domain.usecase.DeviceRules.*;
 
 public class DeviceService {
 
+  /** Operações por transação no lote; casa com hibernate.jdbc.batch_size. */
+  public static final int BATCH_CHUNK_SIZE = 500;
+  /** Abaixo disso a estimativa do planner é imprecisa e o COUNT exato já é barato. */
+  static final long EXACT_COUNT_THRESHOLD = 10_000;
+  /** Idade máxima de {@link #stats()} para escritas feitas por outros nós. */
+  public static final Duration DEFAULT_STATS_MAX_AGE = Duration.ofSeconds(30);
+
   private final DeviceRepository repository;
   private final TimeProvider time;
+  private final DeviceStatsAggregate stats;
 
   public DeviceService(DeviceRepository repository, TimeProvider time) {
+    this(repository, time, DEFAULT_STATS_MAX_AGE);
+  }
+
+  public DeviceService(DeviceRepository repository, TimeProvider time, Duration statsMaxAge) {
     this.repository = Objects.requireNonNull(repository);
     this.time = Objects.requireNonNull(time);
+    this.stats = new DeviceStatsAggregate(statsMaxAge);
   }
 
 
   public Device create(CreateDeviceCommand cmd) {
-    var device = Device.create(cmd.name(), cmd.brand(), cmd.state(), time);
-    return repository.save(device);
+    var created = repository.save(newDevice(cmd, time));
+    stats.apply(null, created);
+    return created;
   }
 
 
   public Device get(UUID id) {
-    return repository.findById(id)
-      .orElseThrow(() -> new NotFoundException("Device %s not found".formatted(id)));
+    return repository.findById(id).orElseThrow(() -> notFound(id));
+  }
+
+  /** Como {@link #get}, mas do primário e sem cache: para comparar um If-Match com o estado real. */
+  public Device getCurrent(UUID id) {
+    return repository.findCurrentById(id).orElseThrow(() -> notFound(id));
   }
 
 
@@ -43,6 +80,25 @@ public class DeviceService {
   }
 
 
+  public void exportAll(Consumer<Device> consumer) {
+    repository.scanAll(consumer);
+  }
+
+  /** Validador da coleção inteira: muda sempre que algum device é criado, alterado ou removido. */
+  public long changeWatermark() {
+    return repository.changeWatermark();
+  }
+
+
+  /**
+   * Contagem de devices por marca e estado. Escritas deste nó entram na hora; as dos demais,
+   * quando o snapshot passa de statsMaxAge e é relido com um único GROUP BY.
+   */
+  public DeviceStats stats() {
+    var now = time.now();
+    return stats.fresh(now).orElseGet(() -> stats.replace(repository.countGroupedByBrandAndState(), now));
+  }
+
   public List<Device> listByBrand(String brand) {
     return repository.findByBrand(brand);
   }
@@ -52,83 +108,361 @@ public class DeviceService {
   }
 
   public PageResult<Device> listPaged(Optional<String> brand, Optional<DeviceState> state, int page, int size) {
-    if (brand.isEmpty() && state.isEmpty()) {
-      var items = repository.findAllPaged(page, size);
-      var total = repository.countAll();
-      return new PageResult<>(items, total, page, size);
+    return listPaged(brand, state, page, size, CountMode.EXACT);
+  }
+
+  /**
+   * Listagem por offset. O total sai de graça quando a página vem incompleta; fora isso,
+   * EXACT conta, ESTIMATE usa a estimativa do banco acima de {@link #EXACT_COUNT_THRESHOLD}
+   * e NONE não conta. ESTIMATE e NONE buscam size + 1 linhas para um hasNext exato.
+   */
+  public PageResult<Device> listPaged(Optional<String> brand, Optional<DeviceState> state, int page, int size,
+                                      CountMode mode) {
+    var b = brand.orElse(null);
+    var s = state.orElse(null);
+    return paged(b, s, page, size, mode, (offset, limit) -> findPage(b, s, offset, limit));
+  }
+
+  /** Como {@link #listPaged}, lendo só as colunas de fields (os demais campos vêm null). */
+  public PageResult<DeviceView> listPagedView(Set<DeviceField> fields, Optional<String> brand,
+                                              Optional<DeviceState> state, int page, int size, CountMode mode) {
+    var read = requireFields(fields);
+    var b = brand.orElse(null);
+    var s = state.orElse(null);
+    return paged(b, s, page, size, mode, (offset, limit) -> repository.findPagedView(read, b, s, offset, limit));
+  }
+
+  @FunctionalInterface
+  private interface PageQuery<T> {
+    List<T> fetch(long offset, int limit);
+  }
+
+  private <T> PageResult<T> paged(String b, DeviceState s, int page, int size, CountMode mode, PageQuery<T> query) {
+    long offset = (long) page * size;
+    int limit = mode == CountMode.EXACT ? size : size + 1;
+    var rows = query.fetch(offset, limit);
+    boolean moreRows = rows.size() > size;
+    var items = moreRows ? rows.subList(0, size) : rows;
+
+    if (mode == CountMode.NONE) {
+      return new PageResult<>(items, -1, page, size, PageResult.Accuracy.NONE, moreRows);
     }
-    if (brand.isPresent() && state.isEmpty()) {
-      var items = repository.findByBrandPaged(brand.get(), page, size);
-      var total = repository.countByBrand(brand.get());
-      return new PageResult<>(items, total, page, size);
+    long known = totalFromPage(offset, page, size, items.size());
+    if (known >= 0) {
+      return new PageResult<>(items, known, page, size);
     }
-    if (state.isPresent() && brand.isEmpty()) {
-      var items = repository.findByStatePaged(state.get(), page, size);
-      var total = repository.countByState(state.get());
-      return new PageResult<>(items, total, page, size);
+    if (mode == CountMode.ESTIMATE) {
+      var estimate = repository.estimateCount(b, s);
+      if (estimate.isPresent() && estimate.getAsLong() >= EXACT_COUNT_THRESHOLD) {
+        // Estatísticas podem estar atrás da tabela: nunca menos do que já se sabe que existe.
+        long seen = offset + items.size() + (moreRows ? 1 : 0);
+        return new PageResult<>(items, Math.max(estimate.getAsLong(), seen), page, size,
+          PageResult.Accuracy.APPROXIMATE, moreRows);
+      }
     }
-    var byBrand = repository.findByBrand(brand.get());
-    var filtered = byBrand.stream().filter(d -> d.state() == state.get()).toList();
-    var total = filtered.size();
-    int from = Math.min(page * size, total);
-    int to = Math.min(from + size, total);
-    var pageItems = filtered.subList(from, to);
-    return new PageResult<>(pageItems, total, page, size);
+    return new PageResult<>(items, count(b, s), page, size);
   }
 
+  private List<Device> findPage(String brand, DeviceState state, long offset, int limit) {
+    if (brand != null && state != null) return repository.findByBrandAndStatePaged(brand, state, offset, limit);
+    if (brand != null) return repository.findByBrandPaged(brand, offset, limit);
+    if (state != null) return repository.findByStatePaged(state, offset, limit);
+    return repository.findAllPaged(offset, limit);
+  }
 
-  public Device updatePut(UpdateDevicePutCommand cmd) {
-    var current = get(cmd.id());
+  private long count(String brand, DeviceState state) {
+    if (brand != null && state != null) return repository.countByBrandAndState(brand, state);
+    if (brand != null) return repository.countByBrand(brand);
+    if (state != null) return repository.countByState(state);
+    return repository.countAll();
+  }
 
+  /**
+   * Busca por nome ranqueada (igual, prefixo, substring; ver NameSearch), com os mesmos filtros
+   * da listagem. Sem total: contar todos os nomes que casam custaria mais do que a própria busca,
+   * então hasNext vem de uma linha a mais.
+   */
+  public PageResult<Device> search(String q, Optional<String> brand, Optional<DeviceState> state, int page, int size) {
+    var normalized = NameSearch.normalize(q);
+    var rows = repository.searchByName(normalized, brand.orElse(null), state.orElse(null), (long) page * size, size + 1);
+    boolean moreRows = rows.size() > size;
+    var items = moreRows ? rows.subList(0, size) : rows;
+    return new PageResult<>(items, -1, page, size, PageResult.Accuracy.NONE, moreRows);
+  }
 
-    if (current.state() == DeviceState.IN_USE &&
-      (!current.name().equals(cmd.name()) || !current.brand().equals(cmd.brand()))) {
-      throw new DomainRuleViolationException("Cannot change name/brand when device is IN_USE");
+  public CursorPage<Device> listAfter(Optional<String> brand, Optional<DeviceState> state,
+                                      Optional<DeviceCursor> after, int size) {
+    // Busca size + 1 para saber se há próxima página sem precisar de COUNT.
+    var cursor = after.orElse(null);
+    int limit = size + 1;
+    List<Device> rows;
+    if (brand.isPresent() && state.isPresent()) {
+      rows = repository.findByBrandAndStateAfter(brand.get(), state.get(), cursor, limit);
+    } else if (brand.isPresent()) {
+      rows = repository.findByBrandAfter(brand.get(), cursor, limit);
+    } else if (state.isPresent()) {
+      rows = repository.findByStateAfter(state.get(), cursor, limit);
+    } else {
+      rows = repository.findAllAfter(cursor, limit);
     }
+    if (rows.size() <= size) {
+      return new CursorPage<>(rows, Optional.empty(), size);
+    }
+    var items = rows.subList(0, size);
+    return new CursorPage<>(items, Optional.of(DeviceCursor.of(items.get(size - 1))), size);
+  }
 
-
-    if (cmd.state() == DeviceState.IN_USE &&
-      (!current.name().equals(cmd.name()) || !current.brand().equals(cmd.brand()))) {
-      throw new DomainRuleViolationException("Cannot change name/brand when setting state to IN_USE");
+  /**
+   * Como {@link #listAfter}, lendo só as colunas de fields. creationTime e id são lidos mesmo
+   * sem terem sido pedidos: o próximo cursor sai deles.
+   */
+  public CursorPage<DeviceView> listAfterView(Set<DeviceField> fields, Optional<String> brand,
+                                              Optional<DeviceState> state, Optional<DeviceCursor> after, int size) {
+    var read = requireFields(fields);
+    read.add(DeviceField.ID);
+    read.add(DeviceField.CREATION_TIME);
+    var rows = repository.findAfterView(read, brand.orElse(null), state.orElse(null), after.orElse(null), size + 1);
+    if (rows.size() <= size) {
+      return new CursorPage<>(rows, Optional.empty(), size);
     }
+    var items = rows.subList(0, size);
+    var last = items.get(size - 1);
+    return new CursorPage<>(items, Optional.of(new DeviceCursor(last.creationTime(), last.id())), size);
+  }
 
-    var updated = current
-      .withName(cmd.name())
-      .withBrand(cmd.brand())
-      .withState(cmd.state() != null ? cmd.state() : current.state());
 
-    return repository.save(updated);
+  public Device updatePut(UpdateDevicePutCommand cmd) {
+    return writeChecked(cmd.id(), cmd.expectedVersion(), current -> applyPut(current, cmd));
   }
 
 
   public Device updatePatch(UpdateDevicePatchCommand cmd) {
-    var current = get(cmd.id());
+    return writeChecked(cmd.id(), cmd.expectedVersion(), current -> applyPatch(current, cmd));
+  }
+
+
+  /**
+   * Checkout/release em um único UPDATE condicional no estado de origem, sem ler antes.
+   * Quem perde a corrida paga só uma leitura extra, sem cache, para distinguir 404 de 409.
+   */
+  public Device transition(UUID id, DeviceTransition transition) {
+    var moved = repository.updateStateIf(id, transition.from(), transition.to());
+    if (moved.isEmpty()) throw stateConflict(getCurrent(id), transition);
+    stats.apply(moved.get().withState(transition.from()), moved.get());
+    return moved.get();
+  }
 
-    var newName  = cmd.name().orElse(current.name());
-    var newBrand = cmd.brand().orElse(current.brand());
-    var newState = cmd.state().orElse(current.state());
 
+  public void delete(UUID id) {
+    delete(id, OptionalLong.empty());
+  }
 
-    boolean changingNameOrBrand = !current.name().equals(newName) || !current.brand().equals(newBrand);
-    if ((current.state() == DeviceState.IN_USE && changingNameOrBrand) ||
-      (newState == DeviceState.IN_USE && changingNameOrBrand)) {
-      throw new DomainRuleViolationException("Cannot change name/brand while device is or becomes IN_USE");
+  public void delete(UUID id, OptionalLong expectedVersion) {
+    if (expectedVersion.isPresent()) {
+      deleteIfMatch(id, expectedVersion.getAsLong());
+      return;
     }
+    for (int attempt = 1; ; attempt++) {
+      if (confirmingRejection(id, get(id), this::tryDelete)) return;
+      assertMayRetry(id, expectedVersion, attempt);
+    }
+  }
 
-    var updated = current;
-    if (!current.name().equals(newName))  updated = updated.withName(newName);
-    if (!current.brand().equals(newBrand)) updated = updated.withBrand(newBrand);
-    if (current.state() != newState)       updated = updated.withState(newState);
+  /** Como {@link #writeIfMatch}: a versão esperada decide no DELETE condicional. */
+  private void deleteIfMatch(UUID id, long expected) {
+    var cached = get(id);
+    if (cached.version() == expected) {
+      try {
+        if (tryDelete(cached)) return;
+      } catch (DomainRuleViolationException e) {
+        // Idem writeIfMatch: só a linha confirmada rejeita.
+      }
+    }
+    var current = getCurrent(id);
+    assertVersion(current, OptionalLong.of(expected));
+    if (!tryDelete(current)) throw concurrentModification(id);
+  }
 
-    return repository.save(updated);
+  private boolean tryDelete(Device current) {
+    assertDeletable(current);
+    if (!repository.deleteIfVersion(current.id(), current.version())) return false;
+    stats.apply(current, null);
+    return true;
   }
 
+  /**
+   * Lê, valida e grava com UPDATE ... WHERE version = lida. Sem If-Match, um conflito relê
+   * e tenta de novo algumas vezes.
+   */
+  private Device writeChecked(UUID id, OptionalLong expectedVersion, UnaryOperator<Device> change) {
+    if (expectedVersion.isPresent()) return writeIfMatch(id, expectedVersion.getAsLong(), change);
+    for (int attempt = 1; ; attempt++) {
+      var written = confirmingRejection(id, get(id), current -> write(current, change.apply(current)));
+      if (written.isPresent()) return written.get();
+      assertMayRetry(id, expectedVersion, attempt);
+    }
+  }
 
-  public void delete(UUID id) {
-    var current = get(id);
-    if (current.state() == DeviceState.IN_USE) {
-      throw new DomainRuleViolationException("Cannot delete a device in IN_USE state");
+  /**
+   * Com If-Match quem decide é o UPDATE ... WHERE version = esperada, um único statement.
+   * A linha lida (talvez do cache) só serve de base se já estiver na versão esperada: a versão
+   * fixa o conteúdo, então as regras valem igual para ela. Se não estiver, se o UPDATE não
+   * aplicar, se não houver UPDATE para confirmar a versão (nada mudou) ou se uma regra rejeitar,
+   * uma leitura sem cache no primário decide entre 404, 412, 422 e gravar a partir dela.
+   */
+  private Device writeIfMatch(UUID id, long expected, UnaryOperator<Device> change) {
+    var cached = get(id);
+    if (cached.version() == expected) {
+      try {
+        var updated = change.apply(cached);
+        if (!updated.equals(cached)) {
+          var written = write(cached, updated);
+          if (written.isPresent()) return written.get();
+        }
+      } catch (DomainRuleViolationException e) {
+        // A linha em cache pode estar velha: a rejeição sai da leitura confirmada abaixo.
+      }
+    }
+    var current = getCurrent(id);
+    assertVersion(current, OptionalLong.of(expected));
+    return write(current, change.apply(current)).orElseThrow(() -> concurrentModification(id));
+  }
+
+  /**
+   * Executa step sobre a linha lida, talvez do cache. Uma regra que a rejeita (ex.: IN_USE) só
+   * vale para a linha confirmada: outro nó pode ter acabado de liberar o device, então relê sem
+   * cache e executa de novo, agora para valer.
+   */
+  private <T> T confirmingRejection(UUID id, Device cached, Function<Device, T> step) {
+    try {
+      return step.apply(cached);
+    } catch (DomainRuleViolationException e) {
+      return step.apply(getCurrent(id));
+    }
+  }
+
+  // Vazio se a versão de current já não é a do banco.
+  private Optional<Device> write(Device current, Device updated) {
+    if (updated.equals(current)) return Optional.of(current);
+    var written = repository.updateIfVersion(updated, current.version());
+    written.ifPresent(w -> stats.apply(current, w));
+    return written;
+  }
+
+  /**
+   * Aplica criações, patches e deleções com as mesmas regras das operações unitárias.
+   * Cada bloco de {@link #BATCH_CHUNK_SIZE} operações custa uma leitura (findAllCurrentById)
+   * e uma escrita em lote (applyBatch) numa única transação.
+   */
+  public List<BatchItemResult> batch(List<BatchOperation> operations) {
+    var results = new ArrayList<BatchItemResult>(operations.size());
+    for (int from = 0; from < operations.size(); from += BATCH_CHUNK_SIZE) {
+      int to = Math.min(from + BATCH_CHUNK_SIZE, operations.size());
+      results.addAll(batchChunk(operations.subList(from, to), from));
     }
-    repository.deleteById(id);
+    return results;
+  }
+
+  private List<BatchItemResult> batchChunk(List<BatchOperation> ops, int offset) {
+    var referenced = new HashSet<UUID>();
+    for (var op : ops) {
+      switch (op) {
+        case BatchOperation.Patch p -> referenced.add(p.command().id());
+        case BatchOperation.Delete d -> referenced.add(d.id());
+        case BatchOperation.Create c -> { }
+      }
+    }
+
+    var persisted = new HashMap<UUID, Device>();
+    if (!referenced.isEmpty()) {
+      // Sem cache: uma linha velha falharia a guarda de versão do applyBatch e o bloco inteiro.
+      repository.findAllCurrentById(referenced).forEach(d -> persisted.put(d.id(), d));
+    }
+    // Estado corrente de cada id dentro do bloco (operações sobre o mesmo id enxergam as anteriores).
+    var working = new LinkedHashMap<UUID, Device>(persisted);
+
+    var results = new ArrayList<BatchItemResult>(ops.size());
+    for (int i = 0; i < ops.size(); i++) {
+      results.add(applyInChunk(ops.get(i), offset + i, working));
+    }
+
+    var inserts = new ArrayList<Device>();
+    var updates = new ArrayList<Device>();
+    var versions = new HashMap<UUID, Long>();
+    working.forEach((id, d) -> {
+      var before = persisted.get(id);
+      if (before == null) {
+        inserts.add(d);
+      } else if (!before.equals(d)) {
+        updates.add(d.withVersion(before.version() + 1));
+        versions.put(id, before.version() + 1);
+      }
+    });
+    var deletes = persisted.values().stream().filter(d -> !working.containsKey(d.id())).toList();
+
+    var writes = new DeviceWriteBatch(inserts, updates, deletes);
+    if (writes.isEmpty()) return results;
+    try {
+      repository.applyBatch(writes);
+      inserts.forEach(d -> stats.apply(null, d));
+      updates.forEach(d -> stats.apply(persisted.get(d.id()), d));
+      deletes.forEach(d -> stats.apply(d, null));
+      // Resultados passam a refletir a versão gravada (base do ETag).
+      return results.stream()
+        .map(r -> r.device() == null || !versions.containsKey(r.id()) ? r
+          : BatchItemResult.ok(r.index(), r.outcome(), r.id(), r.device().withVersion(versions.get(r.id()))))
+        .toList();
+    } catch (RuntimeException e) {
+      // O bloco é atômico: nada dele foi gravado.
+      return results.stream()
+        .map(r -> r.device() != null || r.outcome() == Outcome.DELETED
+          ? BatchItemResult.error(r.index(), Outcome.FAILED, r.id(), "Batch chunk failed to persist")
+          : r)
+        .toList();
+    }
+  }
+
+  private BatchItemResult applyInChunk(BatchOperation op, int index, Map<UUID, Device> working) {
+    try {
+      return switch (op) {
+        case BatchOperation.Create c -> {
+          var cmd = c.command();
+          var created = newDevice(cmd, time);
+          working.put(created.id(), created);
+          yield BatchItemResult.ok(index, Outcome.CREATED, created.id(), created);
+        }
+        case BatchOperation.Patch p -> {
+          var id = p.command().id();
+          var current = working.get(id);
+          if (current == null) yield notFoundItem(index, id);
+          var updated = applyPatch(current, p.command());
+          working.put(id, updated);
+          yield BatchItemResult.ok(index, Outcome.UPDATED, id, updated);
+        }
+        case BatchOperation.Delete d -> {
+          var current = working.get(d.id());
+          if (current == null) yield notFoundItem(index, d.id());
+          assertDeletable(current);
+          working.remove(d.id());
+          yield BatchItemResult.ok(index, Outcome.DELETED, d.id(), null);
+        }
+      };
+    } catch (DomainRuleViolationException e) {
+      return BatchItemResult.error(index, Outcome.REJECTED, idOf(op), e.getMessage());
+    } catch (IllegalArgumentException | NullPointerException e) {
+      return BatchItemResult.error(index, Outcome.INVALID, idOf(op), e.getMessage());
+    }
+  }
+
+  private static BatchItemResult notFoundItem(int index, UUID id) {
+    return BatchItemResult.error(index, Outcome.NOT_FOUND, id, "Device %s not found".formatted(id));
+  }
+
+  private static UUID idOf(BatchOperation op) {
+    return switch (op) {
+      case BatchOperation.Create c -> null;
+      case BatchOperation.Patch p -> p.command().id();
+      case BatchOperation.Delete d -> d.id();
+    };
   }
 }
@@ -0,0 +1,19 @@
+package dev.roberto.devices.domain.usecase;
+
+import dev.roberto.devices.domain.model.DeviceCount;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Contagens por marca e estado, ordenadas por marca e depois por estado; só combinações
+ * com ao menos um device. refreshedAt é a última releitura completa do banco.
+ */
+public record DeviceStats(List<DeviceCount> counts, Instant refreshedAt) {
+
+  public long total() {
+    long total = 0;
+    for (var c : counts) total += c.count();
+    return total;
+  }
+}
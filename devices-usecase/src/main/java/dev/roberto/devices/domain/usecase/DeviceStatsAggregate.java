@@ -0,0 +1,78 @@
+package dev.roberto.devices.domain.usecase;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceCount;
+import dev.roberto.devices.domain.model.DeviceState;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Contagens brand × state mantidas no processo: carregadas por um único GROUP BY e ajustadas
+ * a cada escrita confirmada por este nó. Escritas de outros nós só aparecem quando o snapshot
+ * passa de maxAge e é recarregado; esse é o limite de staleness (zero = sempre recarrega).
+ * <p>
+ * Uma escrita confirmada enquanto o GROUP BY roda pode sair contada duas vezes, ou nenhuma;
+ * o erro dura até o próximo recarregamento.
+ */
+final class DeviceStatsAggregate {
+
+  private static final DeviceState[] STATES = DeviceState.values();
+
+  private final Duration maxAge;
+  // brand -> contagem por ordinal de DeviceState. Guardado por this.
+  private final TreeMap<String, long[]> counts = new TreeMap<>();
+  private Instant refreshedAt;
+
+  DeviceStatsAggregate(Duration maxAge) {
+    if (maxAge.isNegative()) throw new IllegalArgumentException("stats max-age must be >= 0");
+    this.maxAge = maxAge;
+  }
+
+  /** O snapshot atual, se foi carregado há menos de maxAge. */
+  synchronized Optional<DeviceStats> fresh(Instant now) {
+    if (refreshedAt == null || !now.isBefore(refreshedAt.plus(maxAge))) return Optional.empty();
+    return Optional.of(snapshot());
+  }
+
+  /** Troca tudo pelo resultado do GROUP BY lido a partir de at. */
+  synchronized DeviceStats replace(List<DeviceCount> rows, Instant at) {
+    counts.clear();
+    for (var r : rows) {
+      counts.computeIfAbsent(r.brand(), b -> new long[STATES.length])[r.state().ordinal()] += r.count();
+    }
+    refreshedAt = at;
+    return snapshot();
+  }
+
+  /** Ajuste de uma escrita confirmada: before e/ou after null em criação e remoção. */
+  synchronized void apply(Device before, Device after) {
+    // Antes da primeira carga não há base para ajustar: o GROUP BY já vai trazer a escrita.
+    if (refreshedAt == null) return;
+    if (before != null) add(before, -1);
+    if (after != null) add(after, 1);
+  }
+
+  private void add(Device d, long delta) {
+    var row = counts.computeIfAbsent(d.brand(), b -> new long[STATES.length]);
+    row[d.state().ordinal()] += delta;
+    for (long n : row) {
+      if (n != 0) return;
+    }
+    counts.remove(d.brand());
+  }
+
+  private DeviceStats snapshot() {
+    var rows = new ArrayList<DeviceCount>(counts.size() * STATES.length);
+    counts.forEach((brand, row) -> {
+      for (var s : STATES) {
+        if (row[s.ordinal()] > 0) rows.add(new DeviceCount(brand, s, row[s.ordinal()]));
+      }
+    });
+    return new DeviceStats(List.copyOf(rows), refreshedAt);
+  }
+}
@@ -0,0 +1,28 @@
+package dev.roberto.devices.domain.usecase;
+
+import dev.roberto.devices.domain.model.DeviceState;
+
+/**
+ * Trocas de estado feitas por um UPDATE condicional no estado de origem, sem leitura antes.
+ * Só o estado muda, então as regras de IN_USE (nome e marca congelados) valem por construção.
+ */
+public enum DeviceTransition {
+  CHECKOUT(DeviceState.AVAILABLE, DeviceState.IN_USE),
+  RELEASE(DeviceState.IN_USE, DeviceState.AVAILABLE);
+
+  private final DeviceState from;
+  private final DeviceState to;
+
+  DeviceTransition(DeviceState from, DeviceState to) {
+    this.from = from;
+    this.to = to;
+  }
+
+  public DeviceState from() {
+    return from;
+  }
+
+  public DeviceState to() {
+    return to;
+  }
+}
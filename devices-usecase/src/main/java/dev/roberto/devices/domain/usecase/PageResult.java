@@ -2,4 +2,15 @@ package dev.roberto.devices.domain.usecase;
 
 import java.util.List;
 
-public record PageResult<T>(List<T> items, long total, int page, int size) {}
+/**
+ * Página de uma listagem por offset. {@code total} só tem significado quando
+ * {@code accuracy != NONE}; {@code hasNext} é sempre exato.
+ */
+public record PageResult<T>(List<T> items, long total, int page, int size, Accuracy accuracy, boolean hasNext) {
+
+  public enum Accuracy { EXACT, APPROXIMATE, NONE }
+
+  public PageResult(List<T> items, long total, int page, int size) {
+    this(items, total, page, size, Accuracy.EXACT, (long) page * size + items.size() < total);
+  }
+}
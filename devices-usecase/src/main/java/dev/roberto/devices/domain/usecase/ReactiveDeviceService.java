@@ -0,0 +1,219 @@
+package dev.roberto.devices.domain.usecase;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceField;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.model.DeviceView;
+import dev.roberto.devices.domain.port.DeviceCursor;
+import dev.roberto.devices.domain.port.NameSearch;
+import dev.roberto.devices.domain.port.ReactiveDeviceRepository;
+import dev.roberto.devices.domain.time.TimeProvider;
+import dev.roberto.devices.domain.usecase.command.CreateDeviceCommand;
+import dev.roberto.devices.domain.usecase.command.UpdateDevicePatchCommand;
+import dev.roberto.devices.domain.usecase.command.UpdateDevicePutCommand;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+import static dev.roberto.devices.domain.usecase.DeviceRules.*;
+
+/**
+ * Mesmos casos de uso de {@link DeviceService} sobre {@link ReactiveDeviceRepository}:
+ * as regras vêm de {@link DeviceRules}, só a orquestração de I/O muda.
+ * Erros de regra chegam como sinal de erro do Mono, com as mesmas exceções.
+ */
+public class ReactiveDeviceService {
+
+  private final ReactiveDeviceRepository repository;
+  private final TimeProvider time;
+  private final DeviceStatsAggregate stats;
+
+  public ReactiveDeviceService(ReactiveDeviceRepository repository, TimeProvider time) {
+    this(repository, time, DeviceService.DEFAULT_STATS_MAX_AGE);
+  }
+
+  public ReactiveDeviceService(ReactiveDeviceRepository repository, TimeProvider time, Duration statsMaxAge) {
+    this.repository = Objects.requireNonNull(repository);
+    this.time = Objects.requireNonNull(time);
+    this.stats = new DeviceStatsAggregate(statsMaxAge);
+  }
+
+  public Mono<Device> create(CreateDeviceCommand cmd) {
+    return Mono.fromSupplier(() -> newDevice(cmd, time))
+      .flatMap(repository::insert)
+      .doOnNext(created -> stats.apply(null, created));
+  }
+
+  public Mono<Device> get(UUID id) {
+    return repository.findById(id).switchIfEmpty(Mono.error(() -> notFound(id)));
+  }
+
+  /** Como {@link DeviceService#getCurrent}; aqui não há cache nem réplica, então é o próprio {@link #get}. */
+  public Mono<Device> getCurrent(UUID id) {
+    return get(id);
+  }
+
+  public Flux<Device> exportAll() {
+    return repository.scanAll();
+  }
+
+  public Mono<Long> changeWatermark() {
+    return repository.changeWatermark();
+  }
+
+  /** Mesmo snapshot de {@link DeviceService#stats()}. */
+  public Mono<DeviceStats> stats() {
+    return Mono.defer(() -> {
+      var now = time.now();
+      return stats.fresh(now).map(Mono::just)
+        .orElseGet(() -> repository.countGroupedByBrandAndState().collectList().map(rows -> stats.replace(rows, now)));
+    });
+  }
+
+  /** Mesma política de total de {@link DeviceService#listPaged(Optional, Optional, int, int, CountMode)}. */
+  public Mono<PageResult<Device>> listPaged(Optional<String> brand, Optional<DeviceState> state, int page, int size,
+                                            CountMode mode) {
+    var b = brand.orElse(null);
+    var s = state.orElse(null);
+    return paged(b, s, page, size, mode, (offset, limit) -> repository.findPaged(b, s, offset, limit));
+  }
+
+  public Mono<PageResult<DeviceView>> listPagedView(Set<DeviceField> fields, Optional<String> brand,
+                                                    Optional<DeviceState> state, int page, int size, CountMode mode) {
+    var read = requireFields(fields);
+    var b = brand.orElse(null);
+    var s = state.orElse(null);
+    return paged(b, s, page, size, mode, (offset, limit) -> repository.findPagedView(read, b, s, offset, limit));
+  }
+
+  @FunctionalInterface
+  private interface PageQuery<T> {
+    Flux<T> fetch(long offset, int limit);
+  }
+
+  private <T> Mono<PageResult<T>> paged(String b, DeviceState s, int page, int size, CountMode mode,
+                                        PageQuery<T> query) {
+    long offset = (long) page * size;
+    int limit = mode == CountMode.EXACT ? size : size + 1;
+    return query.fetch(offset, limit).collectList().flatMap(rows -> {
+      boolean moreRows = rows.size() > size;
+      var items = moreRows ? rows.subList(0, size) : rows;
+
+      if (mode == CountMode.NONE) {
+        return Mono.just(new PageResult<>(items, -1, page, size, PageResult.Accuracy.NONE, moreRows));
+      }
+      long known = totalFromPage(offset, page, size, items.size());
+      if (known >= 0) {
+        return Mono.just(new PageResult<>(items, known, page, size));
+      }
+      var exact = repository.count(b, s).map(total -> new PageResult<>(items, total, page, size));
+      if (mode != CountMode.ESTIMATE) return exact;
+      long seen = offset + items.size() + (moreRows ? 1 : 0);
+      return repository.estimateCount(b, s)
+        .filter(estimate -> estimate >= DeviceService.EXACT_COUNT_THRESHOLD)
+        .map(estimate -> new PageResult<>(items, Math.max(estimate, seen), page, size,
+          PageResult.Accuracy.APPROXIMATE, moreRows))
+        .switchIfEmpty(exact);
+    });
+  }
+
+  /** Mesma busca de {@link DeviceService#search}. */
+  public Mono<PageResult<Device>> search(String q, Optional<String> brand, Optional<DeviceState> state,
+                                         int page, int size) {
+    return Mono.fromSupplier(() -> NameSearch.normalize(q))
+      .flatMap(normalized -> repository.searchByName(normalized, brand.orElse(null), state.orElse(null),
+        (long) page * size, size + 1).collectList())
+      .map(rows -> {
+        boolean moreRows = rows.size() > size;
+        var items = moreRows ? rows.subList(0, size) : rows;
+        return new PageResult<>(items, -1, page, size, PageResult.Accuracy.NONE, moreRows);
+      });
+  }
+
+  public Mono<CursorPage<Device>> listAfter(Optional<String> brand, Optional<DeviceState> state,
+                                            Optional<DeviceCursor> after, int size) {
+    // Busca size + 1 para saber se há próxima página sem precisar de COUNT.
+    return repository.findAfter(brand.orElse(null), state.orElse(null), after.orElse(null), size + 1)
+      .collectList()
+      .map(rows -> {
+        if (rows.size() <= size) return new CursorPage<>(rows, Optional.empty(), size);
+        var items = rows.subList(0, size);
+        return new CursorPage<>(items, Optional.of(DeviceCursor.of(items.get(size - 1))), size);
+      });
+  }
+  // creationTime e id são lidos mesmo sem terem sido pedidos: o próximo cursor sai deles.
+  public Mono<CursorPage<DeviceView>> listAfterView(Set<DeviceField> fields, Optional<String> brand,
+                                                    Optional<DeviceState> state, Optional<DeviceCursor> after,
+                                                    int size) {
+    var read = requireFields(fields);
+    read.add(DeviceField.ID);
+    read.add(DeviceField.CREATION_TIME);
+    return repository.findAfterView(read, brand.orElse(null), state.orElse(null), after.orElse(null), size + 1)
+      .collectList()
+      .map(rows -> {
+        if (rows.size() <= size) return new CursorPage<>(rows, Optional.empty(), size);
+        List<DeviceView> items = rows.subList(0, size);
+        var last = items.get(size - 1);
+        return new CursorPage<>(items, Optional.of(new DeviceCursor(last.creationTime(), last.id())), size);
+      });
+  }
+
+
+  public Mono<Device> updatePut(UpdateDevicePutCommand cmd) {
+    return writeChecked(cmd.id(), cmd.expectedVersion(), current -> applyPut(current, cmd), 1);
+  }
+
+  public Mono<Device> updatePatch(UpdateDevicePatchCommand cmd) {
+    return writeChecked(cmd.id(), cmd.expectedVersion(), current -> applyPatch(current, cmd), 1);
+  }
+
+  /** Mesmo UPDATE condicional de {@link DeviceService#transition}. */
+  public Mono<Device> transition(UUID id, DeviceTransition transition) {
+    return repository.updateStateIf(id, transition.from(), transition.to())
+      .doOnNext(moved -> stats.apply(moved.withState(transition.from()), moved))
+      .switchIfEmpty(Mono.defer(() -> getCurrent(id).flatMap(current -> Mono.error(stateConflict(current, transition)))));
+  }
+
+  public Mono<Void> delete(UUID id, OptionalLong expectedVersion) {
+    return delete(id, expectedVersion, 1);
+  }
+
+  private Mono<Void> delete(UUID id, OptionalLong expectedVersion, int attempt) {
+    return get(id).flatMap(current -> {
+      assertVersion(current, expectedVersion);
+      assertDeletable(current);
+      return repository.deleteIfVersion(id, current.version()).flatMap(deleted -> {
+        if (deleted) {
+          stats.apply(current, null);
+          return Mono.<Void>empty();
+        }
+        assertMayRetry(id, expectedVersion, attempt);
+        return delete(id, expectedVersion, attempt + 1);
+      });
+    });
+  }
+
+  // Mesmo laço de DeviceService#writeChecked: relê e tenta de novo enquanto não houver If-Match.
+  private Mono<Device> writeChecked(UUID id, OptionalLong expectedVersion, UnaryOperator<Device> change,
+                                    int attempt) {
+    return get(id).flatMap(current -> {
+      assertVersion(current, expectedVersion);
+      var updated = change.apply(current);
+      if (updated.equals(current)) return Mono.just(current);
+      return repository.updateIfVersion(updated, current.version())
+        .doOnNext(written -> stats.apply(current, written))
+        .switchIfEmpty(Mono.defer(() -> {
+          assertMayRetry(id, expectedVersion, attempt);
+          return writeChecked(id, expectedVersion, change, attempt + 1);
+        }));
+    });
+  }
+}
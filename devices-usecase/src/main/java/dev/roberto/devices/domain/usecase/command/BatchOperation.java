@@ -0,0 +1,9 @@
+package dev.roberto.devices.domain.usecase.command;
+
+import java.util.UUID;
+
+public sealed interface BatchOperation {
+  record Create(CreateDeviceCommand command) implements BatchOperation {}
+  record Patch(UpdateDevicePatchCommand command) implements BatchOperation {}
+  record Delete(UUID id) implements BatchOperation {}
+}
@@ -2,4 +2,11 @@ package dev.roberto.devices.domain.usecase.command;
 
 import dev.roberto.devices.domain.model.DeviceState;
 
-public record CreateDeviceCommand(String name, String brand, DeviceState state) {}
+import java.util.UUID;
+
+// id == null: o id é gerado na criação.
+public record CreateDeviceCommand(UUID id, String name, String brand, DeviceState state) {
+  public CreateDeviceCommand(String name, String brand, DeviceState state) {
+    this(null, name, brand, state);
+  }
+}
@@ -3,11 +3,17 @@ package dev.roberto.devices.domain.usecase.command;
 import dev.roberto.devices.domain.model.DeviceState;
 
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.UUID;
 
 public record UpdateDevicePatchCommand(
   UUID id,
   Optional<String> name,
   Optional<String> brand,
-  Optional<DeviceState> state
-) {}
+  Optional<DeviceState> state,
+  OptionalLong expectedVersion
+) {
+  public UpdateDevicePatchCommand(UUID id, Optional<String> name, Optional<String> brand, Optional<DeviceState> state) {
+    this(id, name, brand, state, OptionalLong.empty());
+  }
+}
@@ -2,6 +2,11 @@ package dev.roberto.devices.domain.usecase.command;
 
 import dev.roberto.devices.domain.model.DeviceState;
 
+import java.util.OptionalLong;
 import java.util.UUID;
 
-public record UpdateDevicePutCommand(UUID id, String name, String brand, DeviceState state) {}
+public record UpdateDevicePutCommand(UUID id, String name, String brand, DeviceState state, OptionalLong expectedVersion) {
+  public UpdateDevicePutCommand(UUID id, String name, String brand, DeviceState state) {
+    this(id, name, brand, state, OptionalLong.empty());
+  }
+}
@@ -0,0 +1,5 @@
+package dev.roberto.devices.domain.usecase.exception;
+
+public class StateConflictException extends RuntimeException {
+  public StateConflictException(String message) { super(message); }
+}
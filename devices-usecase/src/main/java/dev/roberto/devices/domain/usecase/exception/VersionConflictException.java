@@ -0,0 +1,5 @@
+package dev.roberto.devices.domain.usecase.exception;
+
+public class VersionConflictException extends RuntimeException {
+  public VersionConflictException(String message) { super(message); }
+}
@@ -1,20 +1,38 @@
 package dev.roberto.devices.domain.usecase;
 
 import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceCount;
+import dev.roberto.devices.domain.model.DeviceField;
 import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.model.DeviceView;
+import dev.roberto.devices.domain.port.DeviceCursor;
 import dev.roberto.devices.domain.port.DeviceRepository;
+import dev.roberto.devices.domain.port.DeviceWriteBatch;
+import dev.roberto.devices.domain.port.NameSearch;
 import dev.roberto.devices.domain.time.TimeProvider;
+import dev.roberto.devices.domain.usecase.BatchItemResult.Outcome;
+import dev.roberto.devices.domain.usecase.command.BatchOperation;
 import dev.roberto.devices.domain.usecase.command.CreateDeviceCommand;
 import dev.roberto.devices.domain.usecase.command.UpdateDevicePatchCommand;
 import dev.roberto.devices.domain.usecase.command.UpdateDevicePutCommand;
 import dev.roberto.devices.domain.usecase.exception.DomainRuleViolationException;
 import dev.roberto.devices.domain.usecase.exception.NotFoundException;
+import dev.roberto.devices.domain.usecase.exception.StateConflictException;
+import dev.roberto.devices.domain.usecase.exception.VersionConflictException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -57,6 +75,59 @@ class DeviceServiceTest {
     assertThrows(NotFoundException.class, () -> service.get(unknownId));
   }
 
+  @Test
+  void search_shouldRankExactThenPrefixThenSubstring_andPageWithoutTotal() {
+    service.create(new CreateDeviceCommand("Office WS-10", "Dell", DeviceState.AVAILABLE));
+    service.create(new CreateDeviceCommand("ws-10", "Dell", DeviceState.AVAILABLE));
+    service.create(new CreateDeviceCommand("WS-100", "Dell", DeviceState.AVAILABLE));
+    service.create(new CreateDeviceCommand("WS-10", "Apple", DeviceState.AVAILABLE));
+    service.create(new CreateDeviceCommand("Laptop", "Dell", DeviceState.AVAILABLE));
+
+    var first = service.search("  WS-10 ", Optional.of("Dell"), Optional.empty(), 0, 2);
+    assertEquals(List.of("ws-10", "WS-100"), first.items().stream().map(Device::name).toList());
+    assertEquals(PageResult.Accuracy.NONE, first.accuracy());
+    assertTrue(first.hasNext());
+
+    var second = service.search("ws-10", Optional.of("Dell"), Optional.empty(), 1, 2);
+    assertEquals(List.of("Office WS-10"), second.items().stream().map(Device::name).toList());
+    assertFalse(second.hasNext());
+
+    // Menos de 3 caracteres: só prefixo ("Office WS-10" não entra).
+    assertEquals(3, service.search("ws", Optional.empty(), Optional.empty(), 0, 10).items().size());
+    assertThrows(IllegalArgumentException.class,
+      () -> service.search(" ", Optional.empty(), Optional.empty(), 0, 10));
+  }
+
+  @Test
+  void stats_shouldApplyLocalWritesAtOnce_andReloadOtherWritesAfterMaxAge() {
+    var now = new AtomicReference<>(Instant.parse("2025-01-01T00:00:00Z"));
+    service = new DeviceService(repo, now::get, Duration.ofSeconds(30));
+    var a = service.create(new CreateDeviceCommand("A", "Apple", DeviceState.AVAILABLE));
+    service.create(new CreateDeviceCommand("B", "Apple", DeviceState.IN_USE));
+
+    var first = service.stats();
+    assertEquals(List.of(new DeviceCount("Apple", DeviceState.AVAILABLE, 1), new DeviceCount("Apple", DeviceState.IN_USE, 1)),
+      first.counts());
+    assertEquals(1, repo.counts);
+
+    // Escritas deste nó: ajustam o snapshot sem novo GROUP BY.
+    service.updatePatch(new UpdateDevicePatchCommand(a.id(), Optional.empty(), Optional.empty(), Optional.of(DeviceState.INACTIVE)));
+    service.create(new CreateDeviceCommand("C", "Dell", DeviceState.AVAILABLE));
+    assertEquals(List.of(new DeviceCount("Apple", DeviceState.IN_USE, 1), new DeviceCount("Apple", DeviceState.INACTIVE, 1),
+      new DeviceCount("Dell", DeviceState.AVAILABLE, 1)), service.stats().counts());
+    assertEquals(1, repo.counts);
+
+    // Escrita de outro nó: só aparece depois de max-age.
+    var other = new Device(UUID.randomUUID(), "D", "HP", DeviceState.AVAILABLE, now.get());
+    repo.store.put(other.id(), other);
+    assertEquals(3, service.stats().total());
+    now.set(now.get().plusSeconds(30));
+    var reloaded = service.stats();
+    assertEquals(4, reloaded.total());
+    assertEquals(now.get(), reloaded.refreshedAt());
+    assertEquals(2, repo.counts);
+  }
+
   @Test
   void listByBrand_and_listByState_shouldFilter() {
     service.create(new CreateDeviceCommand("A", "Apple", DeviceState.AVAILABLE));
@@ -203,6 +274,354 @@ class DeviceServiceTest {
     assertEquals(List.of("A2", "A3"), names);
   }
 
+  @Test
+  void listPaged_brandAndState_shouldPageInRepository_secondPage() {
+    service.create(new CreateDeviceCommand("A1", "Apple", DeviceState.IN_USE));
+    service.create(new CreateDeviceCommand("A2", "Apple", DeviceState.IN_USE));
+    service.create(new CreateDeviceCommand("A3", "Apple", DeviceState.IN_USE));
+    service.create(new CreateDeviceCommand("A4", "Apple", DeviceState.AVAILABLE));
+
+    var pr = service.listPaged(Optional.of("Apple"), Optional.of(DeviceState.IN_USE), 1, 2);
+    assertEquals(3L, pr.total());
+    assertEquals(List.of("A3"), pr.items().stream().map(Device::name).toList());
+  }
+
+  @Test
+  void listPaged_none_shouldReportHasNextWithoutCounting() {
+    for (var n : List.of("A", "B", "C", "D", "E")) service.create(new CreateDeviceCommand(n, "Any", null));
+
+    var first = service.listPaged(Optional.empty(), Optional.empty(), 0, 2, CountMode.NONE);
+    var last = service.listPaged(Optional.empty(), Optional.empty(), 2, 2, CountMode.NONE);
+
+    assertEquals(List.of("A", "B"), first.items().stream().map(Device::name).toList());
+    assertTrue(first.hasNext());
+    assertEquals(PageResult.Accuracy.NONE, first.accuracy());
+    assertEquals(List.of("E"), last.items().stream().map(Device::name).toList());
+    assertFalse(last.hasNext());
+    assertEquals(0, repo.counts);
+  }
+
+  @Test
+  void listPaged_estimate_shouldUseEstimateAboveThreshold_andCountBelow() {
+    for (var n : List.of("A", "B", "C")) service.create(new CreateDeviceCommand(n, "Any", null));
+
+    repo.estimate = OptionalLong.of(DeviceService.EXACT_COUNT_THRESHOLD * 5);
+    var big = service.listPaged(Optional.of("Any"), Optional.empty(), 0, 2, CountMode.ESTIMATE);
+    assertEquals(PageResult.Accuracy.APPROXIMATE, big.accuracy());
+    assertEquals(DeviceService.EXACT_COUNT_THRESHOLD * 5, big.total());
+    assertTrue(big.hasNext());
+    assertEquals(0, repo.counts);
+
+    repo.estimate = OptionalLong.of(2);
+    var small = service.listPaged(Optional.of("Any"), Optional.empty(), 0, 2, CountMode.ESTIMATE);
+    assertEquals(PageResult.Accuracy.EXACT, small.accuracy());
+    assertEquals(3, small.total());
+    assertEquals(1, repo.counts);
+  }
+
+  @Test
+  void listPaged_exact_shortPage_shouldDeriveTotalWithoutCounting() {
+    for (var n : List.of("A", "B", "C")) service.create(new CreateDeviceCommand(n, "Any", null));
+
+    var pr = service.listPaged(Optional.empty(), Optional.empty(), 1, 2);
+
+    assertEquals(3, pr.total());
+    assertFalse(pr.hasNext());
+    assertEquals(0, repo.counts);
+  }
+
+  @Test
+  void listAfter_shouldWalkAllPages_withoutGapsOrDuplicates() {
+    for (int i = 0; i < 5; i++) {
+      service.create(new CreateDeviceCommand("D" + i, "Any", DeviceState.AVAILABLE));
+    }
+
+    var seen = new ArrayList<UUID>();
+    Optional<DeviceCursor> cursor = Optional.empty();
+    int pages = 0;
+    do {
+      var cp = service.listAfter(Optional.empty(), Optional.empty(), cursor, 2);
+      cp.items().forEach(d -> seen.add(d.id()));
+      cursor = cp.next();
+      pages++;
+    } while (cursor.isPresent());
+
+    assertEquals(3, pages);
+    assertEquals(5, seen.size());
+    assertEquals(5, new HashSet<>(seen).size());
+  }
+
+  @Test
+  void listAfter_brandAndState_shouldFilter_andStopWithoutNextCursor() {
+    service.create(new CreateDeviceCommand("A1", "Apple", DeviceState.AVAILABLE));
+    service.create(new CreateDeviceCommand("A2", "Apple", DeviceState.IN_USE));
+    service.create(new CreateDeviceCommand("L1", "Lenovo", DeviceState.IN_USE));
+
+    var cp = service.listAfter(Optional.of("Apple"), Optional.of(DeviceState.IN_USE), Optional.empty(), 10);
+    assertEquals(1, cp.items().size());
+    assertEquals("A2", cp.items().get(0).name());
+    assertTrue(cp.next().isEmpty());
+  }
+
+  @Test
+  void listPagedView_shouldReadOnlyRequestedFields_andKeepTotals() {
+    for (var n : List.of("A", "B", "C")) service.create(new CreateDeviceCommand(n, "Any", null));
+
+    var pr = service.listPagedView(Set.of(DeviceField.STATE, DeviceField.ID), Optional.of("Any"), Optional.empty(),
+      0, 2, CountMode.EXACT);
+
+    assertEquals(EnumSet.of(DeviceField.ID, DeviceField.STATE), repo.viewFields);
+    assertEquals(3, pr.total());
+    var first = pr.items().get(0);
+    assertNotNull(first.id());
+    assertEquals(DeviceState.AVAILABLE, first.state());
+    assertNull(first.name());
+    assertNull(first.creationTime());
+    assertThrows(IllegalArgumentException.class, () ->
+      service.listPagedView(Set.of(), Optional.empty(), Optional.empty(), 0, 2, CountMode.EXACT));
+  }
+
+  @Test
+  void listAfterView_shouldAlsoReadCursorColumns_andWalkAllPages() {
+    for (int i = 0; i < 5; i++) {
+      service.create(new CreateDeviceCommand("D" + i, "Any", DeviceState.AVAILABLE));
+    }
+
+    var names = new TreeSet<String>();
+    Optional<DeviceCursor> cursor = Optional.empty();
+    do {
+      var cp = service.listAfterView(Set.of(DeviceField.NAME), Optional.empty(), Optional.empty(), cursor, 2);
+      cp.items().forEach(v -> names.add(v.name()));
+      cursor = cp.next();
+    } while (cursor.isPresent());
+
+    assertEquals(EnumSet.of(DeviceField.ID, DeviceField.NAME, DeviceField.CREATION_TIME), repo.viewFields);
+    assertEquals(Set.of("D0", "D1", "D2", "D3", "D4"), names);
+  }
+
+  @Test
+  void exportAll_shouldVisitEveryDevice() {
+    service.create(new CreateDeviceCommand("A", "Apple", DeviceState.AVAILABLE));
+    service.create(new CreateDeviceCommand("B", "Lenovo", DeviceState.IN_USE));
+
+    var visited = new ArrayList<Device>();
+    service.exportAll(visited::add);
+
+    assertEquals(2, visited.size());
+  }
+
+  @Test
+  void batch_shouldApplyRulesPerItem_andWriteOncePerChunk() {
+    var free = service.create(new CreateDeviceCommand("F", "Dell", DeviceState.AVAILABLE));
+    var busy = service.create(new CreateDeviceCommand("B", "Dell", DeviceState.IN_USE));
+    var missing = UUID.randomUUID();
+
+    var results = service.batch(List.of(
+      new BatchOperation.Create(new CreateDeviceCommand("N", "HP", null)),
+      new BatchOperation.Patch(new UpdateDevicePatchCommand(free.id(), Optional.empty(), Optional.of("HP"), Optional.empty())),
+      new BatchOperation.Patch(new UpdateDevicePatchCommand(busy.id(), Optional.of("X"), Optional.empty(), Optional.empty())),
+      new BatchOperation.Delete(busy.id()),
+      new BatchOperation.Delete(missing),
+      new BatchOperation.Create(new CreateDeviceCommand(" ", "HP", null))
+    ));
+
+    assertEquals(List.of(Outcome.CREATED, Outcome.UPDATED, Outcome.REJECTED, Outcome.REJECTED,
+      Outcome.NOT_FOUND, Outcome.INVALID), results.stream().map(BatchItemResult::outcome).toList());
+    assertEquals(1, repo.batches);
+    assertEquals("HP", repo.findById(free.id()).orElseThrow().brand());
+    assertTrue(repo.findById(busy.id()).isPresent());
+    assertTrue(repo.findById(results.get(0).id()).isPresent());
+  }
+
+  @Test
+  void batch_operationsOnSameId_shouldSeeEarlierOnesInTheChunk() {
+    var d = service.create(new CreateDeviceCommand("WS-01", "Lenovo", DeviceState.IN_USE));
+
+    var results = service.batch(List.of(
+      new BatchOperation.Patch(new UpdateDevicePatchCommand(d.id(), Optional.empty(), Optional.empty(), Optional.of(DeviceState.AVAILABLE))),
+      new BatchOperation.Delete(d.id())
+    ));
+
+    assertEquals(Outcome.UPDATED, results.get(0).outcome());
+    assertEquals(Outcome.DELETED, results.get(1).outcome());
+    assertTrue(repo.findById(d.id()).isEmpty());
+  }
+
+  @Test
+  void batch_shouldSplitIntoChunks() {
+    var ops = new ArrayList<BatchOperation>();
+    for (int i = 0; i < DeviceService.BATCH_CHUNK_SIZE + 1; i++) {
+      ops.add(new BatchOperation.Create(new CreateDeviceCommand("D" + i, "HP", null)));
+    }
+
+    var results = service.batch(ops);
+
+    assertEquals(ops.size(), results.size());
+    assertEquals(2, repo.batches);
+    assertEquals(ops.size(), repo.store.size());
+  }
+
+  @Test
+  void updatePatch_shouldBumpVersionOnlyWhenSomethingChanges() {
+    var d = service.create(new CreateDeviceCommand("N", "HP", null));
+    assertEquals(0, d.version());
+
+    var renamed = service.updatePatch(new UpdateDevicePatchCommand(d.id(), Optional.of("N2"), Optional.empty(), Optional.empty()));
+    assertEquals(1, renamed.version());
+
+    var same = service.updatePatch(new UpdateDevicePatchCommand(d.id(), Optional.of("N2"), Optional.empty(), Optional.empty()));
+    assertEquals(1, same.version());
+  }
+
+  @Test
+  void updatePut_withStaleExpectedVersion_shouldConflict() {
+    var d = service.create(new CreateDeviceCommand("N", "HP", null));
+    service.updatePut(new UpdateDevicePutCommand(d.id(), "N2", "HP", DeviceState.AVAILABLE, OptionalLong.of(0)));
+
+    assertThrows(VersionConflictException.class, () ->
+      service.updatePut(new UpdateDevicePutCommand(d.id(), "N3", "HP", DeviceState.AVAILABLE, OptionalLong.of(0))));
+    assertEquals("N2", repo.store.get(d.id()).name());
+  }
+
+  @Test
+  void updatePatch_withoutExpectedVersion_shouldRetryAfterConcurrentWrite() {
+    var d = service.create(new CreateDeviceCommand("N", "HP", null));
+    repo.interleave = () -> repo.store.computeIfPresent(d.id(), (k, v) -> v.withBrand("Dell").withVersion(v.version() + 1));
+
+    var updated = service.updatePatch(new UpdateDevicePatchCommand(d.id(), Optional.of("N2"), Optional.empty(), Optional.empty()));
+
+    assertEquals("N2", updated.name());
+    assertEquals("Dell", updated.brand()); // não perdeu a escrita concorrente
+    assertEquals(2, updated.version());
+  }
+
+  @Test
+  void transition_shouldLetExactlyOneConcurrentCheckoutWin() throws Exception {
+    var d = service.create(new CreateDeviceCommand("Hot", "HP", DeviceState.AVAILABLE));
+    int clients = 8;
+    var start = new CountDownLatch(1);
+    var wins = new AtomicInteger();
+    var conflicts = new AtomicInteger();
+    try (var pool = Executors.newFixedThreadPool(clients)) {
+      for (int i = 0; i < clients; i++) {
+        pool.submit(() -> {
+          start.await();
+          try {
+            service.transition(d.id(), DeviceTransition.CHECKOUT);
+            wins.incrementAndGet();
+          } catch (StateConflictException e) {
+            conflicts.incrementAndGet();
+          }
+          return null;
+        });
+      }
+      start.countDown();
+    }
+
+    assertEquals(1, wins.get());
+    assertEquals(clients - 1, conflicts.get());
+    assertEquals(DeviceState.IN_USE, repo.store.get(d.id()).state());
+    assertEquals(1, repo.store.get(d.id()).version());
+
+    var released = service.transition(d.id(), DeviceTransition.RELEASE);
+    assertEquals(DeviceState.AVAILABLE, released.state());
+    assertEquals(2, released.version());
+    var e = assertThrows(StateConflictException.class, () -> service.transition(d.id(), DeviceTransition.RELEASE));
+    assertTrue(e.getMessage().contains("AVAILABLE"), e.getMessage());
+    assertThrows(NotFoundException.class, () -> service.transition(UUID.randomUUID(), DeviceTransition.CHECKOUT));
+  }
+
+  @Test
+  void delete_withStaleExpectedVersion_shouldConflict() {
+    var d = service.create(new CreateDeviceCommand("N", "HP", null));
+    service.updatePatch(new UpdateDevicePatchCommand(d.id(), Optional.of("N2"), Optional.empty(), Optional.empty()));
+
+    assertThrows(VersionConflictException.class, () -> service.delete(d.id(), OptionalLong.of(0)));
+    service.delete(d.id(), OptionalLong.of(1));
+    assertTrue(repo.store.isEmpty());
+  }
+
+  @Test
+  void updatePut_withCurrentIfMatch_shouldWriteEvenWhenTheCachedRowIsStale() {
+    var d = service.create(new CreateDeviceCommand("N", "HP", null));
+    var v1 = service.updatePatch(new UpdateDevicePatchCommand(d.id(), Optional.of("N2"), Optional.empty(), Optional.empty()));
+    repo.cached.put(d.id(), d); // outro nó gravou a v1; este ainda tem a v0 em cache
+
+    var written = service.updatePut(new UpdateDevicePutCommand(d.id(), "N3", "HP", DeviceState.AVAILABLE, OptionalLong.of(v1.version())));
+
+    assertEquals(2, written.version());
+    assertEquals("N3", repo.store.get(d.id()).name());
+    assertThrows(VersionConflictException.class, () ->
+      service.updatePut(new UpdateDevicePutCommand(d.id(), "N4", "HP", DeviceState.AVAILABLE, OptionalLong.of(0))));
+  }
+
+  @Test
+  void updatePatch_withStaleIfMatch_shouldConflictEvenWhenTheCachedRowAgrees() {
+    var d = service.create(new CreateDeviceCommand("N", "HP", null));
+    service.updatePatch(new UpdateDevicePatchCommand(d.id(), Optional.of("N2"), Optional.empty(), Optional.empty()));
+    repo.cached.put(d.id(), d);
+
+    // Nada muda em relação à linha em cache: sem UPDATE, a versão é conferida sem cache.
+    assertThrows(VersionConflictException.class, () ->
+      service.updatePatch(new UpdateDevicePatchCommand(d.id(), Optional.of("N"), Optional.empty(), Optional.empty(), OptionalLong.of(0))));
+  }
+
+  @Test
+  void delete_withCurrentIfMatch_shouldApplyRulesToTheUncachedRow() {
+    var d = service.create(new CreateDeviceCommand("N", "HP", null));
+    var busy = service.updatePatch(new UpdateDevicePatchCommand(d.id(), Optional.empty(), Optional.empty(), Optional.of(DeviceState.IN_USE)));
+    repo.cached.put(d.id(), d); // em cache ainda AVAILABLE
+
+    assertThrows(DomainRuleViolationException.class, () -> service.delete(d.id(), OptionalLong.of(busy.version())));
+    var free = service.transition(d.id(), DeviceTransition.RELEASE);
+    repo.cached.put(d.id(), busy);
+
+    service.delete(d.id(), OptionalLong.of(free.version()));
+    assertTrue(repo.store.isEmpty());
+  }
+
+  @Test
+  void updatePatchAndDelete_shouldNotBeRejectedByAStaleCachedInUseRow() {
+    var d = service.create(new CreateDeviceCommand("N", "HP", null));
+    repo.cached.put(d.id(), d.withState(DeviceState.IN_USE)); // outro nó acabou de liberar
+
+    var renamed = service.updatePatch(new UpdateDevicePatchCommand(d.id(), Optional.of("N2"), Optional.empty(), Optional.empty()));
+    assertEquals("N2", renamed.name());
+
+    repo.cached.put(d.id(), renamed.withState(DeviceState.IN_USE));
+    service.delete(d.id());
+    assertTrue(repo.store.isEmpty());
+  }
+
+  @Test
+  void transition_lostRace_shouldReportTheUncachedRow() {
+    var d = service.create(new CreateDeviceCommand("N", "HP", null));
+    service.transition(d.id(), DeviceTransition.CHECKOUT);
+    service.transition(d.id(), DeviceTransition.RELEASE);
+    repo.cached.put(d.id(), d.withState(DeviceState.IN_USE)); // em cache ainda IN_USE
+
+    var e = assertThrows(StateConflictException.class, () -> service.transition(d.id(), DeviceTransition.RELEASE));
+    assertTrue(e.getMessage().contains("is AVAILABLE"), e.getMessage());
+
+    repo.store.remove(d.id()); // apagado em outro nó; o cache ainda tem a linha
+    assertThrows(NotFoundException.class, () -> service.transition(d.id(), DeviceTransition.RELEASE));
+  }
+
+  @Test
+  void batch_shouldNotFailTheChunkOnAStaleCachedRow() {
+    var d = service.create(new CreateDeviceCommand("N", "HP", null));
+    service.updatePatch(new UpdateDevicePatchCommand(d.id(), Optional.of("N2"), Optional.empty(), Optional.empty()));
+    repo.cached.put(d.id(), d);
+
+    var results = service.batch(List.of(
+      new BatchOperation.Patch(new UpdateDevicePatchCommand(d.id(), Optional.empty(), Optional.of("Dell"), Optional.empty()))));
+
+    assertEquals(Outcome.UPDATED, results.get(0).outcome());
+    assertEquals(2, results.get(0).device().version());
+    assertEquals("N2", repo.store.get(d.id()).name());
+    assertEquals("Dell", repo.store.get(d.id()).brand());
+  }
+
   // ----------------- helpers (fakes) -----------------
 
   static class FixedTimeProvider implements TimeProvider {
@@ -213,6 +632,14 @@ class DeviceServiceTest {
 
   static class InMemoryDeviceRepository implements DeviceRepository {
     final Map<UUID, Device> store = new ConcurrentHashMap<>();
+    int batches;
+    // Simula uma escrita concorrente entre a leitura e o próximo UPDATE condicional (dispara uma vez).
+    Runnable interleave;
+    OptionalLong estimate = OptionalLong.empty();
+    int counts;
+    Set<DeviceField> viewFields;
+    // Linhas que um cache na frente ainda serviria (possivelmente velhas); só findById as vê.
+    final Map<UUID, Device> cached = new ConcurrentHashMap<>();
 
     @Override
     public Device save(Device device) {
@@ -220,16 +647,60 @@ class DeviceServiceTest {
       return device;
     }
 
+    @Override
+    public Optional<Device> updateIfVersion(Device device, long expectedVersion) {
+      if (interleave != null) {
+        var r = interleave;
+        interleave = null;
+        r.run();
+      }
+      var current = store.get(device.id());
+      if (current == null || current.version() != expectedVersion) return Optional.empty();
+      var written = device.withVersion(expectedVersion + 1);
+      store.put(written.id(), written);
+      return Optional.of(written);
+    }
+
+    @Override
+    public Optional<Device> updateStateIf(UUID id, DeviceState expected, DeviceState target) {
+      var current = store.get(id);
+      if (current == null || current.state() != expected) return Optional.empty();
+      var written = current.withState(target).withVersion(current.version() + 1);
+      // replace condicional: como o UPDATE ... WHERE state = ?, só um concorrente vence.
+      return store.replace(id, current, written) ? Optional.of(written) : Optional.empty();
+    }
+
+    @Override
+    public boolean deleteIfVersion(UUID id, long expectedVersion) {
+      var current = store.get(id);
+      return current != null && current.version() == expectedVersion && store.remove(id, current);
+    }
+
     @Override
     public Optional<Device> findById(UUID id) {
+      return Optional.ofNullable(cached.getOrDefault(id, store.get(id)));
+    }
+
+    @Override
+    public Optional<Device> findCurrentById(UUID id) {
       return Optional.ofNullable(store.get(id));
     }
 
+    @Override
+    public List<Device> findAllCurrentById(Collection<UUID> ids) {
+      return ids.stream().map(store::get).filter(Objects::nonNull).toList();
+    }
+
     @Override
     public List<Device> findAll() {
       return new ArrayList<>(store.values());
     }
 
+    @Override
+    public void scanAll(Consumer<Device> consumer) {
+      store.values().stream().sorted(KEYSET).forEach(consumer);
+    }
+
     @Override
     public List<Device> findByBrand(String brand) {
       return store.values().stream().filter(d -> d.brand().equals(brand)).toList();
@@ -241,49 +712,145 @@ class DeviceServiceTest {
     }
 
     @Override
-    public List<Device> findAllPaged(int page, int size) {
+    public List<Device> findAllPaged(long offset, int limit) {
       var all = store.values().stream()
         .sorted(Comparator.comparing(Device::name))
         .toList();
-      return paginate(all, page, size);
+      return paginate(all, offset, limit);
     }
 
     @Override
-    public List<Device> findByBrandPaged(String brand, int page, int size) {
+    public List<Device> findByBrandPaged(String brand, long offset, int limit) {
       var list = store.values().stream()
         .filter(d -> d.brand().equals(brand))
         .sorted(Comparator.comparing(Device::name))
         .toList();
-      return paginate(list, page, size);
+      return paginate(list, offset, limit);
     }
 
     @Override
-    public List<Device> findByStatePaged(DeviceState state, int page, int size) {
+    public List<Device> findByStatePaged(DeviceState state, long offset, int limit) {
       var list = store.values().stream()
         .filter(d -> d.state() == state)
         .sorted(Comparator.comparing(Device::name))
         .toList();
-      return paginate(list, page, size);
+      return paginate(list, offset, limit);
+    }
+
+    @Override
+    public List<Device> findByBrandAndStatePaged(String brand, DeviceState state, long offset, int limit) {
+      var list = store.values().stream()
+        .filter(d -> d.brand().equals(brand) && d.state() == state)
+        .sorted(Comparator.comparing(Device::name))
+        .toList();
+      return paginate(list, offset, limit);
+    }
+
+    @Override
+    public List<DeviceView> findPagedView(Set<DeviceField> fields, String brand, DeviceState state,
+                                          long offset, int limit) {
+      viewFields = fields;
+      List<Device> rows;
+      if (brand != null && state != null) rows = findByBrandAndStatePaged(brand, state, offset, limit);
+      else if (brand != null) rows = findByBrandPaged(brand, offset, limit);
+      else if (state != null) rows = findByStatePaged(state, offset, limit);
+      else rows = findAllPaged(offset, limit);
+      return rows.stream().map(d -> DeviceView.of(d, fields)).toList();
+    }
+
+    @Override
+    public List<DeviceView> findAfterView(Set<DeviceField> fields, String brand, DeviceState state,
+                                          DeviceCursor after, int limit) {
+      viewFields = fields;
+      var rows = keyset(store.values().stream()
+        .filter(d -> (brand == null || d.brand().equals(brand)) && (state == null || d.state() == state)), after, limit);
+      return rows.stream().map(d -> DeviceView.of(d, fields)).toList();
+    }
+
+    @Override
+    public List<Device> searchByName(String q, String brand, DeviceState state, long offset, int limit) {
+      var hits = store.values().stream()
+        .filter(d -> (brand == null || d.brand().equals(brand)) && (state == null || d.state() == state))
+        .filter(d -> NameSearch.rank(d.name(), q) != NameSearch.NO_MATCH)
+        .sorted(Comparator.<Device>comparingInt(d -> NameSearch.rank(d.name(), q))
+          .thenComparingInt(d -> d.name().length())
+          .thenComparing(KEYSET))
+        .toList();
+      return paginate(hits, offset, limit);
+    }
+
+    @Override
+    public List<Device> findAllAfter(DeviceCursor after, int limit) {
+      return keyset(store.values().stream(), after, limit);
+    }
+
+    @Override
+    public List<Device> findByBrandAfter(String brand, DeviceCursor after, int limit) {
+      return keyset(store.values().stream().filter(d -> d.brand().equals(brand)), after, limit);
+    }
+
+    @Override
+    public List<Device> findByStateAfter(DeviceState state, DeviceCursor after, int limit) {
+      return keyset(store.values().stream().filter(d -> d.state() == state), after, limit);
+    }
+
+    @Override
+    public List<Device> findByBrandAndStateAfter(String brand, DeviceState state, DeviceCursor after, int limit) {
+      return keyset(store.values().stream()
+        .filter(d -> d.brand().equals(brand) && d.state() == state), after, limit);
     }
 
     @Override
     public long countAll() {
+      counts++;
       return store.size();
     }
 
     @Override
     public long countByBrand(String brand) {
+      counts++;
       return store.values().stream().filter(d -> d.brand().equals(brand)).count();
     }
 
     @Override
     public long countByState(DeviceState state) {
+      counts++;
       return store.values().stream().filter(d -> d.state() == state).count();
     }
-    private static List<Device> paginate(List<Device> list, int page, int size) {
+    @Override
+    public long countByBrandAndState(String brand, DeviceState state) {
+      counts++;
+      return store.values().stream().filter(d -> d.brand().equals(brand) && d.state() == state).count();
+    }
+    @Override
+    public List<DeviceCount> countGroupedByBrandAndState() {
+      counts++;
+      var grouped = store.values().stream()
+        .collect(Collectors.groupingBy(Device::brand, Collectors.groupingBy(Device::state, Collectors.counting())));
+      var rows = new ArrayList<DeviceCount>();
+      grouped.forEach((brand, byState) -> byState.forEach((state, n) -> rows.add(new DeviceCount(brand, state, n))));
+      return rows;
+    }
+
+    private static final Comparator<Device> KEYSET =
+      Comparator.comparing(Device::creationTime).thenComparing(Device::id);
+
+    private static List<Device> keyset(Stream<Device> devices, DeviceCursor after, int limit) {
+      return devices
+        .filter(d -> after == null || KEYSET.compare(d, probe(after)) > 0)
+        .sorted(KEYSET)
+        .limit(limit)
+        .toList();
+    }
+
+    private static Device probe(DeviceCursor c) {
+      return new Device(c.id(), "probe", "probe", DeviceState.AVAILABLE, c.creationTime());
+    }
+
+    private static List<Device> paginate(List<Device> list, long offset, int limit) {
       int total = list.size();
-      int from = Math.min(Math.max(page, 0) * Math.max(size, 1), total);
-      int to = Math.min(from + Math.max(size, 1), total);
+      int from = (int) Math.min(offset, total);
+      int to = Math.min(from + limit, total);
       return list.subList(from, to);
     }
 
@@ -291,5 +858,30 @@ class DeviceServiceTest {
     public void deleteById(UUID id) {
       store.remove(id);
     }
+
+    @Override
+    public OptionalLong estimateCount(String brand, DeviceState state) {
+      return estimate;
+    }
+
+    @Override
+    public long changeWatermark() {
+      return 0;
+    }
+
+    @Override
+    public void applyBatch(DeviceWriteBatch batch) {
+      batches++;
+      // Como o UPDATE ... WHERE version = ?: uma versão velha derruba o bloco inteiro.
+      for (var d : batch.updates()) {
+        var current = store.get(d.id());
+        if (current == null || current.version() != d.version() - 1) {
+          throw new IllegalStateException("Device %s was modified concurrently".formatted(d.id()));
+        }
+      }
+      batch.inserts().forEach(this::save);
+      batch.updates().forEach(this::save);
+      batch.deletes().forEach(d -> store.remove(d.id()));
+    }
   }
 }
@@ -0,0 +1,172 @@
+package dev.roberto.devices.domain.usecase;
+
+import dev.roberto.devices.domain.model.Device;
+import dev.roberto.devices.domain.model.DeviceCount;
+import dev.roberto.devices.domain.model.DeviceField;
+import dev.roberto.devices.domain.model.DeviceState;
+import dev.roberto.devices.domain.model.DeviceView;
+import dev.roberto.devices.domain.port.DeviceCursor;
+import dev.roberto.devices.domain.port.ReactiveDeviceRepository;
+import dev.roberto.devices.domain.usecase.DeviceServiceTest.FixedTimeProvider;
+import dev.roberto.devices.domain.usecase.DeviceServiceTest.InMemoryDeviceRepository;
+import dev.roberto.devices.domain.usecase.command.CreateDeviceCommand;
+import dev.roberto.devices.domain.usecase.command.UpdateDevicePatchCommand;
+import dev.roberto.devices.domain.usecase.command.UpdateDevicePutCommand;
+import dev.roberto.devices.domain.usecase.exception.DomainRuleViolationException;
+import dev.roberto.devices.domain.usecase.exception.NotFoundException;
+import dev.roberto.devices.domain.usecase.exception.VersionConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// As regras são as de DeviceServiceTest; aqui só a orquestração reativa (erros como sinal, retries).
+class ReactiveDeviceServiceTest {
+
+  private InMemoryDeviceRepository repo;
+  private FixedTimeProvider time;
+  private ReactiveDeviceService service;
+
+  @BeforeEach
+  void setUp() {
+    repo = new InMemoryDeviceRepository();
+    time = new FixedTimeProvider(Instant.parse("2025-01-01T00:00:00Z"));
+    service = new ReactiveDeviceService(new ReactiveView(repo), time);
+  }
+
+  @Test
+  void create_shouldPersistWithDefaultStateAndCallerChosenId() {
+    var id = UUID.randomUUID();
+    var created = service.create(new CreateDeviceCommand(id, "WS-01", "Lenovo", null)).block();
+
+    assertEquals(id, created.id());
+    assertEquals(DeviceState.AVAILABLE, created.state());
+    assertEquals(time.now(), created.creationTime());
+    assertEquals(created, repo.store.get(id));
+  }
+
+  @Test
+  void get_shouldSignalNotFound() {
+    assertThrows(NotFoundException.class, () -> service.get(UUID.randomUUID()).block());
+  }
+
+  @Test
+  void updatePatch_shouldApplySameRulesAsBlockingService() {
+    var d = service.create(new CreateDeviceCommand("A", "Apple", DeviceState.IN_USE)).block();
+
+    assertThrows(DomainRuleViolationException.class, () -> service.updatePatch(new UpdateDevicePatchCommand(
+      d.id(), Optional.of("B"), Optional.empty(), Optional.empty())).block());
+    assertThrows(DomainRuleViolationException.class, () -> service.delete(d.id(), OptionalLong.empty()).block());
+  }
+
+  @Test
+  void updatePut_withStaleVersion_shouldConflict_andWithoutVersion_shouldRetry() {
+    var d = service.create(new CreateDeviceCommand("A", "Apple", null)).block();
+
+    assertThrows(VersionConflictException.class, () -> service.updatePut(new UpdateDevicePutCommand(
+      d.id(), "B", "Apple", null, OptionalLong.of(7))).block());
+
+    repo.interleave = () -> repo.store.computeIfPresent(d.id(), (k, v) -> v.withBrand("Other").withVersion(1));
+    var written = service.updatePut(new UpdateDevicePutCommand(d.id(), "B", "Apple", null, OptionalLong.empty())).block();
+    assertEquals("B", written.name());
+    assertEquals(2, written.version());
+  }
+
+  @Test
+  void listPaged_shouldUseEstimateAboveThreshold() {
+    for (int i = 0; i < 3; i++) service.create(new CreateDeviceCommand("D" + i, "Apple", null)).block();
+    repo.estimate = OptionalLong.of(DeviceService.EXACT_COUNT_THRESHOLD * 2);
+
+    var page = service.listPaged(Optional.empty(), Optional.empty(), 0, 2, CountMode.ESTIMATE).block();
+    assertEquals(PageResult.Accuracy.APPROXIMATE, page.accuracy());
+    assertEquals(DeviceService.EXACT_COUNT_THRESHOLD * 2, page.total());
+    assertTrue(page.hasNext());
+
+    var last = service.listPaged(Optional.empty(), Optional.empty(), 1, 2, CountMode.EXACT).block();
+    assertEquals(3, last.total());
+    assertEquals(0, repo.counts, "incomplete page must not count");
+  }
+
+  @Test
+  void listAfter_shouldReturnCursorOnlyWhenMoreRowsExist() {
+    for (int i = 0; i < 3; i++) service.create(new CreateDeviceCommand("D" + i, "Apple", null)).block();
+
+    var first = service.listAfter(Optional.of("Apple"), Optional.empty(), Optional.empty(), 2).block();
+    assertEquals(2, first.items().size());
+    var second = service.listAfter(Optional.of("Apple"), Optional.empty(), first.next(), 2).block();
+    assertEquals(1, second.items().size());
+    assertTrue(second.next().isEmpty());
+  }
+
+  // Fachada reativa sobre o fake bloqueante de DeviceServiceTest.
+  private record ReactiveView(InMemoryDeviceRepository repo) implements ReactiveDeviceRepository {
+    @Override public Mono<Device> insert(Device d) { return Mono.fromSupplier(() -> repo.save(d)); }
+    @Override public Mono<Device> updateIfVersion(Device d, long v) { return Mono.defer(() -> Mono.justOrEmpty(repo.updateIfVersion(d, v))); }
+    @Override public Mono<Boolean> deleteIfVersion(UUID id, long v) { return Mono.fromSupplier(() -> repo.deleteIfVersion(id, v)); }
+    @Override public Mono<Device> updateStateIf(UUID id, DeviceState from, DeviceState to) { return Mono.defer(() -> Mono.justOrEmpty(repo.updateStateIf(id, from, to))); }
+    @Override public Mono<Device> findById(UUID id) { return Mono.defer(() -> Mono.justOrEmpty(repo.findById(id))); }
+    @Override public Flux<Device> scanAll() { return Flux.defer(() -> Flux.fromIterable(repo.findAll())); }
+
+    @Override
+    public Flux<Device> findPaged(String brand, DeviceState state, long offset, int limit) {
+      return Flux.defer(() -> Flux.fromIterable(brand != null && state != null ? repo.findByBrandAndStatePaged(brand, state, offset, limit)
+        : brand != null ? repo.findByBrandPaged(brand, offset, limit)
+        : state != null ? repo.findByStatePaged(state, offset, limit)
+        : repo.findAllPaged(offset, limit)));
+    }
+
+    @Override
+    public Flux<Device> findAfter(String brand, DeviceState state, DeviceCursor after, int limit) {
+      return Flux.defer(() -> Flux.fromIterable(brand != null && state != null ? repo.findByBrandAndStateAfter(brand, state, after, limit)
+        : brand != null ? repo.findByBrandAfter(brand, after, limit)
+        : state != null ? repo.findByStateAfter(state, after, limit)
+        : repo.findAllAfter(after, limit)));
+    }
+
+    @Override
+    public Flux<DeviceView> findPagedView(Set<DeviceField> fields, String brand, DeviceState state, long offset, int limit) {
+      return Flux.defer(() -> Flux.fromIterable(repo.findPagedView(fields, brand, state, offset, limit)));
+    }
+
+    @Override
+    public Flux<DeviceView> findAfterView(Set<DeviceField> fields, String brand, DeviceState state, DeviceCursor after, int limit) {
+      return Flux.defer(() -> Flux.fromIterable(repo.findAfterView(fields, brand, state, after, limit)));
+    }
+
+    @Override
+    public Flux<Device> searchByName(String q, String brand, DeviceState state, long offset, int limit) {
+      return Flux.defer(() -> Flux.fromIterable(repo.searchByName(q, brand, state, offset, limit)));
+    }
+
+    @Override
+    public Flux<DeviceCount> countGroupedByBrandAndState() {
+      return Flux.defer(() -> Flux.fromIterable(repo.countGroupedByBrandAndState()));
+    }
+
+    @Override
+    public Mono<Long> count(String brand, DeviceState state) {
+      return Mono.fromSupplier(() -> brand != null && state != null ? repo.countByBrandAndState(brand, state)
+        : brand != null ? repo.countByBrand(brand)
+        : state != null ? repo.countByState(state)
+        : repo.countAll());
+    }
+
+    @Override
+    public Mono<Long> estimateCount(String brand, DeviceState state) {
+      return Mono.defer(() -> {
+        var e = repo.estimateCount(brand, state);
+        return e.isPresent() ? Mono.just(e.getAsLong()) : Mono.empty();
+      });
+    }
+
+    @Override public Mono<Long> changeWatermark() { return Mono.fromSupplier(repo::changeWatermark); }
+  }
+}